@@ -0,0 +1,113 @@
+package com.example.ubloxreceiver;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import org.osmdroid.tileprovider.MapTileProviderBasic;
+import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.tilesource.BitmapTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// osmdroid 的瓦片提供者，另外做两件事：
+// 统计地图绘制时内存中位图缓存的命中和未命中（未命中的瓦片先显示空白或低一级的放大图）；
+// 作为 TilePrefetcher 的 TileCache，把预取的瓦片写入磁盘缓存，并在预取线程中解码放进内存缓存
+public class CachingTileProvider extends MapTileProviderBasic implements TileCache {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskLoads = new AtomicLong();
+
+    public CachingTileProvider(Context context, ITileSource tileSource) {
+        super(context, tileSource);
+    }
+
+    private static long toIndex(long key) {
+        return MapTileIndex.getTileIndex(TileCorridor.zoom(key), TileCorridor.x(key), TileCorridor.y(key));
+    }
+
+    // 绘制地图时在 UI 线程中对每个可见瓦片调用
+    @Override
+    public Drawable getMapTile(long index) {
+        if (getTileCache().containsTile(index)) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return super.getMapTile(index);
+    }
+
+    // 内存中已有时直接返回；磁盘缓存中有时顺便解码放进内存，不再从网络取
+    @Override
+    public boolean contains(long key) {
+        long index = toIndex(key);
+        if (getTileCache().containsTile(index)) {
+            return true;
+        }
+        IFilesystemCache writer = getTileWriter();
+        ITileSource source = getTileSource();
+        if (writer == null || !writer.exists(source, index)) {
+            return false;
+        }
+        try {
+            Drawable drawable = writer.loadTile(source, index);
+            if (drawable != null) {
+                getTileCache().putTile(index, drawable);
+                diskLoads.incrementAndGet();
+                return true;
+            }
+        } catch (Exception e) {
+            // 磁盘缓存损坏时重新取
+        }
+        return false;
+    }
+
+    @Override
+    public void store(long key, byte[] data) throws IOException {
+        long index = toIndex(key);
+        ITileSource source = getTileSource();
+        IFilesystemCache writer = getTileWriter();
+        if (writer != null) {
+            writer.saveFile(source, index, new ByteArrayInputStream(data), null);
+        }
+        Drawable drawable;
+        try {
+            drawable = source.getDrawable(new ByteArrayInputStream(data));
+        } catch (BitmapTileSourceBase.LowMemoryException e) {
+            throw new IOException("内存不足，无法解码瓦片 " + MapTileIndex.toString(index), e);
+        }
+        if (drawable == null) {
+            throw new IOException("无法解码瓦片 " + MapTileIndex.toString(index));
+        }
+        getTileCache().putTile(index, drawable);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    // 预取时从磁盘缓存载入内存的瓦片
+    public long getDiskLoadCount() {
+        return diskLoads.get();
+    }
+
+    // 单行统计，用于诊断显示
+    public StringBuilder appendStats(StringBuilder sb) {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        sb.append("tile cache hits=").append(hit)
+                .append(" misses=").append(total - hit)
+                .append(" ratio=");
+        FixFormatter.appendFixed(sb, total == 0 ? 0 : hit * 1000 / total, 1);
+        return sb.append("% disk=").append(diskLoads.get())
+                .append(" size=").append(getTileCache().getSize());
+    }
+}
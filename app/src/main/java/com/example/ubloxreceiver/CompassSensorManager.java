@@ -6,17 +6,38 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 
+// 手机朝向：优先使用旋转矢量传感器（系统融合了陀螺仪，噪声更小），没有时退回加速度计 + 磁力计
+// 所有计算用的数组预先分配，传感器数据复制出来，不保留 event.values 的引用（系统会复用这些数组）。
+// 方向经过 HeadingFilter 平滑，变化不超过死区时不回调。
+// 采样率随地图状态调整：地图在动时快，静止时慢，不可见时（stop() 之后）不采样
 public class CompassSensorManager {
+
+    // 采样周期，单位微秒
+    public static final int MOVING_PERIOD_US = 50_000;
+    public static final int IDLE_PERIOD_US = 200_000;
+
     private SensorManager sensorManager;
+    private Sensor rotationVector;
     private Sensor accelerometer;
     private Sensor magnetometer;
     private SensorEventListener sensorEventListener;
 
-    private float[] gravity;      // 加速度数据
-    private float[] geomagnetic;  // 磁场数据
+    private final float[] gravity = new float[3];      // 加速度数据
+    private final float[] geomagnetic = new float[3];  // 磁场数据
+    private final float[] rotation = new float[4];     // 旋转矢量 x, y, z, w
+    private final float[] rotationMatrix = new float[9];
+    private final float[] orientation = new float[3];
+    private boolean hasGravity;
+    private boolean hasGeomagnetic;
 
+    private final HeadingFilter filter = new HeadingFilter();
     private CompassListener compassListener;
 
+    private boolean started;
+    private boolean moving;
+    // 当前注册使用的采样周期，0 表示未注册
+    private int registeredPeriodUs;
+
     // 定义接口，用于回调指南针方向更新
     public interface CompassListener {
         void onDirectionChanged(float direction);
@@ -25,6 +46,7 @@ public class CompassSensorManager {
     // 构造方法
     public CompassSensorManager(Context context, CompassListener listener) {
         sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        rotationVector = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
         accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
         magnetometer = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
         compassListener = listener;
@@ -32,28 +54,34 @@ public class CompassSensorManager {
         sensorEventListener = new SensorEventListener() {
             @Override
             public void onSensorChanged(SensorEvent event) {
-                if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-                    gravity = event.values;
-                } else if (event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
-                    geomagnetic = event.values;
-                }
-
-                if (gravity != null && geomagnetic != null) {
-                    float[] R = new float[9];
-                    float[] I = new float[9];
-                    boolean success = SensorManager.getRotationMatrix(R, I, gravity, geomagnetic);
-                    if (success) {
-                        float[] orientation = new float[3];
-                        SensorManager.getOrientation(R, orientation);
-                        // orientation[0] 是方位角，单位为弧度，转换为角度
-                        float azimuthInDegrees = (float) Math.toDegrees(orientation[0]);
-                        if (azimuthInDegrees < 0) {
-                            azimuthInDegrees += 360;
-                        }
-
-                        // 调用接口方法，将方向角传给 MainActivity 或其他类
-                        compassListener.onDirectionChanged(azimuthInDegrees);
+                int type = event.sensor.getType();
+                if (type == Sensor.TYPE_ROTATION_VECTOR) {
+                    // 有的设备给出 5 个值（多一个精度估计），只取前 4 个
+                    int n = Math.min(event.values.length, rotation.length);
+                    System.arraycopy(event.values, 0, rotation, 0, n);
+                    SensorManager.getRotationMatrixFromVector(rotationMatrix, rotation);
+                } else {
+                    if (type == Sensor.TYPE_ACCELEROMETER) {
+                        System.arraycopy(event.values, 0, gravity, 0, 3);
+                        hasGravity = true;
+                    } else if (type == Sensor.TYPE_MAGNETIC_FIELD) {
+                        System.arraycopy(event.values, 0, geomagnetic, 0, 3);
+                        hasGeomagnetic = true;
                     }
+                    if (!hasGravity || !hasGeomagnetic
+                            || !SensorManager.getRotationMatrix(rotationMatrix, null, gravity, geomagnetic)) {
+                        return;
+                    }
+                }
+                SensorManager.getOrientation(rotationMatrix, orientation);
+                // orientation[0] 是方位角，单位为弧度，转换为角度
+                float azimuthInDegrees = (float) Math.toDegrees(orientation[0]);
+                if (azimuthInDegrees < 0) {
+                    azimuthInDegrees += 360;
+                }
+                // 平滑后变化超过死区才通知 MainActivity
+                if (filter.update(azimuthInDegrees, event.timestamp)) {
+                    compassListener.onDirectionChanged(filter.heading());
                 }
             }
 
@@ -65,15 +93,52 @@ public class CompassSensorManager {
         };
     }
 
-    // 开始监听传感器数据
+    public HeadingFilter getFilter() {
+        return filter;
+    }
+
+    // 是否使用旋转矢量传感器
+    public boolean usesRotationVector() {
+        return rotationVector != null;
+    }
+
+    // 开始监听传感器数据（地图可见）
     public void start() {
-        sensorManager.registerListener(sensorEventListener, accelerometer, SensorManager.SENSOR_DELAY_UI);
-        sensorManager.registerListener(sensorEventListener, magnetometer, SensorManager.SENSOR_DELAY_UI);
+        started = true;
+        // 暂停期间的数据已经过时
+        filter.reset();
+        hasGravity = false;
+        hasGeomagnetic = false;
+        register();
     }
 
-    // 停止监听传感器数据
+    // 停止监听传感器数据（地图不可见）
     public void stop() {
+        started = false;
         sensorManager.unregisterListener(sensorEventListener);
+        registeredPeriodUs = 0;
     }
-}
 
+    // 地图是否在移动，决定采样率；只在状态变化时重新注册
+    public void setMoving(boolean moving) {
+        if (this.moving != moving) {
+            this.moving = moving;
+            register();
+        }
+    }
+
+    private void register() {
+        int period = moving ? MOVING_PERIOD_US : IDLE_PERIOD_US;
+        if (!started || period == registeredPeriodUs) {
+            return;
+        }
+        sensorManager.unregisterListener(sensorEventListener);
+        if (rotationVector != null) {
+            sensorManager.registerListener(sensorEventListener, rotationVector, period);
+        } else {
+            sensorManager.registerListener(sensorEventListener, accelerometer, period);
+            sensorManager.registerListener(sensorEventListener, magnetometer, period);
+        }
+        registeredPeriodUs = period;
+    }
+}
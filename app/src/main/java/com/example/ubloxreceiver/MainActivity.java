@@ -6,11 +6,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.hardware.usb.UsbDevice;
-import android.hardware.usb.UsbDeviceConnection;
-import android.hardware.usb.UsbEndpoint;
-import android.hardware.usb.UsbInterface;
 import android.hardware.usb.UsbManager;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
@@ -22,21 +20,43 @@ import org.osmdroid.config.Configuration;
 import org.osmdroid.library.BuildConfig;
 import org.osmdroid.views.MapView;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
-public class MainActivity extends Activity implements CompassSensorManager.CompassListener {
+public class MainActivity extends Activity implements CompassSensorManager.CompassListener, UiPublisher.Renderer {
 
     private UsbManager usbManager;
-    private UsbDeviceConnection connection;
-    private UsbEndpoint endpoint;
-    private UsbInterface usbInterface;
-    private UsbDevice device;
+    // 所有接收机共用的线程池和按 iTOW 合并的定位流
+    private ReceiverGroup receiverGroup;
+    // 每台接收机一个连接会话，按设备名；只在 UI 线程访问
+    private final Map<String, ConnectionSupervisor> supervisors = new LinkedHashMap<>();
+    // 所有会话共用的状态线程：打开、断开和重连都在这里进行，不阻塞 UI 线程
+    private ScheduledExecutorService supervisorScheduler;
 
     private TextView dataTextView;
     private TextView errorTextView;
+    // 诊断覆盖层：接收路径的计数和各段耗时，每秒刷新；启动参数 diagnostics 为 true 时显示，长按定位文字切换
+    private TextView diagnosticsTextView;
+    private static final String EXTRA_DIAGNOSTICS = "diagnostics";
+    private static final long DIAGNOSTICS_INTERVAL_MS = 1000;
+    private final Runnable diagnosticsUpdater = this::updateDiagnostics;
     private ListView deviceListView;
 
     private PendingIntent permissionIntent;
@@ -44,10 +64,36 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
     private UsbBroadcastReceiver usbBroadcastReceiver;
 
     private static final String ACTION_USB_PERMISSION = "Permission_ok";
+    // 连接后写入接收机的配置方案
+    private static final UbxConfigProfile CONNECT_PROFILE = UbxConfigProfile.NAV_PVT_20HZ;
+    // 差分数据来源，由启动参数 corrections 指定："tcp://host:port"、文件路径，
+    // 或 "receiver"（把一台接收机输出的 RTCM3 转发给其他接收机）；没有时不转发。
+    // 启动参数 rtcmTypes（int 数组）只转发这些消息号
+    private static final String EXTRA_CORRECTIONS = "corrections";
+    private static final String EXTRA_RTCM_TYPES = "rtcmTypes";
+    private static final String RECEIVER_CORRECTIONS = "receiver";
+    private String correctionSpec;
+    private int[] correctionTypes;
+    // 正在接收差分数据的连接，在解码线程中遍历
+    private final List<ReceiverConnection> correctionTargets = new CopyOnWriteArrayList<>();
 
     private MapView mapView;
     private CompassSensorManager compassSensorManager;
+    // 地图最后一次随定位移动的时间
+    private long lastMovedNanos;
+    private static final long STILL_TIMEOUT_NANOS = 5_000_000_000L;
     private MapManager mapManager;
+    private UiPublisher uiPublisher;
+    // UiPublisher 的位置预测器，只在 UI 线程访问；它的速度和航向也用于预取前方的地图瓦片
+    private PositionPredictor predictor;
+    // 启动参数 tileServer：地图瓦片服务的地址，例如测试时本机的瓦片服务
+    private static final String EXTRA_TILE_SERVER = "tileServer";
+    // 围栏文件的路径（格式见 Geofence.readAll），没有时不做围栏判断
+    private static final String EXTRA_GEOFENCES = "geofences";
+    private GeofenceEngine geofenceEngine;
+    private final FixFormatter fixFormatter = new FixFormatter();
+    // 是否已显示"正在接收"，只在 UI 线程访问
+    private boolean receiving;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,6 +105,19 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
         dataTextView = findViewById(R.id.dataTextView);
         errorTextView = findViewById(R.id.errorTextView);
         deviceListView = findViewById(R.id.deviceListView);
+        diagnosticsTextView = findViewById(R.id.diagnosticsTextView);
+        if (getIntent().getBooleanExtra(EXTRA_DIAGNOSTICS, false)) {
+            diagnosticsTextView.setVisibility(View.VISIBLE);
+        }
+        dataTextView.setOnLongClickListener(v -> {
+            boolean show = diagnosticsTextView.getVisibility() != View.VISIBLE;
+            diagnosticsTextView.setVisibility(show ? View.VISIBLE : View.GONE);
+            diagnosticsTextView.removeCallbacks(diagnosticsUpdater);
+            if (show) {
+                updateDiagnostics();
+            }
+            return true;
+        });
 
         // 初始化USB广播接收器
         usbBroadcastReceiver = new UsbBroadcastReceiver(this);
@@ -74,17 +133,30 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
 
         mapView = findViewById(R.id.mapview);
         mapManager = new MapManager(this, mapView);
+        String tileServer = getIntent().getStringExtra(EXTRA_TILE_SERVER);
+        if (tileServer != null) {
+            mapManager.setTileServer(tileServer);
+        }
         mapManager.Initialize();
+        uiPublisher = new UiPublisher(this);
+        // 两次定位之间按预测位置逐帧移动地图和标记
+        predictor = new PositionPredictor();
+        uiPublisher.setPredictor(predictor);
         // 初始化指南针传感器管理器
         compassSensorManager = new CompassSensorManager(this, this);
 
-        listUsbDevices();
-        UsbDevice device = findUsbDevice();
-        if (device != null) {
-            // 更新主界面（如设置连接和开始读取数据）
-            setupUsbConnection(device);
-            startReadingData(device);
+        String geofences = getIntent().getStringExtra(EXTRA_GEOFENCES);
+        if (geofences != null) {
+            loadGeofences(geofences);
         }
+
+        correctionSpec = getIntent().getStringExtra(EXTRA_CORRECTIONS);
+        correctionTypes = getIntent().getIntArrayExtra(EXTRA_RTCM_TYPES);
+        receiverGroup = new ReceiverGroup(this::onEpoch);
+        supervisorScheduler = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "ubx-supervisor"));
+        listUsbDevices();
+        // 连接所有已插入的接收机
+        connectReceivers();
     }
 
 
@@ -131,99 +203,322 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
         }
     }
 
-    // 寻找指定Ublox
-    public UsbDevice findUsbDevice() {
+    // 寻找所有指定的 Ublox
+    public List<UsbDevice> findUsbDevices() {
+        List<UsbDevice> devices = new ArrayList<>();
         for (UsbDevice device : usbManager.getDeviceList().values()) {
             if (device.getVendorId() == 0x1546 && device.getProductId() == 0x01A9) {
-                errorTextView.append("已找到设备\n");
-                return device;
+                devices.add(device);
             }
         }
-        return null;
+        return devices;
     }
 
-    // 建立连接
-    public void setupUsbConnection(UsbDevice device) {
-        // 设置interface
-        usbInterface = device.getInterface(1);
-        // 设置endpoint
-        endpoint = usbInterface.getEndpoint(1);
-        // 建立连接
-        connection = usbManager.openDevice(device);
-        if (connection == null) {
-            errorTextView.append("建立连接失败\n");
-            return;
-        } else {
-            errorTextView.append("建立连接成功\n");
+    // 为每台有权限、还没有会话的接收机建立连接会话，返回新建会话的数量；
+    // 已有会话的设备（例如重复收到权限广播）只在它等待重连时立即重试，不会重复打开
+    public int connectReceivers() {
+        int started = 0;
+        for (UsbDevice device : findUsbDevices()) {
+            ConnectionSupervisor existing = supervisors.get(device.getDeviceName());
+            if (existing != null) {
+                existing.retryNow();
+                continue;
+            }
+            errorTextView.append("已找到设备: " + device.getDeviceName() + "\n");
+            if (!usbManager.hasPermission(device)) {
+                errorTextView.append("无权限访问USB\n");
+                continue;
+            }
+            ConnectionSupervisor supervisor = createSupervisor(device.getDeviceName());
+            supervisors.put(device.getDeviceName(), supervisor);
+            supervisor.start();
+            started++;
         }
-        // 声明独占
-        connection.claimInterface(usbInterface, true);
+        return started;
     }
 
-    //  读取数据
-    public void startReadingData(UsbDevice device) {
-        new Thread(() -> {
-            byte[] buffer = new byte[1024]; // 用于接收数据的缓冲区
-            int bytesRead = 0;
+    // 设备拔出：结束它的会话，释放接口和连接，不再重连
+    public void disconnectReceiver(UsbDevice device) {
+        ConnectionSupervisor supervisor = supervisors.remove(device.getDeviceName());
+        if (supervisor != null) {
+            supervisor.closeAsync();
+        }
+    }
 
-            while (true) {
-                if (!usbManager.hasPermission(device)) {
-                    runOnUiThread(() -> errorTextView.setText("无权限访问USB\n"));
-                    break;
-                }
+    // 一台接收机的连接会话：每次连接打开设备、在接收机组中开一个通道，读取和解码在组的线程池中进行，
+    // 定位按 iTOW 合并后送到 onEpoch；断开后按退避重连
+    private ConnectionSupervisor createSupervisor(String name) {
+        ConnectionSupervisor.Connector connector = () -> {
+            // 每次重连都重新查找，设备已拔出时本次尝试失败
+            UsbDevice device = usbManager.getDeviceList().get(name);
+            if (device == null) {
+                throw new IOException("设备已断开: " + name);
+            }
+            return ReceiverConnection.open(usbManager, device);
+        };
+        ConnectionSupervisor supervisor = new ConnectionSupervisor(name, receiverGroup, connector,
+                new ConnectionSupervisor.Listener() {
+                    @Override
+                    public void onConnected(ReceiverGroup.Channel channel, ByteSource source) {
+                        ReceiverConnection receiver = (ReceiverConnection) source;
+                        if (receiver.configurator != null) {
+                            receiver.configurator.register(channel.getDecoder());
+                        }
+                        startRecording(receiver, channel);
+                        startCorrections(receiver, channel);
+                        showMessage("建立连接成功: " + name);
+                        applyProfile(receiver, CONNECT_PROFILE);
+                    }
+
+                    @Override
+                    public void onDisconnected(ReceiverGroup.Channel channel, ByteSource source, IOException cause) {
+                        stopCorrections((ReceiverConnection) source);
+                        // 写完缓冲区中的数据并截断文件
+                        closeRecorder((ReceiverConnection) source);
+                        if (cause != null) {
+                            showMessage(name + ": " + cause.getMessage());
+                        }
+                    }
+
+                    @Override
+                    public void onStateChanged(ConnectionSupervisor.State state) {
+                        if (state == ConnectionSupervisor.State.BACKOFF) {
+                            showMessage(name + ": 连接断开，正在重连");
+                        } else if (state == ConnectionSupervisor.State.FAILED) {
+                            showMessage(name + ": 重连失败，已停止");
+                        }
+                    }
+                }, supervisorScheduler);
+        supervisor.setSourceListener(new UbxPipeline.SourceListener() {
+            @Override
+            public void onStalled() {
+                runOnUiThread(() -> {
+                    receiving = false;
+                    errorTextView.setText("接收不到数据: " + name + "\n");
+                });
+            }
+
+            @Override
+            public void onResumed() {
+                // 收到新定位时由 renderFix 恢复状态显示
+            }
+
+            @Override
+            public void onSourceError(IOException e) {
+                // 由会话的 onDisconnected 显示
+            }
 
-                bytesRead = connection.bulkTransfer(endpoint, buffer, buffer.length, 5000);
+            @Override
+            public void onSourceEnd() {
+            }
+        });
+        return supervisor;
+    }
 
-                if (bytesRead > 0) {
+    // 在接收开始前读入围栏，进入、离开和停留显示在消息区
+    private void loadGeofences(String path) {
+        try (Reader reader = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            List<Geofence> zones = Geofence.readAll(reader);
+            geofenceEngine = new GeofenceEngine(zones, (zone, transition, timeMs) -> {
+                String message = zone.getId() + ": " + transition + " @" + timeMs;
+                Log.i("MainActivity", "geofence " + message);
+                showMessage(message);
+            });
+            showMessage("已载入围栏 " + zones.size() + " 个");
+        } catch (IOException e) {
+            showMessage("无法读取围栏: " + e.getMessage());
+        }
+    }
 
-                    // 处理接收到的数据
-                    parseUBX_NAV_POSLLH(buffer, bytesRead);
+    // 可以在任何线程调用
+    private void showMessage(String message) {
+        runOnUiThread(() -> errorTextView.append(message + "\n"));
+    }
 
-                } else {
-                    runOnUiThread(() -> errorTextView.setText("接收不到数据\n"));
-                }
+    // 在后台线程写入配置并等待应答，应答由解码线程送达
+    private void applyProfile(ReceiverConnection receiver, UbxConfigProfile profile) {
+        UbxConfigurator target = receiver.configurator;
+        String name = receiver.name();
+        if (target == null) {
+            showMessage(name + ": 没有 OUT 端点，无法配置接收机");
+            return;
+        }
+        new Thread(() -> {
+            String result;
+            try {
+                result = target.apply(profile, UbxConfigurator.DEFAULT_TIMEOUT_MS)
+                        ? name + ": 已应用配置: " + profile
+                        : name + ": 配置未生效: " + profile + " (NAK " + target.getNakCount()
+                        + ", 超时 " + target.getTimeoutCount() + ")";
+            } catch (IOException e) {
+                result = name + ": 配置失败: " + e.getMessage();
+            } catch (InterruptedException e) {
+                return;
             }
-        }).start();
+            showMessage(result);
+        }, "ubx-config").start();
     }
 
-    private void parseUBX_NAV_POSLLH(byte[] data, int length) {
-        // 确保数据符合格式
-        if (length >= 28 && data[0] == (byte) 0xb5 && data[1] == (byte) 0x62 &&
-                data[2] == (byte) 0x01 && data[3] == (byte) 0x02) {
-
-            // 解析数据
-            int iTOW = byteArrayToInt(data, 6, 4) / 1000; // GPS time of week in seconds
-            double lon = byteArrayToInt(data, 10, 4) / 1e7; // Longitude in degrees
-            double lat = byteArrayToInt(data, 14, 4) / 1e7; // Latitude in degrees
-            double height = byteArrayToInt(data, 18, 4) / 1000.0; // Height in meters
-            double hMSL = byteArrayToInt(data, 22, 4) / 1000.0; // Height above mean sea level in meters
-            int hAcc = byteArrayToInt(data, 26, 4) / 1000; // Horizontal Accuracy in meters
-            int vAcc = byteArrayToInt(data, 30, 4) / 1000; // Vertical Accuracy in meters
-
-
-            // 将数据转为字符串
-            String positionData = "iTOW(s): " + iTOW + "\nLongitude(°E): " + lon + "\nLatitude(°N): " + lat + "\nHeight(m): " + hMSL + "\nhAcc(m): " + hAcc + "\nvAcc(m): " + vAcc;
-
-            // 更新 UI和地图
-            runOnUiThread(() -> {
-                dataTextView.setText(positionData);
-                if(lon != 0){
-                    mapManager.setMap(lat,lon);
+    // 按启动参数为新连接的接收机转发差分数据；写入走 OUT 端点，和配置消息共用 outSink，不影响读取
+    private void startCorrections(ReceiverConnection receiver, ReceiverGroup.Channel channel) {
+        if (correctionSpec == null) {
+            return;
+        }
+        boolean fromReceivers = RECEIVER_CORRECTIONS.equals(correctionSpec);
+        if (fromReceivers) {
+            // 这台接收机输出的 RTCM3 在它的解码线程中转发给其他接收机
+            channel.setRtcmListener((frame, offset, length) -> {
+                for (ReceiverConnection target : correctionTargets) {
+                    CorrectionForwarder forwarder = target.corrections;
+                    if (target != receiver && forwarder != null) {
+                        forwarder.offer(frame, offset, length);
+                    }
                 }
-                errorTextView.setText("正在接收...");
             });
-        } else {
-            runOnUiThread(() -> errorTextView.setText("不合法的数据或头部字节\n"));
         }
+        if (receiver.outSink == null) {
+            showMessage(receiver.name() + ": 没有 OUT 端点，无法写入差分数据");
+            return;
+        }
+        CorrectionForwarder forwarder = new CorrectionForwarder(receiver.outSink);
+        forwarder.setMessageFilter(correctionTypes);
+        forwarder.start();
+        receiver.corrections = forwarder;
+        correctionTargets.add(receiver);
+        if (fromReceivers) {
+            return;
+        }
+        // 建立 TCP 连接可能要等几秒，不占用会话线程
+        String spec = correctionSpec;
+        new Thread(() -> {
+            try {
+                forwarder.startSource(CorrectionForwarder.openSource(spec), CorrectionForwarder.isLive(spec));
+            } catch (IOException e) {
+                showMessage(receiver.name() + ": 无法打开差分数据: " + e.getMessage());
+            }
+        }, "rtcm-connect").start();
+    }
+
+    private void stopCorrections(ReceiverConnection receiver) {
+        CorrectionForwarder forwarder = receiver.corrections;
+        if (forwarder == null) {
+            return;
+        }
+        correctionTargets.remove(receiver);
+        receiver.corrections = null;
+        try {
+            forwarder.close();
+        } catch (IOException e) {
+            showMessage("差分数据源关闭异常: " + e.getMessage());
+        }
+        Log.i("MainActivity", forwarder.appendStats(new StringBuilder(receiver.name()).append(' ')).toString());
     }
 
-    // 辅助方法，将字节数组转换为整数 byte和int都带符号位，所以不用管符号位
-    private int byteArrayToInt(byte[] bytes, int offset, int length) {
-        int value = 0;
-        for (int i = 0; i < length; i++) {
-            value |= (bytes[offset + i] & 0xFF) << (i * 8);
+    // 把原始字节流记录到应用专属目录，每台接收机每次连接一个会话目录，便于事后处理和回放
+    private void startRecording(ReceiverConnection receiver, ReceiverGroup.Channel channel) {
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date())
+                + "-" + channel.index();
+        try {
+            receiver.recorder = new UbxSessionRecorder(new File(getExternalFilesDir("sessions"), name));
+            channel.getPipeline().setTap(receiver.recorder);
+        } catch (IOException e) {
+            showMessage("无法记录数据: " + e.getMessage());
         }
-        return value;
+    }
+
+    private void closeRecorder(ReceiverConnection receiver) {
+        if (receiver.recorder == null) {
+            return;
+        }
+        try {
+            receiver.recorder.close();
+        } catch (IOException e) {
+            showMessage("记录异常: " + e.getMessage());
+        }
+        receiver.recorder = null;
+    }
+
+    // 合并后的历元，在某台接收机的解码线程中串行调用（不持有合并器的锁）；取水平精度最好的接收机显示
+    private void onEpoch(EpochMerger.Epoch epoch) {
+        int best = epoch.best();
+        if (best < 0) {
+            return;
+        }
+        publishFix(epoch.timeMs(), epoch.iTOW(), epoch.lonE7(best), epoch.latE7(best), epoch.hMSL(best),
+                epoch.hAcc(best), epoch.vAcc(best), epoch.receivedNanos(best));
+        // 合并器的回调是串行的，围栏判断不需要另外加锁
+        if (geofenceEngine != null) {
+            geofenceEngine.update(epoch.timeMs(), epoch.latE7(best), epoch.lonE7(best), epoch.hAcc(best));
+        }
+    }
+
+    // 在解码线程中覆盖最新定位，UI 在下一帧统一刷新。坐标单位 1e-7 度，高度和精度单位 mm，
+    // readNanos 为这次定位从 USB 读出的时间
+    private void publishFix(long timeMs, long iTOW, int lonE7, int latE7, int hMSL, long hAcc, long vAcc, long readNanos) {
+        // 保存到轨迹，timeMs 是合并时展开成单调递增的 iTOW
+        mapManager.getTrack().append(timeMs, latE7, lonE7, hMSL, (int) Math.min(hAcc, Integer.MAX_VALUE));
+        FixSnapshot fix = uiPublisher.beginFix();
+        fix.set(iTOW, lonE7, latE7, hMSL, hAcc, vAcc, System.nanoTime());
+        fix.readNanos = readNanos;
+        uiPublisher.publishFix();
+    }
+
+    // UI 线程：刷新诊断覆盖层，显示期间每秒一次
+    private void updateDiagnostics() {
+        if (diagnosticsTextView.getVisibility() != View.VISIBLE) {
+            return;
+        }
+        MetricsSnapshot snapshot = receiverGroup.snapshot(uiPublisher.getDecodeToDisplay(), uiPublisher.getReadToDisplay());
+        diagnosticsTextView.setText(snapshot.appendTo(new StringBuilder()));
+        diagnosticsTextView.postDelayed(diagnosticsUpdater, DIAGNOSTICS_INTERVAL_MS);
+    }
+
+    // 以下方法由 UiPublisher 在 UI 线程中调用，每帧最多一次
+    @Override
+    public double metersPerPixel(double latitude) {
+        return mapManager.metersPerPixel(latitude);
+    }
+
+    @Override
+    public void renderFix(FixSnapshot fix, boolean moved) {
+        int length = fixFormatter.format(fix);
+        dataTextView.setText(fixFormatter.chars(), 0, length);
+        if (fix.lonE7 != 0) {
+            // 按预测的速度和航向提前取前方的地图瓦片
+            mapManager.prefetchAhead(fix.lat(), fix.lon(), predictor.speed(), predictor.heading());
+        }
+        // 位移不足一个像素时不移动地图
+        if (moved && fix.lonE7 != 0) {
+            followPosition(fix.lat(), fix.lon());
+        } else if (System.nanoTime() - lastMovedNanos > STILL_TIMEOUT_NANOS) {
+            // 一段时间没有移动地图后降低指南针采样率
+            compassSensorManager.setMoving(false);
+        }
+        if (!receiving) {
+            receiving = true;
+            errorTextView.setText("正在接收...");
+        }
+    }
+
+    @Override
+    public void renderPosition(int latE7, int lonE7) {
+        if (lonE7 != 0) {
+            followPosition(UbxUnits.toDegrees(latE7), UbxUnits.toDegrees(lonE7));
+        }
+    }
+
+    private void followPosition(double latitude, double longitude) {
+        mapManager.setMap(latitude, longitude);
+        lastMovedNanos = System.nanoTime();
+        compassSensorManager.setMoving(true);
+    }
+
+    @Override
+    public void renderHeading(float heading) {
+        // 更新自定义标记的方向
+        mapManager.setDirection(heading);
+        // 刷新地图以更新显示
+        mapView.invalidate();
     }
 
     // 在 Activity 从 onPause() 状态回到前台时触发，或者在 Activity 启动时
@@ -233,6 +528,7 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
         mapView.onResume();
         // 开始监听指南针方向
         compassSensorManager.start();
+        updateDiagnostics();
     }
 
     // onPause() 在 Activity 不再处于前台并且用户无法与之交互时被调用。
@@ -241,8 +537,33 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
     protected void onPause() {
         super.onPause();
         mapView.onPause();
+        diagnosticsTextView.removeCallbacks(diagnosticsUpdater);
         // 停止监听指南针方向
         compassSensorManager.stop();
+        // 输出地图覆盖层的绘制耗时，便于比较不同版本
+        Log.i("MainActivity", mapManager.appendDrawTimes(new StringBuilder("draw times\n")).toString());
+        Log.i("MainActivity", mapManager.appendTileStats(new StringBuilder("map tiles\n")).toString());
+        if (geofenceEngine != null) {
+            Log.i("MainActivity", geofenceEngine.appendStats(new StringBuilder()).toString());
+        }
+        // 每台接收机的统计、合并流的统计和连接会话的状态
+        StringBuilder stats = receiverGroup.appendStats(new StringBuilder("receivers\n"))
+                .append("\nlive threads=").append(receiverGroup.getLiveThreadCount());
+        for (ConnectionSupervisor supervisor : supervisors.values()) {
+            stats.append('\n').append(supervisor.getName()).append(' ').append(supervisor.getState())
+                    .append(" reconnects=").append(supervisor.getReconnectCount())
+                    .append(" failed=").append(supervisor.getFailedAttemptCount());
+        }
+        for (ReceiverConnection target : correctionTargets) {
+            CorrectionForwarder forwarder = target.corrections;
+            if (forwarder != null) {
+                forwarder.appendStats(stats.append('\n').append(target.name()).append(' '));
+            }
+        }
+        Log.i("MainActivity", stats.toString());
+        // 接收路径各段的计数和耗时
+        Log.i("MainActivity", receiverGroup.snapshot(uiPublisher.getDecodeToDisplay(), uiPublisher.getReadToDisplay())
+                .appendTo(new StringBuilder("pipeline metrics\n")).toString());
     }
 
     // onDestroy() 是 Activity 即将被销毁（从内存中移除）时调用的
@@ -251,16 +572,40 @@ public class MainActivity extends Activity implements CompassSensorManager.Compa
         super.onDestroy();
         // 注销广播接收器，防止内存泄漏
         unregisterReceiver(usbBroadcastReceiver);
+        mapManager.close();
+        // 结束所有会话：取消读取、等待线程退出、写完记录、释放接口和连接。
+        // 等待会话和流水线退出都在后台线程中进行，不阻塞 UI 线程
+        for (ConnectionSupervisor supervisor : supervisors.values()) {
+            supervisor.closeAsync();
+        }
+        supervisors.clear();
+        supervisorScheduler.shutdown();
+        ScheduledExecutorService scheduler = supervisorScheduler;
+        ReceiverGroup group = receiverGroup;
+        new Thread(() -> shutdownReceivers(scheduler, group), "ubx-shutdown").start();
+    }
+
+    // 后台线程：会话最多等 CLOSE_TIMEOUT_MS，之后关闭接收机组中剩下的通道
+    private static void shutdownReceivers(ScheduledExecutorService scheduler, ReceiverGroup group) {
+        try {
+            if (!scheduler.awaitTermination(ConnectionSupervisor.CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w("MainActivity", "连接会话未能及时关闭");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            group.close();
+        } catch (IOException e) {
+            Log.w("MainActivity", "关闭接收机组失败", e);
+        }
     }
 
 
-    // 提供指南针方向更新时该做什么
+    // 提供指南针方向更新时该做什么：只记录最新方向，由 UiPublisher 在下一帧判断是否需要重绘
     @Override
     public void onDirectionChanged(float direction) {
-        // 更新自定义标记的方向
-        mapManager.setDirection(direction);
-        // 刷新地图以更新显示
-        mapView.invalidate();
+        uiPublisher.publishHeading(direction);
     }
 
 }
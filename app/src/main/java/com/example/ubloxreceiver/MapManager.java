@@ -7,8 +7,16 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Point;
 
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileArea;
+import org.osmdroid.util.TileSystem;
 import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
 import org.osmdroid.views.overlay.Overlay;
 import org.osmdroid.views.overlay.compass.CompassOverlay;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
@@ -19,14 +27,44 @@ public class MapManager {
     private Context context;
     private MapView mapView;
     private CustomMarkerOverlay markerOverlay;
+    private TrackOverlay trackOverlay;
+    // 各覆盖层每次 draw 的耗时
+    private final LatencyHistogram trackDrawTime = new LatencyHistogram("track");
+    private final LatencyHistogram markerDrawTime = new LatencyHistogram("marker");
     private GeoPoint nowGeoPoint;
+    // 完整轨迹，由解码线程写入
+    private final TrackStore track = new TrackStore();
+    // 瓦片服务的地址（例如本机的 "http://127.0.0.1:8080/"），null 时使用 OSM 标准瓦片
+    private String tileServer;
+    private CachingTileProvider tileProvider;
+    // 沿预测方向提前取瓦片放进缓存；走廊覆盖的瓦片不会被内存缓存回收
+    private TilePrefetcher prefetcher;
+    private final long[] corridor = new long[TilePrefetcher.DEFAULT_MAX_TILES];
+    private final MapTileArea corridorArea = new MapTileArea();
 
     public MapManager(Context context, MapView mapView){
         this.context = context;
         this.mapView = mapView;
     }
 
+    // 在 Initialize() 之前调用；地图显示和预取都从这个服务取瓦片，格式为 {z}/{x}/{y}.png
+    public void setTileServer(String baseUrl) {
+        this.tileServer = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
     public void Initialize() {
+        OnlineTileSourceBase tileSource = tileServer == null ? TileSourceFactory.MAPNIK
+                : new XYTileSource("Custom", 0, 19, 256, ".png", new String[]{tileServer});
+        tileProvider = new CachingTileProvider(context, tileSource);
+        mapView.setTileProvider(tileProvider);
+        // 保护预取走廊中的瓦片，回收内存缓存时和可见瓦片一样保留
+        tileProvider.getTileCache().getAdditionalMapTileList().getList().add(corridorArea);
+        mapView.addOnFirstLayoutListener((view, left, top, right, bottom) ->
+                sizeTileCache(right - left, bottom - top, tileSource.getTileSizePixels()));
+        prefetcher = new TilePrefetcher(new HttpTileSource(
+                tileSource.getBaseUrl() + "{z}/{x}/{y}" + tileSource.imageFilenameEnding(),
+                Configuration.getInstance().getUserAgentValue()), tileProvider);
+        prefetcher.start();
 
         // MapView 是 osmdroid 提供的地图视图组件，用于显示地图
         mapView.setBuiltInZoomControls(true);
@@ -49,6 +87,10 @@ public class MapManager {
         // 通过传感器获取手机指南针朝向
         compassOverlay.enableCompass();
 
+        // 轨迹覆盖层，画在位置标记下面
+        trackOverlay = new TrackOverlay();
+        mapView.getOverlays().add(trackOverlay);
+
         // 添加自定义当前位置标记
         markerOverlay = new CustomMarkerOverlay();
         mapView.getOverlays().add(markerOverlay);
@@ -57,8 +99,73 @@ public class MapManager {
 
     }
 
+    public TrackStore getTrack(){
+        return track;
+    }
+
     public void setDirection(float direction){
-        markerOverlay.direction = direction;
+        markerOverlay.setDirection(direction);
+    }
+
+    public LatencyHistogram getTrackDrawTime(){
+        return trackDrawTime;
+    }
+
+    public LatencyHistogram getMarkerDrawTime(){
+        return markerDrawTime;
+    }
+
+    // 输出各覆盖层的绘制耗时概要，每个覆盖层一行
+    public StringBuilder appendDrawTimes(StringBuilder sb){
+        trackDrawTime.appendTo(sb).append('\n');
+        return markerDrawTime.appendTo(sb);
+    }
+
+    // 当前缩放级别下，指定纬度处每个像素对应的米数
+    public double metersPerPixel(double latitude){
+        return TileSystem.GroundResolution(latitude, mapView.getZoomLevelDouble());
+    }
+
+    // 内存中的位图缓存容量：可见范围的瓦片加一圈，再加上整条预取走廊，转弯时刚预取的瓦片不会马上被挤掉
+    private void sizeTileCache(int width, int height, int tilePixels){
+        int columns = width / tilePixels + 2;
+        int rows = height / tilePixels + 2;
+        tileProvider.ensureCapacity(columns * rows + corridor.length);
+    }
+
+    // UI 线程：每次定位后按预测的速度（m/s）和航向（度）更新预取走廊
+    public void prefetchAhead(double latitude, double longitude, double speed, float heading){
+        int zoom = (int) Math.floor(mapView.getZoomLevelDouble());
+        if (!prefetcher.update(latitude, longitude, speed, heading, zoom)) {
+            return;
+        }
+        int count = prefetcher.copyCorridor(corridor);
+        if (count == 0) {
+            corridorArea.reset();
+            return;
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, TileCorridor.x(corridor[i]));
+            minY = Math.min(minY, TileCorridor.y(corridor[i]));
+            maxX = Math.max(maxX, TileCorridor.x(corridor[i]));
+            maxY = Math.max(maxY, TileCorridor.y(corridor[i]));
+        }
+        corridorArea.set(zoom, minX, minY, maxX, maxY);
+    }
+
+    // 瓦片缓存的命中率和预取统计，各一行
+    public StringBuilder appendTileStats(StringBuilder sb){
+        tileProvider.appendStats(sb).append('\n');
+        return prefetcher.appendStats(sb);
+    }
+
+    // 停止预取线程，不等待正在进行的请求，可以在 UI 线程调用
+    public void close(){
+        prefetcher.close();
     }
 
     public void setMap(double latitude, double longitude){
@@ -68,13 +175,119 @@ public class MapManager {
     }
 
 
+    // 轨迹覆盖层：按缩放级别选用简化后的折线，只绘制视口内的线段
+    // 每帧从 TrackStore 增量取出新的定位点加入 TrackLod，绘制用的数组复用，轨迹变长时帧耗时不随之增长
+    private class TrackOverlay extends Overlay {
+        // 每帧最多导入的点数，避免载入长轨迹时卡住一帧
+        private static final int MAX_INGEST_PER_FRAME = 4096;
+
+        private final TrackLod lod = new TrackLod();
+        private final TrackStore.Cursor cursor = track.cursor();
+        private final Paint paint = new Paint();
+        private int[] segments = new int[4096];
+        private float[] points = new float[4096];
+
+        TrackOverlay() {
+            paint.setAntiAlias(true);
+            paint.setColor(Color.BLUE);
+            paint.setStrokeWidth(6);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            paint.setStyle(Paint.Style.STROKE);
+        }
+
+        @Override
+        public void draw(Canvas canvas, MapView mapView, boolean shadow) {
+            if (shadow) {
+                return;
+            }
+            long start = System.nanoTime();
+            ingest(mapView);
+            if (lod.size() >= 2) {
+                drawTrack(canvas, mapView.getProjection());
+            }
+            trackDrawTime.recordSince(start);
+        }
+
+        private void drawTrack(Canvas canvas, Projection projection) {
+            BoundingBox box = projection.getBoundingBox();
+            int minX = TrackLod.worldX(box.getLonWest());
+            int maxX = TrackLod.worldX(box.getLonEast());
+            int minY = TrackLod.worldY(box.getLatNorth());
+            int maxY = TrackLod.worldY(box.getLatSouth());
+            int band = lod.bandForZoom(projection.getZoomLevel());
+            int count = lod.query(band, minX, minY, maxX, maxY, segments);
+            if (count < 0) {
+                segments = new int[Integer.highestOneBit(-count) * 2];
+                count = lod.query(band, minX, minY, maxX, maxY, segments);
+            }
+            if (count == 0) {
+                return;
+            }
+            if (points.length < count) {
+                points = new float[segments.length];
+            }
+            // 世界坐标到屏幕像素是线性关系，以视口中心为参考点换算
+            double centerLon = box.getCenterLongitude();
+            double centerLat = box.getCenterLatitude();
+            double originX = projection.getLongPixelXFromLongitude(centerLon);
+            double originY = projection.getLongPixelYFromLatitude(centerLat);
+            int centerX = TrackLod.worldX(centerLon);
+            int centerY = TrackLod.worldY(centerLat);
+            double scale = projection.getWorldMapSize() / TrackLod.WORLD_SIZE;
+            for (int i = 0; i < count; i += 2) {
+                points[i] = (float) (originX + (segments[i] - centerX) * scale);
+                points[i + 1] = (float) (originY + (segments[i + 1] - centerY) * scale);
+            }
+            canvas.drawLines(points, 0, count, paint);
+        }
+
+        private void ingest(MapView mapView) {
+            int end = track.size();
+            int limit = Math.min(end, lod.size() + MAX_INGEST_PER_FRAME);
+            for (int i = lod.size(); i < limit; i++) {
+                cursor.moveTo(i);
+                lod.append(cursor.latE7(), cursor.lonE7());
+            }
+            if (limit < end) {
+                mapView.postInvalidate();
+            }
+        }
+    }
+
     // 自定义标记覆盖层
+    // 绘制时不分配对象：画笔和箭头路径只创建一次，箭头以原点为中心，绘制时平移并旋转画布；
+    // 屏幕坐标缓存起来，只有投影（平移、缩放后 osmdroid 会换一个 Projection 对象）或位置变化时才重新计算
     private class CustomMarkerOverlay extends Overlay {
-        private GeoPoint position;
+        private static final float RADIUS = 30;
+
+        private final GeoPoint position = new GeoPoint(0.0, 0.0);
+        private boolean hasPosition;
         private float direction;
-        // 设置位置
+        private final Paint circlePaint = new Paint();
+        private final Paint arrowPaint = new Paint();
+        private final Path arrow = new Path();
+        private final Point screenPoint = new Point();
+        private Projection projectedWith;
+        private boolean positionChanged;
+
+        CustomMarkerOverlay() {
+            circlePaint.setAntiAlias(true);
+            circlePaint.setColor(Color.GREEN);
+            circlePaint.setStyle(Paint.Style.FILL);
+            arrowPaint.setAntiAlias(true);
+            arrowPaint.setColor(Color.BLACK);
+            arrowPaint.setStyle(Paint.Style.FILL);
+            arrow.moveTo(0, -RADIUS);
+            arrow.lineTo(-RADIUS / 2, RADIUS / 2);
+            arrow.lineTo(RADIUS / 2, RADIUS / 2);
+            arrow.close();
+        }
+
+        // 设置位置，复制坐标，不保留调用方的对象
         public void setPosition(GeoPoint position) {
-            this.position = position;
+            this.position.setCoords(position.getLatitude(), position.getLongitude());
+            hasPosition = true;
+            positionChanged = true;
         }
         // 设置方向
         public void setDirection(float direction) {
@@ -83,31 +296,26 @@ public class MapManager {
         // 自定义图标
         @Override
         public void draw(Canvas canvas, MapView mapView, boolean shadow) {
-            super.draw(canvas, mapView, shadow);
-            if (position != null) {
+            if (shadow || !hasPosition) {
+                return;
+            }
+            long start = System.nanoTime();
+            Projection projection = mapView.getProjection();
+            if (positionChanged || projection != projectedWith) {
                 // 转换地理坐标到屏幕坐标
-                Point screenPoint = new Point();
-                mapView.getProjection().toPixels(position, screenPoint);
-                // 绘制标记
-                Paint paint = new Paint();
-                paint.setAntiAlias(true);
-                paint.setColor(Color.GREEN);
-                paint.setStyle(Paint.Style.FILL);
-                // 绘制小圆点
-                float radius = 30;
-                canvas.drawCircle(screenPoint.x, screenPoint.y, radius, paint);
-                // 绘制箭头
-                Path path = new Path();
-                path.moveTo(screenPoint.x, screenPoint.y - radius);
-                path.lineTo(screenPoint.x - radius / 2, screenPoint.y + radius / 2);
-                path.lineTo(screenPoint.x + radius / 2, screenPoint.y + radius / 2);
-                path.close();
-                paint.setColor(android.graphics.Color.BLACK);
-                canvas.save();
-                canvas.rotate(direction, screenPoint.x, screenPoint.y);
-                canvas.drawPath(path, paint);
-                canvas.restore();
+                projection.toPixels(position, screenPoint);
+                projectedWith = projection;
+                positionChanged = false;
             }
+            // 绘制小圆点
+            canvas.drawCircle(screenPoint.x, screenPoint.y, RADIUS, circlePaint);
+            // 绘制箭头
+            canvas.save();
+            canvas.translate(screenPoint.x, screenPoint.y);
+            canvas.rotate(direction);
+            canvas.drawPath(arrow, arrowPaint);
+            canvas.restore();
+            markerDrawTime.recordSince(start);
         }
     }
 
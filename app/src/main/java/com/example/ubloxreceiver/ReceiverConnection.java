@@ -0,0 +1,91 @@
+package com.example.ubloxreceiver;
+
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+
+import java.io.IOException;
+
+// 一台接收机一次连接的 USB 资源：连接、独占的接口、IN 端点上的异步数据源，以及 OUT 端点上的配置通道
+// 本身作为数据源交给 ConnectionSupervisor，通道移除时被关闭，close() 依次释放所有资源
+class ReceiverConnection implements ByteSource {
+
+    final UsbDevice device;
+    final UsbDeviceConnection connection;
+    final UsbInterface usbInterface;
+    final UsbAsyncByteSource source;
+    // 设备没有 OUT 端点时为 null
+    final UsbBulkByteSink outSink;
+    final UbxConfigurator configurator;
+    UbxSessionRecorder recorder;
+    // 向接收机写入差分数据，没有配置差分来源时为 null
+    volatile CorrectionForwarder corrections;
+    private boolean closed;
+
+    private ReceiverConnection(UsbDevice device, UsbDeviceConnection connection, UsbInterface usbInterface,
+                               UsbAsyncByteSource source, UsbBulkByteSink outSink) {
+        this.device = device;
+        this.connection = connection;
+        this.usbInterface = usbInterface;
+        this.source = source;
+        this.outSink = outSink;
+        this.configurator = outSink != null ? new UbxConfigurator(outSink) : null;
+    }
+
+    // 打开设备并声明独占接口，失败时已经打开的资源全部释放
+    static ReceiverConnection open(UsbManager usbManager, UsbDevice device) throws IOException {
+        UsbInterface usbInterface = device.getInterface(1);
+        UsbEndpoint endpoint = usbInterface.getEndpoint(1);
+        UsbDeviceConnection connection = usbManager.openDevice(device);
+        if (connection == null) {
+            throw new IOException("建立连接失败: " + device.getDeviceName());
+        }
+        if (!connection.claimInterface(usbInterface, true)) {
+            connection.close();
+            throw new IOException("无法独占接口: " + device.getDeviceName());
+        }
+        UsbAsyncByteSource source;
+        try {
+            source = new UsbAsyncByteSource(connection, endpoint);
+        } catch (IOException e) {
+            connection.releaseInterface(usbInterface);
+            connection.close();
+            throw e;
+        }
+        // OUT 端点用于发送配置，多个写入者共用同一个 sink
+        UsbEndpoint outEndpoint = UsbBulkByteSink.findOutEndpoint(usbInterface);
+        UsbBulkByteSink outSink = outEndpoint != null ? new UsbBulkByteSink(connection, outEndpoint) : null;
+        return new ReceiverConnection(device, connection, usbInterface, source, outSink);
+    }
+
+    String name() {
+        return device.getDeviceName();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        return source.read(buffer, offset, length, timeoutMs);
+    }
+
+    @Override
+    public void cancel() {
+        source.cancel();
+    }
+
+    // 读取线程已经退出之后调用：取消请求、关闭 OUT 端点，释放接口和连接；可以重复调用
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        source.close();
+        if (outSink != null) {
+            outSink.close();
+        }
+        connection.releaseInterface(usbInterface);
+        connection.close();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.ubloxreceiver;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 按显示帧合并 UI 更新：生产者随时覆盖最新的定位和方向，UI 线程每帧最多消费一次
+// 位置变化小于 minPositionChangePx 像素时不重新居中地图，方向变化小于 minHeadingChangeDeg 时不重绘
+// 设置了 PositionPredictor 时，地图按本帧时间的预测位置移动，运动中每帧都安排下一帧，两次定位之间也连续移动
+public class UiPublisher implements Choreographer.FrameCallback {
+
+    public static final float DEFAULT_MIN_POSITION_CHANGE_PX = 1.0f;
+    public static final float DEFAULT_MIN_HEADING_CHANGE_DEG = 1.0f;
+
+    // 在 UI 线程中回调
+    public interface Renderer {
+        // 当前纬度下每个像素对应的米数，用于把像素阈值换算成距离
+        double metersPerPixel(double latitude);
+
+        // 新的定位结果，moved 表示位移超过阈值，需要移动地图（使用预测时总为 false）
+        void renderFix(FixSnapshot fix, boolean moved);
+
+        // 预测位置移动超过阈值，坐标 1e-7 度
+        void renderPosition(int latE7, int lonE7);
+
+        void renderHeading(float heading);
+    }
+
+    private static final float NO_HEADING = Float.NaN;
+
+    private final Renderer renderer;
+    private final Choreographer choreographer;
+    private final TripleBuffer<FixSnapshot> fixes =
+            new TripleBuffer<>(new FixSnapshot(), new FixSnapshot(), new FixSnapshot());
+    private final AtomicInteger headingBits = new AtomicInteger(Float.floatToIntBits(NO_HEADING));
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    // 定位从解码、从 USB 读出到 renderFix() 返回的耗时；只在 UI 线程记录
+    private final LatencyHistogram decodeToDisplay = new LatencyHistogram("decode-display");
+    private final LatencyHistogram readToDisplay = new LatencyHistogram("read-display");
+
+    private volatile float minPositionChangePx = DEFAULT_MIN_POSITION_CHANGE_PX;
+    private volatile float minHeadingChangeDeg = DEFAULT_MIN_HEADING_CHANGE_DEG;
+
+    // 以下字段只在 UI 线程访问
+    private boolean hasAppliedFix;
+    private int appliedLatE7;
+    private int appliedLonE7;
+    private float appliedHeading = NO_HEADING;
+    private PositionPredictor predictor;
+    private long lastFixNanos;
+
+    // 需要在 UI 线程创建
+    public UiPublisher(Renderer renderer) {
+        this.renderer = renderer;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    public void setMinPositionChangePx(float minPositionChangePx) {
+        this.minPositionChangePx = minPositionChangePx;
+    }
+
+    public void setMinHeadingChangeDeg(float minHeadingChangeDeg) {
+        this.minHeadingChangeDeg = minHeadingChangeDeg;
+    }
+
+    // UI 线程：设置位置预测器，null 表示直接使用定位结果
+    public void setPredictor(PositionPredictor predictor) {
+        this.predictor = predictor;
+    }
+
+    public LatencyHistogram getDecodeToDisplay() {
+        return decodeToDisplay;
+    }
+
+    public LatencyHistogram getReadToDisplay() {
+        return readToDisplay;
+    }
+
+    // 生产者（解码线程）：取得可写的快照，填好后调用 publishFix()
+    public FixSnapshot beginFix() {
+        return fixes.writeBuffer();
+    }
+
+    public void publishFix() {
+        fixes.publish();
+        scheduleFrame();
+    }
+
+    // 任意线程：发布最新方向
+    public void publishHeading(float heading) {
+        headingBits.set(Float.floatToIntBits(heading));
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // 先清标志再消费，消费期间发布的新值会再安排一帧
+        frameScheduled.set(false);
+
+        PositionPredictor predictor = this.predictor;
+        if (fixes.update()) {
+            FixSnapshot fix = fixes.readBuffer();
+            if (predictor != null) {
+                predictor.update(fix.iTOW, fix.latE7, fix.lonE7, fix.hAcc, fix.decodedNanos);
+                lastFixNanos = fix.decodedNanos;
+                renderer.renderFix(fix, false);
+            } else {
+                boolean moved = apply(fix.latE7, fix.lonE7);
+                renderer.renderFix(fix, moved);
+            }
+            long shownNanos = System.nanoTime();
+            decodeToDisplay.record(shownNanos - fix.decodedNanos);
+            if (fix.readNanos != 0) {
+                readToDisplay.record(shownNanos - fix.readNanos);
+            }
+        }
+
+        if (predictor != null && predictor.predict(frameTimeNanos)) {
+            if (apply(predictor.predictedLatE7(), predictor.predictedLonE7())) {
+                renderer.renderPosition(predictor.predictedLatE7(), predictor.predictedLonE7());
+            }
+            // 运动中且还在外推范围内时继续逐帧移动
+            if (predictor.speed() >= PositionPredictor.MIN_COURSE_SPEED
+                    && frameTimeNanos - lastFixNanos < PositionPredictor.MAX_EXTRAPOLATION_MS * 1_000_000L) {
+                scheduleFrame();
+            }
+        }
+
+        float heading = Float.intBitsToFloat(headingBits.get());
+        if (!Float.isNaN(heading)
+                && (Float.isNaN(appliedHeading) || HeadingFilter.angleDifference(heading, appliedHeading) >= minHeadingChangeDeg)) {
+            appliedHeading = heading;
+            if (predictor != null) {
+                predictor.setCompassHeading(heading);
+            }
+            renderer.renderHeading(heading);
+        }
+    }
+
+    // 位移超过阈值时记下新位置并返回 true
+    private boolean apply(int latE7, int lonE7) {
+        boolean moved = !hasAppliedFix || movedEnough(latE7, lonE7);
+        if (moved) {
+            hasAppliedFix = true;
+            appliedLatE7 = latE7;
+            appliedLonE7 = lonE7;
+        }
+        return moved;
+    }
+
+    private boolean movedEnough(int latE7, int lonE7) {
+        double lat = UbxUnits.toDegrees(latE7);
+        // 小范围内用等距圆柱近似，1e-7 度约 1.1 cm
+        double dNorth = UbxUnits.toDegrees(latE7 - appliedLatE7) * UbxUnits.METERS_PER_DEGREE;
+        double dEast = UbxUnits.toDegrees(lonE7 - appliedLonE7) * UbxUnits.METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+        double threshold = minPositionChangePx * renderer.metersPerPixel(lat);
+        return dNorth * dNorth + dEast * dEast >= threshold * threshold;
+    }
+}
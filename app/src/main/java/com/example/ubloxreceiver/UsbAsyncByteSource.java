@@ -0,0 +1,128 @@
+package com.example.ubloxreceiver;
+
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeoutException;
+
+// 异步 USB 数据源：同时在 IN 端点上排队多个 UsbRequest，端点在两次读取之间不会空闲
+// 每个请求绑定一个 direct ByteBuffer，数据被读走后缓冲区立即重新排队，循环使用
+// read() 只能由一个线程调用；该连接上不能再有其他线程调用 requestWait()
+public class UsbAsyncByteSource implements ByteSource {
+
+    public static final int DEFAULT_REQUEST_COUNT = 4;
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final UsbDeviceConnection connection;
+    private final UsbRequest[] requests;
+    // 已完成但还没被读完的请求
+    private UsbRequest pending;
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+
+    public UsbAsyncByteSource(UsbDeviceConnection connection, UsbEndpoint endpoint) throws IOException {
+        this(connection, endpoint, DEFAULT_REQUEST_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    public UsbAsyncByteSource(UsbDeviceConnection connection, UsbEndpoint endpoint,
+                              int requestCount, int bufferSize) throws IOException {
+        this.connection = connection;
+        this.requests = new UsbRequest[requestCount];
+        // 缓冲区按最大包长取整，避免请求在包中间结束
+        int packetSize = Math.max(endpoint.getMaxPacketSize(), 1);
+        int size = Math.max(packetSize, bufferSize / packetSize * packetSize);
+        for (int i = 0; i < requestCount; i++) {
+            UsbRequest request = new UsbRequest();
+            if (!request.initialize(connection, endpoint)) {
+                request.close();
+                close();
+                throw new IOException("UsbRequest 初始化失败");
+            }
+            request.setClientData(ByteBuffer.allocateDirect(size));
+            requests[i] = request;
+        }
+        for (UsbRequest request : requests) {
+            submit(request);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        if (closed || cancelled) {
+            return -1;
+        }
+        if (pending == null) {
+            UsbRequest completed;
+            try {
+                completed = connection.requestWait(timeoutMs);
+            } catch (TimeoutException e) {
+                return 0;
+            }
+            if (cancelled) {
+                // 被取消的请求也会从 requestWait() 返回，不再处理
+                return -1;
+            }
+            if (completed == null) {
+                if (closed) {
+                    return -1;
+                }
+                // 设备被拔出或连接已关闭
+                throw new IOException("USB 请求失败");
+            }
+            ByteBuffer data = (ByteBuffer) completed.getClientData();
+            data.flip();
+            if (!data.hasRemaining()) {
+                // 零长度包，直接重新排队
+                submit(completed);
+                return 0;
+            }
+            pending = completed;
+        }
+        ByteBuffer data = (ByteBuffer) pending.getClientData();
+        int n = Math.min(length, data.remaining());
+        data.get(buffer, offset, n);
+        if (!data.hasRemaining()) {
+            UsbRequest drained = pending;
+            pending = null;
+            submit(drained);
+        }
+        return n;
+    }
+
+    private void submit(UsbRequest request) throws IOException {
+        ByteBuffer data = (ByteBuffer) request.getClientData();
+        data.clear();
+        if (!closed && !cancelled && !request.queue(data)) {
+            throw new IOException("UsbRequest 排队失败");
+        }
+    }
+
+    // 取消排队中的请求，阻塞在 requestWait() 中的读取线程随即返回，read() 之后返回 -1
+    @Override
+    public void cancel() {
+        cancelled = true;
+        for (UsbRequest request : requests) {
+            if (request != null) {
+                request.cancel();
+            }
+        }
+    }
+
+    // 取消所有请求并释放，连接本身由调用方关闭
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (UsbRequest request : requests) {
+            if (request != null) {
+                request.cancel();
+                request.close();
+            }
+        }
+    }
+}
@@ -21,23 +21,24 @@ public class UsbBroadcastReceiver extends BroadcastReceiver {
         if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(action)) {
             Toast.makeText(context, "USB 设备已插入", Toast.LENGTH_SHORT).show();
 
-            // 刷新设备列表
+            // 刷新设备列表，已有权限的接收机直接连接
             mainActivity.listUsbDevices();
+            mainActivity.connectReceivers();
         } else if (UsbManager.ACTION_USB_DEVICE_DETACHED.equals(action)) {
             Toast.makeText(context, "USB 设备已移除", Toast.LENGTH_SHORT).show();
 
-            // 刷新设备列表
+            // 结束该设备的会话并释放连接，再刷新设备列表
+            UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
+            if (device != null) {
+                mainActivity.disconnectReceiver(device);
+            }
             mainActivity.listUsbDevices();
         } else if (ACTION_USB_PERMISSION.equals(action)) {
 
             synchronized (this) {
-                UsbDevice device = mainActivity.findUsbDevice();
-
-                if (device != null) {
-                    Toast.makeText(context, "已连接", Toast.LENGTH_SHORT).show();
-                    // 更新主界面（如设置连接和开始读取数据）
-                    mainActivity.setupUsbConnection(device);
-                    mainActivity.startReadingData(device);
+                // 为有权限的接收机建立会话，已有会话的不会重复打开
+                if (mainActivity.connectReceivers() > 0) {
+                    Toast.makeText(context, "正在连接", Toast.LENGTH_SHORT).show();
                 } else {
                     Toast.makeText(context, "连接失败", Toast.LENGTH_SHORT).show();
                 }
@@ -0,0 +1,69 @@
+package com.example.ubloxreceiver;
+
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+
+import java.io.IOException;
+
+// 向 OUT 端点同步写数据（bulkTransfer），不使用 requestWait()，不影响 UsbAsyncByteSource 的读取
+// 配置和差分数据等多个写入者共用一个实例，write() 持锁，每次写入的数据不会被其他线程打断
+public class UsbBulkByteSink implements ByteSink {
+
+    private final UsbDeviceConnection connection;
+    private final UsbEndpoint endpoint;
+    private final Object lock = new Object();
+    private volatile boolean closed;
+    private volatile long bytesWritten;
+
+    public UsbBulkByteSink(UsbDeviceConnection connection, UsbEndpoint endpoint) {
+        this.connection = connection;
+        this.endpoint = endpoint;
+    }
+
+    // 在接口中找第一个 bulk OUT 端点，没有时返回 null
+    public static UsbEndpoint findOutEndpoint(UsbInterface usbInterface) {
+        for (int i = 0; i < usbInterface.getEndpointCount(); i++) {
+            UsbEndpoint endpoint = usbInterface.getEndpoint(i);
+            if (endpoint.getDirection() == UsbConstants.USB_DIR_OUT
+                    && endpoint.getType() == UsbConstants.USB_ENDPOINT_XFER_BULK) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        synchronized (lock) {
+            int written = 0;
+            while (written < length) {
+                if (closed) {
+                    throw new IOException("USB 连接已关闭");
+                }
+                int remainingMs = (int) Math.max(1, (deadline - System.nanoTime()) / 1_000_000L);
+                int n = connection.bulkTransfer(endpoint, buffer, offset + written, length - written, remainingMs);
+                if (n < 0) {
+                    throw new IOException("USB 写入失败");
+                }
+                written += n;
+                if (written < length && System.nanoTime() - deadline > 0) {
+                    throw new IOException("USB 写入超时");
+                }
+            }
+            bytesWritten += length;
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // 连接由 MainActivity 关闭，这里只拒绝后续写入
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,48 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+// 纯 JVM 的协议处理模块：帧重组、校验、消息解码、流水线、记录与回放
+// 不依赖 Android，可以在桌面 JVM 上做单元测试和 JMH 基准测试
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :core:jmh，结果写入 core/build/results/jmh
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // 每次调用的分配量（gc.alloc.rate.norm）用来发现解码路径上的分配回归
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
+tasks.register<JavaExec>("replay") {
+    description = "Replays a raw UBX file or session directory: -Pargs=\"<path> [speed|max]\""
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.ubloxreceiver.ReplayTool")
+    args = (project.findProperty("args") as String? ?: "").split(" ").filter { it.isNotEmpty() }
+}
+
+tasks.register<JavaExec>("evaluatePredictor") {
+    description = "Scores PositionPredictor against a recorded log: -Pargs=\"<path> [cv|ca] [noise]\""
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.ubloxreceiver.PredictorEvaluator")
+    args = (project.findProperty("args") as String? ?: "").split(" ").filter { it.isNotEmpty() }
+}
+
+tasks.register<JavaExec>("batchDecode") {
+    description = "Decodes recorded files or session directories in parallel into a columnar fix file: " +
+        "-Pargs=\"<path>... -o <output> [--threads n] [--chunk MB]\""
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.ubloxreceiver.BatchDecoder")
+    args = (project.findProperty("args") as String? ?: "").split(" ").filter { it.isNotEmpty() }
+}
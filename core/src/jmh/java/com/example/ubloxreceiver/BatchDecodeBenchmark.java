@@ -0,0 +1,53 @@
+package com.example.ubloxreceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// 离线批量解码随线程数的扩展：同一个约 64 MB 的合成记录文件按 4 MB 分块，
+// 用 1、2、4、8 个线程解码，理想情况下耗时随线程数（不超过核数）成反比
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchDecodeBenchmark {
+
+    private static final int EPOCHS = 256 * 1024;
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private File capture;
+    private BatchDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+        capture = File.createTempFile("batch-decode", ".ubx");
+        try (FileOutputStream out = new FileOutputStream(capture)) {
+            out.write(BenchmarkStreams.mixedStream(EPOCHS, 5, true));
+        }
+        decoder = new BatchDecoder(CHUNK_SIZE, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        capture.delete();
+    }
+
+    @Benchmark
+    public int decode() throws IOException {
+        return decoder.decode(Collections.singletonList(capture)).size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ubloxreceiver;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+// 基准测试用的合成数据流：NAV-PVT、NAV-SAT、NAV-DOP 按 20 Hz 历元交替出现，夹杂 NMEA 语句
+final class BenchmarkStreams {
+
+    private BenchmarkStreams() {
+    }
+
+    static byte[] frame(int cls, int id, byte[] payload) {
+        byte[] frame = new byte[payload.length + UbxFrameReassembler.FRAME_OVERHEAD];
+        frame[0] = (byte) UbxFrameReassembler.SYNC_CHAR_1;
+        frame[1] = (byte) UbxFrameReassembler.SYNC_CHAR_2;
+        frame[2] = (byte) cls;
+        frame[3] = (byte) id;
+        frame[4] = (byte) payload.length;
+        frame[5] = (byte) (payload.length >> 8);
+        System.arraycopy(payload, 0, frame, UbxFrameReassembler.HEADER_LENGTH, payload.length);
+        UbxChecksum.fill(frame, 0, frame.length);
+        return frame;
+    }
+
+    static byte[] navPvt(Random random) {
+        byte[] payload = new byte[92];
+        random.nextBytes(payload);
+        payload[20] = 3;
+        payload[21] = 1;
+        return frame(0x01, 0x07, payload);
+    }
+
+    static byte[] navSat(Random random, int satellites) {
+        byte[] payload = new byte[8 + 12 * satellites];
+        random.nextBytes(payload);
+        payload[5] = (byte) satellites;
+        return frame(0x01, 0x35, payload);
+    }
+
+    // iTOW 按 20 Hz 递增的 NAV-PVT，其余字段随机
+    static byte[] navPvt(Random random, int iTOW) {
+        byte[] payload = new byte[92];
+        random.nextBytes(payload);
+        UbxBytes.put(payload, 0, iTOW, 4);
+        payload[20] = 3;
+        payload[21] = 1;
+        return frame(0x01, 0x07, payload);
+    }
+
+    static byte[] mixedStream(int epochs, long seed) {
+        return mixedStream(epochs, seed, false);
+    }
+
+    // timed 为 true 时 iTOW 按历元递增，和真实记录一样可以按时间拼接
+    static byte[] mixedStream(int epochs, long seed, boolean timed) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] nmea = "$GNGGA,092725.00,4717.11399,N,00833.91590,E,1,08,1.01,499.6,M,48.0,M,,*5B\r\n".getBytes();
+        for (int i = 0; i < epochs; i++) {
+            write(out, timed ? navPvt(random, i * 50) : navPvt(random));
+            if (i % 4 == 0) {
+                write(out, navSat(random, 24 + random.nextInt(16)));
+            }
+            write(out, frame(0x01, 0x04, new byte[18]));
+            if (i % 20 == 0) {
+                write(out, nmea);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] data) {
+        out.write(data, 0, data.length);
+    }
+}
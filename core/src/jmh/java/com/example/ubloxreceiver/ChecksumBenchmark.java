@@ -0,0 +1,64 @@
+package com.example.ubloxreceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Fletcher 校验和的开销，负载长度分别对应 NAV-POSLLH、NAV-PVT 和较长的 NAV-SAT。
+// ring 和 ringWrapped 是 UbxFrameReassembler 校验环形缓冲区中的帧时走的路径，后者的帧跨过缓冲区末尾
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChecksumBenchmark {
+
+    @Param({"28", "92", "488"})
+    public int payload;
+
+    private static final int RING_CAPACITY = 1024;
+
+    private byte[] frame;
+    // 同一帧放在两个环形缓冲区中：一个从头开始，一个一半在末尾、一半回到开头
+    private final byte[] ring = new byte[RING_CAPACITY];
+    private final byte[] wrappedRing = new byte[RING_CAPACITY];
+    private long wrappedStart;
+
+    @Setup
+    public void setup() {
+        byte[] data = new byte[payload];
+        new Random(3).nextBytes(data);
+        frame = BenchmarkStreams.frame(0x01, 0x07, data);
+        System.arraycopy(frame, 0, ring, 0, frame.length);
+        wrappedStart = RING_CAPACITY - frame.length / 2;
+        int first = RING_CAPACITY - (int) wrappedStart;
+        System.arraycopy(frame, 0, wrappedRing, (int) wrappedStart, first);
+        System.arraycopy(frame, first, wrappedRing, 0, frame.length - first);
+    }
+
+    @Benchmark
+    public int compute() {
+        return UbxChecksum.compute(frame, 2, frame.length - 4);
+    }
+
+    @Benchmark
+    public boolean validateFrame() {
+        return UbxChecksum.isValid(frame, 0, frame.length);
+    }
+
+    @Benchmark
+    public int ring() {
+        return UbxChecksum.compute(ring, RING_CAPACITY - 1, 2, frame.length - 4);
+    }
+
+    @Benchmark
+    public int ringWrapped() {
+        return UbxChecksum.compute(wrappedRing, RING_CAPACITY - 1, wrappedStart + 2, frame.length - 4);
+    }
+}
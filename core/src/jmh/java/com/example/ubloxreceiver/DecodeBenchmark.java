@@ -0,0 +1,88 @@
+package com.example.ubloxreceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 单条消息的分发和解码延迟，配合 -prof gc 检查每次调用的分配量应为 0
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecodeBenchmark {
+
+    private byte[] pvt;
+    private byte[] sat;
+    private byte[] unknown;
+    private UbxDecoder decoder;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Random random = new Random(4);
+        pvt = BenchmarkStreams.navPvt(random);
+        sat = BenchmarkStreams.navSat(random, 32);
+        unknown = BenchmarkStreams.frame(0x02, 0x15, new byte[64]);
+        decoder = new UbxDecoder();
+        decoder.register(new NavPvtView(), this::consumePvt);
+        decoder.register(new NavSatView(), this::consumeSat);
+    }
+
+    private void consumePvt(NavPvtView m) {
+        blackhole.consume(m.iTOW());
+        blackhole.consume(m.lat());
+        blackhole.consume(m.lon());
+        blackhole.consume(m.hMSL());
+        blackhole.consume(m.hAcc());
+        blackhole.consume(m.velN());
+        blackhole.consume(m.velE());
+        blackhole.consume(m.headMot());
+    }
+
+    private void consumeSat(NavSatView m) {
+        int used = 0;
+        for (int i = 0; i < m.numSvs(); i++) {
+            if (m.svUsed(i)) {
+                used += m.cno(i);
+            }
+        }
+        blackhole.consume(used);
+    }
+
+    @Benchmark
+    public void navPvt() {
+        decoder.onFrame(pvt, 0, pvt.length);
+    }
+
+    @Benchmark
+    public void navSat32() {
+        decoder.onFrame(sat, 0, sat.length);
+    }
+
+    @Benchmark
+    public void unknownMessage() {
+        decoder.onFrame(unknown, 0, unknown.length);
+    }
+
+    // 对照：每个字段都用通用的 byteArrayToInt 逐字节循环读取
+    @Benchmark
+    public void navPvtByteArrayToInt() {
+        int p = UbxFrameReassembler.HEADER_LENGTH;
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 28, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 24, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 36, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 40, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 48, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 52, 4));
+        blackhole.consume(UbxBytes.byteArrayToInt(pvt, p + 64, 4));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.ubloxreceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 帧重组吞吐量：同一段合成数据按不同的块大小切分后送入重组器
+// chunk = 0 表示 1~4096 之间的随机块大小，模拟 USB 读取的实际情况
+// demux = true 时同时识别数据中的 NMEA 语句，和只认 UBX 对比多协议分流的开销
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FramingBenchmark {
+
+    @Param({"16", "512", "4096", "0"})
+    public int chunk;
+
+    @Param({"false", "true"})
+    public boolean demux;
+
+    private byte[] stream;
+    private int[] chunkLengths;
+    private UbxFrameReassembler framer;
+    private long frames;
+
+    @Setup
+    public void setup() {
+        stream = BenchmarkStreams.mixedStream(2000, 1);
+        Random random = new Random(2);
+        chunkLengths = new int[stream.length];
+        int count = 0;
+        for (int position = 0; position < stream.length; count++) {
+            int n = chunk > 0 ? chunk : 1 + random.nextInt(4096);
+            n = Math.min(n, stream.length - position);
+            chunkLengths[count] = n;
+            position += n;
+        }
+        framer = new UbxFrameReassembler((frame, offset, length) -> frames++);
+        if (demux) {
+            framer.setNmeaListener(sentence -> frames++);
+            framer.setRtcmListener((frame, offset, length) -> frames++);
+        }
+    }
+
+    // 每次调用处理整段数据，吞吐量 * stream.length 即字节/秒
+    @Benchmark
+    public long reassemble() {
+        int position = 0;
+        for (int i = 0; position < stream.length; i++) {
+            framer.push(stream, position, chunkLengths[i]);
+            position += chunkLengths[i];
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ubloxreceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 每个定位的围栏判断耗时随围栏数的变化：update() 使用网格索引和增量判断，
+// bruteForce 对每个围栏都做一次多边形计算作为对照。定位沿一条 20 Hz、约 15 m/s 的轨迹移动，
+// 围栏随机分布在 10 km 见方的范围内
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeofenceBenchmark {
+
+    private static final int LAT0 = 312_280_000;
+    private static final int LON0 = 1_214_730_000;
+    private static final double E7_PER_METER_LAT = 1e7 / UbxUnits.METERS_PER_DEGREE;
+    private static final double E7_PER_METER_LON = E7_PER_METER_LAT / Math.cos(Math.toRadians(LAT0 / 1e7));
+    private static final int AREA_METERS = 10_000;
+    private static final int TRACK_POINTS = 4096;
+
+    @Param({"10", "100", "1000"})
+    public int zones;
+
+    @Param({"12"})
+    public int vertices;
+
+    private GeofenceEngine engine;
+    private final int[] trackLat = new int[TRACK_POINTS];
+    private final int[] trackLon = new int[TRACK_POINTS];
+    private int next;
+    private long timeMs;
+    private long events;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(22);
+        List<Geofence> list = new ArrayList<>();
+        for (int i = 0; i < zones; i++) {
+            double centerEast = random.nextDouble() * AREA_METERS;
+            double centerNorth = random.nextDouble() * AREA_METERS;
+            int[] lat = new int[vertices];
+            int[] lon = new int[vertices];
+            for (int k = 0; k < vertices; k++) {
+                double angle = 2 * Math.PI * k / vertices;
+                double r = 50 + random.nextDouble() * 250;
+                lat[k] = LAT0 + (int) ((centerNorth + r * Math.sin(angle)) * E7_PER_METER_LAT);
+                lon[k] = LON0 + (int) ((centerEast + r * Math.cos(angle)) * E7_PER_METER_LON);
+            }
+            list.add(Geofence.polygon("z" + i, lat, lon));
+        }
+        engine = new GeofenceEngine(list, (zone, transition, time) -> events++);
+        // 在范围内来回行驶，航向缓慢变化
+        double east = AREA_METERS / 2.0;
+        double north = AREA_METERS / 2.0;
+        double heading = 0;
+        for (int i = 0; i < TRACK_POINTS; i++) {
+            heading += random.nextGaussian() * 0.05;
+            east += 0.75 * Math.sin(heading);
+            north += 0.75 * Math.cos(heading);
+            // 到边界掉头
+            if (east < 0 || east > AREA_METERS || north < 0 || north > AREA_METERS) {
+                heading += Math.PI;
+                east = Math.max(0, Math.min(AREA_METERS, east));
+                north = Math.max(0, Math.min(AREA_METERS, north));
+            }
+            trackLat[i] = LAT0 + (int) (north * E7_PER_METER_LAT);
+            trackLon[i] = LON0 + (int) (east * E7_PER_METER_LON);
+        }
+    }
+
+    @Benchmark
+    public long update() {
+        int i = next++ & (TRACK_POINTS - 1);
+        timeMs += 50;
+        engine.update(timeMs, trackLat[i], trackLon[i], 1500);
+        return events;
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        int i = next++ & (TRACK_POINTS - 1);
+        int inside = 0;
+        for (int z = 0; z < zones; z++) {
+            if (engine.signedDistance(z, trackLat[i], trackLon[i]) > 0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.ubloxreceiver;
+
+// UBX-ACK-ACK (0x05 0x01) / UBX-ACK-NAK (0x05 0x00)：对配置消息的应答，只带被应答消息的 class/id
+public class AckView extends UbxMessageView {
+
+    public static final int ID_ACK = 0x01;
+    public static final int ID_NAK = 0x00;
+
+    private final int messageId;
+
+    public AckView(int messageId) {
+        this.messageId = messageId;
+    }
+
+    @Override
+    public int messageClass() {
+        return 0x05;
+    }
+
+    @Override
+    public int messageId() {
+        return messageId;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 2;
+    }
+
+    public boolean isAck() {
+        return messageId == ID_ACK;
+    }
+
+    // 被应答消息的 class
+    public int clsID() {
+        return u1(0);
+    }
+
+    // 被应答消息的 id
+    public int msgID() {
+        return u1(1);
+    }
+}
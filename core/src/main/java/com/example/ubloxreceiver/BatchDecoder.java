@@ -0,0 +1,377 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 离线批量解码：与实机相同的帧重组器和解码器，按块并行处理大文件，结果按时间合并成一张定位列表
+// 每个输入（普通文件，或会话目录的全部段首尾相接）按 chunkSize 切块，块内容直接从文件映射，
+// 块在 ForkJoin 线程池中各自从块首寻找同步头独立解码，只接收起点落在本块内的帧。
+// 块首可能落在某帧的负载中间，碰巧出现的同步头会被当成帧，所以解码后按顺序检查相邻块：
+// 后一块的第一帧必须正是前一块越过块尾找到的下一帧，否则从前一块最后一帧的结尾重新解码，
+// 结果与顺序解码完全一致
+// 用法：BatchDecoder <文件或会话目录>... -o <输出文件> [--threads n] [--chunk MB]
+public class BatchDecoder {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_FRAME = UbxFrameReassembler.DEFAULT_MAX_PAYLOAD + UbxFrameReassembler.FRAME_OVERHEAD;
+    // 块尾之后多读的字节数，足够读完跨块尾的帧、跳过一个假同步头，再找到下一帧
+    private static final int LOOKAHEAD = 2 * MAX_FRAME;
+
+    private final int chunkSize;
+    private final int threads;
+
+    // 最近一次 decode() 的统计
+    private long bytes;
+    private long frames;
+    private int chunks;
+    private int realignedChunks;
+    private int duplicates;
+
+    public BatchDecoder(int chunkSize, int threads) {
+        if (chunkSize <= 0 || chunkSize > (1 << 30)) {
+            throw new IllegalArgumentException("chunkSize out of range: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.threads = Math.max(1, threads);
+    }
+
+    // 一个逻辑输入流：普通文件只有一段，会话目录按段号首尾相接
+    static final class Input {
+        final File[] parts;
+        // offsets[i] 为第 i 段在流中的起点，offsets[parts.length] 为总长度
+        final long[] offsets;
+
+        Input(File[] parts, long[] lengths) {
+            this.parts = parts;
+            this.offsets = new long[parts.length + 1];
+            for (int i = 0; i < parts.length; i++) {
+                offsets[i + 1] = offsets[i] + lengths[i];
+            }
+        }
+
+        static Input open(File path) throws IOException {
+            if (path.isDirectory()) {
+                UbxSessionReader reader = new UbxSessionReader(path);
+                int count = reader.segmentCount();
+                File[] parts = new File[count];
+                long[] lengths = new long[count];
+                for (int i = 0; i < count; i++) {
+                    parts[i] = reader.segmentFile(i);
+                    lengths[i] = Math.max(0, reader.segmentLength(i));
+                }
+                return new Input(parts, lengths);
+            }
+            if (!path.isFile()) {
+                throw new IOException("文件不存在: " + path);
+            }
+            return new Input(new File[]{path}, new long[]{path.length()});
+        }
+
+        long length() {
+            return offsets[parts.length];
+        }
+
+        int partAt(long position) {
+            int i = Arrays.binarySearch(offsets, position);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    // 按需映射一段输入，映射在段边界处断开；每个块的解码各用一个
+    private static final class MappedReader {
+        private final Input input;
+        private MappedByteBuffer mapped;
+        private long mappedStart;
+        private long mappedEnd;
+
+        MappedReader(Input input) {
+            this.input = input;
+        }
+
+        int read(long position, long limit, byte[] buffer) throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            if (mapped == null || position < mappedStart || position >= mappedEnd) {
+                int part = input.partAt(position);
+                long partStart = input.offsets[part];
+                long end = Math.min(limit, input.offsets[part + 1]);
+                try (RandomAccessFile file = new RandomAccessFile(input.parts[part], "r")) {
+                    mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, position - partStart, end - position);
+                }
+                mappedStart = position;
+                mappedEnd = end;
+            }
+            int n = (int) Math.min(buffer.length, mappedEnd - position);
+            mapped.position((int) (position - mappedStart));
+            mapped.get(buffer, 0, n);
+            return n;
+        }
+    }
+
+    // 一个块 [start, end) 的解码结果
+    static final class Chunk {
+        final Input input;
+        final long start;
+        final long end;
+        // 本次解码的起点，重新解码时早于 start
+        long from;
+        ColumnarFixes fixes;
+        long frames;
+        // 本块第一帧的起点、最后一帧的结尾，没有帧时为 -1
+        long firstFrame;
+        long lastFrameEnd;
+        // 块尾之后找到的第一帧的起点，多读的范围内没有帧时为 -1
+        long nextFrame;
+
+        Chunk(Input input, long start, long end) {
+            this.input = input;
+            this.start = start;
+            this.end = end;
+        }
+
+        // 顺序解码器处理完本块之后的状态等价于从这里重新开始
+        long resumePoint() {
+            return frames > 0 ? lastFrameEnd : from;
+        }
+
+        void decode(long from) throws IOException {
+            this.from = from;
+            fixes = new ColumnarFixes();
+            frames = 0;
+            firstFrame = -1;
+            lastFrameEnd = -1;
+            nextFrame = -1;
+            UbxDecoder decoder = new UbxDecoder();
+            decoder.register(new NavPvtView(), m -> {
+                if (m.gnssFixOk()) {
+                    fixes.add(m.iTOW(), m.iTOW(), m.lat(), m.lon(), m.hMSL(), m.hAcc(), m.vAcc(),
+                            m.fixType(), m.numSV(), ColumnarFixes.SOURCE_NAV_PVT);
+                }
+            });
+            // POSLLH 没有 fixType 和 numSV，记为 0
+            decoder.register(new NavPosllhView(), m -> fixes.add(m.iTOW(), m.iTOW(), m.lat(), m.lon(), m.hMSL(),
+                    m.hAcc(), m.vAcc(), 0, 0, ColumnarFixes.SOURCE_NAV_POSLLH));
+            UbxFrameReassembler framer = new UbxFrameReassembler(null);
+            framer.setListener((frame, offset, length) -> {
+                long position = from + framer.getFrameStreamOffset();
+                if (position >= end) {
+                    if (nextFrame < 0) {
+                        nextFrame = position;
+                    }
+                    return;
+                }
+                if (firstFrame < 0) {
+                    firstFrame = position;
+                }
+                lastFrameEnd = position + length;
+                frames++;
+                decoder.onFrame(frame, offset, length);
+            });
+            MappedReader reader = new MappedReader(input);
+            long limit = Math.min(input.length(), end + LOOKAHEAD);
+            byte[] block = new byte[BLOCK_SIZE];
+            long position = from;
+            int n;
+            while (nextFrame < 0 && (n = reader.read(position, limit, block)) > 0) {
+                framer.push(block, 0, n);
+                position += n;
+            }
+        }
+    }
+
+    // 把块的区间不断二分，直到只剩一个块
+    private static final class DecodeTask extends RecursiveAction {
+        private final List<Chunk> chunks;
+        private final int low;
+        private final int high;
+
+        DecodeTask(List<Chunk> chunks, int low, int high) {
+            this.chunks = chunks;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low == 1) {
+                Chunk chunk = chunks.get(low);
+                try {
+                    chunk.decode(chunk.start);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            invokeAll(new DecodeTask(chunks, low, mid), new DecodeTask(chunks, mid, high));
+        }
+    }
+
+    public ColumnarFixes decode(List<File> paths) throws IOException {
+        bytes = 0;
+        frames = 0;
+        realignedChunks = 0;
+        duplicates = 0;
+        List<Input> inputs = new ArrayList<>();
+        List<Chunk> all = new ArrayList<>();
+        for (File path : paths) {
+            Input input = Input.open(path);
+            inputs.add(input);
+            bytes += input.length();
+            for (long start = 0; start < input.length(); start += chunkSize) {
+                all.add(new Chunk(input, start, Math.min(input.length(), start + chunkSize)));
+            }
+        }
+        chunks = all.size();
+        if (!all.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new DecodeTask(all, 0, all.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // 按输入顺序检查相邻块的衔接，并把块的结果依次拼接；每个输入的 iTOW 分别展开，
+        // 同一输入中同一历元的 PVT 和 POSLLH 只保留 PVT
+        ColumnarFixes merged = new ColumnarFixes();
+        int next = 0;
+        for (Input input : inputs) {
+            ItowUnwrapper unwrapper = new ItowUnwrapper();
+            int inputStart = merged.size();
+            Chunk previous = null;
+            for (; next < all.size() && all.get(next).input == input; next++) {
+                Chunk chunk = all.get(next);
+                if (previous != null && (previous.nextFrame < 0 || chunk.firstFrame != previous.nextFrame)) {
+                    chunk.decode(previous.resumePoint());
+                    realignedChunks++;
+                }
+                frames += chunk.frames;
+                ColumnarFixes fixes = chunk.fixes;
+                for (int i = 0; i < fixes.size(); i++) {
+                    long timeMs = unwrapper.unwrap(fixes.iTOW(i));
+                    int last = merged.size() - 1;
+                    if (last >= inputStart && merged.timeMs(last) == timeMs) {
+                        duplicates++;
+                        if (merged.source(last) != ColumnarFixes.SOURCE_NAV_PVT) {
+                            merged.setRow(last, fixes, i);
+                            merged.setTimeMs(last, timeMs);
+                        }
+                        continue;
+                    }
+                    merged.addRow(fixes, i);
+                    merged.setTimeMs(merged.size() - 1, timeMs);
+                }
+                chunk.fixes = null;
+                previous = chunk;
+            }
+        }
+        return sortByTime(merged);
+    }
+
+    // 多个输入（或输出不按时间顺序的记录）需要排序：时间和行号打包成一个 long 后并行排序，
+    // 相同时间保持输入顺序
+    static ColumnarFixes sortByTime(ColumnarFixes fixes) {
+        int n = fixes.size();
+        boolean sorted = true;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            long t = fixes.timeMs(i);
+            if (i > 0 && t < fixes.timeMs(i - 1)) {
+                sorted = false;
+            }
+            min = Math.min(min, t);
+            max = Math.max(max, t);
+        }
+        if (sorted) {
+            return fixes;
+        }
+        int rowBits = 64 - Long.numberOfLeadingZeros(n);
+        if (64 - Long.numberOfLeadingZeros(max - min) + rowBits > 63) {
+            throw new IllegalStateException("时间跨度过大，无法排序: " + (max - min) + " ms");
+        }
+        long rowMask = (1L << rowBits) - 1;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((fixes.timeMs(i) - min) << rowBits) | i;
+        }
+        Arrays.parallelSort(keys);
+        ColumnarFixes out = new ColumnarFixes(n);
+        for (int i = 0; i < n; i++) {
+            out.addRow(fixes, (int) (keys[i] & rowMask));
+        }
+        return out;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    // 因为块首的假同步头而重新解码的块数
+    public int getRealignedChunkCount() {
+        return realignedChunks;
+    }
+
+    // 同一历元被丢弃的重复定位数
+    public int getDuplicateCount() {
+        return duplicates;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<File> inputs = new ArrayList<>();
+        File output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i]) && i + 1 < args.length) {
+                output = new File(args[++i]);
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--chunk".equals(args[i]) && i + 1 < args.length) {
+                chunkSize = Integer.parseInt(args[++i]) * 1024 * 1024;
+            } else {
+                inputs.add(new File(args[i]));
+            }
+        }
+        if (inputs.isEmpty() || output == null) {
+            System.err.println("usage: BatchDecoder <file|session-dir>... -o <output> [--threads n] [--chunk MB]");
+            System.exit(2);
+        }
+        BatchDecoder batch = new BatchDecoder(chunkSize, threads);
+        long start = System.nanoTime();
+        ColumnarFixes fixes = batch.decode(inputs);
+        double decodeSeconds = (System.nanoTime() - start) / 1e9;
+        fixes.write(output);
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "bytes=%d frames=%d fixes=%d duplicates=%d%n",
+                batch.getBytes(), batch.getFrameCount(), fixes.size(), batch.getDuplicateCount());
+        System.out.printf(Locale.ROOT, "threads=%d chunks=%d realigned=%d%n",
+                threads, batch.getChunkCount(), batch.getRealignedChunkCount());
+        System.out.printf(Locale.ROOT, "decode=%.3fs total=%.3fs throughput=%.2f MB/s%n",
+                decodeSeconds, totalSeconds, batch.getBytes() / 1e6 / Math.max(decodeSeconds, 1e-9));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// 发往接收机的字节流（USB OUT 端点等），与 ByteSource 对应
+// 实现需要允许多个线程同时写入，每次 write 的数据不能与其他线程的数据交错
+public interface ByteSink extends Closeable {
+
+    // 写完 buffer[offset, offset + length) 才返回，timeoutMs 内写不完时抛出 IOException
+    void write(byte[] buffer, int offset, int length, int timeoutMs) throws IOException;
+}
@@ -0,0 +1,16 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// 字节流数据源，USB、文件和测试中的模拟数据都通过这个接口读取
+public interface ByteSource extends Closeable {
+
+    // 读取最多 length 个字节，超时返回 0，数据结束返回 -1
+    int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException;
+
+    // 从其他线程取消：阻塞中的 read() 尽快返回，之后 read() 返回 -1；资源仍由 close() 释放
+    // 默认什么也不做，读取线程在超时或被中断后退出
+    default void cancel() {
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ubloxreceiver;
+
+// UBX-CFG-VALGET (0x06 0x8B)：读取配置项
+// 请求由 request() 构造；应答的负载为 4 字节头加若干 (ID, 值) 对，按位置遍历，不创建对象：
+// for (int p = view.first(); p >= 0; p = view.next(p)) { view.key(p); view.value(p); }
+public class CfgValgetView extends UbxMessageView {
+
+    public static final int MESSAGE_CLASS = 0x06;
+    public static final int MESSAGE_ID = 0x8B;
+    public static final int MAX_KEYS_PER_REQUEST = 64;
+    private static final int HEADER = 4;
+
+    // 读取 layer 层（0 = RAM，1 = BBR，2 = FLASH，7 = 默认值）中的配置项
+    public static byte[] request(int layer, int position, int... keys) {
+        if (keys.length > MAX_KEYS_PER_REQUEST) {
+            throw new IllegalArgumentException("一次最多读取 " + MAX_KEYS_PER_REQUEST + " 项");
+        }
+        byte[] payload = new byte[HEADER + 4 * keys.length];
+        payload[0] = 0;
+        payload[1] = (byte) layer;
+        UbxBytes.put(payload, 2, position, 2);
+        for (int i = 0; i < keys.length; i++) {
+            UbxBytes.put(payload, HEADER + 4 * i, keys[i], 4);
+        }
+        return UbxFrames.build(MESSAGE_CLASS, MESSAGE_ID, payload, payload.length);
+    }
+
+    @Override
+    public int messageClass() {
+        return MESSAGE_CLASS;
+    }
+
+    @Override
+    public int messageId() {
+        return MESSAGE_ID;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return HEADER;
+    }
+
+    public int version() {
+        return u1(0);
+    }
+
+    public int layer() {
+        return u1(1);
+    }
+
+    public int position() {
+        return u2(2);
+    }
+
+    // 第一项的位置，没有配置项时返回 -1
+    public int first() {
+        return valid(HEADER);
+    }
+
+    // p 之后一项的位置，没有更多或剩余数据不完整时返回 -1
+    public int next(int p) {
+        return valid(p + 4 + UbxConfigKeys.valueSize(key(p)));
+    }
+
+    private int valid(int p) {
+        if (p + 4 > payloadLength) {
+            return -1;
+        }
+        int size = UbxConfigKeys.valueSize(i4(p));
+        return size > 0 && p + 4 + size <= payloadLength ? p : -1;
+    }
+
+    public int key(int p) {
+        return i4(p);
+    }
+
+    // 无符号读取，8 字节的值原样返回
+    public long value(int p) {
+        int size = UbxConfigKeys.valueSize(key(p));
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value |= (long) u1(p + 4 + i) << (8 * i);
+        }
+        return value;
+    }
+
+    // 查找某个配置项，没有时返回 defaultValue
+    public long find(int key, long defaultValue) {
+        for (int p = first(); p >= 0; p = next(p)) {
+            if (key(p) == key) {
+                return value(p);
+            }
+        }
+        return defaultValue;
+    }
+}
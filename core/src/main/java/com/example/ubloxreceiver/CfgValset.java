@@ -0,0 +1,104 @@
+package com.example.ubloxreceiver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// UBX-CFG-VALSET (0x06 0x8A)：批量设置配置项
+// 一条消息最多 MAX_KEYS_PER_MESSAGE 项，超过时拆成多条并用事务包起来，接收机收到最后一条才一起生效
+public class CfgValset {
+
+    public static final int MESSAGE_CLASS = 0x06;
+    public static final int MESSAGE_ID = 0x8A;
+    public static final int MAX_KEYS_PER_MESSAGE = 64;
+
+    // 配置层，可以按位组合
+    public static final int LAYER_RAM = 0x01;
+    public static final int LAYER_BBR = 0x02;
+    public static final int LAYER_FLASH = 0x04;
+
+    // 事务标志（version 1）
+    private static final int TRANSACTION_NONE = 0;
+    private static final int TRANSACTION_BEGIN = 1;
+    private static final int TRANSACTION_CONTINUE = 2;
+    private static final int TRANSACTION_APPLY = 3;
+    private static final int HEADER = 4;
+
+    private final int layers;
+    private int[] keys = new int[16];
+    private long[] values = new long[16];
+    private int count;
+
+    public CfgValset(int layers) {
+        this.layers = layers;
+    }
+
+    // 添加一个配置项；同一个 ID 重复设置时后面的值覆盖前面的
+    public CfgValset set(int key, long value) {
+        if (UbxConfigKeys.valueSize(key) < 0) {
+            throw new IllegalArgumentException("配置项 ID 无效: 0x" + Integer.toHexString(key));
+        }
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return this;
+            }
+        }
+        if (count == keys.length) {
+            int[] grownKeys = new int[count * 2];
+            long[] grownValues = new long[count * 2];
+            System.arraycopy(keys, 0, grownKeys, 0, count);
+            System.arraycopy(values, 0, grownValues, 0, count);
+            keys = grownKeys;
+            values = grownValues;
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int key(int index) {
+        return keys[index];
+    }
+
+    public long value(int index) {
+        return values[index];
+    }
+
+    // 生成要发送的帧，按顺序发送
+    public List<byte[]> toFrames() {
+        List<byte[]> frames = new ArrayList<>();
+        int messages = Math.max(1, (count + MAX_KEYS_PER_MESSAGE - 1) / MAX_KEYS_PER_MESSAGE);
+        byte[] payload = new byte[HEADER + MAX_KEYS_PER_MESSAGE * (4 + 8)];
+        for (int m = 0; m < messages; m++) {
+            int transaction;
+            if (messages == 1) {
+                transaction = TRANSACTION_NONE;
+            } else if (m == 0) {
+                transaction = TRANSACTION_BEGIN;
+            } else if (m == messages - 1) {
+                transaction = TRANSACTION_APPLY;
+            } else {
+                transaction = TRANSACTION_CONTINUE;
+            }
+            payload[0] = (byte) (transaction == TRANSACTION_NONE ? 0 : 1);
+            payload[1] = (byte) layers;
+            payload[2] = (byte) transaction;
+            payload[3] = 0;
+            int length = HEADER;
+            int end = Math.min(count, (m + 1) * MAX_KEYS_PER_MESSAGE);
+            for (int i = m * MAX_KEYS_PER_MESSAGE; i < end; i++) {
+                int size = UbxConfigKeys.valueSize(keys[i]);
+                UbxBytes.put(payload, length, keys[i], 4);
+                UbxBytes.put(payload, length + 4, values[i], size);
+                length += 4 + size;
+            }
+            frames.add(UbxFrames.build(MESSAGE_CLASS, MESSAGE_ID, payload, length));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// 按列保存的定位表：每个字段一个基本类型数组，追加时按需扩容，不为每个定位创建对象
+// 文件格式（小端）：
+//   int 魔数 "UBXC"、int 版本、long 行数、int 列数，
+//   每列：byte 类型（'J' long / 'I' int / 'B' byte）、byte 名字长度、名字（ASCII）、紧接着该列全部数据
+// 按列存放，后续分析只读取需要的列
+public class ColumnarFixes {
+
+    static final int MAGIC = 0x43584255; // "UBXC"
+    static final int VERSION = 1;
+
+    // 定位来源
+    public static final byte SOURCE_NAV_PVT = 1;
+    public static final byte SOURCE_NAV_POSLLH = 2;
+
+    static final String[] COLUMN_NAMES = {
+            "timeMs", "iTOW", "latE7", "lonE7", "hMSL", "hAcc", "vAcc", "fixType", "numSV", "source"};
+    private static final byte[] COLUMN_TYPES = {'J', 'J', 'I', 'I', 'I', 'I', 'I', 'B', 'B', 'B'};
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private int size;
+    // 展开后的 iTOW，ms，单调递增
+    private long[] timeMs;
+    private long[] iTOW;
+    private int[] latE7;
+    private int[] lonE7;
+    private int[] hMSL;
+    private int[] hAcc;
+    private int[] vAcc;
+    private byte[] fixType;
+    private byte[] numSV;
+    private byte[] source;
+
+    public ColumnarFixes() {
+        this(1024);
+    }
+
+    public ColumnarFixes(int capacity) {
+        capacity = Math.max(capacity, 16);
+        timeMs = new long[capacity];
+        iTOW = new long[capacity];
+        latE7 = new int[capacity];
+        lonE7 = new int[capacity];
+        hMSL = new int[capacity];
+        hAcc = new int[capacity];
+        vAcc = new int[capacity];
+        fixType = new byte[capacity];
+        numSV = new byte[capacity];
+        source = new byte[capacity];
+    }
+
+    // hAcc、vAcc 单位 mm，超出 int 范围时截断
+    public void add(long timeMs, long iTOW, int latE7, int lonE7, int hMSL, long hAcc, long vAcc,
+                    int fixType, int numSV, byte source) {
+        if (size == this.timeMs.length) {
+            grow(size * 2);
+        }
+        set(size++, timeMs, iTOW, latE7, lonE7, hMSL, hAcc, vAcc, fixType, numSV, source);
+    }
+
+    // 追加另一张表的第 row 行
+    public void addRow(ColumnarFixes from, int row) {
+        add(from.timeMs[row], from.iTOW[row], from.latE7[row], from.lonE7[row], from.hMSL[row],
+                from.hAcc[row], from.vAcc[row], from.fixType[row], from.numSV[row], from.source[row]);
+    }
+
+    // 用另一张表的第 row 行覆盖本表的第 index 行
+    public void setRow(int index, ColumnarFixes from, int row) {
+        set(index, from.timeMs[row], from.iTOW[row], from.latE7[row], from.lonE7[row], from.hMSL[row],
+                from.hAcc[row], from.vAcc[row], from.fixType[row], from.numSV[row], from.source[row]);
+    }
+
+    private void set(int i, long timeMs, long iTOW, int latE7, int lonE7, int hMSL, long hAcc, long vAcc,
+                     int fixType, int numSV, byte source) {
+        this.timeMs[i] = timeMs;
+        this.iTOW[i] = iTOW;
+        this.latE7[i] = latE7;
+        this.lonE7[i] = lonE7;
+        this.hMSL[i] = hMSL;
+        this.hAcc[i] = (int) Math.min(hAcc, Integer.MAX_VALUE);
+        this.vAcc[i] = (int) Math.min(vAcc, Integer.MAX_VALUE);
+        this.fixType[i] = (byte) fixType;
+        this.numSV[i] = (byte) numSV;
+        this.source[i] = source;
+    }
+
+    private void grow(int capacity) {
+        timeMs = Arrays.copyOf(timeMs, capacity);
+        iTOW = Arrays.copyOf(iTOW, capacity);
+        latE7 = Arrays.copyOf(latE7, capacity);
+        lonE7 = Arrays.copyOf(lonE7, capacity);
+        hMSL = Arrays.copyOf(hMSL, capacity);
+        hAcc = Arrays.copyOf(hAcc, capacity);
+        vAcc = Arrays.copyOf(vAcc, capacity);
+        fixType = Arrays.copyOf(fixType, capacity);
+        numSV = Arrays.copyOf(numSV, capacity);
+        source = Arrays.copyOf(source, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timeMs(int i) {
+        return timeMs[i];
+    }
+
+    public void setTimeMs(int i, long value) {
+        timeMs[i] = value;
+    }
+
+    public long iTOW(int i) {
+        return iTOW[i];
+    }
+
+    public int latE7(int i) {
+        return latE7[i];
+    }
+
+    public int lonE7(int i) {
+        return lonE7[i];
+    }
+
+    public int hMSL(int i) {
+        return hMSL[i];
+    }
+
+    public int hAcc(int i) {
+        return hAcc[i];
+    }
+
+    public int vAcc(int i) {
+        return vAcc[i];
+    }
+
+    public int fixType(int i) {
+        return fixType[i];
+    }
+
+    public int numSV(int i) {
+        return numSV[i] & 0xFF;
+    }
+
+    public byte source(int i) {
+        return source[i];
+    }
+
+    public void write(File file) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putInt(COLUMN_NAMES.length);
+            for (int c = 0; c < COLUMN_NAMES.length; c++) {
+                byte[] name = COLUMN_NAMES[c].getBytes("US-ASCII");
+                ensure(channel, buffer, 2 + name.length);
+                buffer.put(COLUMN_TYPES[c]).put((byte) name.length).put(name);
+                for (int i = 0; i < size; i++) {
+                    ensure(channel, buffer, 8);
+                    switch (c) {
+                        case 0: buffer.putLong(timeMs[i]); break;
+                        case 1: buffer.putLong(iTOW[i]); break;
+                        case 2: buffer.putInt(latE7[i]); break;
+                        case 3: buffer.putInt(lonE7[i]); break;
+                        case 4: buffer.putInt(hMSL[i]); break;
+                        case 5: buffer.putInt(hAcc[i]); break;
+                        case 6: buffer.putInt(vAcc[i]); break;
+                        case 7: buffer.put(fixType[i]); break;
+                        case 8: buffer.put(numSV[i]); break;
+                        default: buffer.put(source[i]); break;
+                    }
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    public static ColumnarFixes read(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            ByteBuffer data = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+                throw new IOException("不是定位列文件: " + file);
+            }
+            long rows = data.getLong();
+            int columns = data.getInt();
+            if (rows > Integer.MAX_VALUE || columns != COLUMN_NAMES.length) {
+                throw new IOException("定位列文件格式不符: " + file);
+            }
+            int n = (int) rows;
+            ColumnarFixes fixes = new ColumnarFixes(n);
+            fixes.size = n;
+            for (int c = 0; c < columns; c++) {
+                data.get();
+                int nameLength = data.get() & 0xFF;
+                data.position(data.position() + nameLength);
+                for (int i = 0; i < n; i++) {
+                    switch (c) {
+                        case 0: fixes.timeMs[i] = data.getLong(); break;
+                        case 1: fixes.iTOW[i] = data.getLong(); break;
+                        case 2: fixes.latE7[i] = data.getInt(); break;
+                        case 3: fixes.lonE7[i] = data.getInt(); break;
+                        case 4: fixes.hMSL[i] = data.getInt(); break;
+                        case 5: fixes.hAcc[i] = data.getInt(); break;
+                        case 6: fixes.vAcc[i] = data.getInt(); break;
+                        case 7: fixes.fixType[i] = data.get(); break;
+                        case 8: fixes.numSV[i] = data.get(); break;
+                        default: fixes.source[i] = data.get(); break;
+                    }
+                }
+            }
+            return fixes;
+        }
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
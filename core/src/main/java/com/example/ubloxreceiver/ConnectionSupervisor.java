@@ -0,0 +1,340 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 一台接收机的连接会话：唯一持有它的数据源和 ReceiverGroup 通道，按明确的状态管理连接、断开和重连。
+// 数据源出错或结束时移除通道（取消阻塞的读取、等待两个循环退出、关闭数据源），
+// 再按指数退避重连，连续失败超过次数上限后进入 FAILED，不再占用线程。
+// 状态只在 scheduler 的线程中改变，scheduler 应为单线程，可以由多个会话共用
+public class ConnectionSupervisor implements Closeable {
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 500;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 8000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+    public static final long CLOSE_TIMEOUT_MS = 3000;
+
+    public enum State {
+        // 还没有 start()
+        IDLE,
+        // 正在打开数据源
+        CONNECTING,
+        // 通道在运行
+        CONNECTED,
+        // 等待下一次重连
+        BACKOFF,
+        // 连续失败次数达到上限，等待 retryNow() 或 close()
+        FAILED,
+        // 已关闭，不能再启动
+        CLOSED
+    }
+
+    // 打开数据源，例如打开 USB 设备、声明接口；返回的数据源 close() 时释放所有资源
+    public interface Connector {
+        ByteSource open() throws IOException;
+    }
+
+    // 在 scheduler 的线程中回调
+    public interface Listener {
+        // 通道已建立、还没有启动，可以在它的解码器上注册消息、设置分接口
+        void onConnected(ReceiverGroup.Channel channel, ByteSource source);
+
+        // 通道已移除，数据源已关闭；cause 为 null 表示主动断开
+        void onDisconnected(ReceiverGroup.Channel channel, ByteSource source, IOException cause);
+
+        void onStateChanged(State state);
+    }
+
+    private final String name;
+    private final ReceiverGroup group;
+    private final Connector connector;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler;
+
+    private long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+    private long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private volatile UbxPipeline.SourceListener sourceListener;
+
+    // 以下只在 scheduler 线程中访问
+    private ReceiverGroup.Channel channel;
+    private ByteSource source;
+    private ScheduledFuture<?> retry;
+    private int failedAttempts;
+
+    private volatile State state = State.IDLE;
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong failedAttemptCount = new AtomicLong();
+    private final AtomicInteger liveSessions = new AtomicInteger();
+
+    public ConnectionSupervisor(String name, ReceiverGroup group, Connector connector, Listener listener,
+                                ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.group = group;
+        this.connector = connector;
+        this.listener = listener;
+        this.scheduler = scheduler;
+    }
+
+    // 第 n 次失败后等待 initialMs * 2^(n-1)，最多 maxMs
+    public void setBackoff(long initialMs, long maxMs) {
+        this.initialBackoffMs = initialMs;
+        this.maxBackoffMs = maxMs;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    // 每次连接的通道状态回调，在通道的读取线程中调用
+    public void setSourceListener(UbxPipeline.SourceListener sourceListener) {
+        this.sourceListener = sourceListener;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // 开始连接；重复调用无效
+    public void start() {
+        submit(() -> {
+            if (state == State.IDLE) {
+                connect();
+            }
+        });
+    }
+
+    // 立即重试（例如设备重新插入或重新获得权限），重置失败计数；已连接时无效
+    public void retryNow() {
+        submit(() -> {
+            if (state == State.BACKOFF || state == State.FAILED) {
+                cancelRetry();
+                failedAttempts = 0;
+                connect();
+            }
+        });
+    }
+
+    // 断开并停止重连，不等待；可以在任何线程（包括 scheduler 线程）中调用
+    public void closeAsync() {
+        submit(this::shutdown);
+    }
+
+    // 断开并停止重连，等待读取和解码循环退出，最多等 CLOSE_TIMEOUT_MS
+    @Override
+    public void close() throws IOException {
+        Future<?> done;
+        try {
+            done = scheduler.submit(this::shutdown);
+        } catch (RejectedExecutionException e) {
+            // scheduler 已关闭，直接在当前线程清理
+            shutdown();
+            return;
+        }
+        try {
+            done.get(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("关闭连接失败: " + name, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("关闭连接超时: " + name);
+        }
+    }
+
+    private void shutdown() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        cancelRetry();
+        disconnect(null);
+        setState(State.CLOSED);
+    }
+
+    private void connect() {
+        setState(State.CONNECTING);
+        ByteSource opened;
+        try {
+            opened = connector.open();
+        } catch (IOException e) {
+            scheduleRetry();
+            return;
+        }
+        ReceiverGroup.Channel added;
+        try {
+            added = group.add(name, opened);
+        } catch (IOException e) {
+            closeQuietly(opened);
+            scheduleRetry();
+            return;
+        }
+        added.setSourceListener(new UbxPipeline.SourceListener() {
+            @Override
+            public void onStalled() {
+                UbxPipeline.SourceListener forward = sourceListener;
+                if (forward != null) {
+                    forward.onStalled();
+                }
+            }
+
+            @Override
+            public void onResumed() {
+                UbxPipeline.SourceListener forward = sourceListener;
+                if (forward != null) {
+                    forward.onResumed();
+                }
+            }
+
+            @Override
+            public void onSourceError(IOException e) {
+                UbxPipeline.SourceListener forward = sourceListener;
+                if (forward != null) {
+                    forward.onSourceError(e);
+                }
+                submit(() -> onLost(added, e));
+            }
+
+            @Override
+            public void onSourceEnd() {
+                UbxPipeline.SourceListener forward = sourceListener;
+                if (forward != null) {
+                    forward.onSourceEnd();
+                }
+                submit(() -> onLost(added, new IOException("数据源已结束: " + name)));
+            }
+        });
+        channel = added;
+        source = opened;
+        liveSessions.incrementAndGet();
+        try {
+            if (listener != null) {
+                listener.onConnected(added, opened);
+            }
+            added.start();
+        } catch (RuntimeException e) {
+            // 监听者出错，或线程池已满拒绝了读取和解码任务：释放通道和数据源，按失败重连
+            try {
+                disconnect(new IOException("启动通道失败: " + name, e));
+            } finally {
+                scheduleRetry();
+            }
+            return;
+        }
+        if (connectCount.incrementAndGet() > 1) {
+            reconnectCount.incrementAndGet();
+        }
+        failedAttempts = 0;
+        setState(State.CONNECTED);
+    }
+
+    // 通道的读取线程报告错误或结束；已经被替换或关闭的通道的通知忽略
+    private void onLost(ReceiverGroup.Channel lost, IOException cause) {
+        if (lost != channel || state != State.CONNECTED) {
+            return;
+        }
+        disconnect(cause);
+        scheduleRetry();
+    }
+
+    private void disconnect(IOException cause) {
+        ReceiverGroup.Channel current = channel;
+        ByteSource closed = source;
+        if (current == null) {
+            return;
+        }
+        channel = null;
+        source = null;
+        try {
+            group.remove(current);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        liveSessions.decrementAndGet();
+        if (listener != null) {
+            listener.onDisconnected(current, closed, cause);
+        }
+    }
+
+    private void scheduleRetry() {
+        failedAttempts++;
+        failedAttemptCount.incrementAndGet();
+        if (failedAttempts >= maxAttempts) {
+            setState(State.FAILED);
+            return;
+        }
+        long delay = initialBackoffMs << Math.min(failedAttempts - 1, 20);
+        setState(State.BACKOFF);
+        retry = scheduler.schedule(() -> {
+            if (state == State.BACKOFF) {
+                connect();
+            }
+        }, Math.min(delay, maxBackoffMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelRetry() {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+    }
+
+    private void setState(State next) {
+        if (state == next) {
+            return;
+        }
+        state = next;
+        if (listener != null) {
+            listener.onStateChanged(next);
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            scheduler.execute(task);
+        } catch (RejectedExecutionException e) {
+            // scheduler 已关闭，会话随之结束
+        }
+    }
+
+    private static void closeQuietly(ByteSource source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            // 打开失败的数据源，忽略
+        }
+    }
+
+    // 成功建立连接的次数，包括第一次
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    // 第一次之后重新建立连接的次数
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    public long getFailedAttemptCount() {
+        return failedAttemptCount.get();
+    }
+
+    // 当前持有的通道数，只能是 0 或 1
+    public int getLiveSessionCount() {
+        return liveSessions.get();
+    }
+}
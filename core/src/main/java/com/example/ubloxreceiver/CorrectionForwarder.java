@@ -0,0 +1,347 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 把 RTCM3 差分数据写入接收机（RTK）：来源可以是文件、TCP 连接（startSource()），
+// 也可以是另一台接收机输出的 RTCM3 帧（offer()，例如接在 ReceiverGroup.Channel 的 RTCM 监听器上）。
+// 帧经 CRC 校验、按消息号过滤后进入有界队列，写入线程把队列中的帧合并成一次写入送到 OUT 端点。
+// 差分数据过时就没有用处：队列满时丢弃最旧的帧，排队超过 maxAgeMs 的帧在写入前丢弃，不会越积越多。
+// 文件数据源不是实时的，队列满时让读取线程等待，按写入的速度读取，不丢帧。
+// sink 可以和配置消息共用（UsbBulkByteSink 的写入互斥），写入不经过读取线程使用的 IN 端点
+public class CorrectionForwarder implements Closeable {
+
+    public static final int DEFAULT_QUEUE_FRAMES = 32;
+    public static final long DEFAULT_MAX_AGE_MS = 1000;
+    public static final int WRITE_TIMEOUT_MS = 500;
+    public static final int READ_TIMEOUT_MS = 1000;
+    // 一次写入最多合并的字节数
+    static final int WRITE_BATCH = 4096;
+    private static final long JOIN_TIMEOUT_MS = 2000;
+
+    private final ByteSink sink;
+    private final int capacity;
+    private final long maxAgeNanos;
+    // 允许的消息号，null 表示全部转发
+    private volatile boolean[] allowedTypes;
+
+    // 队列：预先分配的帧槽，lock 保护
+    private final Object lock = new Object();
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final long[] enqueueNanos;
+    private int head;
+    private int count;
+    private boolean running;
+
+    private volatile Thread writerThread;
+    private volatile Thread sourceThread;
+    private volatile ByteSource source;
+    private volatile long startNanos;
+
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong filteredFrames = new AtomicLong();
+    private final AtomicLong overflowDrops = new AtomicLong();
+    private final AtomicLong lateDrops = new AtomicLong();
+    private final AtomicLong writtenFrames = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong sourceCrcErrors = new AtomicLong();
+    // 从进入队列到写完的时间，和每次写入本身的耗时
+    private final LatencyHistogram latency = new LatencyHistogram("rtcm-latency");
+    private final LatencyHistogram writeTime = new LatencyHistogram("rtcm-write");
+
+    public CorrectionForwarder(ByteSink sink) {
+        this(sink, DEFAULT_QUEUE_FRAMES, DEFAULT_MAX_AGE_MS);
+    }
+
+    public CorrectionForwarder(ByteSink sink, int queueFrames, long maxAgeMs) {
+        if (queueFrames <= 0) {
+            throw new IllegalArgumentException("queueFrames must be positive: " + queueFrames);
+        }
+        this.sink = sink;
+        this.capacity = queueFrames;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        this.slots = new byte[queueFrames][Rtcm3.MAX_FRAME];
+        this.lengths = new int[queueFrames];
+        this.enqueueNanos = new long[queueFrames];
+    }
+
+    // 只转发这些消息号的帧，例如 1005、1077、1087、1097、1127、1230；不设置时全部转发
+    public void setMessageFilter(int... types) {
+        if (types == null || types.length == 0) {
+            allowedTypes = null;
+            return;
+        }
+        boolean[] allowed = new boolean[4096];
+        for (int type : types) {
+            allowed[type & 0xFFF] = true;
+        }
+        allowedTypes = allowed;
+    }
+
+    // "tcp://host:port" 打开 TCP 连接，其他按文件路径打开
+    public static ByteSource openSource(String spec) throws IOException {
+        if (spec.startsWith("tcp://")) {
+            String address = spec.substring("tcp://".length());
+            int colon = address.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IOException("缺少端口: " + spec);
+            }
+            return SocketByteSource.connect(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        }
+        return InputStreamByteSource.open(spec);
+    }
+
+    public static boolean isLive(String spec) {
+        return spec.startsWith("tcp://");
+    }
+
+    // 启动写入线程，之后才能 offer() 或 startSource()
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        startNanos = System.nanoTime();
+        writerThread = new Thread(this::writeLoop, "rtcm-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // 在专用线程中读取 source 并转发其中的 RTCM3 帧；live 为 false（文件）时队列满则等待。
+    // 数据源结束或出错后线程退出，source 由 close() 关闭；只能有一个数据源。
+    // 已经 close() 时直接关闭 source，连接可以在其他线程中慢慢建立，不必担心和 close() 竞争
+    public void startSource(ByteSource source, boolean live) throws IOException {
+        synchronized (lock) {
+            if (this.source != null) {
+                throw new IllegalStateException("数据源已启动");
+            }
+            if (!running) {
+                source.close();
+                return;
+            }
+            this.source = source;
+        }
+        UbxFrameReassembler framer = new UbxFrameReassembler(null);
+        framer.setRtcmListener((frame, offset, length) -> enqueue(frame, offset, length, !live));
+        sourceThread = new Thread(() -> {
+            byte[] buffer = new byte[WRITE_BATCH];
+            try {
+                int n;
+                while (isRunning() && (n = source.read(buffer, 0, buffer.length, READ_TIMEOUT_MS)) >= 0) {
+                    framer.push(buffer, 0, n);
+                    sourceCrcErrors.set(framer.getRtcmCrcErrorCount());
+                }
+            } catch (IOException e) {
+                // 数据源断开，已经排队的帧照常写入
+            }
+        }, "rtcm-source");
+        sourceThread.setDaemon(true);
+        sourceThread.start();
+    }
+
+    // 转发一个完整、已校验的 RTCM3 帧（例如另一台接收机输出的），不阻塞；可以在任何线程调用
+    public boolean offer(byte[] frame, int offset, int length) {
+        return enqueue(frame, offset, length, false);
+    }
+
+    private boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    private boolean enqueue(byte[] frame, int offset, int length, boolean block) {
+        receivedFrames.incrementAndGet();
+        boolean[] allowed = allowedTypes;
+        if (length > Rtcm3.MAX_FRAME || length < Rtcm3.FRAME_OVERHEAD + 2
+                || (allowed != null && !allowed[Rtcm3.messageType(frame, offset)])) {
+            filteredFrames.incrementAndGet();
+            return false;
+        }
+        synchronized (lock) {
+            while (running && count == capacity) {
+                if (!block) {
+                    // 丢弃最旧的帧，为新数据腾出位置
+                    head = (head + 1) % capacity;
+                    count--;
+                    overflowDrops.incrementAndGet();
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (!running) {
+                return false;
+            }
+            int tail = (head + count) % capacity;
+            System.arraycopy(frame, offset, slots[tail], 0, length);
+            lengths[tail] = length;
+            enqueueNanos[tail] = System.nanoTime();
+            count++;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        byte[] batch = new byte[WRITE_BATCH];
+        long[] batchEnqueueNanos = new long[WRITE_BATCH / Rtcm3.FRAME_OVERHEAD];
+        while (true) {
+            int length = 0;
+            int frames = 0;
+            synchronized (lock) {
+                while (running && count == 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                long now = System.nanoTime();
+                while (count > 0 && length + lengths[head] <= batch.length) {
+                    if (now - enqueueNanos[head] > maxAgeNanos) {
+                        lateDrops.incrementAndGet();
+                    } else {
+                        System.arraycopy(slots[head], 0, batch, length, lengths[head]);
+                        length += lengths[head];
+                        batchEnqueueNanos[frames++] = enqueueNanos[head];
+                    }
+                    head = (head + 1) % capacity;
+                    count--;
+                }
+                // 唤醒等待空位的文件读取线程
+                lock.notifyAll();
+            }
+            if (frames == 0) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                sink.write(batch, 0, length, WRITE_TIMEOUT_MS);
+                long end = System.nanoTime();
+                writeTime.record(end - start);
+                for (int i = 0; i < frames; i++) {
+                    latency.record(end - batchEnqueueNanos[i]);
+                }
+                writtenFrames.addAndGet(frames);
+                writtenBytes.addAndGet(length);
+            } catch (IOException e) {
+                // 接收机断开或写入超时，这一批丢弃，后面的帧继续尝试
+                writeErrors.incrementAndGet();
+            }
+        }
+    }
+
+    // 停止读取和写入，关闭数据源，排队中的帧丢弃；不关闭 sink
+    @Override
+    public void close() throws IOException {
+        ByteSource current;
+        synchronized (lock) {
+            running = false;
+            count = 0;
+            lock.notifyAll();
+            current = source;
+        }
+        if (current != null) {
+            current.cancel();
+        }
+        try {
+            join(sourceThread);
+            join(writerThread);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static void join(Thread thread) throws InterruptedException {
+        if (thread != null) {
+            thread.join(JOIN_TIMEOUT_MS);
+        }
+    }
+
+    public long getReceivedFrameCount() {
+        return receivedFrames.get();
+    }
+
+    // 因消息号不在过滤表中（或长度不合法）而没有转发的帧
+    public long getFilteredFrameCount() {
+        return filteredFrames.get();
+    }
+
+    // 队列满时丢弃的最旧的帧
+    public long getOverflowDropCount() {
+        return overflowDrops.get();
+    }
+
+    // 排队时间超过上限、没有写入的帧
+    public long getLateDropCount() {
+        return lateDrops.get();
+    }
+
+    public long getWrittenFrameCount() {
+        return writtenFrames.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    public long getWriteErrorCount() {
+        return writeErrors.get();
+    }
+
+    // 文件或 TCP 数据源中 CRC 错误的帧
+    public long getSourceCrcErrorCount() {
+        return sourceCrcErrors.get();
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getWriteTime() {
+        return writeTime;
+    }
+
+    // 启动以来写入的平均速率，字节/秒
+    public double getThroughputBytesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsed <= 0 ? 0 : writtenBytes.get() * 1e9 / elapsed;
+    }
+
+    // 单行统计，用于诊断显示
+    public StringBuilder appendStats(StringBuilder sb) {
+        sb.append("rtcm in=").append(getReceivedFrameCount())
+                .append(" out=").append(getWrittenFrameCount())
+                .append(" filtered=").append(getFilteredFrameCount())
+                .append(" overflow=").append(getOverflowDropCount())
+                .append(" late=").append(getLateDropCount())
+                .append(" errors=").append(getWriteErrorCount())
+                .append(" crc=").append(getSourceCrcErrorCount())
+                .append(" queue=").append(getQueueDepth())
+                .append(" rate=").append((long) getThroughputBytesPerSecond()).append("B/s ");
+        return latency.appendTo(sb);
+    }
+}
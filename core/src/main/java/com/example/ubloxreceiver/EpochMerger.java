@@ -0,0 +1,394 @@
+package com.example.ubloxreceiver;
+
+import java.util.Arrays;
+
+// 把多台接收机的定位按历元（iTOW）对齐合并：同一历元所有在线接收机都报告后立即输出，
+// 有接收机缺席时，等待的历元超过窗口大小就把最早的一个作为不完整历元输出，慢的接收机不会拖住其他接收机。
+// 输出顺序按时间单调递增，已经输出过的历元再收到的定位计为迟到并丢弃。
+// 历元对象预先分配并循环使用，监听者只能在回调期间读取。
+// add() 由各接收机的解码线程调用，内部加锁；要输出的历元在锁内复制到输出队列，释放锁之后才回调。
+// 回调是串行的：没有其他线程正在回调时由调用 add() 的线程依次回调队列中的历元，
+// 否则只放进队列，由正在回调的线程接着处理，其他接收机的解码线程不会等待慢的回调。
+// 回调跟不上时队列最多保留 OUTPUT_CAPACITY 个历元，更早的丢弃并计数
+public class EpochMerger {
+
+    public static final int MAX_DEVICES = 32;
+    public static final int OUTPUT_CAPACITY = 64;
+    public static final int DEFAULT_WINDOW = 4;
+
+    public interface EpochListener {
+        void onEpoch(Epoch epoch);
+    }
+
+    // 一个历元中各接收机的定位，坐标单位 1e-7 度，高度和精度单位 mm
+    public static final class Epoch {
+        // 展开后的 iTOW，ms，单调递增
+        long timeMs;
+        long iTOW;
+        // 已报告的接收机
+        int mask;
+        // 输出时是否所有在线接收机都已报告
+        boolean complete;
+        final int[] latE7;
+        final int[] lonE7;
+        final int[] hMSL;
+        final long[] hAcc;
+        final long[] vAcc;
+        final long[] receivedNanos;
+
+        Epoch(int deviceCount) {
+            latE7 = new int[deviceCount];
+            lonE7 = new int[deviceCount];
+            hMSL = new int[deviceCount];
+            hAcc = new long[deviceCount];
+            vAcc = new long[deviceCount];
+            receivedNanos = new long[deviceCount];
+        }
+
+        void copyFrom(Epoch other) {
+            timeMs = other.timeMs;
+            iTOW = other.iTOW;
+            mask = other.mask;
+            complete = other.complete;
+            System.arraycopy(other.latE7, 0, latE7, 0, latE7.length);
+            System.arraycopy(other.lonE7, 0, lonE7, 0, lonE7.length);
+            System.arraycopy(other.hMSL, 0, hMSL, 0, hMSL.length);
+            System.arraycopy(other.hAcc, 0, hAcc, 0, hAcc.length);
+            System.arraycopy(other.vAcc, 0, vAcc, 0, vAcc.length);
+            System.arraycopy(other.receivedNanos, 0, receivedNanos, 0, receivedNanos.length);
+        }
+
+        public long timeMs() {
+            return timeMs;
+        }
+
+        public long iTOW() {
+            return iTOW;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public boolean has(int device) {
+            return (mask & (1 << device)) != 0;
+        }
+
+        public int deviceCount() {
+            return Integer.bitCount(mask);
+        }
+
+        public int latE7(int device) {
+            return latE7[device];
+        }
+
+        public int lonE7(int device) {
+            return lonE7[device];
+        }
+
+        public int hMSL(int device) {
+            return hMSL[device];
+        }
+
+        public long hAcc(int device) {
+            return hAcc[device];
+        }
+
+        public long vAcc(int device) {
+            return vAcc[device];
+        }
+
+        public long receivedNanos(int device) {
+            return receivedNanos[device];
+        }
+
+        // 水平精度最好的接收机
+        public int best() {
+            int best = -1;
+            for (int i = 0; i < hAcc.length; i++) {
+                if (has(i) && (best < 0 || hAcc[i] < hAcc[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    private final int deviceCount;
+    private final EpochListener listener;
+    // 等待中的历元按时间升序排在 pending[0, pendingCount)，其余为空闲对象
+    private final Epoch[] pending;
+    private int pendingCount;
+    // 窗口已满时比所有等待中的历元都早的定位，不进入窗口，直接输出
+    private final Epoch direct;
+    // iTOW 每台接收机单独展开，交错到达的 iTOW 不会被误判为周翻转；
+    // 接收机的第一个 iTOW 按已有的时间确定所在的周，周末前后上线的接收机也能对齐
+    private final long[] weekBaseMs;
+    private final long[] lastITOW;
+    private long newestMs = Long.MIN_VALUE;
+    private int activeMask;
+    private long lastEmittedMs = Long.MIN_VALUE;
+
+    // 等待回调的历元副本，环形队列 output[outputHead, outputHead + outputCount)；
+    // 正在回调的历元从队列中换出，回调结束后作为 spare 换回下一个取出的位置
+    private final Epoch[] output;
+    private int outputHead;
+    private int outputCount;
+    private Epoch spare;
+    private boolean delivering;
+
+    private long completeCount;
+    private long partialCount;
+    private long lateCount;
+    private long droppedCount;
+
+    public EpochMerger(int deviceCount, int window, EpochListener listener) {
+        if (deviceCount < 1 || deviceCount > MAX_DEVICES) {
+            throw new IllegalArgumentException("deviceCount " + deviceCount);
+        }
+        if (window < 1) {
+            throw new IllegalArgumentException("window " + window);
+        }
+        this.deviceCount = deviceCount;
+        this.listener = listener;
+        this.pending = new Epoch[window];
+        for (int i = 0; i < window; i++) {
+            pending[i] = new Epoch(deviceCount);
+        }
+        this.direct = new Epoch(deviceCount);
+        this.output = new Epoch[OUTPUT_CAPACITY];
+        for (int i = 0; i < OUTPUT_CAPACITY; i++) {
+            output[i] = new Epoch(deviceCount);
+        }
+        this.spare = new Epoch(deviceCount);
+        this.weekBaseMs = new long[deviceCount];
+        this.lastITOW = new long[deviceCount];
+        Arrays.fill(lastITOW, -1);
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    // 接收机上线或下线（断开、停止输出）。下线的接收机不再被等待，可能使等待中的历元变得完整
+    public void setActive(int device, boolean active) {
+        synchronized (this) {
+            if (active) {
+                activeMask |= 1 << device;
+                // 重新上线的接收机可能已经跨过周翻转，重新确定所在的周
+                lastITOW[device] = -1;
+            } else {
+                activeMask &= ~(1 << device);
+                emitCompleted();
+            }
+        }
+        deliver();
+    }
+
+    public synchronized boolean isActive(int device) {
+        return (activeMask & (1 << device)) != 0;
+    }
+
+    // 加入一台接收机的定位；同一历元重复报告（NAV-PVT 和 NAV-POSLLH）时后一条覆盖前一条
+    public void add(int device, long iTOW, int latE7, int lonE7, int hMSL,
+                    long hAcc, long vAcc, long receivedNanos) {
+        synchronized (this) {
+            long timeMs = unwrap(device, iTOW);
+            if (timeMs <= lastEmittedMs) {
+                lateCount++;
+                return;
+            }
+            Epoch epoch = find(timeMs);
+            boolean early = false;
+            if (epoch == null) {
+                // 为它挤出窗口的会是更新的历元，输出就不再按时间递增了
+                early = pendingCount == pending.length && timeMs < pending[0].timeMs;
+                epoch = early ? direct : insert(timeMs);
+                epoch.timeMs = timeMs;
+                epoch.mask = 0;
+                epoch.iTOW = iTOW;
+            }
+            int bit = 1 << device;
+            epoch.mask |= bit;
+            epoch.latE7[device] = latE7;
+            epoch.lonE7[device] = lonE7;
+            epoch.hMSL[device] = hMSL;
+            epoch.hAcc[device] = hAcc;
+            epoch.vAcc[device] = vAcc;
+            epoch.receivedNanos[device] = receivedNanos;
+            if (early) {
+                emit(epoch);
+            } else {
+                emitCompleted();
+            }
+        }
+        deliver();
+    }
+
+    // 把所有等待中的历元按不完整历元输出，例如会话结束时
+    public void flush() {
+        synchronized (this) {
+            while (pendingCount > 0) {
+                emitOldest();
+            }
+        }
+        deliver();
+    }
+
+    private long unwrap(int device, long iTOW) {
+        long half = ItowUnwrapper.WEEK_MS / 2;
+        long last = lastITOW[device];
+        if (last < 0) {
+            long base = 0;
+            if (newestMs != Long.MIN_VALUE) {
+                base = newestMs - Math.floorMod(newestMs, ItowUnwrapper.WEEK_MS);
+                long timeMs = base + iTOW;
+                if (timeMs - newestMs > half) {
+                    base -= ItowUnwrapper.WEEK_MS;
+                } else if (newestMs - timeMs > half) {
+                    base += ItowUnwrapper.WEEK_MS;
+                }
+            }
+            weekBaseMs[device] = base;
+        } else if (iTOW + half < last) {
+            weekBaseMs[device] += ItowUnwrapper.WEEK_MS;
+        }
+        lastITOW[device] = iTOW;
+        long timeMs = weekBaseMs[device] + iTOW;
+        if (timeMs > newestMs) {
+            newestMs = timeMs;
+        }
+        return timeMs;
+    }
+
+    private Epoch find(long timeMs) {
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            if (pending[i].timeMs == timeMs) {
+                return pending[i];
+            }
+            if (pending[i].timeMs < timeMs) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    // 按时间插入一个新历元，窗口已满时先输出最早的历元
+    private Epoch insert(long timeMs) {
+        if (pendingCount == pending.length) {
+            emitOldest();
+        }
+        Epoch epoch = pending[pendingCount];
+        int index = pendingCount;
+        while (index > 0 && pending[index - 1].timeMs > timeMs) {
+            pending[index] = pending[index - 1];
+            index--;
+        }
+        pending[index] = epoch;
+        pendingCount++;
+        return epoch;
+    }
+
+    // 找到最新的完整历元，把它和之前的历元全部输出；更早的历元不会再等到缺席的接收机
+    private void emitCompleted() {
+        int last = -1;
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            if (activeMask != 0 && (pending[i].mask & activeMask) == activeMask) {
+                last = i;
+                break;
+            }
+        }
+        for (int i = 0; i <= last; i++) {
+            emitOldest();
+        }
+    }
+
+    private void emitOldest() {
+        Epoch epoch = pending[0];
+        System.arraycopy(pending, 1, pending, 0, pendingCount - 1);
+        pendingCount--;
+        pending[pendingCount] = epoch;
+        emit(epoch);
+    }
+
+    private void emit(Epoch epoch) {
+        epoch.complete = activeMask != 0 && (epoch.mask & activeMask) == activeMask;
+        if (epoch.complete) {
+            completeCount++;
+        } else {
+            partialCount++;
+        }
+        lastEmittedMs = epoch.timeMs;
+        if (listener == null) {
+            return;
+        }
+        if (outputCount == OUTPUT_CAPACITY) {
+            outputHead = (outputHead + 1) % OUTPUT_CAPACITY;
+            outputCount--;
+            droppedCount++;
+        }
+        output[(outputHead + outputCount) % OUTPUT_CAPACITY].copyFrom(epoch);
+        outputCount++;
+    }
+
+    // 在锁外依次回调输出队列中的历元；已有线程在回调时直接返回
+    private void deliver() {
+        Epoch epoch;
+        synchronized (this) {
+            if (delivering || outputCount == 0) {
+                return;
+            }
+            delivering = true;
+            epoch = takeOutput();
+        }
+        try {
+            while (epoch != null) {
+                listener.onEpoch(epoch);
+                synchronized (this) {
+                    spare = epoch;
+                    epoch = outputCount == 0 ? null : takeOutput();
+                    delivering = epoch != null;
+                }
+            }
+        } finally {
+            // 回调抛出异常时放回对象，之后的 add() 继续回调剩下的历元
+            if (epoch != null) {
+                synchronized (this) {
+                    spare = epoch;
+                    delivering = false;
+                }
+            }
+        }
+    }
+
+    private Epoch takeOutput() {
+        Epoch epoch = output[outputHead];
+        output[outputHead] = spare;
+        spare = null;
+        outputHead = (outputHead + 1) % OUTPUT_CAPACITY;
+        outputCount--;
+        return epoch;
+    }
+
+    public synchronized long getCompleteCount() {
+        return completeCount;
+    }
+
+    public synchronized long getPartialCount() {
+        return partialCount;
+    }
+
+    // 在对应历元输出之后才到达、被丢弃的定位
+    public synchronized long getLateCount() {
+        return lateCount;
+    }
+
+    // 回调跟不上、从输出队列中丢弃的历元
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.ubloxreceiver;
+
+// 把定位快照格式化成显示文本，复用内部缓冲区，定点数直接按位输出，不经过 double 转字符串
+// 结果写入 char[]，配合 TextView.setText(char[], int, int) 使用时不产生 String。非线程安全
+public class FixFormatter {
+
+    private final StringBuilder builder = new StringBuilder(160);
+    private char[] chars = new char[160];
+
+    // 返回写入 chars() 的字符数
+    public int format(FixSnapshot fix) {
+        StringBuilder sb = builder;
+        sb.setLength(0);
+        sb.append("iTOW(s): ").append(fix.iTOW / 1000);
+        sb.append("\nLongitude(°E): ");
+        appendFixed(sb, fix.lonE7, 7);
+        sb.append("\nLatitude(°N): ");
+        appendFixed(sb, fix.latE7, 7);
+        sb.append("\nHeight(m): ");
+        appendFixed(sb, fix.hMSL, 3);
+        sb.append("\nhAcc(m): ");
+        appendFixed(sb, fix.hAcc, 3);
+        sb.append("\nvAcc(m): ");
+        appendFixed(sb, fix.vAcc, 3);
+        int length = sb.length();
+        if (chars.length < length) {
+            chars = new char[length * 2];
+        }
+        sb.getChars(0, length, chars, 0);
+        return length;
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    // 以 decimals 位小数输出 value / 10^decimals
+    static void appendFixed(StringBuilder sb, long value, int decimals) {
+        if (value < 0) {
+            sb.append('-');
+            value = -value;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        sb.append(value / scale);
+        if (decimals == 0) {
+            return;
+        }
+        sb.append('.');
+        long fraction = value % scale;
+        for (long digit = scale / 10; digit > 0; digit /= 10) {
+            sb.append((char) ('0' + fraction / digit % 10));
+        }
+    }
+}
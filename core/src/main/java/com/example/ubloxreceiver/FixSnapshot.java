@@ -0,0 +1,38 @@
+package com.example.ubloxreceiver;
+
+// 一次定位结果的可复用快照，在解码线程和 UI 线程之间传递，不在每次定位时创建
+public class FixSnapshot {
+
+    // GPS 周内时，ms
+    public long iTOW;
+    // 经纬度，1e-7 度
+    public int lonE7;
+    public int latE7;
+    // 海拔高，mm
+    public int hMSL;
+    // 水平/垂直精度，mm
+    public long hAcc;
+    public long vAcc;
+    // 解码时的 System.nanoTime()
+    public long decodedNanos;
+    // 这次定位的最后一个字节从 USB 读出时的 System.nanoTime()，未知时为 0；由发布者在 set() 之后单独设置
+    public long readNanos;
+
+    public void set(long iTOW, int lonE7, int latE7, int hMSL, long hAcc, long vAcc, long decodedNanos) {
+        this.iTOW = iTOW;
+        this.lonE7 = lonE7;
+        this.latE7 = latE7;
+        this.hMSL = hMSL;
+        this.hAcc = hAcc;
+        this.vAcc = vAcc;
+        this.decodedNanos = decodedNanos;
+    }
+
+    public double lon() {
+        return UbxUnits.toDegrees(lonE7);
+    }
+
+    public double lat() {
+        return UbxUnits.toDegrees(latE7);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.ubloxreceiver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// 一个地理围栏：多边形作业区，或以航点为圆心的圆形接近区。坐标单位 1e-7 度，半径单位 m。
+// 多边形的顶点按顺序给出，首尾自动相连，不要求顺时针或逆时针，不支持跨越 180° 经线
+public final class Geofence {
+
+    private final String id;
+    private final int[] latE7;
+    private final int[] lonE7;
+    // 圆形时为半径，多边形时为 0
+    private final double radiusMeters;
+
+    private Geofence(String id, int[] latE7, int[] lonE7, double radiusMeters) {
+        this.id = id;
+        this.latE7 = latE7;
+        this.lonE7 = lonE7;
+        this.radiusMeters = radiusMeters;
+    }
+
+    public static Geofence polygon(String id, int[] latE7, int[] lonE7) {
+        if (latE7.length != lonE7.length || latE7.length < 3) {
+            throw new IllegalArgumentException(id + ": polygon needs at least 3 vertices");
+        }
+        return new Geofence(id, latE7.clone(), lonE7.clone(), 0);
+    }
+
+    public static Geofence circle(String id, int latE7, int lonE7, double radiusMeters) {
+        if (!(radiusMeters > 0)) {
+            throw new IllegalArgumentException(id + ": radius " + radiusMeters);
+        }
+        return new Geofence(id, new int[]{latE7}, new int[]{lonE7}, radiusMeters);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isCircle() {
+        return radiusMeters > 0;
+    }
+
+    public double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    // 顶点数，圆形为 1（圆心）
+    public int getVertexCount() {
+        return latE7.length;
+    }
+
+    public int latE7(int vertex) {
+        return latE7[vertex];
+    }
+
+    public int lonE7(int vertex) {
+        return lonE7[vertex];
+    }
+
+    // 每行一个围栏，空行和 # 开头的行忽略，坐标为"纬度,经度"（度）：
+    //   zone-a polygon 31.2301,121.4701 31.2301,121.4760 31.2262,121.4760
+    //   wp-1 circle 31.2280,121.4730 25
+    public static List<Geofence> readAll(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        List<Geofence> zones = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                zones.add(parse(fields));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return zones;
+    }
+
+    private static Geofence parse(String[] fields) {
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("expected: <id> polygon|circle <lat,lon>...");
+        }
+        String id = fields[0];
+        switch (fields[1]) {
+            case "polygon": {
+                int n = fields.length - 2;
+                int[] lat = new int[n];
+                int[] lon = new int[n];
+                for (int i = 0; i < n; i++) {
+                    parsePoint(fields[i + 2], lat, lon, i);
+                }
+                return polygon(id, lat, lon);
+            }
+            case "circle": {
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("expected: <id> circle <lat,lon> <radius>");
+                }
+                int[] lat = new int[1];
+                int[] lon = new int[1];
+                parsePoint(fields[2], lat, lon, 0);
+                return circle(id, lat[0], lon[0], Double.parseDouble(fields[3]));
+            }
+            default:
+                throw new IllegalArgumentException("unknown shape " + fields[1]);
+        }
+    }
+
+    private static void parsePoint(String field, int[] lat, int[] lon, int index) {
+        int comma = field.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("expected lat,lon: " + field);
+        }
+        lat[index] = UbxUnits.toE7(Double.parseDouble(field.substring(0, comma)));
+        lon[index] = UbxUnits.toE7(Double.parseDouble(field.substring(comma + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
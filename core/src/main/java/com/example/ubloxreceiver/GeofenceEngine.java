@@ -0,0 +1,414 @@
+package com.example.ubloxreceiver;
+
+import java.util.Arrays;
+import java.util.List;
+
+// 地理围栏的进入、离开和停留判断，每个定位调用一次 update()。
+// 围栏在构造时投影到以所有围栏中心为原点的局部平面（m），并按外接矩形建立静态网格索引，
+// 每个定位只检查所在网格中的围栏和当前在里面的围栏。
+// 每个围栏记住上一次完整计算时的位置和到边界的有符号距离（里面为正）：这个距离随位置移动的变化不超过移动的距离，
+// 移动距离不足以让状态改变时跳过多边形计算。
+// 滞后：到边界的距离超过 hAcc × hAccFactor（不少于 MIN_MARGIN_METERS）才判为进入或离开，定位在边界附近抖动时不会反复触发。
+// 在里面连续超过 dwellMs 时触发一次停留。
+// 不是线程安全的，应在同一个线程中调用（或像 EpochMerger 的回调那样串行调用）；回调在 update() 中执行，update() 不分配对象
+public class GeofenceEngine {
+
+    public enum Transition {
+        ENTER, EXIT, DWELL
+    }
+
+    public interface Listener {
+        void onTransition(Geofence zone, Transition transition, long timeMs);
+    }
+
+    public static final long DEFAULT_DWELL_MS = 30_000;
+    public static final double DEFAULT_HACC_FACTOR = 1.0;
+    public static final double MIN_MARGIN_METERS = 0.5;
+    // 网格单元数上限
+    static final int MAX_CELLS = 1 << 16;
+
+    private static final byte OUTSIDE = 0;
+    private static final byte INSIDE = 1;
+    private static final byte DWELLING = 2;
+
+    private final Geofence[] zones;
+    private final Listener listener;
+
+    // 局部平面的原点和经度方向每 1e-7 度的米数
+    private final long originLatE7;
+    private final long originLonE7;
+    private final double metersPerE7Lat;
+    private final double metersPerE7Lon;
+
+    // 多边形顶点（m），围栏 z 的顶点为 [vertexStart[z], vertexStart[z + 1])；圆形只有圆心
+    private final int[] vertexStart;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] radius;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+
+    // 网格：单元 c 中的围栏为 cellZones[cellStart[c], cellStart[c + 1])
+    private final double gridX;
+    private final double gridY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellZones;
+
+    // 每个围栏的状态
+    private final byte[] state;
+    private final long[] enteredMs;
+    private final double[] lastX;
+    private final double[] lastY;
+    // 上一次完整计算的有符号距离，NaN 表示还没有计算过
+    private final double[] lastDistance;
+    // 本次 update() 中已检查过的围栏
+    private final int[] visited;
+    private int stamp;
+    // 当前在里面的围栏
+    private final int[] insideZones;
+    private int insideCount;
+
+    private long dwellMs = DEFAULT_DWELL_MS;
+    private double hAccFactor = DEFAULT_HACC_FACTOR;
+
+    private long fixCount;
+    private long candidateCount;
+    private long evaluatedCount;
+    private long skippedCount;
+    private long eventCount;
+
+    public GeofenceEngine(List<Geofence> zones, Listener listener) {
+        this(zones, 0, listener);
+    }
+
+    // cellSizeMeters 为网格单元边长，0 时取围栏外接矩形长边的平均值
+    public GeofenceEngine(List<Geofence> zones, double cellSizeMeters, Listener listener) {
+        this.zones = zones.toArray(new Geofence[0]);
+        this.listener = listener;
+        int count = this.zones.length;
+
+        long minLat = Long.MAX_VALUE;
+        long maxLat = Long.MIN_VALUE;
+        long minLon = Long.MAX_VALUE;
+        long maxLon = Long.MIN_VALUE;
+        int vertices = 0;
+        for (Geofence zone : this.zones) {
+            for (int i = 0; i < zone.getVertexCount(); i++) {
+                minLat = Math.min(minLat, zone.latE7(i));
+                maxLat = Math.max(maxLat, zone.latE7(i));
+                minLon = Math.min(minLon, zone.lonE7(i));
+                maxLon = Math.max(maxLon, zone.lonE7(i));
+            }
+            vertices += zone.getVertexCount();
+        }
+        originLatE7 = count == 0 ? 0 : (minLat + maxLat) / 2;
+        originLonE7 = count == 0 ? 0 : (minLon + maxLon) / 2;
+        metersPerE7Lat = UbxUnits.METERS_PER_DEGREE / 1e7;
+        metersPerE7Lon = metersPerE7Lat * Math.cos(Math.toRadians(originLatE7 / 1e7));
+
+        vertexStart = new int[count + 1];
+        xs = new double[vertices];
+        ys = new double[vertices];
+        radius = new double[count];
+        minX = new double[count];
+        minY = new double[count];
+        maxX = new double[count];
+        maxY = new double[count];
+        double extentX0 = Double.MAX_VALUE;
+        double extentY0 = Double.MAX_VALUE;
+        double extentX1 = -Double.MAX_VALUE;
+        double extentY1 = -Double.MAX_VALUE;
+        double sizeSum = 0;
+        int v = 0;
+        for (int z = 0; z < count; z++) {
+            Geofence zone = this.zones[z];
+            vertexStart[z] = v;
+            minX[z] = minY[z] = Double.MAX_VALUE;
+            maxX[z] = maxY[z] = -Double.MAX_VALUE;
+            for (int i = 0; i < zone.getVertexCount(); i++, v++) {
+                xs[v] = projectX(zone.lonE7(i));
+                ys[v] = projectY(zone.latE7(i));
+                minX[z] = Math.min(minX[z], xs[v]);
+                minY[z] = Math.min(minY[z], ys[v]);
+                maxX[z] = Math.max(maxX[z], xs[v]);
+                maxY[z] = Math.max(maxY[z], ys[v]);
+            }
+            radius[z] = zone.getRadiusMeters();
+            minX[z] -= radius[z];
+            minY[z] -= radius[z];
+            maxX[z] += radius[z];
+            maxY[z] += radius[z];
+            extentX0 = Math.min(extentX0, minX[z]);
+            extentY0 = Math.min(extentY0, minY[z]);
+            extentX1 = Math.max(extentX1, maxX[z]);
+            extentY1 = Math.max(extentY1, maxY[z]);
+            sizeSum += Math.max(maxX[z] - minX[z], maxY[z] - minY[z]);
+        }
+        vertexStart[count] = v;
+
+        if (count == 0) {
+            gridX = gridY = 0;
+            cellSize = 1;
+            columns = rows = 0;
+            cellStart = new int[1];
+            cellZones = new int[0];
+        } else {
+            double width = extentX1 - extentX0;
+            double height = extentY1 - extentY0;
+            double size = cellSizeMeters > 0 ? cellSizeMeters : Math.max(1, sizeSum / count);
+            // 单元太多时放大单元
+            size = Math.max(size, Math.sqrt(width * height / MAX_CELLS));
+            while ((Math.floor(width / size) + 1) * (Math.floor(height / size) + 1) > MAX_CELLS) {
+                size *= 1.25;
+            }
+            gridX = extentX0;
+            gridY = extentY0;
+            cellSize = size;
+            columns = (int) (width / size) + 1;
+            rows = (int) (height / size) + 1;
+            cellStart = new int[columns * rows + 1];
+            // 先数每个单元的围栏数，再按前缀和填入
+            for (int z = 0; z < count; z++) {
+                for (int row = row(minY[z]); row <= row(maxY[z]); row++) {
+                    for (int column = column(minX[z]); column <= column(maxX[z]); column++) {
+                        cellStart[row * columns + column + 1]++;
+                    }
+                }
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            cellZones = new int[cellStart[columns * rows]];
+            int[] fill = new int[columns * rows];
+            for (int z = 0; z < count; z++) {
+                for (int row = row(minY[z]); row <= row(maxY[z]); row++) {
+                    for (int column = column(minX[z]); column <= column(maxX[z]); column++) {
+                        int c = row * columns + column;
+                        cellZones[cellStart[c] + fill[c]++] = z;
+                    }
+                }
+            }
+        }
+
+        state = new byte[count];
+        enteredMs = new long[count];
+        lastX = new double[count];
+        lastY = new double[count];
+        lastDistance = new double[count];
+        Arrays.fill(lastDistance, Double.NaN);
+        visited = new int[count];
+        insideZones = new int[count];
+    }
+
+    private double projectX(int lonE7) {
+        return (lonE7 - originLonE7) * metersPerE7Lon;
+    }
+
+    private double projectY(int latE7) {
+        return (latE7 - originLatE7) * metersPerE7Lat;
+    }
+
+    private int column(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - gridX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - gridY) / cellSize)));
+    }
+
+    // 在里面连续多久触发停留，ms
+    public void setDwellMs(long dwellMs) {
+        this.dwellMs = dwellMs;
+    }
+
+    // 进入和离开要求到边界的距离至少为 hAcc 的多少倍
+    public void setHAccFactor(double factor) {
+        this.hAccFactor = factor;
+    }
+
+    // 一个定位：时间 ms（单调递增，例如合并后的历元时间），坐标 1e-7 度，水平精度 mm
+    public void update(long timeMs, int latE7, int lonE7, long hAccMm) {
+        fixCount++;
+        double x = projectX(lonE7);
+        double y = projectY(latE7);
+        double margin = Math.max(MIN_MARGIN_METERS, hAccFactor * UbxUnits.toMeters(hAccMm));
+        if (++stamp == 0) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+        // 当前在里面的围栏可能已经移出所在网格，单独检查；离开时从列表中移除，所以倒序
+        for (int i = insideCount - 1; i >= 0; i--) {
+            evaluate(insideZones[i], timeMs, x, y, margin);
+        }
+        if (columns == 0 || x < gridX || y < gridY) {
+            return;
+        }
+        int column = (int) ((x - gridX) / cellSize);
+        int row = (int) ((y - gridY) / cellSize);
+        if (column >= columns || row >= rows) {
+            return;
+        }
+        int c = row * columns + column;
+        for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+            int z = cellZones[i];
+            if (visited[z] != stamp) {
+                candidateCount++;
+                evaluate(z, timeMs, x, y, margin);
+            }
+        }
+    }
+
+    private void evaluate(int z, long timeMs, double x, double y, double margin) {
+        visited[z] = stamp;
+        boolean inside = state[z] != OUTSIDE;
+        // 要进入时点必须在外接矩形内至少 margin 处
+        if (!inside && (x - minX[z] < margin || maxX[z] - x < margin || y - minY[z] < margin || maxY[z] - y < margin)) {
+            return;
+        }
+        double last = lastDistance[z];
+        boolean skip = false;
+        if (!Double.isNaN(last)) {
+            double dx = x - lastX[z];
+            double dy = y - lastY[z];
+            double moved2 = dx * dx + dy * dy;
+            // 距离最多变化 moved：外面时不可能达到 margin，里面时不可能降到 -margin
+            double room = inside ? last + margin : margin - last;
+            skip = room > 0 && moved2 < room * room;
+        }
+        if (skip) {
+            skippedCount++;
+        } else {
+            evaluatedCount++;
+            double distance = signedDistance(z, x, y);
+            lastX[z] = x;
+            lastY[z] = y;
+            lastDistance[z] = distance;
+            if (!inside && distance >= margin) {
+                state[z] = INSIDE;
+                enteredMs[z] = timeMs;
+                insideZones[insideCount++] = z;
+                fire(z, Transition.ENTER, timeMs);
+            } else if (inside && distance <= -margin) {
+                state[z] = OUTSIDE;
+                removeInside(z);
+                fire(z, Transition.EXIT, timeMs);
+                return;
+            }
+        }
+        if (state[z] == INSIDE && timeMs - enteredMs[z] >= dwellMs) {
+            state[z] = DWELLING;
+            fire(z, Transition.DWELL, timeMs);
+        }
+    }
+
+    private void removeInside(int z) {
+        for (int i = 0; i < insideCount; i++) {
+            if (insideZones[i] == z) {
+                insideZones[i] = insideZones[--insideCount];
+                return;
+            }
+        }
+    }
+
+    private void fire(int z, Transition transition, long timeMs) {
+        eventCount++;
+        if (listener != null) {
+            listener.onTransition(zones[z], transition, timeMs);
+        }
+    }
+
+    // 点 (x, y) 到围栏边界的距离，m，里面为正。多边形用射线法判断内外，同一遍循环求到各边的最短距离
+    double signedDistance(int z, double x, double y) {
+        int start = vertexStart[z];
+        if (radius[z] > 0) {
+            double dx = x - xs[start];
+            double dy = y - ys[start];
+            return radius[z] - Math.sqrt(dx * dx + dy * dy);
+        }
+        int end = vertexStart[z + 1];
+        boolean inside = false;
+        double best = Double.MAX_VALUE;
+        double ax = xs[end - 1];
+        double ay = ys[end - 1];
+        for (int i = start; i < end; i++) {
+            double bx = xs[i];
+            double by = ys[i];
+            if ((ay > y) != (by > y) && x < ax + (y - ay) * (bx - ax) / (by - ay)) {
+                inside = !inside;
+            }
+            double ex = bx - ax;
+            double ey = by - ay;
+            double length2 = ex * ex + ey * ey;
+            double t = length2 == 0 ? 0 : ((x - ax) * ex + (y - ay) * ey) / length2;
+            t = Math.max(0, Math.min(1, t));
+            double dx = x - (ax + t * ex);
+            double dy = y - (ay + t * ey);
+            best = Math.min(best, dx * dx + dy * dy);
+            ax = bx;
+            ay = by;
+        }
+        double distance = Math.sqrt(best);
+        return inside ? distance : -distance;
+    }
+
+    // 把坐标投影到局部平面后的有符号距离，用于测试和基准中逐个围栏检查的对照
+    double signedDistance(int z, int latE7, int lonE7) {
+        return signedDistance(z, projectX(lonE7), projectY(latE7));
+    }
+
+    public int getZoneCount() {
+        return zones.length;
+    }
+
+    public Geofence getZone(int index) {
+        return zones[index];
+    }
+
+    public boolean isInside(int index) {
+        return state[index] != OUTSIDE;
+    }
+
+    public int getInsideCount() {
+        return insideCount;
+    }
+
+    public long getFixCount() {
+        return fixCount;
+    }
+
+    // 从网格中取出的候选围栏数（不含当前在里面的）
+    public long getCandidateCount() {
+        return candidateCount;
+    }
+
+    // 做了完整多边形计算的次数
+    public long getEvaluatedCount() {
+        return evaluatedCount;
+    }
+
+    // 移动距离不足以改变状态、跳过计算的次数
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    // 单行统计，用于诊断显示
+    public StringBuilder appendStats(StringBuilder sb) {
+        return sb.append("geofence zones=").append(zones.length)
+                .append(" grid=").append(columns).append('x').append(rows)
+                .append(" fixes=").append(fixCount)
+                .append(" candidates=").append(candidateCount)
+                .append(" evaluated=").append(evaluatedCount)
+                .append(" skipped=").append(skippedCount)
+                .append(" events=").append(eventCount)
+                .append(" inside=").append(insideCount);
+    }
+}
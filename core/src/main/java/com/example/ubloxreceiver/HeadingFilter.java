@@ -0,0 +1,89 @@
+package com.example.ubloxreceiver;
+
+// 方向角平滑和死区：把方向换成单位向量做指数平滑，跨过 0/360 度时不会出现跳变
+// 平滑系数按相邻样本的时间间隔计算，传感器采样率变化时响应速度不变。
+// 平滑后的方向与上次输出的方向相差不到 deadBandDeg 时不输出，减少监听回调和地图重绘
+public class HeadingFilter {
+
+    public static final float DEFAULT_TIME_CONSTANT_MS = 150f;
+    public static final float DEFAULT_DEAD_BAND_DEG = 1.0f;
+
+    private float timeConstantMs;
+    private float deadBandDeg;
+
+    private boolean initialized;
+    private long lastNanos;
+    // 平滑后的方向单位向量
+    private double east;
+    private double north;
+    private float output = Float.NaN;
+
+    public HeadingFilter() {
+        this(DEFAULT_TIME_CONSTANT_MS, DEFAULT_DEAD_BAND_DEG);
+    }
+
+    // timeConstantMs 为 0 时不平滑
+    public HeadingFilter(float timeConstantMs, float deadBandDeg) {
+        this.timeConstantMs = timeConstantMs;
+        this.deadBandDeg = deadBandDeg;
+    }
+
+    public void setTimeConstantMs(float timeConstantMs) {
+        this.timeConstantMs = timeConstantMs;
+    }
+
+    public void setDeadBandDeg(float deadBandDeg) {
+        this.deadBandDeg = deadBandDeg;
+    }
+
+    // 输入一个方向角（度）和采样时间（ns），需要通知监听者时返回 true，新方向从 heading() 取得
+    public boolean update(float headingDeg, long timestampNanos) {
+        double radians = Math.toRadians(headingDeg);
+        double sampleEast = Math.sin(radians);
+        double sampleNorth = Math.cos(radians);
+        if (!initialized) {
+            east = sampleEast;
+            north = sampleNorth;
+            initialized = true;
+        } else {
+            double alpha = 1.0;
+            if (timeConstantMs > 0) {
+                double dtMs = Math.max(0, timestampNanos - lastNanos) / 1e6;
+                alpha = 1.0 - Math.exp(-dtMs / timeConstantMs);
+            }
+            east += alpha * (sampleEast - east);
+            north += alpha * (sampleNorth - north);
+        }
+        lastNanos = timestampNanos;
+
+        float smoothed = smoothed();
+        if (Float.isNaN(output) || angleDifference(smoothed, output) >= deadBandDeg) {
+            output = smoothed;
+            return true;
+        }
+        return false;
+    }
+
+    // 当前平滑后的方向，0~360 度
+    private float smoothed() {
+        float degrees = (float) Math.toDegrees(Math.atan2(east, north));
+        return degrees < 0 ? degrees + 360f : degrees;
+    }
+
+    // 最近一次输出的方向，还没有输出时为 NaN
+    public float heading() {
+        return output;
+    }
+
+    // 两个方向角之间的最小夹角，0~180 度
+    public static float angleDifference(float a, float b) {
+        float d = Math.abs(a - b) % 360f;
+        return d > 180f ? 360f - d : d;
+    }
+
+    // 传感器重新注册后调用，丢弃之前的状态
+    public void reset() {
+        initialized = false;
+        output = Float.NaN;
+    }
+}
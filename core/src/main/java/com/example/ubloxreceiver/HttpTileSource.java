@@ -0,0 +1,65 @@
+package com.example.ubloxreceiver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+// 按 URL 模板从 HTTP 瓦片服务取瓦片，模板中的 {z}、{x}、{y} 替换为瓦片坐标，
+// 例如 "https://tile.openstreetmap.org/{z}/{x}/{y}.png" 或本机的 "http://127.0.0.1:8080/{z}/{x}/{y}.png"
+public class HttpTileSource implements TileSource {
+
+    public static final int CONNECT_TIMEOUT_MS = 5000;
+    public static final int READ_TIMEOUT_MS = 10000;
+
+    private final String template;
+    private final String userAgent;
+
+    public HttpTileSource(String template, String userAgent) {
+        this.template = template;
+        this.userAgent = userAgent;
+    }
+
+    public String url(int zoom, int x, int y) {
+        return template.replace("{z}", Integer.toString(zoom))
+                .replace("{x}", Integer.toString(x))
+                .replace("{y}", Integer.toString(y));
+    }
+
+    @Override
+    public byte[] fetch(int zoom, int x, int y) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url(zoom, x, y)).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (userAgent != null) {
+                // 公共瓦片服务要求标识应用
+                connection.setRequestProperty("User-Agent", userAgent);
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + ": " + url(zoom, x, y));
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, connection.getContentLength()));
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
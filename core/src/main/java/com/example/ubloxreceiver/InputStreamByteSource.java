@@ -0,0 +1,29 @@
+package com.example.ubloxreceiver;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// 从文件或任意输入流读取数据，超时参数被忽略
+public class InputStreamByteSource implements ByteSource {
+
+    private final InputStream in;
+
+    public InputStreamByteSource(InputStream in) {
+        this.in = in;
+    }
+
+    public static InputStreamByteSource open(String path) throws IOException {
+        return new InputStreamByteSource(new FileInputStream(path));
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        return in.read(buffer, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
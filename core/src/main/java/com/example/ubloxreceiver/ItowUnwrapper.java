@@ -0,0 +1,19 @@
+package com.example.ubloxreceiver;
+
+// 把会在周末翻转的 iTOW 展开成单调递增的毫秒时间：周翻转次数 * 一周毫秒数 + iTOW
+// iTOW 比上一次小半周以上时视为进入下一周。非线程安全
+public class ItowUnwrapper {
+
+    public static final long WEEK_MS = 7L * 24 * 3600 * 1000;
+
+    private long lastITOW = -1;
+    private long weekRollovers;
+
+    public long unwrap(long iTOW) {
+        if (lastITOW >= 0 && iTOW + WEEK_MS / 2 < lastITOW) {
+            weekRollovers++;
+        }
+        lastITOW = iTOW;
+        return weekRollovers * WEEK_MS + iTOW;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ubloxreceiver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 固定桶的耗时直方图，记录时不加锁、不分配对象，可在任意线程记录和读取
+// 桶按 2 的幂分段，每段再均分为 SUB_BUCKETS 个桶，相对误差不超过 1/SUB_BUCKETS
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    public static final int BUCKET_COUNT = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    // 0: 样本数，1: 总和，2: 最大值
+    private final AtomicLongArray totals = new AtomicLongArray(3);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // 记录一个耗时，单位 ns，负数按 0 计
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketFor(value));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, value);
+        long max;
+        while (value > (max = totals.get(2)) && !totals.compareAndSet(2, max, value)) {
+            // 其他线程同时更新了最大值，重试
+        }
+    }
+
+    // 从 startNanos（System.nanoTime()）到现在的耗时
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // 桶内最大值（含）
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        long width = 1L << (exponent - SUB_BITS);
+        return lower + width - 1;
+    }
+
+    public long getCount() {
+        return totals.get(0);
+    }
+
+    public long getMaxNanos() {
+        return totals.get(2);
+    }
+
+    public double getMeanNanos() {
+        long n = totals.get(0);
+        return n == 0 ? 0 : (double) totals.get(1) / n;
+    }
+
+    // 第 percentile（0~100）百分位所在桶的上界，单位 ns；与并发记录同时读取时是近似值
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    // 各桶的计数复制到 out（长度至少 BUCKET_COUNT）
+    public void copyCounts(long[] out) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            out[i] = counts.get(i);
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            totals.set(i, 0);
+        }
+    }
+
+    // 以微秒为单位（一位小数）输出概要：名称 n= mean= p50= p99= max=
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append(name)
+                .append(" n=").append(getCount())
+                .append(" mean=");
+        FixFormatter.appendFixed(sb, (long) (getMeanNanos() / 100), 1);
+        sb.append("us p50=");
+        FixFormatter.appendFixed(sb, getPercentileNanos(50) / 100, 1);
+        sb.append("us p99=");
+        FixFormatter.appendFixed(sb, getPercentileNanos(99) / 100, 1);
+        sb.append("us max=");
+        FixFormatter.appendFixed(sb, getMaxNanos() / 100, 1);
+        return sb.append("us");
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.ubloxreceiver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 接收路径某一时刻的统计快照：每个通道的读取、积压、成帧和错误计数，以及各段耗时的概要。
+// 由 ReceiverGroup.snapshot() 创建，之后不再变化，可以交给任何线程显示或输出；
+// 快照本身会分配对象，按秒级的频率取，不在每次读取或每帧时取
+public class MetricsSnapshot {
+
+    // 一段耗时的概要，单位 ns
+    public static class Stage {
+        public final String name;
+        public final long count;
+        public final double meanNanos;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        public Stage(LatencyHistogram histogram) {
+            this.name = histogram.getName();
+            this.count = histogram.getCount();
+            this.meanNanos = histogram.getMeanNanos();
+            this.p50Nanos = histogram.getPercentileNanos(50);
+            this.p99Nanos = histogram.getPercentileNanos(99);
+            this.maxNanos = histogram.getMaxNanos();
+        }
+
+        // 以毫秒为单位（两位小数）输出：名称 p50/p99/max
+        public StringBuilder appendTo(StringBuilder sb) {
+            sb.append(name).append(' ');
+            FixFormatter.appendFixed(sb, p50Nanos / 10_000, 2);
+            sb.append('/');
+            FixFormatter.appendFixed(sb, p99Nanos / 10_000, 2);
+            sb.append('/');
+            FixFormatter.appendFixed(sb, maxNanos / 10_000, 2);
+            return sb.append("ms n=").append(count);
+        }
+    }
+
+    public static class Channel {
+        public final String name;
+        public long bytesRead;
+        public long reads;
+        // 下标见 PipelineMetrics.readSizeBucket()
+        public final long[] readSizeCounts = new long[PipelineMetrics.READ_SIZE_BUCKETS];
+        public long droppedBytes;
+        public long droppedChunks;
+        public int queuedBytes;
+        public int maxQueuedBytes;
+        public int ringCapacity;
+        public long frames;
+        public long checksumErrors;
+        public long resyncs;
+        public long oversizedFrames;
+        public long discardedBytes;
+        public long nmeaSentences;
+        public long nmeaChecksumErrors;
+        public long rtcmFrames;
+        public long rtcmCrcErrors;
+        public Stage readToDecode;
+        // 收到过的 UBX 消息：class << 8 | id，按升序；和 messageCounts 一一对应
+        private int[] messageKeys = new int[8];
+        private long[] messageCounts = new long[8];
+        private int messageTypes;
+
+        public Channel(String name) {
+            this.name = name;
+        }
+
+        void addMessageCount(int messageClass, int messageId, long count) {
+            if (messageTypes == messageKeys.length) {
+                messageKeys = Arrays.copyOf(messageKeys, messageTypes * 2);
+                messageCounts = Arrays.copyOf(messageCounts, messageTypes * 2);
+            }
+            messageKeys[messageTypes] = messageClass << 8 | messageId;
+            messageCounts[messageTypes++] = count;
+        }
+
+        public int messageTypeCount() {
+            return messageTypes;
+        }
+
+        public int messageClass(int i) {
+            return messageKeys[i] >> 8;
+        }
+
+        public int messageId(int i) {
+            return messageKeys[i] & 0xFF;
+        }
+
+        public long messageCount(int i) {
+            return messageCounts[i];
+        }
+
+        public long messageCount(int messageClass, int messageId) {
+            int i = Arrays.binarySearch(messageKeys, 0, messageTypes, messageClass << 8 | messageId);
+            return i < 0 ? 0 : messageCounts[i];
+        }
+
+        // 平均每次读取的字节数
+        public double meanReadSize() {
+            return reads == 0 ? 0 : (double) bytesRead / reads;
+        }
+
+        // 读取和积压一行，成帧和错误一行，各消息（类-号，十六进制）的帧数一行，最后是读取到解码的耗时
+        public StringBuilder appendTo(StringBuilder sb) {
+            sb.append(name)
+                    .append(" reads=").append(reads)
+                    .append(" avg=").append((long) meanReadSize()).append('B')
+                    .append(" queue=").append(queuedBytes).append('/').append(maxQueuedBytes)
+                    .append('/').append(ringCapacity)
+                    .append(" dropped=").append(droppedBytes).append('\n');
+            sb.append("  frames=").append(frames)
+                    .append(" crc=").append(checksumErrors)
+                    .append(" resync=").append(resyncs)
+                    .append(" oversized=").append(oversizedFrames)
+                    .append(" garbage=").append(discardedBytes)
+                    .append(" nmea=").append(nmeaSentences).append('/').append(nmeaChecksumErrors)
+                    .append(" rtcm=").append(rtcmFrames).append('/').append(rtcmCrcErrors).append('\n');
+            sb.append(' ');
+            for (int i = 0; i < messageTypes; i++) {
+                sb.append(' ');
+                appendHex(sb, messageClass(i));
+                appendHex(sb.append('-'), messageId(i));
+                sb.append('=').append(messageCounts[i]);
+            }
+            if (readToDecode != null) {
+                readToDecode.appendTo(sb.append("\n  "));
+            }
+            return sb;
+        }
+    }
+
+    public final long timeNanos = System.nanoTime();
+    public final List<Channel> channels = new ArrayList<>();
+    // 合并流之后各段的耗时，例如解码到显示
+    public final List<Stage> stages = new ArrayList<>();
+    public long completeEpochs;
+    public long partialEpochs;
+    public long lateEpochs;
+
+    // 加入一段在流水线之外记录的耗时
+    public MetricsSnapshot addStage(LatencyHistogram histogram) {
+        stages.add(new Stage(histogram));
+        return this;
+    }
+
+    public Channel findChannel(String name) {
+        for (Channel channel : channels) {
+            if (channel.name.equals(name)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    // 多行文本，用于诊断覆盖层和日志
+    public StringBuilder appendTo(StringBuilder sb) {
+        for (Channel channel : channels) {
+            channel.appendTo(sb).append('\n');
+        }
+        sb.append("epochs complete=").append(completeEpochs)
+                .append(" partial=").append(partialEpochs)
+                .append(" late=").append(lateEpochs);
+        for (Stage stage : stages) {
+            stage.appendTo(sb.append('\n'));
+        }
+        return sb;
+    }
+
+    private static void appendHex(StringBuilder sb, int value) {
+        sb.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xF, 16));
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-DOP (0x01 0x04)：精度因子，单位均为 0.01
+public class NavDopView extends UbxMessageView {
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x04;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 18;
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    public int gDOP() {
+        return u2(4);
+    }
+
+    public int pDOP() {
+        return u2(6);
+    }
+
+    public int tDOP() {
+        return u2(8);
+    }
+
+    public int vDOP() {
+        return u2(10);
+    }
+
+    public int hDOP() {
+        return u2(12);
+    }
+
+    public int nDOP() {
+        return u2(14);
+    }
+
+    public int eDOP() {
+        return u2(16);
+    }
+}
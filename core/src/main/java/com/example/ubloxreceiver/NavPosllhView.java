@@ -0,0 +1,55 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-POSLLH (0x01 0x02)：大地坐标位置
+public class NavPosllhView extends UbxMessageView {
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x02;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 28;
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    // 经度，1e-7 度
+    public int lon() {
+        return i4(4);
+    }
+
+    // 纬度，1e-7 度
+    public int lat() {
+        return i4(8);
+    }
+
+    // 椭球高，mm
+    public int height() {
+        return i4(12);
+    }
+
+    // 海拔高，mm
+    public int hMSL() {
+        return i4(16);
+    }
+
+    // 水平精度，mm
+    public long hAcc() {
+        return u4(20);
+    }
+
+    // 垂直精度，mm
+    public long vAcc() {
+        return u4(24);
+    }
+}
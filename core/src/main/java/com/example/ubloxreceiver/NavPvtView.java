@@ -0,0 +1,175 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-PVT (0x01 0x07)：位置、速度、时间综合解
+public class NavPvtView extends UbxMessageView {
+
+    public static final int FIX_NONE = 0;
+    public static final int FIX_2D = 2;
+    public static final int FIX_3D = 3;
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x07;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 92;
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    public int year() {
+        return u2(4);
+    }
+
+    public int month() {
+        return u1(6);
+    }
+
+    public int day() {
+        return u1(7);
+    }
+
+    public int hour() {
+        return u1(8);
+    }
+
+    public int min() {
+        return u1(9);
+    }
+
+    public int sec() {
+        return u1(10);
+    }
+
+    // bit0 validDate, bit1 validTime, bit2 fullyResolved
+    public int valid() {
+        return u1(11);
+    }
+
+    // 时间精度，ns
+    public long tAcc() {
+        return u4(12);
+    }
+
+    // 秒的小数部分，ns，可为负
+    public int nano() {
+        return i4(16);
+    }
+
+    public int fixType() {
+        return u1(20);
+    }
+
+    // bit0 gnssFixOK
+    public int flags() {
+        return u1(21);
+    }
+
+    public boolean gnssFixOk() {
+        return (u1(21) & 0x01) != 0;
+    }
+
+    public int flags2() {
+        return u1(22);
+    }
+
+    public int numSV() {
+        return u1(23);
+    }
+
+    // 经度，1e-7 度
+    public int lon() {
+        return i4(24);
+    }
+
+    // 纬度，1e-7 度
+    public int lat() {
+        return i4(28);
+    }
+
+    // 椭球高，mm
+    public int height() {
+        return i4(32);
+    }
+
+    // 海拔高，mm
+    public int hMSL() {
+        return i4(36);
+    }
+
+    // 水平精度，mm
+    public long hAcc() {
+        return u4(40);
+    }
+
+    // 垂直精度，mm
+    public long vAcc() {
+        return u4(44);
+    }
+
+    // NED 速度，mm/s
+    public int velN() {
+        return i4(48);
+    }
+
+    public int velE() {
+        return i4(52);
+    }
+
+    public int velD() {
+        return i4(56);
+    }
+
+    // 地速，mm/s
+    public int gSpeed() {
+        return i4(60);
+    }
+
+    // 运动航向，1e-5 度
+    public int headMot() {
+        return i4(64);
+    }
+
+    // 速度精度，mm/s
+    public long sAcc() {
+        return u4(68);
+    }
+
+    // 航向精度，1e-5 度
+    public long headAcc() {
+        return u4(72);
+    }
+
+    // 位置精度因子，0.01
+    public int pDOP() {
+        return u2(76);
+    }
+
+    public int flags3() {
+        return u2(78);
+    }
+
+    // 车辆航向，1e-5 度
+    public int headVeh() {
+        return i4(84);
+    }
+
+    // 磁偏角，1e-2 度
+    public int magDec() {
+        return i2(88);
+    }
+
+    public int magAcc() {
+        return u2(90);
+    }
+}
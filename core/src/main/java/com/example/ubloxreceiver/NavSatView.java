@@ -0,0 +1,79 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-SAT (0x01 0x35)：卫星信息，每颗卫星 12 字节的重复块
+// 卫星字段通过下标访问，不为每颗卫星创建对象
+public class NavSatView extends UbxMessageView {
+
+    private static final int HEADER = 8;
+    private static final int BLOCK = 12;
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x35;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return HEADER;
+    }
+
+    @Override
+    public boolean isValid() {
+        return payloadLength >= HEADER && payloadLength >= HEADER + BLOCK * numSvs();
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    public int version() {
+        return u1(4);
+    }
+
+    public int numSvs() {
+        return u1(5);
+    }
+
+    public int gnssId(int index) {
+        return u1(HEADER + BLOCK * index);
+    }
+
+    public int svId(int index) {
+        return u1(HEADER + BLOCK * index + 1);
+    }
+
+    // 载噪比，dBHz
+    public int cno(int index) {
+        return u1(HEADER + BLOCK * index + 2);
+    }
+
+    // 仰角，度
+    public int elev(int index) {
+        return i1(HEADER + BLOCK * index + 3);
+    }
+
+    // 方位角，度
+    public int azim(int index) {
+        return i2(HEADER + BLOCK * index + 4);
+    }
+
+    // 伪距残差，0.1 m
+    public int prRes(int index) {
+        return i2(HEADER + BLOCK * index + 6);
+    }
+
+    public long flags(int index) {
+        return u4(HEADER + BLOCK * index + 8);
+    }
+
+    // flags bit3 svUsed：是否参与导航解算
+    public boolean svUsed(int index) {
+        return (flags(index) & 0x08) != 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-STATUS (0x01 0x03)：接收机导航状态
+public class NavStatusView extends UbxMessageView {
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x03;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 16;
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    public int gpsFix() {
+        return u1(4);
+    }
+
+    // bit0 gpsFixOk, bit1 diffSoln, bit2 wknSet, bit3 towSet
+    public int flags() {
+        return u1(5);
+    }
+
+    public int fixStat() {
+        return u1(6);
+    }
+
+    public int flags2() {
+        return u1(7);
+    }
+
+    // 首次定位时间，ms
+    public long ttff() {
+        return u4(8);
+    }
+
+    // 启动后经过的时间，ms
+    public long msss() {
+        return u4(12);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ubloxreceiver;
+
+// UBX-NAV-TIMEUTC (0x01 0x21)：UTC 时间
+public class NavTimeUtcView extends UbxMessageView {
+
+    @Override
+    public int messageClass() {
+        return 0x01;
+    }
+
+    @Override
+    public int messageId() {
+        return 0x21;
+    }
+
+    @Override
+    public int minPayloadLength() {
+        return 20;
+    }
+
+    // GPS 周内时，ms
+    public long iTOW() {
+        return u4(0);
+    }
+
+    // 时间精度，ns
+    public long tAcc() {
+        return u4(4);
+    }
+
+    // 秒的小数部分，ns，可为负
+    public int nano() {
+        return i4(8);
+    }
+
+    public int year() {
+        return u2(12);
+    }
+
+    public int month() {
+        return u1(14);
+    }
+
+    public int day() {
+        return u1(15);
+    }
+
+    public int hour() {
+        return u1(16);
+    }
+
+    public int min() {
+        return u1(17);
+    }
+
+    public int sec() {
+        return u1(18);
+    }
+
+    // bit0 validTOW, bit1 validWKN, bit2 validUTC
+    public int valid() {
+        return u1(19);
+    }
+
+    public boolean validUtc() {
+        return (u1(19) & 0x04) != 0;
+    }
+}
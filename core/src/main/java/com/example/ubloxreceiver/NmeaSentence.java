@@ -0,0 +1,234 @@
+package com.example.ubloxreceiver;
+
+import java.nio.charset.StandardCharsets;
+
+// NMEA 语句的享元视图，覆盖 "$地址,字段,...*hh\r\n" 整条语句，不拷贝数据
+// 字段在第一次按下标访问时才切分，只看地址的消费者（按类型过滤）不需要切分；
+// 字段 0 为地址（如 GNGGA），数值字段直接在缓冲区上解析，不创建字符串
+public class NmeaSentence {
+
+    // NMEA 0183 规定的最大长度为 82（含 $ 和 \r\n），u-blox 的高精度模式和 PUBX 会更长
+    public static final int MAX_LENGTH = 128;
+    private static final int MAX_FIELDS = 64;
+    private static final double[] POWERS_OF_TEN = new double[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private byte[] buffer;
+    private int offset;
+    private int length;
+    // '*' 的位置
+    private int end;
+    private int fieldCount = -1;
+    // 字段 i 的内容为 [fieldStarts[i], fieldStarts[i + 1] - 1)
+    private final int[] fieldStarts = new int[MAX_FIELDS + 1];
+
+    // 由重组器在校验和通过之后调用；starIndex 为 '*' 相对 offset 的下标
+    void wrap(byte[] buffer, int offset, int length, int starIndex) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.end = offset + starIndex;
+        this.fieldCount = -1;
+    }
+
+    public void wrap(byte[] buffer, int offset, int length) {
+        int star = offset;
+        while (star < offset + length && buffer[star] != '*') {
+            star++;
+        }
+        wrap(buffer, offset, length, star - offset);
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    // 整条语句的长度，含 $、校验和和 \r\n
+    public int length() {
+        return length;
+    }
+
+    // 地址的长度，一般为 5（两位发送者 + 三位类型），专有语句如 PUBX 为 4
+    private int addressLength() {
+        int i = offset + 1;
+        while (i < end && buffer[i] != ',') {
+            i++;
+        }
+        return i - offset - 1;
+    }
+
+    // 地址是否等于 address，例如 "GNGGA"
+    public boolean addressEquals(String address) {
+        if (addressLength() != address.length()) {
+            return false;
+        }
+        for (int i = 0; i < address.length(); i++) {
+            if (buffer[offset + 1 + i] != address.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 语句类型（地址的最后三位）是否等于 type，不论发送者：GPGGA、GNGGA 都匹配 "GGA"
+    public boolean isType(String type) {
+        int addressLength = addressLength();
+        if (addressLength < type.length()) {
+            return false;
+        }
+        int start = offset + 1 + addressLength - type.length();
+        for (int i = 0; i < type.length(); i++) {
+            if (buffer[start + i] != type.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String address() {
+        return new String(buffer, offset + 1, addressLength(), StandardCharsets.US_ASCII);
+    }
+
+    boolean isTokenized() {
+        return fieldCount >= 0;
+    }
+
+    private void tokenize() {
+        int count = 0;
+        fieldStarts[0] = offset + 1;
+        for (int i = offset + 1; i < end && count < MAX_FIELDS - 1; i++) {
+            if (buffer[i] == ',') {
+                fieldStarts[++count] = i + 1;
+            }
+        }
+        fieldCount = count + 1;
+        fieldStarts[fieldCount] = end + 1;
+    }
+
+    // 字段数，含地址
+    public int fieldCount() {
+        if (fieldCount < 0) {
+            tokenize();
+        }
+        return fieldCount;
+    }
+
+    public int fieldOffset(int index) {
+        checkIndex(index);
+        return fieldStarts[index];
+    }
+
+    public int fieldLength(int index) {
+        checkIndex(index);
+        return fieldStarts[index + 1] - 1 - fieldStarts[index];
+    }
+
+    // 不存在的字段也视为空
+    public boolean isEmpty(int index) {
+        return index >= fieldCount() || fieldLength(index) == 0;
+    }
+
+    public String field(int index) {
+        if (isEmpty(index)) {
+            return "";
+        }
+        return new String(buffer, fieldOffset(index), fieldLength(index), StandardCharsets.US_ASCII);
+    }
+
+    // 单字符字段（N/S、E/W、A/V），空字段返回 0
+    public char fieldChar(int index) {
+        return isEmpty(index) ? 0 : (char) buffer[fieldOffset(index)];
+    }
+
+    // 整数字段，空或格式错误时返回 defaultValue
+    public long fieldLong(int index, long defaultValue) {
+        if (isEmpty(index)) {
+            return defaultValue;
+        }
+        int i = fieldOffset(index);
+        int end = i + fieldLength(index);
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') {
+            i++;
+        }
+        if (i == end) {
+            return defaultValue;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return defaultValue;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // 十进制小数字段（NMEA 不使用指数），空或格式错误时返回 NaN
+    public double fieldDouble(int index) {
+        if (isEmpty(index)) {
+            return Double.NaN;
+        }
+        int i = fieldOffset(index);
+        int end = i + fieldLength(index);
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int fractionDigits = -1;
+        int digits = 0;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || digits >= 18) {
+                return Double.NaN;
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount()) {
+            throw new IndexOutOfBoundsException("field " + index + " of " + fieldCount);
+        }
+    }
+
+    // 计算 '$' 和 '*' 之间字符的异或校验和
+    public static int checksum(byte[] buffer, int offset, int length) {
+        int xor = 0;
+        for (int i = offset; i < offset + length; i++) {
+            xor ^= buffer[i];
+        }
+        return xor & 0xFF;
+    }
+
+    @Override
+    public String toString() {
+        return buffer == null ? "" : new String(buffer, offset, length, StandardCharsets.US_ASCII).trim();
+    }
+}
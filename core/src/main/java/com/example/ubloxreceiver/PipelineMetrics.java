@@ -0,0 +1,138 @@
+package com.example.ubloxreceiver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 一条流水线的接收路径计数：每次读取的字节数分布、环形缓冲区的最大积压、按消息类型的帧数，
+// 以及从读到一帧的最后一个字节到把它交给订阅者的耗时。
+// 读取相关的由读取线程记录，帧相关的由解码线程记录；记录时不加锁、不分配对象，任意线程可以读取
+public class PipelineMetrics {
+
+    // 每次读取的字节数按 2 的幂分桶：桶 0 为 0，桶 k 为 [2^(k-1), 2^k)
+    public static final int READ_SIZE_BUCKETS = 32;
+    // 读取时间戳队列的长度，必须是 2 的幂；解码落后超过这么多次读取时，后面的帧按较晚的读取计时
+    static final int READ_STAMPS = 256;
+
+    private final AtomicLongArray readSizes = new AtomicLongArray(READ_SIZE_BUCKETS);
+    private volatile int maxQueuedBytes;
+    // 每个消息类一个按消息号计数的数组，第一次收到该类消息时创建
+    private final AtomicReferenceArray<AtomicLongArray> messageCounts = new AtomicReferenceArray<>(256);
+    private final LatencyHistogram readToDecode = new LatencyHistogram("read-decode");
+
+    // 读取时间戳：读取线程写入（这次读取之后流的累计长度, System.nanoTime()），解码线程按帧的结束位置取出
+    private final long[] stampEnds = new long[READ_STAMPS];
+    private final long[] stampNanos = new long[READ_STAMPS];
+    private final AtomicLong stampWrite = new AtomicLong();
+    private final AtomicLong stampRead = new AtomicLong();
+
+    static int readSizeBucket(int bytes) {
+        return bytes <= 0 ? 0 : Math.min(READ_SIZE_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(bytes));
+    }
+
+    // 读取线程：一次读到 bytes 字节
+    void recordRead(int bytes) {
+        readSizes.incrementAndGet(readSizeBucket(bytes));
+    }
+
+    // 读取线程：数据进入环形缓冲区之前记下这次读取，streamEnd 为进入后的累计字节数。
+    // 先记再放入，解码线程取到数据时一定能找到它的读取时间；队列满时不记，返回 false
+    boolean stampRead(long streamEnd, long readNanos) {
+        long write = stampWrite.get();
+        if (write - stampRead.get() >= READ_STAMPS) {
+            return false;
+        }
+        int index = (int) (write & (READ_STAMPS - 1));
+        stampEnds[index] = streamEnd;
+        stampNanos[index] = readNanos;
+        stampWrite.lazySet(write + 1);
+        return true;
+    }
+
+    // 读取线程：stampRead() 记下的数据被丢弃，撤销这条记录。
+    // 解码线程只会停在结束位置不小于帧尾的第一条记录上，不会越过还没有到达的数据，撤销是安全的
+    void unstampRead() {
+        stampWrite.lazySet(stampWrite.get() - 1);
+    }
+
+    // 读取线程：放入环形缓冲区之后的积压
+    void recordQueuedBytes(int queuedBytes) {
+        if (queuedBytes > maxQueuedBytes) {
+            maxQueuedBytes = queuedBytes;
+        }
+    }
+
+    // 解码线程：结束于 frameEnd 的帧所在那次读取的时间，没有记录时返回 0
+    long readNanosFor(long frameEnd) {
+        long read = stampRead.get();
+        long write = stampWrite.get();
+        while (read < write && stampEnds[(int) (read & (READ_STAMPS - 1))] < frameEnd) {
+            read++;
+        }
+        stampRead.lazySet(read);
+        return read < write ? stampNanos[(int) (read & (READ_STAMPS - 1))] : 0;
+    }
+
+    // 解码线程：一帧 UBX 消息交给订阅者之前
+    void recordFrame(int messageClass, int messageId, long readNanos, long nowNanos) {
+        AtomicLongArray ids = messageCounts.get(messageClass);
+        if (ids == null) {
+            ids = new AtomicLongArray(256);
+            messageCounts.set(messageClass, ids);
+        }
+        ids.incrementAndGet(messageId);
+        if (readNanos != 0) {
+            readToDecode.record(nowNanos - readNanos);
+        }
+    }
+
+    public long getReadCount() {
+        long total = 0;
+        for (int i = 0; i < READ_SIZE_BUCKETS; i++) {
+            total += readSizes.get(i);
+        }
+        return total;
+    }
+
+    // 字节数落在 readSizeBucket() 桶中的读取次数
+    public long getReadSizeCount(int bucket) {
+        return readSizes.get(bucket);
+    }
+
+    public int getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    public long getMessageCount(int messageClass, int messageId) {
+        AtomicLongArray ids = messageCounts.get(messageClass & 0xFF);
+        return ids == null ? 0 : ids.get(messageId & 0xFF);
+    }
+
+    public LatencyHistogram getReadToDecode() {
+        return readToDecode;
+    }
+
+    // 把计数写入快照
+    void copyTo(MetricsSnapshot.Channel channel) {
+        long reads = 0;
+        for (int i = 0; i < READ_SIZE_BUCKETS; i++) {
+            channel.readSizeCounts[i] = readSizes.get(i);
+            reads += channel.readSizeCounts[i];
+        }
+        channel.reads = reads;
+        channel.maxQueuedBytes = maxQueuedBytes;
+        for (int messageClass = 0; messageClass < 256; messageClass++) {
+            AtomicLongArray ids = messageCounts.get(messageClass);
+            if (ids == null) {
+                continue;
+            }
+            for (int messageId = 0; messageId < 256; messageId++) {
+                long count = ids.get(messageId);
+                if (count != 0) {
+                    channel.addMessageCount(messageClass, messageId, count);
+                }
+            }
+        }
+        channel.readToDecode = new MetricsSnapshot.Stage(readToDecode);
+    }
+}
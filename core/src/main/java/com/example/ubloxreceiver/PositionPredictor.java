@@ -0,0 +1,279 @@
+package com.example.ubloxreceiver;
+
+// 位置预测：东、北两个方向各一个独立的卡尔曼滤波器，状态为位置、速度、加速度
+// 用每个定位点及其 hAcc 更新，UI 可以取任意时刻（例如本帧的绘制时间）的预测位置，
+// 两次定位之间标记平滑移动，不再停住后跳变。
+// 坐标在以首个定位点为原点的局部平面（东、北，米）中计算，离原点太远时平移原点。
+// 状态和协方差都是基本类型字段，update/predict 不分配对象。非线程安全，应只在一个线程（UI 线程）中使用
+public class PositionPredictor {
+
+    public enum Model {
+        // 匀速：加速度状态始终为 0，过程噪声为白噪声加速度
+        CONSTANT_VELOCITY,
+        // 匀加速：过程噪声为白噪声加加速度
+        CONSTANT_ACCELERATION
+    }
+
+    public static final double DEFAULT_CV_NOISE = 2.0;
+    public static final double DEFAULT_CA_NOISE = 1.0;
+    // 预测最多外推的时长，超过后停在该时刻的位置
+    public static final long MAX_EXTRAPOLATION_MS = 1000;
+    // 两次定位间隔超过该值时重新初始化
+    public static final long MAX_GAP_MS = 10_000;
+    // 速度低于该值时航向由指南针给出
+    public static final double MIN_COURSE_SPEED = 0.5;
+    // 局部平面的范围，超过后平移原点，保持近似精度
+    private static final double MAX_LOCAL_METERS = 10_000;
+    // hAcc 的下限，避免接收机给出 0 时滤波器完全信任测量
+    private static final double MIN_SIGMA = 0.01;
+    private static final double INITIAL_VELOCITY_SIGMA = 5.0;
+    private static final double INITIAL_ACCELERATION_SIGMA = 2.0;
+
+    // 单个方向上的滤波器，P 对称，只保存上三角
+    private static final class Axis {
+        double x0, x1, x2;
+        double p00, p01, p02, p11, p12, p22;
+
+        void init(double position, double r, boolean acceleration) {
+            x0 = position;
+            x1 = 0;
+            x2 = 0;
+            p00 = r;
+            p01 = 0;
+            p02 = 0;
+            p11 = INITIAL_VELOCITY_SIGMA * INITIAL_VELOCITY_SIGMA;
+            p12 = 0;
+            p22 = acceleration ? INITIAL_ACCELERATION_SIGMA * INITIAL_ACCELERATION_SIGMA : 0;
+        }
+
+        // x = F x，P = F P F^T + Q，F = [[1, dt, dt²/2], [0, 1, dt], [0, 0, 1]]
+        void predict(double dt, double q, boolean acceleration) {
+            double a = dt;
+            double b = dt * dt / 2;
+            x0 += a * x1 + b * x2;
+            x1 += a * x2;
+
+            double r00 = p00 + a * p01 + b * p02;
+            double r01 = p01 + a * p11 + b * p12;
+            double r02 = p02 + a * p12 + b * p22;
+            double r11 = p11 + a * p12;
+            double r12 = p12 + a * p22;
+            p00 = r00 + a * r01 + b * r02;
+            p01 = r01 + a * r02;
+            p02 = r02;
+            p11 = r11 + a * r12;
+            p12 = r12;
+
+            double dt2 = dt * dt;
+            double dt3 = dt2 * dt;
+            if (acceleration) {
+                p00 += q * dt3 * dt2 / 20;
+                p01 += q * dt2 * dt2 / 8;
+                p02 += q * dt3 / 6;
+                p11 += q * dt3 / 3;
+                p12 += q * dt2 / 2;
+                p22 += q * dt;
+            } else {
+                p00 += q * dt3 / 3;
+                p01 += q * dt2 / 2;
+                p11 += q * dt;
+            }
+        }
+
+        // 测量位置，H = [1, 0, 0]
+        void update(double z, double r) {
+            double s = p00 + r;
+            double k0 = p00 / s;
+            double k1 = p01 / s;
+            double k2 = p02 / s;
+            double y = z - x0;
+            x0 += k0 * y;
+            x1 += k1 * y;
+            x2 += k2 * y;
+            // P = (I - K H) P，先算依赖旧值的项
+            p22 -= k2 * p02;
+            p12 -= k1 * p02;
+            p11 -= k1 * p01;
+            p02 -= k0 * p02;
+            p01 -= k0 * p01;
+            p00 -= k0 * p00;
+        }
+
+        // 从当前状态外推 dt 秒后的位置，不改变状态
+        double positionAfter(double dt) {
+            return x0 + dt * x1 + dt * dt / 2 * x2;
+        }
+    }
+
+    private final Model model;
+    private final boolean acceleration;
+    private double processNoise;
+    private final Axis east = new Axis();
+    private final Axis north = new Axis();
+
+    private boolean initialized;
+    // 局部平面原点
+    private double originLat;
+    private double originLon;
+    private double metersPerDegreeLon;
+    // 最近一次定位的时间（ms，iTOW）和收到它时的本地时间
+    private long lastTimeMs;
+    private long lastReceivedNanos;
+    // 定位时刻到收到数据之间的延迟，预测时补上
+    private long latencyNanos;
+    private float compassHeading = Float.NaN;
+
+    private int predictedLatE7;
+    private int predictedLonE7;
+
+    public PositionPredictor() {
+        this(Model.CONSTANT_VELOCITY, DEFAULT_CV_NOISE);
+    }
+
+    // processNoise：匀速模型为加速度的功率谱密度（m²/s³），匀加速模型为加加速度的（m²/s⁵）
+    public PositionPredictor(Model model, double processNoise) {
+        this.model = model;
+        this.acceleration = model == Model.CONSTANT_ACCELERATION;
+        this.processNoise = processNoise;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public void setProcessNoise(double processNoise) {
+        this.processNoise = processNoise;
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyNanos = latencyMs * 1_000_000L;
+    }
+
+    // 指南针方向（度），静止时作为航向
+    public void setCompassHeading(float heading) {
+        this.compassHeading = heading;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void reset() {
+        initialized = false;
+    }
+
+    // 输入一个定位点：时间 ms（iTOW），坐标 1e-7 度，水平精度 mm，收到它时的 System.nanoTime()
+    public void update(long timeMs, int latE7, int lonE7, long hAccMm, long receivedNanos) {
+        double sigma = Math.max(MIN_SIGMA, hAccMm / 1000.0 / Math.sqrt(2));
+        double r = sigma * sigma;
+        long dtMs = timeMs - lastTimeMs;
+        // 同一历元的 NAV-PVT 和 NAV-POSLLH 都会送来，时间相同时只做测量更新
+        if (!initialized || dtMs < 0 || dtMs > MAX_GAP_MS) {
+            setOrigin(latE7, lonE7);
+            east.init(0, r, acceleration);
+            north.init(0, r, acceleration);
+            initialized = true;
+        } else {
+            if (dtMs > 0) {
+                double dt = dtMs / 1000.0;
+                east.predict(dt, processNoise, acceleration);
+                north.predict(dt, processNoise, acceleration);
+            }
+            double e = eastOf(lonE7);
+            double n = northOf(latE7);
+            east.update(e, r);
+            north.update(n, r);
+            if (Math.abs(east.x0) > MAX_LOCAL_METERS || Math.abs(north.x0) > MAX_LOCAL_METERS) {
+                moveOrigin();
+            }
+        }
+        lastTimeMs = timeMs;
+        lastReceivedNanos = receivedNanos;
+        predictedLatE7 = toLatE7(north.x0);
+        predictedLonE7 = toLonE7(east.x0);
+    }
+
+    // 计算本地时间 nanos（System.nanoTime() 或 Choreographer 的帧时间）时的位置，结果由 predictedLatE7/LonE7 取得
+    // 还没有定位时返回 false
+    public boolean predict(long nanos) {
+        if (!initialized) {
+            return false;
+        }
+        long aheadNanos = nanos - lastReceivedNanos + latencyNanos;
+        double dt = Math.max(0, Math.min(MAX_EXTRAPOLATION_MS * 1_000_000L, aheadNanos)) / 1e9;
+        predictedLatE7 = toLatE7(north.positionAfter(dt));
+        predictedLonE7 = toLonE7(east.positionAfter(dt));
+        return true;
+    }
+
+    // 按定位时间（ms，iTOW）预测，用于离线评估
+    public boolean predictAt(long timeMs) {
+        if (!initialized) {
+            return false;
+        }
+        double dt = Math.max(0, Math.min(MAX_EXTRAPOLATION_MS, timeMs - lastTimeMs)) / 1000.0;
+        predictedLatE7 = toLatE7(north.positionAfter(dt));
+        predictedLonE7 = toLonE7(east.positionAfter(dt));
+        return true;
+    }
+
+    public int predictedLatE7() {
+        return predictedLatE7;
+    }
+
+    public int predictedLonE7() {
+        return predictedLonE7;
+    }
+
+    // 水平速度，m/s
+    public double speed() {
+        return Math.sqrt(east.x1 * east.x1 + north.x1 * north.x1);
+    }
+
+    // 运动时为速度方向，静止时为指南针方向（没有时为 NaN），0~360 度
+    public float heading() {
+        if (speed() < MIN_COURSE_SPEED) {
+            return compassHeading;
+        }
+        float degrees = (float) Math.toDegrees(Math.atan2(east.x1, north.x1));
+        return degrees < 0 ? degrees + 360f : degrees;
+    }
+
+    // 位置估计的标准差（东、北方向合成），m
+    public double positionSigma() {
+        return Math.sqrt(east.p00 + north.p00);
+    }
+
+    private void setOrigin(int latE7, int lonE7) {
+        originLat = UbxUnits.toDegrees(latE7);
+        originLon = UbxUnits.toDegrees(lonE7);
+        metersPerDegreeLon = UbxUnits.METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+    }
+
+    // 原点移到当前估计位置，状态中的位置随之平移，速度和协方差不变
+    private void moveOrigin() {
+        double lat = originLat + north.x0 / UbxUnits.METERS_PER_DEGREE;
+        double lon = originLon + east.x0 / metersPerDegreeLon;
+        originLat = lat;
+        originLon = lon;
+        metersPerDegreeLon = UbxUnits.METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+        east.x0 = 0;
+        north.x0 = 0;
+    }
+
+    private double eastOf(int lonE7) {
+        return (UbxUnits.toDegrees(lonE7) - originLon) * metersPerDegreeLon;
+    }
+
+    private double northOf(int latE7) {
+        return (UbxUnits.toDegrees(latE7) - originLat) * UbxUnits.METERS_PER_DEGREE;
+    }
+
+    private int toLatE7(double northMeters) {
+        return UbxUnits.toE7(originLat + northMeters / UbxUnits.METERS_PER_DEGREE);
+    }
+
+    private int toLonE7(double eastMeters) {
+        return UbxUnits.toE7(originLon + eastMeters / metersPerDegreeLon);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+// 离线评估 PositionPredictor：每收到一个定位点，先用之前的状态预测该时刻的位置，
+// 与实际定位比较，再用它更新滤波器。同时统计"停在上一个点"的误差作为对照，以及每次更新的耗时
+// 用法：PredictorEvaluator <文件或会话目录> [cv|ca] [过程噪声]
+public class PredictorEvaluator {
+
+    private final PositionPredictor predictor;
+    private double[] predictedErrors = new double[1024];
+    private double[] holdErrors = new double[1024];
+    private int count;
+    private boolean hasLast;
+    private int lastLatE7;
+    private int lastLonE7;
+    private long lastTimeMs;
+    private long updateNanos;
+    private long updates;
+
+    public PredictorEvaluator(PositionPredictor predictor) {
+        this.predictor = predictor;
+    }
+
+    public void add(long timeMs, int latE7, int lonE7, long hAccMm) {
+        // 同一历元的第二条消息（PVT 和 POSLLH 同时输出时）不参与评估
+        if (hasLast && timeMs == lastTimeMs) {
+            return;
+        }
+        if (hasLast && predictor.isInitialized()) {
+            predictor.predictAt(timeMs);
+            if (count == predictedErrors.length) {
+                predictedErrors = Arrays.copyOf(predictedErrors, count * 2);
+                holdErrors = Arrays.copyOf(holdErrors, count * 2);
+            }
+            predictedErrors[count] = distance(predictor.predictedLatE7(), predictor.predictedLonE7(), latE7, lonE7);
+            holdErrors[count] = distance(lastLatE7, lastLonE7, latE7, lonE7);
+            count++;
+        }
+        long start = System.nanoTime();
+        predictor.update(timeMs, latE7, lonE7, hAccMm, 0);
+        updateNanos += System.nanoTime() - start;
+        updates++;
+        hasLast = true;
+        lastLatE7 = latE7;
+        lastLonE7 = lonE7;
+        lastTimeMs = timeMs;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double predictedRms() {
+        return rms(predictedErrors, count);
+    }
+
+    public double holdRms() {
+        return rms(holdErrors, count);
+    }
+
+    public double predictedPercentile(double percentile) {
+        return percentile(predictedErrors, count, percentile);
+    }
+
+    public double holdPercentile(double percentile) {
+        return percentile(holdErrors, count, percentile);
+    }
+
+    public double nanosPerUpdate() {
+        return updates == 0 ? 0 : (double) updateNanos / updates;
+    }
+
+    // 两点间的水平距离，m，小范围内用等距圆柱近似
+    static double distance(int latE7a, int lonE7a, int latE7b, int lonE7b) {
+        double dNorth = UbxUnits.toDegrees(latE7b - latE7a) * UbxUnits.METERS_PER_DEGREE;
+        double dEast = UbxUnits.toDegrees(lonE7b - lonE7a) * UbxUnits.METERS_PER_DEGREE
+                * Math.cos(Math.toRadians(UbxUnits.toDegrees(latE7a)));
+        return Math.sqrt(dNorth * dNorth + dEast * dEast);
+    }
+
+    private static double rms(double[] values, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i] * values[i];
+        }
+        return Math.sqrt(sum / n);
+    }
+
+    private static double percentile(double[] values, int n, double percentile) {
+        if (n == 0) {
+            return 0;
+        }
+        double[] sorted = Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(n * percentile / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, index))];
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PredictorEvaluator <file|session-dir> [cv|ca] [noise]");
+            System.exit(2);
+        }
+        PositionPredictor.Model model = args.length > 1 && "ca".equals(args[1])
+                ? PositionPredictor.Model.CONSTANT_ACCELERATION : PositionPredictor.Model.CONSTANT_VELOCITY;
+        double noise = args.length > 2 ? Double.parseDouble(args[2])
+                : model == PositionPredictor.Model.CONSTANT_VELOCITY
+                ? PositionPredictor.DEFAULT_CV_NOISE : PositionPredictor.DEFAULT_CA_NOISE;
+        PredictorEvaluator evaluator = new PredictorEvaluator(new PositionPredictor(model, noise));
+
+        // 直接在当前线程解码，不需要流水线
+        UbxDecoder decoder = new UbxDecoder();
+        decoder.register(new NavPvtView(), m -> {
+            if (m.gnssFixOk()) {
+                evaluator.add(m.iTOW(), m.lat(), m.lon(), m.hAcc());
+            }
+        });
+        decoder.register(new NavPosllhView(), m -> evaluator.add(m.iTOW(), m.lat(), m.lon(), m.hAcc()));
+        UbxFrameReassembler framer = new UbxFrameReassembler(decoder);
+        byte[] buffer = new byte[64 * 1024];
+        try (ByteSource source = ReplayTool.open(new File(args[0]))) {
+            int n;
+            while ((n = source.read(buffer, 0, buffer.length, 0)) >= 0) {
+                framer.push(buffer, 0, n);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "model=%s noise=%.3f fixes=%d%n", model, noise, evaluator.getCount());
+        System.out.printf(Locale.ROOT, "predicted: rms=%.3fm p50=%.3fm p95=%.3fm%n",
+                evaluator.predictedRms(), evaluator.predictedPercentile(50), evaluator.predictedPercentile(95));
+        System.out.printf(Locale.ROOT, "hold-last: rms=%.3fm p50=%.3fm p95=%.3fm%n",
+                evaluator.holdRms(), evaluator.holdPercentile(50), evaluator.holdPercentile(95));
+        System.out.printf(Locale.ROOT, "update cost=%.0f ns%n", evaluator.nanosPerUpdate());
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 同时接收多台接收机（例如测向基线的两台加一台冗余）：每台一个通道，各自的数据源、流水线和解码器，
+// 读取和解码任务运行在一个有界线程池中（每台两个线程），一台接收机变慢或停止输出不会影响其他通道。
+// 各通道的定位送入 EpochMerger，按 iTOW 对齐后输出合并的历元流。
+// 用法：add() 建立通道，在通道的解码器上注册额外的消息（配置应答等），再 start()
+public class ReceiverGroup implements Closeable {
+
+    public static final int DEFAULT_MAX_RECEIVERS = 3;
+    // 每个通道占用的线程：读取 + 解码
+    static final int THREADS_PER_CHANNEL = 2;
+
+    public final class Channel {
+        private final int index;
+        private final String name;
+        private final ByteSource source;
+        private final UbxPipeline pipeline;
+        private final UbxDecoder decoder = new UbxDecoder();
+        private volatile UbxPipeline.SourceListener sourceListener;
+        private volatile UbxFrameReassembler.NmeaListener nmeaListener;
+        private volatile UbxFrameReassembler.RtcmListener rtcmListener;
+
+        // 定位统计只在本通道的解码线程中更新
+        private volatile long fixCount;
+        private volatile long lastITOW = -1;
+        private volatile long stallCount;
+        private volatile boolean stalled;
+        private volatile boolean closed;
+
+        private Channel(int index, String name, ByteSource source) {
+            this.index = index;
+            this.name = name;
+            this.source = source;
+            this.pipeline = new UbxPipeline(source);
+            decoder.register(new NavPvtView(), this::onNavPvt);
+            decoder.register(new NavPosllhView(), this::onNavPosllh);
+            pipeline.subscribe(decoder);
+            // 接收机默认同时输出 NMEA，RTCM3 也可能打开：始终识别，不计入失步和丢弃的字节
+            UbxFrameReassembler framer = pipeline.getFramer();
+            framer.setNmeaListener(sentence -> {
+                UbxFrameReassembler.NmeaListener listener = nmeaListener;
+                if (listener != null) {
+                    listener.onSentence(sentence);
+                }
+            });
+            framer.setRtcmListener((frame, offset, length) -> {
+                UbxFrameReassembler.RtcmListener listener = rtcmListener;
+                if (listener != null) {
+                    listener.onRtcmFrame(frame, offset, length);
+                }
+            });
+            // 数据源结束或出错后，等已读到的定位都送进合并器再下线
+            pipeline.setDrainListener(() -> merger.setActive(index, false));
+            pipeline.setSourceListener(new UbxPipeline.SourceListener() {
+                @Override
+                public void onStalled() {
+                    stalled = true;
+                    stallCount++;
+                    // 停止输出的接收机不再被等待
+                    merger.setActive(index, false);
+                    UbxPipeline.SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onStalled();
+                    }
+                }
+
+                @Override
+                public void onResumed() {
+                    stalled = false;
+                    merger.setActive(index, true);
+                    UbxPipeline.SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onResumed();
+                    }
+                }
+
+                @Override
+                public void onSourceError(IOException e) {
+                    UbxPipeline.SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onSourceError(e);
+                    }
+                }
+
+                @Override
+                public void onSourceEnd() {
+                    UbxPipeline.SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onSourceEnd();
+                    }
+                }
+            });
+        }
+
+        private void onNavPvt(NavPvtView pvt) {
+            // 没有有效定位时经纬度无意义
+            if (pvt.gnssFixOk()) {
+                onFix(pvt.iTOW(), pvt.lat(), pvt.lon(), pvt.hMSL(), pvt.hAcc(), pvt.vAcc());
+            }
+        }
+
+        private void onNavPosllh(NavPosllhView posllh) {
+            onFix(posllh.iTOW(), posllh.lat(), posllh.lon(), posllh.hMSL(), posllh.hAcc(), posllh.vAcc());
+        }
+
+        private void onFix(long iTOW, int latE7, int lonE7, int hMSL, long hAcc, long vAcc) {
+            // 同一历元的 NAV-PVT 和 NAV-POSLLH 只计一次
+            if (iTOW != lastITOW) {
+                fixCount++;
+                lastITOW = iTOW;
+            }
+            // 历元的接收时间取这一帧从 USB 读出的时间，显示时可以算出整条路径的耗时
+            long readNanos = pipeline.currentFrameReadNanos();
+            merger.add(index, iTOW, latE7, lonE7, hMSL, hAcc, vAcc, readNanos != 0 ? readNanos : System.nanoTime());
+        }
+
+        // 在合并流中的序号，0 起
+        public int index() {
+            return index;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        // 在 start() 之前注册额外的消息处理；处理函数在本通道的解码线程中调用
+        public UbxDecoder getDecoder() {
+            return decoder;
+        }
+
+        public UbxPipeline getPipeline() {
+            return pipeline;
+        }
+
+        // 通道的状态回调，在本通道的读取线程中调用
+        public void setSourceListener(UbxPipeline.SourceListener listener) {
+            this.sourceListener = listener;
+        }
+
+        // NMEA 语句和 RTCM3 帧的处理函数，在本通道的解码线程中调用
+        public void setNmeaListener(UbxFrameReassembler.NmeaListener listener) {
+            this.nmeaListener = listener;
+        }
+
+        public void setRtcmListener(UbxFrameReassembler.RtcmListener listener) {
+            this.rtcmListener = listener;
+        }
+
+        public void start() {
+            merger.setActive(index, true);
+            pipeline.start(countingExecutor);
+        }
+
+        public boolean isStalled() {
+            return stalled;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        public long getBytesRead() {
+            return pipeline.getBytesRead();
+        }
+
+        public long getDroppedBytes() {
+            return pipeline.getDroppedBytes();
+        }
+
+        public long getFrameCount() {
+            return pipeline.getFramer().getFrameCount();
+        }
+
+        public long getChecksumErrorCount() {
+            return pipeline.getFramer().getChecksumErrorCount();
+        }
+
+        public long getNmeaSentenceCount() {
+            return pipeline.getFramer().getNmeaSentenceCount();
+        }
+
+        public long getRtcmFrameCount() {
+            return pipeline.getFramer().getRtcmFrameCount();
+        }
+
+        public long getFixCount() {
+            return fixCount;
+        }
+
+        public long getLastITOW() {
+            return lastITOW;
+        }
+
+        public long getStallCount() {
+            return stallCount;
+        }
+
+        // 单行统计，用于诊断显示
+        public StringBuilder appendStats(StringBuilder sb) {
+            return sb.append(name)
+                    .append(stalled ? " 停止" : " 正常")
+                    .append(" bytes=").append(getBytesRead())
+                    .append(" dropped=").append(getDroppedBytes())
+                    .append(" frames=").append(getFrameCount())
+                    .append(" crc=").append(getChecksumErrorCount())
+                    .append(" nmea=").append(getNmeaSentenceCount())
+                    .append(" rtcm=").append(getRtcmFrameCount())
+                    .append(" fixes=").append(fixCount)
+                    .append(" stalls=").append(stallCount);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    // 提交到线程池的任务都经过这里，统计正在运行的读取和解码循环
+    private final Executor countingExecutor;
+    private final AtomicInteger liveThreads = new AtomicInteger();
+    private final EpochMerger merger;
+    private final Channel[] channels;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private boolean closed;
+
+    public ReceiverGroup(EpochMerger.EpochListener listener) {
+        this(DEFAULT_MAX_RECEIVERS, EpochMerger.DEFAULT_WINDOW, listener);
+    }
+
+    public ReceiverGroup(int maxReceivers, int window, EpochMerger.EpochListener listener) {
+        this.channels = new Channel[maxReceivers];
+        this.merger = new EpochMerger(maxReceivers, window, listener);
+        int threads = maxReceivers * THREADS_PER_CHANNEL;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "ubx-receiver-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // 不排队：任务交不出去时立即拒绝，而不是等在别的接收机后面。
+        // 多留一个通道的线程：移除通道后它的线程要稍后才回到空闲状态，紧接着重连的通道不会因此被拒绝
+        this.executor = new ThreadPoolExecutor(threads, threads + THREADS_PER_CHANNEL, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), factory);
+        this.countingExecutor = task -> executor.execute(() -> {
+            liveThreads.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                liveThreads.decrementAndGet();
+            }
+        });
+    }
+
+    // 为一个数据源建立通道，占用一个空闲序号；已满或已关闭时抛出 IOException
+    public synchronized Channel add(String name, ByteSource source) throws IOException {
+        if (closed) {
+            throw new IOException("receiver group closed");
+        }
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] == null) {
+                Channel channel = new Channel(i, name, source);
+                channels[i] = channel;
+                return channel;
+            }
+        }
+        rejectedCount.incrementAndGet();
+        throw new IOException("too many receivers (max " + channels.length + ")");
+    }
+
+    // 取消数据源上阻塞的读取，停止通道的流水线并关闭数据源，之后释放它的序号
+    public void remove(Channel channel) throws InterruptedException {
+        synchronized (this) {
+            if (channels[channel.index] != channel || channel.closed) {
+                return;
+            }
+            channel.closed = true;
+        }
+        merger.setActive(channel.index, false);
+        channel.source.cancel();
+        channel.pipeline.stop();
+        try {
+            channel.source.close();
+        } catch (IOException e) {
+            // 关闭失败时数据源已经不可用，忽略
+        }
+        synchronized (this) {
+            channels[channel.index] = null;
+        }
+    }
+
+    public synchronized List<Channel> channels() {
+        List<Channel> list = new ArrayList<>();
+        for (Channel channel : channels) {
+            if (channel != null) {
+                list.add(channel);
+            }
+        }
+        return list;
+    }
+
+    public synchronized Channel findChannel(String name) {
+        for (Channel channel : channels) {
+            if (channel != null && channel.name.equals(name)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    public EpochMerger getMerger() {
+        return merger;
+    }
+
+    public int getMaxReceivers() {
+        return channels.length;
+    }
+
+    // 正在运行读取或解码循环的线程数，所有通道都移除后应为 0
+    public int getLiveThreadCount() {
+        return liveThreads.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    // 每个通道一行统计，最后是合并流的统计
+    public StringBuilder appendStats(StringBuilder sb) {
+        for (Channel channel : channels()) {
+            channel.appendStats(sb).append('\n');
+        }
+        return sb.append("epochs complete=").append(merger.getCompleteCount())
+                .append(" partial=").append(merger.getPartialCount())
+                .append(" late=").append(merger.getLateCount())
+                .append(" dropped=").append(merger.getDroppedCount());
+    }
+
+    // 所有通道的接收路径统计和合并流的统计；stages 为流水线之外记录的耗时，例如解码到显示
+    public MetricsSnapshot snapshot(LatencyHistogram... stages) {
+        MetricsSnapshot snapshot = new MetricsSnapshot();
+        for (Channel channel : channels()) {
+            snapshot.channels.add(channel.pipeline.snapshot(channel.name));
+        }
+        snapshot.completeEpochs = merger.getCompleteCount();
+        snapshot.partialEpochs = merger.getPartialCount();
+        snapshot.lateEpochs = merger.getLateCount();
+        for (LatencyHistogram stage : stages) {
+            snapshot.addStage(stage);
+        }
+        return snapshot;
+    }
+
+    // 停止所有通道并关闭线程池，等待中的历元全部输出
+    @Override
+    public void close() throws IOException {
+        List<Channel> open;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open = channels();
+        }
+        try {
+            for (Channel channel : open) {
+                remove(channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            merger.flush();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+// 回放数据源：包装文件或会话数据源，按记录时的节奏把数据交给流水线
+// 节奏取自导航消息的 iTOW：某一历元的数据要等到 (iTOW - 起始 iTOW) / speed 之后才返回。
+// speed 为 MAX_SPEED 时不做节流，用于压力测试。NMEA 等非 UBX 数据原样透传，只是不参与计时
+public class ReplayByteSource implements ByteSource {
+
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    // 记录中的时间跳变超过该值（如接收机重启）时重新对齐时钟，不空等
+    public static final long MAX_GAP_MS = 5000;
+
+    private final ByteSource source;
+    private final double speed;
+    private final int chunkSize;
+    private final UbxFrameReassembler scanner;
+
+    private long epochITOW = -1;
+    private long lastITOW = -1;
+    private long baseITOW = -1;
+    private long baseNanos;
+    private long startNanos;
+    private long endNanos;
+    private long bytes;
+
+    public ReplayByteSource(ByteSource source, double speed) {
+        this(source, speed, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ReplayByteSource(ByteSource source, double speed, int chunkSize) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        this.source = source;
+        this.speed = speed;
+        this.chunkSize = chunkSize;
+        this.scanner = new UbxFrameReassembler(this::onFrame);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+        int n = source.read(buffer, offset, Math.min(length, chunkSize), timeoutMs);
+        if (n < 0) {
+            if (endNanos == 0) {
+                endNanos = System.nanoTime();
+            }
+            return n;
+        }
+        bytes += n;
+        scanner.push(buffer, offset, n);
+        if (speed != MAX_SPEED && epochITOW >= 0) {
+            waitUntilDue(epochITOW);
+        }
+        return n;
+    }
+
+    // 导航类消息的负载以 iTOW 开头
+    private void onFrame(byte[] frame, int offset, int length) {
+        if (frame[offset + 2] == 0x01 && length >= UbxFrameReassembler.FRAME_OVERHEAD + 4) {
+            epochITOW = UbxBytes.u4(frame, offset + UbxFrameReassembler.HEADER_LENGTH);
+        }
+    }
+
+    private void waitUntilDue(long iTOW) {
+        long gapMs = iTOW - lastITOW;
+        lastITOW = iTOW;
+        if (baseITOW < 0 || gapMs < 0 || gapMs > MAX_GAP_MS) {
+            // 第一个历元、周翻转或时间跳变：以当前时刻为新的起点
+            baseITOW = iTOW;
+            baseNanos = System.nanoTime();
+            return;
+        }
+        long elapsedMs = iTOW - baseITOW;
+        long dueNanos = baseNanos + (long) (elapsedMs * 1_000_000L / speed);
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getFrames() {
+        return scanner.getFrameCount();
+    }
+
+    public double getElapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    public double getFramesPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? getFrames() / seconds : 0;
+    }
+
+    public double getMegabytesPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? bytes / seconds / (1024 * 1024) : 0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+// 命令行回放：把记录文件或会话目录送进与实机相同的流水线和解码器，输出吞吐量
+// 用法：ReplayTool <文件或会话目录> [速度倍数|max]
+public class ReplayTool {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: ReplayTool <file|session-dir> [speed|max]");
+            System.exit(2);
+        }
+        double speed = args.length > 1 && !"max".equals(args[1]) ? Double.parseDouble(args[1]) : ReplayByteSource.MAX_SPEED;
+        ReplayByteSource replay = new ReplayByteSource(open(new File(args[0])), speed);
+
+        // 回放不能丢数据，环形缓冲区满时让读取线程等待
+        UbxPipeline pipeline = new UbxPipeline(replay, UbxPipeline.DEFAULT_RING_CAPACITY, UbxPipeline.OverflowPolicy.BLOCK);
+        UbxDecoder decoder = new UbxDecoder();
+        long[] fixes = new long[1];
+        decoder.register(new NavPosllhView(), m -> fixes[0]++);
+        decoder.register(new NavPvtView(), m -> fixes[0]++);
+        pipeline.subscribe(decoder);
+        pipeline.start();
+        pipeline.awaitCompletion(Long.MAX_VALUE);
+        replay.close();
+
+        UbxFrameReassembler framer = pipeline.getFramer();
+        System.out.printf(Locale.ROOT, "bytes=%d frames=%d fixes=%d decoded=%d unknown=%d%n",
+                replay.getBytes(), framer.getFrameCount(), fixes[0], decoder.getDecodedCount(), decoder.getUnknownCount());
+        System.out.printf(Locale.ROOT, "resyncs=%d checksumErrors=%d oversized=%d discardedBytes=%d%n",
+                framer.getResyncCount(), framer.getChecksumErrorCount(), framer.getOversizedFrameCount(), framer.getDiscardedBytes());
+        System.out.printf(Locale.ROOT, "elapsed=%.3fs throughput=%.0f frames/s %.2f MB/s%n",
+                replay.getElapsedSeconds(), replay.getFramesPerSecond(), replay.getMegabytesPerSecond());
+    }
+
+    // 会话目录按 UbxSessionReader 读取，其余按普通文件读取
+    static ByteSource open(File path) throws IOException {
+        if (path.isDirectory()) {
+            return new UbxSessionReader(path).openSource(0);
+        }
+        return InputStreamByteSource.open(path.getPath());
+    }
+}
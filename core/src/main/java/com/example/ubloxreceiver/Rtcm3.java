@@ -0,0 +1,85 @@
+package com.example.ubloxreceiver;
+
+// RTCM 3 传输层：0xD3、6 位保留（为 0）、10 位负载长度、负载、24 位 CRC-24Q
+// CRC 范围为头部和负载，消息号为负载的前 12 位
+public final class Rtcm3 {
+
+    public static final int PREAMBLE = 0xD3;
+    // 前导字节 + 保留位和长度(2)
+    public static final int HEADER_LENGTH = 3;
+    public static final int CRC_LENGTH = 3;
+    public static final int FRAME_OVERHEAD = HEADER_LENGTH + CRC_LENGTH;
+    public static final int MAX_PAYLOAD = 1023;
+    public static final int MAX_FRAME = MAX_PAYLOAD + FRAME_OVERHEAD;
+
+    private static final int POLY = 0x1864CFB;
+    static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 16;
+            for (int bit = 0; bit < 8; bit++) {
+                crc <<= 1;
+                if ((crc & 0x1000000) != 0) {
+                    crc ^= POLY;
+                }
+            }
+            CRC_TABLE[i] = crc & 0xFFFFFF;
+        }
+    }
+
+    private Rtcm3() {
+    }
+
+    // 计算 buffer[offset, offset + length) 的 CRC-24Q
+    public static int crc24q(byte[] buffer, int offset, int length) {
+        int crc = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 16) ^ buffer[i]) & 0xFF]) & 0xFFFFFF;
+        }
+        return crc;
+    }
+
+    // 在 crc 上再计入一个字节，重组器直接在环形缓冲区上计算时使用
+    static int crc24qUpdate(int crc, int b) {
+        return ((crc << 8) ^ CRC_TABLE[((crc >>> 16) ^ b) & 0xFF]) & 0xFFFFFF;
+    }
+
+    public static int payloadLength(byte[] frame, int offset) {
+        return (frame[offset + 1] & 0x03) << 8 | frame[offset + 2] & 0xFF;
+    }
+
+    // 负载前 12 位的消息号，例如 1005、1077
+    public static int messageType(byte[] frame, int offset) {
+        return (frame[offset + HEADER_LENGTH] & 0xFF) << 4 | (frame[offset + HEADER_LENGTH + 1] & 0xFF) >> 4;
+    }
+
+    // 校验以 frame[offset] 开头的一整帧（含头部和 CRC）
+    public static boolean isValid(byte[] frame, int offset, int length) {
+        if (length < FRAME_OVERHEAD || (frame[offset] & 0xFF) != PREAMBLE || (frame[offset + 1] & 0xFC) != 0
+                || payloadLength(frame, offset) != length - FRAME_OVERHEAD) {
+            return false;
+        }
+        int end = offset + length - CRC_LENGTH;
+        int crc = (frame[end] & 0xFF) << 16 | (frame[end + 1] & 0xFF) << 8 | frame[end + 2] & 0xFF;
+        return crc == crc24q(frame, offset, length - CRC_LENGTH);
+    }
+
+    // 用负载构造一整帧，测试和注入时使用
+    public static byte[] frame(byte[] payload) {
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("payload too long: " + payload.length);
+        }
+        byte[] frame = new byte[payload.length + FRAME_OVERHEAD];
+        frame[0] = (byte) PREAMBLE;
+        frame[1] = (byte) (payload.length >> 8);
+        frame[2] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, HEADER_LENGTH, payload.length);
+        int crc = crc24q(frame, 0, HEADER_LENGTH + payload.length);
+        frame[frame.length - 3] = (byte) (crc >> 16);
+        frame[frame.length - 2] = (byte) (crc >> 8);
+        frame[frame.length - 1] = (byte) crc;
+        return frame;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+// TCP 数据源，例如本机上转发差分数据的服务；超时返回 0，cancel() 关闭连接使阻塞的读取立即返回
+public class SocketByteSource implements ByteSource {
+
+    public static final int CONNECT_TIMEOUT_MS = 3000;
+
+    private final Socket socket;
+    private final InputStream in;
+    private volatile boolean cancelled;
+
+    private SocketByteSource(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = socket.getInputStream();
+    }
+
+    public static SocketByteSource connect(String host, int port) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            return new SocketByteSource(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        if (cancelled) {
+            return -1;
+        }
+        try {
+            socket.setSoTimeout(Math.max(0, timeoutMs));
+            return in.read(buffer, offset, length);
+        } catch (SocketTimeoutException e) {
+            return 0;
+        } catch (IOException e) {
+            if (cancelled) {
+                return -1;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // 关闭只是为了唤醒读取线程
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
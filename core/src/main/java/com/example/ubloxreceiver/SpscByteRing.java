@@ -0,0 +1,69 @@
+package com.example.ubloxreceiver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 单生产者/单消费者的无锁字节环形缓冲区，容量为 2 的幂，创建后不再分配内存
+// offer() 只能由一个线程调用，poll() 只能由另一个线程调用
+public class SpscByteRing {
+
+    private final byte[] buffer;
+    private final int mask;
+    // 写位置和读位置都是累计值，lazySet 保证数据先于位置对另一方可见
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    // 各自缓存对方的位置，减少 volatile 读
+    private long cachedReadPosition;
+    private long cachedWritePosition;
+
+    public SpscByteRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        buffer = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    // 生产者：整块写入，空间不足时不写入并返回 false
+    public boolean offer(byte[] src, int offset, int length) {
+        long write = writePosition.get();
+        if (buffer.length - (write - cachedReadPosition) < length) {
+            cachedReadPosition = readPosition.get();
+            if (buffer.length - (write - cachedReadPosition) < length) {
+                return false;
+            }
+        }
+        int index = (int) (write & mask);
+        int first = Math.min(length, buffer.length - index);
+        System.arraycopy(src, offset, buffer, index, first);
+        System.arraycopy(src, offset + first, buffer, 0, length - first);
+        writePosition.lazySet(write + length);
+        return true;
+    }
+
+    // 消费者：读出最多 maxLength 个字节，没有数据时返回 0
+    public int poll(byte[] dst, int offset, int maxLength) {
+        long read = readPosition.get();
+        if (cachedWritePosition - read == 0) {
+            cachedWritePosition = writePosition.get();
+            if (cachedWritePosition - read == 0) {
+                return 0;
+            }
+        }
+        int n = (int) Math.min(maxLength, cachedWritePosition - read);
+        int index = (int) (read & mask);
+        int first = Math.min(n, buffer.length - index);
+        System.arraycopy(buffer, index, dst, offset, first);
+        System.arraycopy(buffer, 0, dst, offset + first, n - first);
+        readPosition.lazySet(read + n);
+        return n;
+    }
+
+    // 当前缓冲的字节数，任意线程可调用，结果是近似值
+    public int size() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+}
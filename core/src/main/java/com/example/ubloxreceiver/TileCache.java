@@ -0,0 +1,14 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+
+// 预取的瓦片写入的缓存，在 App 中是 osmdroid 的磁盘缓存和内存中的位图缓存
+// 实现需要允许多个线程同时调用
+public interface TileCache {
+
+    // 瓦片已经在缓存中，不需要再取；key 见 TileCorridor.tileKey()
+    boolean contains(long key);
+
+    // 保存取到的瓦片数据，解码也在这里进行（在预取线程中）
+    void store(long key, byte[] data) throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.example.ubloxreceiver;
+
+// 行进方向前方的瓦片走廊：从当前位置沿航向外推 speed × lookahead 米（不少于一个瓦片），
+// 沿途每隔半个瓦片（和末端）取一个点，并在左右各 halfWidthTiles 个瓦片宽度处各取一个点，
+// 按离当前位置由近到远输出它们所在的瓦片，不重复。
+// 瓦片编号与 osmdroid 的 MapTileIndex 相同：zoom << 58 | x << 29 | y
+public final class TileCorridor {
+
+    public static final int TILE_SHIFT = 29;
+    // Web 墨卡托瓦片在赤道处的边长（zoom 0），米
+    static final double EQUATOR_TILE_METERS = 40075016.686;
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    private TileCorridor() {
+    }
+
+    public static long tileKey(int zoom, int x, int y) {
+        return (long) zoom << (TILE_SHIFT * 2) | (long) x << TILE_SHIFT | y;
+    }
+
+    public static int zoom(long key) {
+        return (int) (key >>> (TILE_SHIFT * 2));
+    }
+
+    public static int x(long key) {
+        return (int) (key >>> TILE_SHIFT) & ((1 << TILE_SHIFT) - 1);
+    }
+
+    public static int y(long key) {
+        return (int) key & ((1 << TILE_SHIFT) - 1);
+    }
+
+    public static int tileX(double lon, int zoom) {
+        return TrackLod.worldX(lon) >>> (TrackLod.WORLD_SHIFT - zoom);
+    }
+
+    public static int tileY(double lat, int zoom) {
+        return TrackLod.worldY(lat) >>> (TrackLod.WORLD_SHIFT - zoom);
+    }
+
+    // 纬度 lat 处一个瓦片的边长，米
+    public static double tileMeters(double lat, int zoom) {
+        return EQUATOR_TILE_METERS * Math.cos(Math.toRadians(lat)) / (1 << zoom);
+    }
+
+    // 把走廊上的瓦片写入 out，返回个数；out 放不下时只保留最近的 out.length 个。
+    // heading 为航向（度，北为 0，顺时针），NaN 时只取当前位置周围的瓦片
+    public static int compute(double lat, double lon, double speed, double heading, double lookaheadSeconds,
+                              int halfWidthTiles, int zoom, long[] out) {
+        double tileMeters = tileMeters(lat, zoom);
+        boolean moving = !Double.isNaN(heading);
+        double length = moving ? Math.max(tileMeters, speed * lookaheadSeconds) : 0;
+        double step = tileMeters / 2;
+        double sin = moving ? Math.sin(Math.toRadians(heading)) : 0;
+        double cos = moving ? Math.cos(Math.toRadians(heading)) : 1;
+        double metersPerDegreeLat = Math.toRadians(1) * EARTH_RADIUS;
+        double metersPerDegreeLon = metersPerDegreeLat * Math.cos(Math.toRadians(lat));
+        int count = 0;
+        int steps = (int) Math.ceil(length / step);
+        for (int k = 0; k <= steps; k++) {
+            // 最后一个点正好在走廊末端
+            double along = Math.min(k * step, length);
+            // 左右偏移，先中间再由近到远
+            for (int i = 0; i <= 2 * halfWidthTiles; i++) {
+                int side = (i + 1) / 2 * (i % 2 == 0 ? 1 : -1);
+                double across = side * tileMeters;
+                // 航向单位向量 (sin, cos)，右侧垂直方向 (cos, -sin)，分量为（东, 北）
+                double east = along * sin + across * cos;
+                double north = along * cos - across * sin;
+                double pointLat = lat + north / metersPerDegreeLat;
+                double pointLon = lon + east / metersPerDegreeLon;
+                long key = tileKey(zoom, tileX(pointLon, zoom), tileY(pointLat, zoom));
+                if (!contains(out, count, key)) {
+                    if (count == out.length) {
+                        return count;
+                    }
+                    out[count++] = key;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(long[] keys, int count, long key) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
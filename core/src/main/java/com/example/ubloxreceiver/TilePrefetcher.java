@@ -0,0 +1,318 @@
+package com.example.ubloxreceiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 沿预测的行进方向预取地图瓦片：每次定位用位置、速度和航向算出前方的瓦片走廊（TileCorridor），
+// 由近到远排队，固定数量的预取线程从 TileSource 取回后写入 TileCache（取数据和解码都不在 UI 线程）。
+// 走廊变化时（向前移动、转弯），不在新走廊中的排队瓦片直接丢弃，正在取的瓦片取回后不再解码保存；
+// 缓存中已有的瓦片不重复取。同时进行的请求数不超过 concurrency，公共瓦片服务一般要求不超过 2
+public class TilePrefetcher implements Closeable {
+
+    public static final int DEFAULT_CONCURRENCY = 2;
+    public static final double DEFAULT_LOOKAHEAD_SECONDS = 30;
+    public static final int DEFAULT_HALF_WIDTH_TILES = 1;
+    public static final int DEFAULT_MAX_TILES = 64;
+    // 航向变化超过该值视为转向，计入统计
+    public static final float DIRECTION_CHANGE_DEG = 45;
+    // 仍在同一个瓦片、航向变化小于该值时不重新计算走廊
+    static final float HEADING_STEP_DEG = 10;
+    private static final long NONE = -1;
+
+    private final TileSource source;
+    private final TileCache cache;
+    private final int concurrency;
+    private volatile double lookaheadSeconds = DEFAULT_LOOKAHEAD_SECONDS;
+    private volatile int halfWidthTiles = DEFAULT_HALF_WIDTH_TILES;
+
+    // 以下字段由 lock 保护
+    private final Object lock = new Object();
+    // 当前走廊，由近到远；排队的瓦片为 corridor[next, corridorCount) 中尚未取走的
+    private final long[] corridor;
+    private int corridorCount;
+    private int next;
+    // 完整的当前走廊（包括更新时正在取、没有放进队列的瓦片）排序后的副本，用于判断瓦片是否仍然需要
+    private final long[] sortedCorridor;
+    private int sortedCount;
+    // 每个预取线程正在取的瓦片
+    private final long[] inFlight;
+    private boolean running;
+    // 当前这一轮 start() 的预取线程；close() 之后还在取瓦片的旧线程发现不是自己这一轮时退出
+    private Thread[] workers;
+
+    // 只在调用 update() 的线程中访问
+    private final long[] computed;
+    private int lastZoom = -1;
+    private long lastTile = NONE;
+    private float lastHeading = Float.NaN;
+    private float directionHeading = Float.NaN;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong cachedCount = new AtomicLong();
+    private final AtomicLong fetchedCount = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+    private final AtomicLong missingCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong directionChanges = new AtomicLong();
+    private final LatencyHistogram fetchTime = new LatencyHistogram("tile-fetch");
+
+    public TilePrefetcher(TileSource source, TileCache cache) {
+        this(source, cache, DEFAULT_CONCURRENCY, DEFAULT_MAX_TILES);
+    }
+
+    public TilePrefetcher(TileSource source, TileCache cache, int concurrency, int maxTiles) {
+        if (concurrency <= 0 || maxTiles <= 0) {
+            throw new IllegalArgumentException("concurrency and maxTiles must be positive");
+        }
+        this.source = source;
+        this.cache = cache;
+        this.concurrency = concurrency;
+        this.corridor = new long[maxTiles];
+        this.sortedCorridor = new long[maxTiles];
+        this.computed = new long[maxTiles];
+        this.inFlight = new long[concurrency];
+        Arrays.fill(inFlight, NONE);
+    }
+
+    // 外推的时长和走廊半宽（瓦片数），下一次走廊变化时生效
+    public void setLookahead(double seconds, int halfWidthTiles) {
+        this.lookaheadSeconds = seconds;
+        this.halfWidthTiles = halfWidthTiles;
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            Arrays.fill(inFlight, NONE);
+            Thread[] generation = new Thread[concurrency];
+            workers = generation;
+            for (int i = 0; i < concurrency; i++) {
+                int slot = i;
+                generation[i] = new Thread(() -> workLoop(slot, generation), "tile-prefetch-" + i);
+                generation[i].setDaemon(true);
+                generation[i].start();
+            }
+        }
+    }
+
+    // 新的位置估计：坐标（度）、速度 m/s、航向（度，NaN 表示未知）和地图显示的瓦片缩放级别。
+    // 应在同一个线程中调用（例如 UI 线程每次定位后）；位置还在同一个瓦片且航向基本不变时直接返回 false
+    public boolean update(double lat, double lon, double speed, float heading, int zoom) {
+        long tile = TileCorridor.tileKey(zoom, TileCorridor.tileX(lon, zoom), TileCorridor.tileY(lat, zoom));
+        boolean headingChanged = Float.isNaN(heading) != Float.isNaN(lastHeading)
+                || (!Float.isNaN(heading) && HeadingFilter.angleDifference(heading, lastHeading) >= HEADING_STEP_DEG);
+        if (tile == lastTile && zoom == lastZoom && !headingChanged) {
+            return false;
+        }
+        lastTile = tile;
+        lastZoom = zoom;
+        lastHeading = heading;
+        boolean turned = false;
+        if (!Float.isNaN(heading)) {
+            turned = !Float.isNaN(directionHeading)
+                    && HeadingFilter.angleDifference(heading, directionHeading) >= DIRECTION_CHANGE_DEG;
+            if (turned || Float.isNaN(directionHeading)) {
+                directionHeading = heading;
+            }
+        }
+        int count = TileCorridor.compute(lat, lon, speed, heading, lookaheadSeconds, halfWidthTiles, zoom, computed);
+        synchronized (lock) {
+            if (turned) {
+                directionChanges.incrementAndGet();
+            }
+            System.arraycopy(computed, 0, sortedCorridor, 0, count);
+            Arrays.sort(sortedCorridor, 0, count);
+            sortedCount = count;
+            // 原来排队、新走廊中不再需要的瓦片
+            long dropped = 0;
+            for (int i = next; i < corridorCount; i++) {
+                if (Arrays.binarySearch(sortedCorridor, 0, count, corridor[i]) < 0) {
+                    dropped++;
+                }
+            }
+            cancelledCount.addAndGet(dropped);
+            corridorCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (!isInFlight(computed[i])) {
+                    corridor[corridorCount++] = computed[i];
+                }
+            }
+            next = 0;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    private boolean isInFlight(long key) {
+        for (long current : inFlight) {
+            if (current == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void workLoop(int slot, Thread[] generation) {
+        while (true) {
+            long key;
+            synchronized (lock) {
+                while (workers == generation && next == corridorCount) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (workers != generation) {
+                    return;
+                }
+                key = corridor[next++];
+                inFlight[slot] = key;
+                requested.incrementAndGet();
+            }
+            try {
+                prefetch(key);
+            } finally {
+                synchronized (lock) {
+                    if (workers == generation) {
+                        inFlight[slot] = NONE;
+                    }
+                }
+            }
+        }
+    }
+
+    private void prefetch(long key) {
+        try {
+            if (cache.contains(key)) {
+                cachedCount.incrementAndGet();
+                return;
+            }
+            long start = System.nanoTime();
+            byte[] data = source.fetch(TileCorridor.zoom(key), TileCorridor.x(key), TileCorridor.y(key));
+            fetchTime.recordSince(start);
+            if (data == null) {
+                missingCount.incrementAndGet();
+                return;
+            }
+            // 取的过程中转向了，不再解码保存
+            if (!isWanted(key)) {
+                cancelledCount.incrementAndGet();
+                return;
+            }
+            cache.store(key, data);
+            fetchedCount.incrementAndGet();
+            fetchedBytes.addAndGet(data.length);
+        } catch (IOException e) {
+            failedCount.incrementAndGet();
+        }
+    }
+
+    private boolean isWanted(long key) {
+        synchronized (lock) {
+            return running && Arrays.binarySearch(sortedCorridor, 0, sortedCount, key) >= 0;
+        }
+    }
+
+    // 当前走廊中的瓦片（按编号排序），返回个数；用于把这些瓦片保护在内存缓存中
+    public int copyCorridor(long[] out) {
+        synchronized (lock) {
+            int n = Math.min(out.length, sortedCount);
+            System.arraycopy(sortedCorridor, 0, out, 0, n);
+            return n;
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return corridorCount - next;
+        }
+    }
+
+    // 正在取的瓦片数
+    public int getInFlightCount() {
+        synchronized (lock) {
+            int n = 0;
+            for (long key : inFlight) {
+                if (key != NONE) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    // 从队列中取出的瓦片数
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    // 已经在缓存中、不需要再取的瓦片
+    public long getCachedCount() {
+        return cachedCount.get();
+    }
+
+    public long getFetchedCount() {
+        return fetchedCount.get();
+    }
+
+    public long getFetchedBytes() {
+        return fetchedBytes.get();
+    }
+
+    // 瓦片服务上没有的瓦片
+    public long getMissingCount() {
+        return missingCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    // 因走廊变化没有取或取回后丢弃的瓦片
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    public long getDirectionChangeCount() {
+        return directionChanges.get();
+    }
+
+    public LatencyHistogram getFetchTime() {
+        return fetchTime;
+    }
+
+    // 单行统计，用于诊断显示
+    public StringBuilder appendStats(StringBuilder sb) {
+        sb.append("tiles requested=").append(requested.get())
+                .append(" cached=").append(cachedCount.get())
+                .append(" fetched=").append(fetchedCount.get())
+                .append(" bytes=").append(fetchedBytes.get())
+                .append(" missing=").append(missingCount.get())
+                .append(" failed=").append(failedCount.get())
+                .append(" cancelled=").append(cancelledCount.get())
+                .append(" turns=").append(directionChanges.get())
+                .append(" pending=").append(getPendingCount()).append(' ');
+        return fetchTime.appendTo(sb);
+    }
+
+    // 停止预取线程，排队的瓦片丢弃；不等待，可以在 UI 线程调用。
+    // 正在进行的请求结束后（最多 HttpTileSource 的超时）结果不再保存，线程随即退出；预取线程是守护线程
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            corridorCount = 0;
+            next = 0;
+            Arrays.fill(inFlight, NONE);
+            workers = null;
+            lock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+
+// 地图瓦片的来源，例如 HTTP 瓦片服务；测试时可以换成本机的瓦片服务或内存中的数据
+// 实现需要允许多个线程同时调用
+public interface TileSource {
+
+    // 返回瓦片的图像数据（PNG 等），瓦片不存在时返回 null；阻塞直到完成或超时
+    byte[] fetch(int zoom, int x, int y) throws IOException;
+}
@@ -0,0 +1,394 @@
+package com.example.ubloxreceiver;
+
+// 轨迹的多级细节（LOD）：为每个缩放档位维护一条简化后的折线和一个网格空间索引
+// 坐标先转换成 Web 墨卡托整数坐标（全世界 WORLD_SIZE 个单位），与地图投影成线性关系。
+//
+// 简化是增量的：每个档位保留上一个顶点 A 和之后尚未确定的点，新点 P 到来时，
+// 如果待定点中有任何一点离线段 A-P 超过该档位的容差，就把上一个待定点定为新顶点。
+// 这样任意时刻简化折线与原始轨迹的偏差都不超过容差，追加一个点的代价与轨迹长度无关。
+//
+// 查询只遍历视口覆盖的网格单元，输出线段端点，结果数量只和视口内的轨迹有关。
+// 非线程安全，append 和 query 应在同一线程（UI 线程）调用
+public class TrackLod {
+
+    public static final int WORLD_SHIFT = 30;
+    public static final int WORLD_SIZE = 1 << WORLD_SHIFT;
+    // 各档位对应的缩放级别，绘制时选不低于当前缩放级别的最粗档位
+    public static final int[] BAND_ZOOMS = {6, 9, 12, 14, 16, 18, 20};
+    // 容差，单位为该档位缩放级别下的像素
+    public static final double TOLERANCE_PX = 0.5;
+    // 待定点过多时强制定点，限制单次追加的代价
+    private static final int MAX_PENDING = 256;
+    // 一个网格单元的边长为该档位下 4 个瓦片
+    private static final int CELL_TILES_SHIFT = 2;
+    // 线段跨越的单元数超过该值时放进"长线段"列表，每次查询都检查
+    private static final int MAX_CELLS_PER_SEGMENT = 16;
+
+    private final Band[] bands = new Band[BAND_ZOOMS.length];
+    private int count;
+
+    public TrackLod() {
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new Band(BAND_ZOOMS[i]);
+        }
+    }
+
+    // 追加一个原始定位点，坐标 1e-7 度
+    public void append(int latE7, int lonE7) {
+        int x = worldX(lonE7);
+        int y = worldY(latE7);
+        for (Band band : bands) {
+            band.append(x, y);
+        }
+        count++;
+    }
+
+    // 已追加的原始点数
+    public int size() {
+        return count;
+    }
+
+    public int bandCount() {
+        return bands.length;
+    }
+
+    // 绘制 zoom 级别时使用的档位
+    public int bandForZoom(double zoom) {
+        for (int i = 0; i < bands.length; i++) {
+            if (bands[i].zoom >= zoom) {
+                return i;
+            }
+        }
+        return bands.length - 1;
+    }
+
+    // 档位中的顶点数（不含末尾的待定点）
+    public int vertexCount(int band) {
+        return bands[band].vertices.size() / 2;
+    }
+
+    // 查询与世界坐标矩形相交的线段，端点按 (x1, y1, x2, y2) 写入 out，返回写入的 int 数
+    // out 不够大时返回需要的长度的相反数
+    public int query(int band, int minX, int minY, int maxX, int maxY, int[] out) {
+        return bands[band].query(minX, minY, maxX, maxY, out);
+    }
+
+    public static int worldX(int lonE7) {
+        double x = (lonE7 / 1e7 + 180.0) / 360.0;
+        return clamp(x);
+    }
+
+    public static int worldY(int latE7) {
+        double lat = Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, latE7 / 1e7)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0;
+        return clamp(y);
+    }
+
+    public static int worldX(double lon) {
+        return clamp((lon + 180.0) / 360.0);
+    }
+
+    public static int worldY(double lat) {
+        return worldY((int) Math.round(lat * 1e7));
+    }
+
+    private static int clamp(double normalized) {
+        long v = Math.round(normalized * WORLD_SIZE);
+        return (int) Math.max(0, Math.min(WORLD_SIZE - 1, v));
+    }
+
+    private static final class Band {
+        final int zoom;
+        final double tolerance;
+        final int cellShift;
+        // 顶点 (x, y) 交替存放
+        final IntArrayList vertices = new IntArrayList(256);
+        final IntArrayList pending = new IntArrayList(2 * MAX_PENDING);
+        final CellIndex grid = new CellIndex();
+        final IntArrayList longSegments = new IntArrayList(16);
+        // 查询去重：每条线段最后一次被输出时的查询序号
+        int[] stamps = new int[128];
+        int queryStamp;
+
+        Band(int zoom) {
+            this.zoom = zoom;
+            // 该缩放级别下一个像素对应的世界坐标单位数
+            double unitsPerPixel = (double) WORLD_SIZE / (256.0 * (1L << zoom));
+            this.tolerance = TOLERANCE_PX * unitsPerPixel;
+            this.cellShift = Math.max(0, WORLD_SHIFT - zoom + CELL_TILES_SHIFT);
+        }
+
+        void append(int x, int y) {
+            int n = vertices.size();
+            if (n == 0) {
+                addVertex(x, y);
+                return;
+            }
+            int ax = vertices.get(n - 2);
+            int ay = vertices.get(n - 1);
+            if (pending.size() >= 2 * MAX_PENDING || !fits(ax, ay, x, y)) {
+                // 上一个待定点定为顶点，新点成为新的待定点
+                int p = pending.size();
+                if (p > 0) {
+                    addVertex(pending.get(p - 2), pending.get(p - 1));
+                    pending.clear();
+                }
+            }
+            pending.add(x);
+            pending.add(y);
+        }
+
+        // 所有待定点到线段 A-P 的距离是否都不超过容差
+        private boolean fits(int ax, int ay, int px, int py) {
+            double dx = px - ax;
+            double dy = py - ay;
+            double length2 = dx * dx + dy * dy;
+            double limit = tolerance * tolerance;
+            for (int i = 0; i < pending.size(); i += 2) {
+                double qx = pending.get(i) - ax;
+                double qy = pending.get(i + 1) - ay;
+                double d2;
+                if (length2 == 0) {
+                    d2 = qx * qx + qy * qy;
+                } else {
+                    double t = Math.max(0, Math.min(1, (qx * dx + qy * dy) / length2));
+                    double ex = qx - t * dx;
+                    double ey = qy - t * dy;
+                    d2 = ex * ex + ey * ey;
+                }
+                if (d2 > limit) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addVertex(int x, int y) {
+            int n = vertices.size();
+            vertices.add(x);
+            vertices.add(y);
+            if (n > 0) {
+                index(n / 2 - 1, vertices.get(n - 2), vertices.get(n - 1), x, y);
+            }
+        }
+
+        // 把线段编号登记到它的包围盒覆盖的所有单元
+        private void index(int segment, int x1, int y1, int x2, int y2) {
+            if (segment >= stamps.length) {
+                int[] grown = new int[stamps.length * 2];
+                System.arraycopy(stamps, 0, grown, 0, stamps.length);
+                stamps = grown;
+            }
+            int cx1 = Math.min(x1, x2) >> cellShift;
+            int cx2 = Math.max(x1, x2) >> cellShift;
+            int cy1 = Math.min(y1, y2) >> cellShift;
+            int cy2 = Math.max(y1, y2) >> cellShift;
+            if ((long) (cx2 - cx1 + 1) * (cy2 - cy1 + 1) > MAX_CELLS_PER_SEGMENT) {
+                longSegments.add(segment);
+                return;
+            }
+            for (int cx = cx1; cx <= cx2; cx++) {
+                for (int cy = cy1; cy <= cy2; cy++) {
+                    grid.get(cx, cy).add(segment);
+                }
+            }
+        }
+
+        int query(int minX, int minY, int maxX, int maxY, int[] out) {
+            queryStamp++;
+            if (queryStamp == 0) {
+                java.util.Arrays.fill(stamps, 0);
+                queryStamp = 1;
+            }
+            int written = 0;
+            boolean overflow = false;
+            int cx1 = minX >> cellShift;
+            int cx2 = maxX >> cellShift;
+            int cy1 = minY >> cellShift;
+            int cy2 = maxY >> cellShift;
+            // 视口覆盖的单元比已有的单元还多时（缩得很小却用细档位），改为遍历已有的单元
+            boolean scan = (long) (cx2 - cx1 + 1) * (cy2 - cy1 + 1) > grid.size();
+            int cells = scan ? grid.capacity() : (cx2 - cx1 + 1) * (cy2 - cy1 + 1);
+            for (int c = 0; c < cells; c++) {
+                IntArrayList cell;
+                if (scan) {
+                    cell = grid.cellAt(c);
+                    if (cell == null || !grid.slotWithin(c, cx1, cy1, cx2, cy2)) {
+                        continue;
+                    }
+                } else {
+                    cell = grid.find(cx1 + c / (cy2 - cy1 + 1), cy1 + c % (cy2 - cy1 + 1));
+                    if (cell == null) {
+                        continue;
+                    }
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    written = emit(cell.get(i), minX, minY, maxX, maxY, out, written);
+                    if (written < 0) {
+                        overflow = true;
+                        written = -written;
+                    }
+                }
+            }
+            for (int i = 0; i < longSegments.size(); i++) {
+                written = emit(longSegments.get(i), minX, minY, maxX, maxY, out, written);
+                if (written < 0) {
+                    overflow = true;
+                    written = -written;
+                }
+            }
+            // 最后一个顶点到最新待定点的线段，让折线一直连到当前位置
+            int n = vertices.size();
+            int p = pending.size();
+            if (n > 0 && p > 0) {
+                if (written + 4 <= out.length) {
+                    out[written] = vertices.get(n - 2);
+                    out[written + 1] = vertices.get(n - 1);
+                    out[written + 2] = pending.get(p - 2);
+                    out[written + 3] = pending.get(p - 1);
+                } else {
+                    overflow = true;
+                }
+                written += 4;
+            }
+            return overflow ? -written : written;
+        }
+
+        // 返回新的写入位置；out 放不下时返回负数，但仍然继续计数
+        private int emit(int segment, int minX, int minY, int maxX, int maxY, int[] out, int written) {
+            if (stamps[segment] == queryStamp) {
+                return written;
+            }
+            stamps[segment] = queryStamp;
+            int x1 = vertices.get(2 * segment);
+            int y1 = vertices.get(2 * segment + 1);
+            int x2 = vertices.get(2 * segment + 2);
+            int y2 = vertices.get(2 * segment + 3);
+            if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX
+                    || Math.max(y1, y2) < minY || Math.min(y1, y2) > maxY) {
+                return written;
+            }
+            if (written + 4 > out.length) {
+                return -(written + 4);
+            }
+            out[written] = x1;
+            out[written + 1] = y1;
+            out[written + 2] = x2;
+            out[written + 3] = y2;
+            return written + 4;
+        }
+    }
+
+    // 可增长的 int 数组
+    static final class IntArrayList {
+        private int[] values;
+        private int size;
+
+        IntArrayList(int capacity) {
+            values = new int[Math.max(capacity, 4)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[values.length * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    // 以单元坐标为键的开放寻址哈希表，查找时不装箱
+    static final class CellIndex {
+        private long[] keys = new long[64];
+        private IntArrayList[] cells = new IntArrayList[64];
+        private int size;
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        }
+
+        private int slot(long key, long[] table) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & (table.length - 1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        // 按槽位遍历，空槽返回 null
+        IntArrayList cellAt(int slot) {
+            return cells[slot];
+        }
+
+        boolean slotWithin(int slot, int cx1, int cy1, int cx2, int cy2) {
+            int cx = (int) (keys[slot] >> 32);
+            int cy = (int) keys[slot];
+            return cx >= cx1 && cx <= cx2 && cy >= cy1 && cy <= cy2;
+        }
+
+        IntArrayList find(int cx, int cy) {
+            long key = key(cx, cy);
+            int mask = keys.length - 1;
+            for (int i = slot(key, keys); cells[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return cells[i];
+                }
+            }
+            return null;
+        }
+
+        IntArrayList get(int cx, int cy) {
+            IntArrayList cell = find(cx, cy);
+            if (cell != null) {
+                return cell;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            cell = new IntArrayList(8);
+            insert(key(cx, cy), cell, keys, cells);
+            size++;
+            return cell;
+        }
+
+        private void insert(long key, IntArrayList cell, long[] table, IntArrayList[] values) {
+            int mask = table.length - 1;
+            int i = slot(key, table);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            values[i] = cell;
+        }
+
+        private void grow() {
+            long[] newKeys = new long[keys.length * 2];
+            IntArrayList[] newCells = new IntArrayList[cells.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (cells[i] != null) {
+                    insert(keys[i], cells[i], newKeys, newCells);
+                }
+            }
+            keys = newKeys;
+            cells = newCells;
+        }
+    }
+}
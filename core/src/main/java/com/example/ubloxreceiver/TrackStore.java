@@ -0,0 +1,265 @@
+package com.example.ubloxreceiver;
+
+// 轨迹存储：按接收机原始定点格式保存每个定位点，不为每个点创建对象
+// 每 CHUNK_SIZE 个点为一块。正在写入的块用原始数组保存，写满后压缩：
+// 逐点记录各字段与上一点的差值（zigzag + varint），每 BLOCK_SIZE 个点存一个绝对值检查点，
+// 随机访问最多解码 BLOCK_SIZE - 1 个点，与轨迹长度无关。
+//
+// 单写多读：append() 只能由一个线程调用；读取通过 Cursor，每个读线程使用自己的 Cursor
+public class TrackStore {
+
+    public static final int CHUNK_SHIFT = 10;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    public static final int BLOCK_SHIFT = 6;
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCKS_PER_CHUNK = CHUNK_SIZE / BLOCK_SIZE;
+    // 每个点最多 4 个 int 和 1 个 long 的 varint
+    private static final int MAX_ENCODED_FIX = 4 * 5 + 10;
+
+    // 压缩后的块，创建后不再修改
+    private static final class SealedChunk {
+        final byte[] data;
+        // 每个检查点在 data 中的起始位置和该点的绝对值
+        final int[] blockOffset = new int[BLOCKS_PER_CHUNK];
+        final long[] blockTime = new long[BLOCKS_PER_CHUNK];
+        final int[] blockLat = new int[BLOCKS_PER_CHUNK];
+        final int[] blockLon = new int[BLOCKS_PER_CHUNK];
+        final int[] blockHeight = new int[BLOCKS_PER_CHUNK];
+        final int[] blockHAcc = new int[BLOCKS_PER_CHUNK];
+
+        SealedChunk(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    // 正在写入的块
+    private static final class HotChunk {
+        final long[] time = new long[CHUNK_SIZE];
+        final int[] lat = new int[CHUNK_SIZE];
+        final int[] lon = new int[CHUNK_SIZE];
+        final int[] height = new int[CHUNK_SIZE];
+        final int[] hAcc = new int[CHUNK_SIZE];
+    }
+
+    private volatile SealedChunk[] sealed = new SealedChunk[16];
+    private volatile int sealedCount;
+    private volatile HotChunk hot = new HotChunk();
+    private volatile int size;
+    private volatile long sealedBytes;
+    // 压缩时使用的临时缓冲区，只在写线程中使用
+    private final byte[] scratch = new byte[CHUNK_SIZE * MAX_ENCODED_FIX];
+
+    // 时间单位 ms（建议用 ItowUnwrapper 展开后的 iTOW），坐标 1e-7 度，高度和精度 mm
+    public void append(long timeMs, int latE7, int lonE7, int heightMm, int hAccMm) {
+        int index = size & (CHUNK_SIZE - 1);
+        HotChunk chunk = hot;
+        chunk.time[index] = timeMs;
+        chunk.lat[index] = latE7;
+        chunk.lon[index] = lonE7;
+        chunk.height[index] = heightMm;
+        chunk.hAcc[index] = hAccMm;
+        if (index == CHUNK_SIZE - 1) {
+            seal(chunk);
+        }
+        // 先写数据再发布长度，读线程看到的长度范围内的数据都是完整的
+        size = size + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 写满的块压缩后发布，再换新的写入块；旧的写入块数组不再修改，正在读取它的线程不受影响
+    private void seal(HotChunk chunk) {
+        SealedChunk[] chunks = sealed;
+        if (sealedCount == chunks.length) {
+            SealedChunk[] grown = new SealedChunk[chunks.length * 2];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            chunks = grown;
+        }
+        int position = 0;
+        int[] offsets = new int[BLOCKS_PER_CHUNK];
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            if ((i & (BLOCK_SIZE - 1)) == 0) {
+                offsets[i >> BLOCK_SHIFT] = position;
+                continue;
+            }
+            position = writeVarLong(scratch, position, zigzag(chunk.time[i] - chunk.time[i - 1]));
+            position = writeVarInt(scratch, position, zigzag(chunk.lat[i] - chunk.lat[i - 1]));
+            position = writeVarInt(scratch, position, zigzag(chunk.lon[i] - chunk.lon[i - 1]));
+            position = writeVarInt(scratch, position, zigzag(chunk.height[i] - chunk.height[i - 1]));
+            position = writeVarInt(scratch, position, zigzag(chunk.hAcc[i] - chunk.hAcc[i - 1]));
+        }
+        byte[] data = new byte[position];
+        System.arraycopy(scratch, 0, data, 0, position);
+        SealedChunk result = new SealedChunk(data);
+        System.arraycopy(offsets, 0, result.blockOffset, 0, BLOCKS_PER_CHUNK);
+        for (int b = 0; b < BLOCKS_PER_CHUNK; b++) {
+            int i = b << BLOCK_SHIFT;
+            result.blockTime[b] = chunk.time[i];
+            result.blockLat[b] = chunk.lat[i];
+            result.blockLon[b] = chunk.lon[i];
+            result.blockHeight[b] = chunk.height[i];
+            result.blockHAcc[b] = chunk.hAcc[i];
+        }
+        chunks[sealedCount] = result;
+        sealed = chunks;
+        sealedBytes = sealedBytes + chunkBytes(result);
+        sealedCount = sealedCount + 1;
+        hot = new HotChunk();
+    }
+
+    private static long chunkBytes(SealedChunk chunk) {
+        // 数组头按 16 字节估算
+        return 16 + chunk.data.length + 5 * (16 + 4L * BLOCKS_PER_CHUNK) + 16 + 8L * BLOCKS_PER_CHUNK + 48;
+    }
+
+    // 估算占用的堆内存，包括写入块的原始数组
+    public long memoryBytes() {
+        long hotBytes = 5 * 16 + (long) CHUNK_SIZE * (8 + 4 * 4);
+        return sealedBytes + 4L * sealed.length + hotBytes;
+    }
+
+    public double bytesPerFix() {
+        int n = size;
+        return n == 0 ? 0 : (double) memoryBytes() / n;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // 读取游标，缓存最近解码的一组点，顺序访问时每组只解码一次
+    public final class Cursor {
+        private final long[] time = new long[BLOCK_SIZE];
+        private final int[] lat = new int[BLOCK_SIZE];
+        private final int[] lon = new int[BLOCK_SIZE];
+        private final int[] height = new int[BLOCK_SIZE];
+        private final int[] hAcc = new int[BLOCK_SIZE];
+        // 已缓存的全局组号，-1 表示没有缓存
+        private int cachedBlock = -1;
+        private int slot;
+        private HotChunk hotChunk;
+        private int hotIndex;
+        // 解码 varint 时的返回值
+        private long value;
+
+        private Cursor() {
+        }
+
+        // 定位到第 index 个点，越界时返回 false
+        public boolean moveTo(int index) {
+            if (index < 0 || index >= size) {
+                return false;
+            }
+            int chunkNumber = index >> CHUNK_SHIFT;
+            if (chunkNumber >= sealedCount) {
+                HotChunk chunk = hot;
+                // 读取期间该块可能刚被压缩，这时改从压缩块读取
+                if (chunkNumber >= sealedCount) {
+                    hotChunk = chunk;
+                    hotIndex = index & (CHUNK_SIZE - 1);
+                    return true;
+                }
+            }
+            hotChunk = null;
+            int block = index >> BLOCK_SHIFT;
+            if (block != cachedBlock) {
+                decode(sealed[chunkNumber], block);
+            }
+            slot = index & (BLOCK_SIZE - 1);
+            return true;
+        }
+
+        private void decode(SealedChunk chunk, int block) {
+            int b = block & (BLOCKS_PER_CHUNK - 1);
+            time[0] = chunk.blockTime[b];
+            lat[0] = chunk.blockLat[b];
+            lon[0] = chunk.blockLon[b];
+            height[0] = chunk.blockHeight[b];
+            hAcc[0] = chunk.blockHAcc[b];
+            byte[] data = chunk.data;
+            int p = chunk.blockOffset[b];
+            for (int i = 1; i < BLOCK_SIZE; i++) {
+                p = readVarLong(data, p);
+                time[i] = time[i - 1] + unzigzag(value);
+                p = readVarLong(data, p);
+                lat[i] = lat[i - 1] + unzigzag((int) value);
+                p = readVarLong(data, p);
+                lon[i] = lon[i - 1] + unzigzag((int) value);
+                p = readVarLong(data, p);
+                height[i] = height[i - 1] + unzigzag((int) value);
+                p = readVarLong(data, p);
+                hAcc[i] = hAcc[i - 1] + unzigzag((int) value);
+            }
+            cachedBlock = block;
+        }
+
+        private int readVarLong(byte[] data, int p) {
+            long v = 0;
+            int shift = 0;
+            byte x;
+            do {
+                x = data[p++];
+                v |= (long) (x & 0x7F) << shift;
+                shift += 7;
+            } while (x < 0);
+            value = v;
+            return p;
+        }
+
+        public long timeMs() {
+            return hotChunk != null ? hotChunk.time[hotIndex] : time[slot];
+        }
+
+        public int latE7() {
+            return hotChunk != null ? hotChunk.lat[hotIndex] : lat[slot];
+        }
+
+        public int lonE7() {
+            return hotChunk != null ? hotChunk.lon[hotIndex] : lon[slot];
+        }
+
+        public int heightMm() {
+            return hotChunk != null ? hotChunk.height[hotIndex] : height[slot];
+        }
+
+        public int hAccMm() {
+            return hotChunk != null ? hotChunk.hAcc[hotIndex] : hAcc[slot];
+        }
+    }
+
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int writeVarInt(byte[] out, int p, int v) {
+        while ((v & ~0x7F) != 0) {
+            out[p++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[p++] = (byte) v;
+        return p;
+    }
+
+    private static int writeVarLong(byte[] out, int p, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out[p++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[p++] = (byte) v;
+        return p;
+    }
+}
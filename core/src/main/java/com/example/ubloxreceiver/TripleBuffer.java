@@ -0,0 +1,48 @@
+package com.example.ubloxreceiver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 三缓冲的"最新值优先"通道：生产者写后台缓冲区后发布，消费者只取最新发布的值
+// 中间未被消费的值直接被覆盖，读写双方都不会阻塞，也不分配对象
+// 单生产者/单消费者
+public class TripleBuffer<T> {
+
+    private static final int DIRTY = 0x4;
+    private static final int INDEX_MASK = 0x3;
+
+    private final Object[] buffers;
+    // 低两位为中间缓冲区的下标，DIRTY 表示中间缓冲区有未读取的新值
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    public TripleBuffer(T first, T second, T third) {
+        buffers = new Object[]{first, second, third};
+    }
+
+    // 生产者：取得可写的缓冲区
+    @SuppressWarnings("unchecked")
+    public T writeBuffer() {
+        return (T) buffers[back];
+    }
+
+    // 生产者：发布写好的缓冲区，覆盖尚未被读取的旧值
+    public void publish() {
+        back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+    }
+
+    // 消费者：有新值时切换到最新的缓冲区并返回 true
+    public boolean update() {
+        if ((middle.get() & DIRTY) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    // 消费者：当前可读的缓冲区，在下一次 update() 前保持不变
+    @SuppressWarnings("unchecked")
+    public T readBuffer() {
+        return (T) buffers[front];
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ubloxreceiver;
+
+// UBX 为小端字节序，以下方法直接读写缓冲区中的字段，不做边界检查
+public final class UbxBytes {
+
+    private UbxBytes() {
+    }
+
+    // 将字节数组转换为整数 byte和int都带符号位，4 字节时不用管符号位
+    public static int byteArrayToInt(byte[] bytes, int offset, int length) {
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (bytes[offset + i] & 0xFF) << (i * 8);
+        }
+        return value;
+    }
+
+    public static int u1(byte[] bytes, int offset) {
+        return bytes[offset] & 0xFF;
+    }
+
+    public static int i1(byte[] bytes, int offset) {
+        return bytes[offset];
+    }
+
+    public static int u2(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    public static int i2(byte[] bytes, int offset) {
+        return (short) u2(bytes, offset);
+    }
+
+    public static int i4(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+                | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16
+                | bytes[offset + 3] << 24;
+    }
+
+    public static long u4(byte[] bytes, int offset) {
+        return i4(bytes, offset) & 0xFFFFFFFFL;
+    }
+
+    // 以小端写入 value 的低 size 个字节
+    public static void put(byte[] bytes, int offset, long value, int size) {
+        for (int i = 0; i < size; i++) {
+            bytes[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ubloxreceiver;
+
+// UBX 的 8 位 Fletcher 校验和，范围为 class、id、长度和负载
+public final class UbxChecksum {
+
+    private UbxChecksum() {
+    }
+
+    // 计算 buffer[offset, offset + length) 的校验和，返回 ckA | ckB << 8
+    public static int compute(byte[] buffer, int offset, int length) {
+        return update(0, buffer, offset, length);
+    }
+
+    // 环形缓冲区中从流位置 position 开始的 length 个字节的校验和，ring 的容量为 mask + 1（2 的幂）。
+    // UbxFrameReassembler 用它直接校验环形缓冲区中的帧，跨过缓冲区末尾时分两段累计
+    public static int compute(byte[] ring, int mask, long position, int length) {
+        int index = (int) (position & mask);
+        int first = Math.min(length, ring.length - index);
+        int checksum = update(0, ring, index, first);
+        return first == length ? checksum : update(checksum, ring, 0, length - first);
+    }
+
+    // 从已有的校验和 ckA | ckB << 8 继续累计；中间值溢出不影响低 8 位
+    private static int update(int checksum, byte[] buffer, int offset, int length) {
+        int ckA = checksum & 0xFF;
+        int ckB = checksum >> 8;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            ckA += buffer[i] & 0xFF;
+            ckB += ckA;
+        }
+        return (ckA & 0xFF) | (ckB & 0xFF) << 8;
+    }
+
+    // 校验以 frame[offset] 开头的一整帧（含同步头和校验和）
+    public static boolean isValid(byte[] frame, int offset, int length) {
+        if (length < UbxFrameReassembler.FRAME_OVERHEAD
+                || (frame[offset] & 0xFF) != UbxFrameReassembler.SYNC_CHAR_1
+                || (frame[offset + 1] & 0xFF) != UbxFrameReassembler.SYNC_CHAR_2
+                || UbxBytes.u2(frame, offset + 4) != length - UbxFrameReassembler.FRAME_OVERHEAD) {
+            return false;
+        }
+        int checksum = compute(frame, offset + 2, length - 4);
+        return checksum == UbxBytes.u2(frame, offset + length - 2);
+    }
+
+    // 在已写好头部和负载的帧末尾填入校验和
+    public static void fill(byte[] frame, int offset, int length) {
+        int checksum = compute(frame, offset + 2, length - 4);
+        frame[offset + length - 2] = (byte) checksum;
+        frame[offset + length - 1] = (byte) (checksum >> 8);
+    }
+}
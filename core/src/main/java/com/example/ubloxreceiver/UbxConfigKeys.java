@@ -0,0 +1,48 @@
+package com.example.ubloxreceiver;
+
+// 常用的配置项 ID（u-blox 9 代及以后的配置接口）
+// ID 的 28~30 位表示值的长度：1 = 1 位（占 1 字节），2 = 1 字节，3 = 2 字节，4 = 4 字节，5 = 8 字节
+public final class UbxConfigKeys {
+
+    private UbxConfigKeys() {
+    }
+
+    // 测量周期，ms（U2）
+    public static final int RATE_MEAS = 0x30210001;
+    // 每次导航解算包含的测量次数（U2）
+    public static final int RATE_NAV = 0x30210002;
+
+    // USB 口输出协议（L）
+    public static final int USBOUTPROT_UBX = 0x10780001;
+    public static final int USBOUTPROT_NMEA = 0x10780002;
+    public static final int USBOUTPROT_RTCM3X = 0x10780004;
+    // USB 口输入协议（L）
+    public static final int USBINPROT_UBX = 0x10770001;
+    public static final int USBINPROT_NMEA = 0x10770002;
+    public static final int USBINPROT_RTCM3X = 0x10770004;
+
+    // USB 口上各消息的输出频率，每多少次导航解算输出一次，0 为不输出（U1）
+    public static final int MSGOUT_NAV_PVT_USB = 0x20910009;
+    public static final int MSGOUT_NAV_POSLLH_USB = 0x2091002c;
+    public static final int MSGOUT_NAV_SAT_USB = 0x20910018;
+    public static final int MSGOUT_NAV_STATUS_USB = 0x2091001d;
+    public static final int MSGOUT_NAV_DOP_USB = 0x2091003b;
+    public static final int MSGOUT_NAV_TIMEUTC_USB = 0x2091005e;
+
+    // 配置项的值占用的字节数，ID 中的长度字段无效时返回 -1
+    public static int valueSize(int key) {
+        switch ((key >>> 28) & 0x07) {
+            case 1:
+            case 2:
+                return 1;
+            case 3:
+                return 2;
+            case 4:
+                return 4;
+            case 5:
+                return 8;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ubloxreceiver;
+
+// 命名的配置方案：一组配置项，连接时整体写入接收机
+public class UbxConfigProfile {
+
+    // 20 Hz 导航，USB 口只输出 UBX-NAV-PVT，关闭 NMEA 和其他 NAV 消息
+    public static final UbxConfigProfile NAV_PVT_20HZ = new UbxConfigProfile("20 Hz NAV-PVT only")
+            .set(UbxConfigKeys.RATE_MEAS, 50)
+            .set(UbxConfigKeys.RATE_NAV, 1)
+            .set(UbxConfigKeys.USBOUTPROT_UBX, 1)
+            .set(UbxConfigKeys.USBOUTPROT_NMEA, 0)
+            .set(UbxConfigKeys.MSGOUT_NAV_PVT_USB, 1)
+            .set(UbxConfigKeys.MSGOUT_NAV_POSLLH_USB, 0)
+            .set(UbxConfigKeys.MSGOUT_NAV_SAT_USB, 0)
+            .set(UbxConfigKeys.MSGOUT_NAV_STATUS_USB, 0)
+            .set(UbxConfigKeys.MSGOUT_NAV_DOP_USB, 0)
+            .set(UbxConfigKeys.MSGOUT_NAV_TIMEUTC_USB, 0);
+
+    // 1 Hz，输出 PVT 和卫星信息，用于诊断
+    public static final UbxConfigProfile DIAGNOSTIC_1HZ = new UbxConfigProfile("1 Hz PVT + SAT + DOP")
+            .set(UbxConfigKeys.RATE_MEAS, 1000)
+            .set(UbxConfigKeys.RATE_NAV, 1)
+            .set(UbxConfigKeys.USBOUTPROT_UBX, 1)
+            .set(UbxConfigKeys.MSGOUT_NAV_PVT_USB, 1)
+            .set(UbxConfigKeys.MSGOUT_NAV_SAT_USB, 1)
+            .set(UbxConfigKeys.MSGOUT_NAV_DOP_USB, 1)
+            .set(UbxConfigKeys.MSGOUT_NAV_STATUS_USB, 1);
+
+    private static final UbxConfigProfile[] BUILT_IN = {NAV_PVT_20HZ, DIAGNOSTIC_1HZ};
+
+    private final String name;
+    // 配置层在写入时再指定，这里只用来保存配置项
+    private final CfgValset items = new CfgValset(CfgValset.LAYER_RAM);
+
+    public UbxConfigProfile(String name) {
+        this.name = name;
+    }
+
+    public UbxConfigProfile set(int key, long value) {
+        items.set(key, value);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    // 生成写入 layers 层的 CFG-VALSET
+    public CfgValset toValset(int layers) {
+        CfgValset valset = new CfgValset(layers);
+        for (int i = 0; i < items.size(); i++) {
+            valset.set(items.key(i), items.value(i));
+        }
+        return valset;
+    }
+
+    // 按名称查找内置方案，找不到返回 null
+    public static UbxConfigProfile byName(String name) {
+        for (UbxConfigProfile profile : BUILT_IN) {
+            if (profile.name.equals(name)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
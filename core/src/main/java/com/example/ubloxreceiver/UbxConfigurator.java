@@ -0,0 +1,220 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 向接收机发送配置消息，并把 ACK-ACK / ACK-NAK 应答对应到发出的请求
+// 应答只带被应答消息的 class/id，接收机按收到的顺序处理，所以按 class/id 匹配最早的未完成请求。
+// send() 不等待应答，可以同时有多个请求在途；应答在解码线程中处理（register() 到解码器上），
+// 调用方用 Request.await() 等待结果，超时的请求从队列中移除，不会误领后面的应答
+public class UbxConfigurator {
+
+    public static final int DEFAULT_TIMEOUT_MS = 1000;
+
+    public enum State {PENDING, ACKED, NAKED, TIMED_OUT}
+
+    public final class Request {
+        private final int messageClass;
+        private final int messageId;
+        private final long deadlineNanos;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile State state = State.PENDING;
+        // CFG-VALGET 的应答帧（复制）
+        private volatile byte[] response;
+
+        private Request(byte[] frame, int timeoutMs) {
+            this.messageClass = UbxFrames.messageClass(frame);
+            this.messageId = UbxFrames.messageId(frame);
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        }
+
+        public State state() {
+            return state;
+        }
+
+        // 最多等到请求的截止时间，返回是否收到 ACK-ACK
+        public boolean await() throws InterruptedException {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (!done.await(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                expire(this);
+            }
+            return state == State.ACKED;
+        }
+
+        // 读取请求的应答帧，用 CfgValgetView 解析；其他请求或没有应答时为 null
+        public byte[] response() {
+            return response;
+        }
+
+        private boolean complete(State result) {
+            // 超时和应答可能同时发生，只有第一个生效
+            synchronized (this) {
+                if (state != State.PENDING) {
+                    return false;
+                }
+                state = result;
+            }
+            done.countDown();
+            return true;
+        }
+    }
+
+    private final ByteSink sink;
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+
+    // 应答计数只在解码线程中更新；超时可能在等待线程中发现
+    private volatile long ackCount;
+    private volatile long nakCount;
+    private volatile long unmatchedCount;
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    public UbxConfigurator(ByteSink sink) {
+        this.sink = sink;
+    }
+
+    // 在解码器上注册应答处理，需在解码开始前调用
+    public void register(UbxDecoder decoder) {
+        decoder.register(new AckView(AckView.ID_ACK), this::onAck);
+        decoder.register(new AckView(AckView.ID_NAK), this::onAck);
+        decoder.register(new CfgValgetView(), this::onValget);
+    }
+
+    // 发送一帧，返回对应的请求；写入失败时抛出 IOException
+    public Request send(byte[] frame, int timeoutMs) throws IOException {
+        Request request = new Request(frame, timeoutMs);
+        // 先入队再发送，否则应答可能比入队还快
+        synchronized (pending) {
+            pending.addLast(request);
+        }
+        try {
+            sink.write(frame, 0, frame.length, timeoutMs);
+        } catch (IOException e) {
+            synchronized (pending) {
+                pending.remove(request);
+            }
+            throw e;
+        }
+        return request;
+    }
+
+    // 发送一组 CFG-VALSET 并等待全部应答；全部 ACK 返回 true，任何一条 NAK 或超时返回 false
+    public boolean apply(CfgValset valset, int timeoutMs) throws IOException, InterruptedException {
+        List<byte[]> frames = valset.toFrames();
+        Request[] requests = new Request[frames.size()];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = send(frames.get(i), timeoutMs);
+        }
+        boolean ok = true;
+        for (Request request : requests) {
+            ok &= request.await();
+        }
+        return ok;
+    }
+
+    // 把方案写入 RAM 层，断电后恢复接收机原有配置
+    public boolean apply(UbxConfigProfile profile, int timeoutMs) throws IOException, InterruptedException {
+        return apply(profile.toValset(CfgValset.LAYER_RAM), timeoutMs);
+    }
+
+    // 读取配置项，应答帧通过 Request.response() 取得
+    public Request poll(int layer, int timeoutMs, int... keys) throws IOException {
+        return send(CfgValgetView.request(layer, 0, keys), timeoutMs);
+    }
+
+    private void onAck(AckView ack) {
+        Request request = take(ack.clsID(), ack.msgID());
+        if (request == null) {
+            unmatchedCount++;
+            return;
+        }
+        if (ack.isAck()) {
+            ackCount++;
+            request.complete(State.ACKED);
+        } else {
+            nakCount++;
+            request.complete(State.NAKED);
+        }
+    }
+
+    // VALGET 的应答先于 ACK-ACK 到达，交给最早的未完成 VALGET 请求
+    private void onValget(CfgValgetView valget) {
+        synchronized (pending) {
+            for (Request request : pending) {
+                if (request.messageClass == CfgValgetView.MESSAGE_CLASS
+                        && request.messageId == CfgValgetView.MESSAGE_ID
+                        && request.response == null) {
+                    byte[] frame = UbxFrames.build(CfgValgetView.MESSAGE_CLASS, CfgValgetView.MESSAGE_ID,
+                            copyPayload(valget), valget.payloadLength());
+                    request.response = frame;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static byte[] copyPayload(CfgValgetView view) {
+        byte[] payload = new byte[view.payloadLength()];
+        System.arraycopy(view.buffer, view.payloadOffset, payload, 0, payload.length);
+        return payload;
+    }
+
+    // 取出最早的匹配请求，顺便清理已过截止时间的请求
+    private Request take(int messageClass, int messageId) {
+        long now = System.nanoTime();
+        synchronized (pending) {
+            Iterator<Request> it = pending.iterator();
+            while (it.hasNext()) {
+                Request request = it.next();
+                if (now - request.deadlineNanos > 0) {
+                    it.remove();
+                    if (request.complete(State.TIMED_OUT)) {
+                        timeoutCount.incrementAndGet();
+                    }
+                    continue;
+                }
+                if (request.messageClass == messageClass && request.messageId == messageId) {
+                    it.remove();
+                    return request;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void expire(Request request) {
+        synchronized (pending) {
+            pending.remove(request);
+        }
+        if (request.complete(State.TIMED_OUT)) {
+            timeoutCount.incrementAndGet();
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getAckCount() {
+        return ackCount;
+    }
+
+    public long getNakCount() {
+        return nakCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    // 没有对应请求的应答（例如已超时的请求迟到的应答）
+    public long getUnmatchedCount() {
+        return unmatchedCount;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.ubloxreceiver;
+
+// UBX 消息分发表：按 class/id 查找已注册的享元视图并回调处理器
+// 作为 UbxFrameReassembler 的监听器使用，输入的帧已经过校验
+// 未注册的消息只读取 class/id 后直接跳过。非线程安全，注册应在开始解码前完成
+public class UbxDecoder implements UbxFrameReassembler.FrameListener {
+
+    public interface MessageHandler<V extends UbxMessageView> {
+        void onMessage(V message);
+    }
+
+    private static final class Entry<V extends UbxMessageView> {
+        final V view;
+        final MessageHandler<? super V> handler;
+
+        Entry(V view, MessageHandler<? super V> handler) {
+            this.view = view;
+            this.handler = handler;
+        }
+
+        void dispatch() {
+            handler.onMessage(view);
+        }
+    }
+
+    // 两级表：第一级按 class，第二级按 id，第二级按需创建
+    private final Entry<?>[][] table = new Entry<?>[256][];
+
+    private long decodedCount;
+    private long unknownCount;
+    private long malformedCount;
+
+    public <V extends UbxMessageView> void register(V view, MessageHandler<? super V> handler) {
+        Entry<?>[] row = table[view.messageClass()];
+        if (row == null) {
+            row = new Entry<?>[256];
+            table[view.messageClass()] = row;
+        }
+        row[view.messageId()] = new Entry<>(view, handler);
+    }
+
+    public void unregister(int messageClass, int messageId) {
+        Entry<?>[] row = table[messageClass & 0xFF];
+        if (row != null) {
+            row[messageId & 0xFF] = null;
+        }
+    }
+
+    @Override
+    public void onFrame(byte[] frame, int offset, int length) {
+        Entry<?>[] row = table[frame[offset + 2] & 0xFF];
+        Entry<?> entry = row == null ? null : row[frame[offset + 3] & 0xFF];
+        if (entry == null) {
+            unknownCount++;
+            return;
+        }
+        int payloadOffset = offset + UbxFrameReassembler.HEADER_LENGTH;
+        int payloadLength = length - UbxFrameReassembler.FRAME_OVERHEAD;
+        entry.view.wrap(frame, payloadOffset, payloadLength);
+        if (!entry.view.isValid()) {
+            malformedCount++;
+            return;
+        }
+        decodedCount++;
+        entry.dispatch();
+    }
+
+    public long getDecodedCount() {
+        return decodedCount;
+    }
+
+    public long getUnknownCount() {
+        return unknownCount;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+}
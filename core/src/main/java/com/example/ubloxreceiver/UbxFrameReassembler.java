@@ -0,0 +1,349 @@
+package com.example.ubloxreceiver;
+
+// UBX 帧重组器：把任意切分的 USB 数据块拼成完整的 UBX 帧
+// 数据先写入可复用的环形缓冲区，再从中寻找 0xB5 0x62 同步头，校验长度和 Fletcher 校验和，
+// 合法的帧直接以环形缓冲区中的位置回调监听器，只有跨越缓冲区末尾的帧才拷贝到帧缓冲区。整个过程不分配对象。
+// 设置了 NMEA / RTCM3 监听器时，同一遍扫描还识别 '$' 开头的 NMEA 语句（异或校验和）和 0xD3 开头的
+// RTCM3 帧（CRC-24Q），分别回调各自的监听器；没有设置监听器的协议按垃圾数据跳过，行为和只认 UBX 时相同。
+// 非线程安全：push() 只能由同一个线程调用，监听器应在开始 push() 之前设置
+public class UbxFrameReassembler {
+
+    public static final int SYNC_CHAR_1 = 0xB5;
+    public static final int SYNC_CHAR_2 = 0x62;
+    // 头部：同步字节(2) + class(1) + id(1) + 长度(2)
+    public static final int HEADER_LENGTH = 6;
+    // 头部 + 校验和(2)
+    public static final int FRAME_OVERHEAD = 8;
+    // 默认允许的最大负载长度，足够容纳 NAV-SAT / RXM-RAWX 等较长的消息
+    public static final int DEFAULT_MAX_PAYLOAD = 4096;
+
+    // 收到完整合法帧时回调，frame 在回调返回后会被覆盖，不要保存引用
+    public interface FrameListener {
+        void onFrame(byte[] frame, int offset, int length);
+    }
+
+    // 校验和正确的 NMEA 语句，sentence 只在回调期间有效
+    public interface NmeaListener {
+        void onSentence(NmeaSentence sentence);
+    }
+
+    // CRC 正确的 RTCM3 帧（含头部和 CRC），frame 在回调返回后会被覆盖
+    public interface RtcmListener {
+        void onRtcmFrame(byte[] frame, int offset, int length);
+    }
+
+    private final byte[] ring;
+    private final int mask;
+    private final int maxPayload;
+    private final byte[] frameBuffer;
+    private FrameListener listener;
+    private NmeaListener nmeaListener;
+    private RtcmListener rtcmListener;
+    private final NmeaSentence sentence = new NmeaSentence();
+
+    // head/tail 为累计的流位置，取下标时和 mask 相与
+    private long head;
+    private long tail;
+    // 是否处于失步状态，用于统计重新同步的次数
+    private boolean outOfSync;
+    private long frameStreamOffset;
+    // 正在扫描的 NMEA 语句：起点、已扫描到的位置、已累计的校验和、'*' 的位置；数据不够时下次从断点继续
+    private long nmeaHead = -1;
+    private long nmeaScan;
+    private int nmeaChecksum;
+    private long nmeaStar;
+
+    // 统计
+    private long frameCount;
+    private long resyncCount;
+    private long checksumErrorCount;
+    private long oversizedFrameCount;
+    private long discardedBytes;
+    private long nmeaCount;
+    private long nmeaChecksumErrorCount;
+    private long rtcmCount;
+    private long rtcmCrcErrorCount;
+
+    public UbxFrameReassembler(FrameListener listener) {
+        this(listener, DEFAULT_MAX_PAYLOAD);
+    }
+
+    public UbxFrameReassembler(FrameListener listener, int maxPayload) {
+        if (maxPayload <= 0 || maxPayload > 0xFFFF) {
+            throw new IllegalArgumentException("maxPayload out of range: " + maxPayload);
+        }
+        this.listener = listener;
+        this.maxPayload = maxPayload;
+        int maxFrame = Math.max(maxPayload + FRAME_OVERHEAD, Math.max(Rtcm3.MAX_FRAME, NmeaSentence.MAX_LENGTH));
+        this.frameBuffer = new byte[maxFrame];
+        // 环形缓冲区至少能放下两个最大帧，取 2 的幂方便取模
+        int capacity = Integer.highestOneBit(maxFrame * 2 - 1) << 1;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public void setListener(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    // 设置后开始识别 NMEA 语句；null 表示按垃圾数据跳过
+    public void setNmeaListener(NmeaListener nmeaListener) {
+        this.nmeaListener = nmeaListener;
+    }
+
+    // 设置后开始识别 RTCM3 帧；null 表示按垃圾数据跳过
+    public void setRtcmListener(RtcmListener rtcmListener) {
+        this.rtcmListener = rtcmListener;
+    }
+
+    // 输入一段任意长度的数据，期间解析出的所有完整帧都会立即回调
+    public void push(byte[] data, int offset, int length) {
+        while (length > 0) {
+            int free = ring.length - (int) (tail - head);
+            int n = Math.min(free, length);
+            int index = (int) (tail & mask);
+            int first = Math.min(n, ring.length - index);
+            System.arraycopy(data, offset, ring, index, first);
+            System.arraycopy(data, offset + first, ring, 0, n - first);
+            tail += n;
+            offset += n;
+            length -= n;
+            drain();
+        }
+    }
+
+    // 丢弃缓冲区中尚未组成帧的数据，并回到初始状态
+    public void reset() {
+        discardedBytes += tail - head;
+        head = tail;
+        outOfSync = false;
+        nmeaHead = -1;
+    }
+
+    private void drain() {
+        while (true) {
+            long available = tail - head;
+            if (available < 2) {
+                return;
+            }
+            int first = at(head);
+            boolean complete;
+            if (first == SYNC_CHAR_1 && at(head + 1) == SYNC_CHAR_2) {
+                complete = drainUbx(available);
+            } else if (first == '$' && nmeaListener != null) {
+                complete = drainNmea(available);
+            } else if (first == Rtcm3.PREAMBLE && rtcmListener != null) {
+                complete = drainRtcm(available);
+            } else {
+                skip();
+                continue;
+            }
+            if (!complete) {
+                return;
+            }
+        }
+    }
+
+    // 以下三个方法处理 head 处的候选帧：回调或跳过一个字节后返回 true，数据不够时返回 false
+
+    private boolean drainUbx(long available) {
+        if (available < HEADER_LENGTH) {
+            return false;
+        }
+        int payloadLength = at(head + 4) | (at(head + 5) << 8);
+        if (payloadLength > maxPayload) {
+            // 长度超出上限，多半是数据中碰巧出现的同步头
+            oversizedFrameCount++;
+            skip();
+            return true;
+        }
+        int frameLength = payloadLength + FRAME_OVERHEAD;
+        if (available < frameLength) {
+            return false;
+        }
+        // Fletcher-8 校验，范围为 class、id、长度和负载
+        long end = head + HEADER_LENGTH + payloadLength;
+        int checksum = UbxChecksum.compute(ring, mask, head + 2, HEADER_LENGTH - 2 + payloadLength);
+        if (checksum != (at(end) | at(end + 1) << 8)) {
+            checksumErrorCount++;
+            skip();
+            return true;
+        }
+        int offset = frameAt(frameLength);
+        frameCount++;
+        if (listener != null) {
+            listener.onFrame(offset < 0 ? frameBuffer : ring, Math.max(offset, 0), frameLength);
+        }
+        return true;
+    }
+
+    private boolean drainNmea(long available) {
+        if (nmeaHead != head) {
+            nmeaHead = head;
+            nmeaScan = head + 1;
+            nmeaChecksum = 0;
+            nmeaStar = -1;
+        }
+        // 逐字节累计 '$' 之后、'*' 之前的可打印字符
+        while (nmeaStar < 0) {
+            if (nmeaScan - head > NmeaSentence.MAX_LENGTH - 5) {
+                skip();
+                return true;
+            }
+            if (nmeaScan == tail) {
+                return false;
+            }
+            int c = at(nmeaScan);
+            if (c == '*') {
+                nmeaStar = nmeaScan;
+            } else if (c < 0x20 || c > 0x7E || c == '$') {
+                skip();
+                return true;
+            } else {
+                nmeaChecksum ^= c;
+                nmeaScan++;
+            }
+        }
+        // "*hh\r\n"
+        int length = (int) (nmeaStar + 5 - head);
+        if (available < length) {
+            return false;
+        }
+        int high = hexValue(at(nmeaStar + 1));
+        int low = hexValue(at(nmeaStar + 2));
+        if (high < 0 || low < 0 || at(nmeaStar + 3) != '\r' || at(nmeaStar + 4) != '\n') {
+            skip();
+            return true;
+        }
+        if ((high << 4 | low) != nmeaChecksum) {
+            nmeaChecksumErrorCount++;
+            skip();
+            return true;
+        }
+        int starIndex = (int) (nmeaStar - head);
+        int offset = frameAt(length);
+        nmeaCount++;
+        sentence.wrap(offset < 0 ? frameBuffer : ring, Math.max(offset, 0), length, starIndex);
+        nmeaListener.onSentence(sentence);
+        return true;
+    }
+
+    private boolean drainRtcm(long available) {
+        if (available < Rtcm3.HEADER_LENGTH) {
+            return false;
+        }
+        // 保留位不为 0 的不是 RTCM3
+        if ((at(head + 1) & 0xFC) != 0) {
+            skip();
+            return true;
+        }
+        int payloadLength = (at(head + 1) & 0x03) << 8 | at(head + 2);
+        int frameLength = payloadLength + Rtcm3.FRAME_OVERHEAD;
+        if (available < frameLength) {
+            return false;
+        }
+        int crc = 0;
+        long end = head + Rtcm3.HEADER_LENGTH + payloadLength;
+        for (long p = head; p < end; p++) {
+            crc = Rtcm3.crc24qUpdate(crc, at(p));
+        }
+        if (crc != (at(end) << 16 | at(end + 1) << 8 | at(end + 2))) {
+            rtcmCrcErrorCount++;
+            skip();
+            return true;
+        }
+        int offset = frameAt(frameLength);
+        rtcmCount++;
+        rtcmListener.onRtcmFrame(offset < 0 ? frameBuffer : ring, Math.max(offset, 0), frameLength);
+        return true;
+    }
+
+    // 接受 head 处长为 length 的帧并越过它：帧在环形缓冲区中连续时返回它的下标，
+    // 否则拷贝到帧缓冲区并返回 -1。回调返回之前不会再写入环形缓冲区，帧数据不会被覆盖
+    private int frameAt(int length) {
+        int index = (int) (head & mask);
+        frameStreamOffset = head;
+        head += length;
+        outOfSync = false;
+        if (index + length <= ring.length) {
+            return index;
+        }
+        copyOut(frameStreamOffset, length);
+        return -1;
+    }
+
+    private static int hexValue(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    // 跳过一个字节继续寻找同步头
+    private void skip() {
+        if (!outOfSync) {
+            outOfSync = true;
+            resyncCount++;
+        }
+        head++;
+        discardedBytes++;
+    }
+
+    private int at(long position) {
+        return ring[(int) (position & mask)] & 0xFF;
+    }
+
+    private void copyOut(long position, int length) {
+        int index = (int) (position & mask);
+        int first = Math.min(length, ring.length - index);
+        System.arraycopy(ring, index, frameBuffer, 0, first);
+        System.arraycopy(ring, 0, frameBuffer, first, length - first);
+    }
+
+    // 最近一次回调的帧（任何协议）在整个输入流中的起始位置
+    public long getFrameStreamOffset() {
+        return frameStreamOffset;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getResyncCount() {
+        return resyncCount;
+    }
+
+    public long getChecksumErrorCount() {
+        return checksumErrorCount;
+    }
+
+    public long getOversizedFrameCount() {
+        return oversizedFrameCount;
+    }
+
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    public long getNmeaSentenceCount() {
+        return nmeaCount;
+    }
+
+    public long getNmeaChecksumErrorCount() {
+        return nmeaChecksumErrorCount;
+    }
+
+    public long getRtcmFrameCount() {
+        return rtcmCount;
+    }
+
+    public long getRtcmCrcErrorCount() {
+        return rtcmCrcErrorCount;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.ubloxreceiver;
+
+// 构造要发送给接收机的 UBX 帧
+public final class UbxFrames {
+
+    private UbxFrames() {
+    }
+
+    // 用 payload[0, length) 构造一整帧：同步头、class、id、长度、负载和校验和
+    public static byte[] build(int messageClass, int messageId, byte[] payload, int length) {
+        byte[] frame = new byte[length + UbxFrameReassembler.FRAME_OVERHEAD];
+        frame[0] = (byte) UbxFrameReassembler.SYNC_CHAR_1;
+        frame[1] = (byte) UbxFrameReassembler.SYNC_CHAR_2;
+        frame[2] = (byte) messageClass;
+        frame[3] = (byte) messageId;
+        UbxBytes.put(frame, 4, length, 2);
+        System.arraycopy(payload, 0, frame, UbxFrameReassembler.HEADER_LENGTH, length);
+        UbxChecksum.fill(frame, 0, frame.length);
+        return frame;
+    }
+
+    public static int messageClass(byte[] frame) {
+        return frame[2] & 0xFF;
+    }
+
+    public static int messageId(byte[] frame) {
+        return frame[3] & 0xFF;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ubloxreceiver;
+
+// 享元视图：不拷贝数据，直接从帧缓冲区按偏移读取字段
+// 每种消息只创建一个实例，wrap() 之后在回调期间有效
+public abstract class UbxMessageView {
+
+    protected byte[] buffer;
+    protected int payloadOffset;
+    protected int payloadLength;
+
+    public abstract int messageClass();
+
+    public abstract int messageId();
+
+    // 负载的最小长度，短于该长度的帧视为格式错误
+    public abstract int minPayloadLength();
+
+    // 负载长度是否和内容一致，变长消息可以重写
+    public boolean isValid() {
+        return payloadLength >= minPayloadLength();
+    }
+
+    public void wrap(byte[] buffer, int payloadOffset, int payloadLength) {
+        this.buffer = buffer;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    public int payloadLength() {
+        return payloadLength;
+    }
+
+    protected final int u1(int offset) {
+        return UbxBytes.u1(buffer, payloadOffset + offset);
+    }
+
+    protected final int i1(int offset) {
+        return UbxBytes.i1(buffer, payloadOffset + offset);
+    }
+
+    protected final int u2(int offset) {
+        return UbxBytes.u2(buffer, payloadOffset + offset);
+    }
+
+    protected final int i2(int offset) {
+        return UbxBytes.i2(buffer, payloadOffset + offset);
+    }
+
+    protected final int i4(int offset) {
+        return UbxBytes.i4(buffer, payloadOffset + offset);
+    }
+
+    protected final long u4(int offset) {
+        return UbxBytes.u4(buffer, payloadOffset + offset);
+    }
+}
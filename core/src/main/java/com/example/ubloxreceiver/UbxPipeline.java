@@ -0,0 +1,393 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 两级流水线：读取线程只负责把数据源的字节拷贝进 SPSC 环形缓冲区，
+// 解码线程批量取出数据、重组成帧后分发给所有订阅者。
+// 解码或订阅者变慢时，读取线程不会被阻塞（DROP_NEWEST），或者按策略等待（BLOCK）。
+// 两个循环可以各用一个专用线程（start()），也可以交给外部的线程池（start(Executor)），
+// 多台接收机共用一个有界线程池时每台仍然有自己的读取和解码任务，互不阻塞
+public class UbxPipeline {
+
+    public static final int DEFAULT_RING_CAPACITY = 64 * 1024;
+    public static final int READ_CHUNK = 4096;
+    public static final int DRAIN_BATCH = 4096;
+    public static final int READ_TIMEOUT_MS = 5000;
+
+    // 环形缓冲区满时的处理方式
+    public enum OverflowPolicy {
+        // 丢弃本次读到的数据块并计数，读取线程不停顿
+        DROP_NEWEST,
+        // 读取线程等待解码线程腾出空间
+        BLOCK
+    }
+
+    // 数据源状态回调，在读取线程中调用
+    // onStalled()/onResumed() 只在状态切换时各调用一次，持续超时不会反复回调
+    public interface SourceListener {
+        void onStalled();
+
+        void onResumed();
+
+        void onSourceError(IOException e);
+
+        void onSourceEnd();
+    }
+
+    // 在读取线程中直接拿到原始字节，必须立即返回，不能阻塞
+    public interface ByteTap {
+        void onBytes(byte[] buffer, int offset, int length);
+    }
+
+    private static final UbxFrameReassembler.FrameListener[] NO_SUBSCRIBERS = new UbxFrameReassembler.FrameListener[0];
+
+    private final ByteSource source;
+    private final SpscByteRing ring;
+    private final OverflowPolicy overflowPolicy;
+    private final UbxFrameReassembler framer;
+    private volatile UbxFrameReassembler.FrameListener[] subscribers = NO_SUBSCRIBERS;
+    private volatile SourceListener sourceListener;
+    private volatile ByteTap tap;
+    private volatile Runnable drainListener;
+
+    private volatile boolean running;
+    private volatile boolean readerDone;
+    // 正在执行读取/解码循环的线程，循环开始时设置，用于中断和唤醒
+    private volatile Thread readerThread;
+    private volatile Thread decodeThread;
+    // 两个循环退出时计数减一，stop() 和 awaitCompletion() 等待它们
+    private CountDownLatch readerExited = new CountDownLatch(0);
+    private CountDownLatch decodeExited = new CountDownLatch(0);
+    private final Object readerLock = new Object();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong droppedChunks = new AtomicLong();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    // 已进入环形缓冲区的累计字节数，只在读取线程中访问；和重组器的流位置一致
+    private long enqueuedBytes;
+    // 正在分发的帧所在那次读取的时间，只在解码线程中访问
+    private long frameReadNanos;
+
+    public UbxPipeline(ByteSource source) {
+        this(source, DEFAULT_RING_CAPACITY, OverflowPolicy.DROP_NEWEST);
+    }
+
+    public UbxPipeline(ByteSource source, int ringCapacity, OverflowPolicy overflowPolicy) {
+        this.source = source;
+        this.ring = new SpscByteRing(ringCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.framer = new UbxFrameReassembler(this::publish);
+    }
+
+    public void setSourceListener(SourceListener sourceListener) {
+        this.sourceListener = sourceListener;
+    }
+
+    // 原始字节分接口，例如记录器
+    public void setTap(ByteTap tap) {
+        this.tap = tap;
+    }
+
+    // 数据源结束或出错、剩余数据全部解码之后在解码线程中调用；stop() 停止时不调用
+    public void setDrainListener(Runnable drainListener) {
+        this.drainListener = drainListener;
+    }
+
+    // 订阅者在解码线程中被回调，帧数据只在回调期间有效
+    public synchronized void subscribe(UbxFrameReassembler.FrameListener subscriber) {
+        UbxFrameReassembler.FrameListener[] current = subscribers;
+        UbxFrameReassembler.FrameListener[] next = new UbxFrameReassembler.FrameListener[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = subscriber;
+        subscribers = next;
+    }
+
+    public synchronized void unsubscribe(UbxFrameReassembler.FrameListener subscriber) {
+        UbxFrameReassembler.FrameListener[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscriber) {
+                UbxFrameReassembler.FrameListener[] next = new UbxFrameReassembler.FrameListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscribers = next;
+                return;
+            }
+        }
+    }
+
+    // 用两个专用线程运行
+    public synchronized void start() {
+        launch(null);
+    }
+
+    // 在 executor 中运行读取和解码两个任务，executor 至少要能同时运行两个任务；
+    // 任务被拒绝时恢复到未启动状态并抛出 RejectedExecutionException
+    public synchronized void start(Executor executor) {
+        launch(executor);
+    }
+
+    private void launch(Executor executor) {
+        if (running) {
+            return;
+        }
+        running = true;
+        readerDone = false;
+        CountDownLatch readerLatch = new CountDownLatch(1);
+        CountDownLatch decodeLatch = new CountDownLatch(1);
+        readerExited = readerLatch;
+        decodeExited = decodeLatch;
+        Runnable decodeTask = () -> {
+            decodeThread = Thread.currentThread();
+            try {
+                decodeLoop();
+            } finally {
+                decodeThread = null;
+                decodeLatch.countDown();
+            }
+        };
+        Runnable readTask = () -> {
+            readerThread = Thread.currentThread();
+            try {
+                readLoop();
+            } finally {
+                // 线程池中的线程还要执行别的任务，清除后不能再被 stop() 中断
+                synchronized (readerLock) {
+                    readerThread = null;
+                    Thread.interrupted();
+                }
+                readerLatch.countDown();
+            }
+        };
+        try {
+            execute(executor, decodeTask, "ubx-decode");
+        } catch (RejectedExecutionException e) {
+            running = false;
+            readerLatch.countDown();
+            decodeLatch.countDown();
+            throw e;
+        }
+        try {
+            execute(executor, readTask, "ubx-reader");
+        } catch (RejectedExecutionException e) {
+            // 解码任务已经提交，让它把剩余数据处理完后自行退出
+            running = false;
+            readerDone = true;
+            readerLatch.countDown();
+            LockSupport.unpark(decodeThread);
+            throw e;
+        }
+    }
+
+    private static void execute(Executor executor, Runnable task, String name) {
+        if (executor == null) {
+            new Thread(task, name).start();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    // 停止两个循环并等待退出，不关闭数据源
+    public void stop() throws InterruptedException {
+        CountDownLatch reader;
+        CountDownLatch decoder;
+        synchronized (this) {
+            running = false;
+            reader = readerExited;
+            decoder = decodeExited;
+        }
+        synchronized (readerLock) {
+            Thread thread = readerThread;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        reader.await();
+        LockSupport.unpark(decodeThread);
+        decoder.await();
+    }
+
+    // 等待数据源读完并且数据全部解码，用于文件回放和测试
+    public boolean awaitCompletion(long timeoutMs) throws InterruptedException {
+        CountDownLatch decoder;
+        synchronized (this) {
+            decoder = decodeExited;
+        }
+        return decoder.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void readLoop() {
+        byte[] buffer = new byte[READ_CHUNK];
+        boolean stalled = false;
+        try {
+            while (running) {
+                int n;
+                try {
+                    n = source.read(buffer, 0, buffer.length, READ_TIMEOUT_MS);
+                } catch (IOException e) {
+                    if (running) {
+                        SourceListener listener = sourceListener;
+                        if (listener != null) {
+                            listener.onSourceError(e);
+                        }
+                    }
+                    return;
+                }
+                if (n < 0) {
+                    SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onSourceEnd();
+                    }
+                    return;
+                }
+                if (n == 0) {
+                    if (!stalled) {
+                        stalled = true;
+                        SourceListener listener = sourceListener;
+                        if (listener != null) {
+                            listener.onStalled();
+                        }
+                    }
+                    continue;
+                }
+                if (stalled) {
+                    stalled = false;
+                    SourceListener listener = sourceListener;
+                    if (listener != null) {
+                        listener.onResumed();
+                    }
+                }
+                long readNanos = System.nanoTime();
+                bytesRead.addAndGet(n);
+                metrics.recordRead(n);
+                ByteTap currentTap = tap;
+                if (currentTap != null) {
+                    currentTap.onBytes(buffer, 0, n);
+                }
+                boolean stamped = metrics.stampRead(enqueuedBytes + n, readNanos);
+                if (enqueue(buffer, n)) {
+                    enqueuedBytes += n;
+                    metrics.recordQueuedBytes(ring.size());
+                } else if (stamped) {
+                    metrics.unstampRead();
+                }
+            }
+        } finally {
+            readerDone = true;
+            LockSupport.unpark(decodeThread);
+        }
+    }
+
+    // 丢弃时返回 false
+    private boolean enqueue(byte[] buffer, int length) {
+        while (!ring.offer(buffer, 0, length)) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST || !running) {
+                droppedBytes.addAndGet(length);
+                droppedChunks.incrementAndGet();
+                return false;
+            }
+            LockSupport.unpark(decodeThread);
+            LockSupport.parkNanos(this, 100_000L);
+        }
+        LockSupport.unpark(decodeThread);
+        return true;
+    }
+
+    private void decodeLoop() {
+        byte[] batch = new byte[DRAIN_BATCH];
+        while (true) {
+            int n = ring.poll(batch, 0, batch.length);
+            if (n > 0) {
+                framer.push(batch, 0, n);
+                continue;
+            }
+            // 读取线程结束后把剩余数据处理完再退出
+            if (readerDone) {
+                n = ring.poll(batch, 0, batch.length);
+                if (n > 0) {
+                    framer.push(batch, 0, n);
+                    continue;
+                }
+                Runnable listener = drainListener;
+                if (listener != null && running) {
+                    listener.run();
+                }
+                return;
+            }
+            if (!running) {
+                return;
+            }
+            LockSupport.parkNanos(this, 10_000_000L);
+        }
+    }
+
+    private void publish(byte[] frame, int offset, int length) {
+        frameReadNanos = metrics.readNanosFor(framer.getFrameStreamOffset() + length);
+        metrics.recordFrame(frame[offset + 2] & 0xFF, frame[offset + 3] & 0xFF, frameReadNanos, System.nanoTime());
+        UbxFrameReassembler.FrameListener[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            current[i].onFrame(frame, offset, length);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    public long getDroppedChunks() {
+        return droppedChunks.get();
+    }
+
+    public int getQueuedBytes() {
+        return ring.size();
+    }
+
+    // 只在订阅者的回调中有效：当前帧最后一个字节从数据源读出时的 System.nanoTime()，没有记录时为 0
+    public long currentFrameReadNanos() {
+        return frameReadNanos;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 把本流水线的计数写入快照的一个通道
+    public MetricsSnapshot.Channel snapshot(String name) {
+        MetricsSnapshot.Channel channel = new MetricsSnapshot.Channel(name);
+        channel.bytesRead = getBytesRead();
+        channel.droppedBytes = getDroppedBytes();
+        channel.droppedChunks = getDroppedChunks();
+        channel.queuedBytes = getQueuedBytes();
+        channel.ringCapacity = ring.capacity();
+        channel.frames = framer.getFrameCount();
+        channel.checksumErrors = framer.getChecksumErrorCount();
+        channel.resyncs = framer.getResyncCount();
+        channel.oversizedFrames = framer.getOversizedFrameCount();
+        channel.discardedBytes = framer.getDiscardedBytes();
+        channel.nmeaSentences = framer.getNmeaSentenceCount();
+        channel.nmeaChecksumErrors = framer.getNmeaChecksumErrorCount();
+        channel.rtcmFrames = framer.getRtcmFrameCount();
+        channel.rtcmCrcErrors = framer.getRtcmCrcErrorCount();
+        metrics.copyTo(channel);
+        return channel;
+    }
+
+    // 重组器的统计在解码线程中更新，这里读到的值可能略有滞后
+    public UbxFrameReassembler getFramer() {
+        return framer;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// 读取 UbxSessionRecorder 写下的会话目录，只映射元数据和索引，打开多小时的会话也不需要扫描数据
+// 数据长度以 session.meta 为准，崩溃时最后一次刷盘之后的内容被忽略
+public class UbxSessionReader {
+
+    private final File directory;
+    private final int segmentSize;
+    private final int segmentCount;
+    private final long length;
+    private final int indexCount;
+    private final MappedByteBuffer index;
+
+    public UbxSessionReader(File directory) throws IOException {
+        this.directory = directory;
+        MappedByteBuffer meta;
+        try (RandomAccessFile metaFile = new RandomAccessFile(new File(directory, "session.meta"), "r")) {
+            meta = metaFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, UbxSessionRecorder.META_SIZE);
+        }
+        meta.order(ByteOrder.LITTLE_ENDIAN);
+        if (meta.getInt(0) != UbxSessionRecorder.META_MAGIC || meta.getInt(4) != UbxSessionRecorder.META_VERSION) {
+            throw new IOException("不是会话目录: " + directory);
+        }
+        segmentSize = meta.getInt(8);
+        segmentCount = meta.getInt(12);
+        indexCount = meta.getInt(20);
+        length = meta.getLong(24);
+        try (RandomAccessFile indexFile = new RandomAccessFile(new File(directory, "index.bin"), "r")) {
+            long indexBytes = Math.min(indexFile.length(), (long) indexCount * UbxSessionRecorder.INDEX_ENTRY_SIZE);
+            index = indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexBytes);
+        }
+        index.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // 会话中可读的字节数
+    public long length() {
+        return length;
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    public File segmentFile(int number) {
+        return UbxSessionRecorder.segmentFile(directory, number);
+    }
+
+    // 第 number 段中可读的字节数，只有最后一段可能不满
+    public long segmentLength(int number) {
+        return number == segmentCount - 1 ? length - (long) number * segmentSize : segmentSize;
+    }
+
+    public int indexSize() {
+        return index.capacity() / UbxSessionRecorder.INDEX_ENTRY_SIZE;
+    }
+
+    // 时间键 = 周翻转次数 * 一周毫秒数 + iTOW
+    public long indexTimeKey(int i) {
+        return index.getLong(i * UbxSessionRecorder.INDEX_ENTRY_SIZE);
+    }
+
+    public long indexOffset(int i) {
+        return index.getLong(i * UbxSessionRecorder.INDEX_ENTRY_SIZE + 8);
+    }
+
+    // 二分查找不晚于 timeKey 的最后一个索引项，返回对应的流偏移；早于第一项时返回 0
+    public long offsetForTime(long timeKey) {
+        int low = 0;
+        int high = indexSize() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimeKey(mid) <= timeKey) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : indexOffset(found);
+    }
+
+    // 从指定偏移开始顺序读取所有段
+    public ByteSource openSource(long offset) {
+        return new SegmentSource(offset);
+    }
+
+    private class SegmentSource implements ByteSource {
+
+        private long position;
+        private int mappedNumber = -1;
+        private MappedByteBuffer mapped;
+
+        SegmentSource(long position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count, int timeoutMs) throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+            int number = (int) (position / segmentSize);
+            if (number != mappedNumber) {
+                try (RandomAccessFile file = new RandomAccessFile(segmentFile(number), "r")) {
+                    mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segmentLength(number));
+                }
+                mappedNumber = number;
+            }
+            int inSegment = (int) (position - (long) number * segmentSize);
+            int n = Math.min(count, mapped.capacity() - inSegment);
+            mapped.position(inSegment);
+            mapped.get(buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            mapped = null;
+        }
+    }
+}
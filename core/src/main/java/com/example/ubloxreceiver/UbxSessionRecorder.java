@@ -0,0 +1,251 @@
+package com.example.ubloxreceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 原始数据记录器：把接收机的字节流原样写入内存映射的分段文件，同时生成按 iTOW 查找的稀疏索引
+// onBytes() 在读取线程中调用，只把数据拷贝进 SPSC 环形缓冲区，写文件在单独的线程中完成。
+// 环形缓冲区满时丢弃数据并计数，不会阻塞读取线程。
+//
+// 目录结构：
+//   seg-00000.ubx ...  原始数据，每段 segmentSize 字节，最后一段按实际长度截断
+//   index.bin          索引项 (long 时间键, long 流偏移)，时间键 = 周翻转次数 * 一周毫秒数 + iTOW
+//   session.meta       已落盘的段数、最后一段长度和索引项数，每次刷盘后更新
+// 崩溃后，最后一次刷盘之前写入的数据都可以通过 UbxSessionReader 读回
+public class UbxSessionRecorder implements UbxPipeline.ByteTap, java.io.Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_RING_CAPACITY = 1024 * 1024;
+    public static final long DEFAULT_INDEX_INTERVAL_MS = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+    public static final long WEEK_MS = ItowUnwrapper.WEEK_MS;
+
+    static final int META_MAGIC = 0x55425853; // "UBXS"
+    static final int META_VERSION = 1;
+    static final int META_SIZE = 40;
+    static final int INDEX_ENTRY_SIZE = 16;
+    private static final int INDEX_GROW_ENTRIES = 4096;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long indexIntervalMs;
+    private final long flushIntervalMs;
+    private final SpscByteRing ring;
+    private final UbxFrameReassembler indexer;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private boolean closed;
+
+    // 以下字段只在写线程访问
+    private int segmentNumber = -1;
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    private final RandomAccessFile indexFile;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    private int indexCount;
+    private final MappedByteBuffer meta;
+    private long lastIndexedKey = Long.MIN_VALUE;
+    private final ItowUnwrapper unwrapper = new ItowUnwrapper();
+    private long lastFlushMs;
+
+    private final AtomicLong bytesRecorded = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private IOException failure;
+
+    public UbxSessionRecorder(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_RING_CAPACITY, DEFAULT_INDEX_INTERVAL_MS, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public UbxSessionRecorder(File directory, int segmentSize, int ringCapacity,
+                              long indexIntervalMs, long flushIntervalMs) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录 " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.indexIntervalMs = indexIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.ring = new SpscByteRing(ringCapacity);
+        this.indexer = new UbxFrameReassembler(this::indexFrame);
+
+        try (RandomAccessFile metaFile = new RandomAccessFile(new File(directory, "session.meta"), "rw")) {
+            meta = metaFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+        }
+        meta.order(ByteOrder.LITTLE_ENDIAN);
+        indexFile = new RandomAccessFile(new File(directory, "index.bin"), "rw");
+        growIndex();
+        openSegment();
+        writeMeta(0);
+
+        writerThread = new Thread(this::writeLoop, "ubx-recorder");
+        writerThread.start();
+    }
+
+    // 读取线程调用：拷贝进环形缓冲区，放不下时丢弃并计数
+    @Override
+    public void onBytes(byte[] buffer, int offset, int length) {
+        if (!running || !ring.offer(buffer, offset, length)) {
+            droppedBytes.addAndGet(length);
+            return;
+        }
+        bytesRecorded.addAndGet(length);
+    }
+
+    private void writeLoop() {
+        byte[] batch = new byte[64 * 1024];
+        lastFlushMs = System.currentTimeMillis();
+        try {
+            while (true) {
+                int n = ring.poll(batch, 0, batch.length);
+                if (n > 0) {
+                    append(batch, n);
+                    indexer.push(batch, 0, n);
+                } else if (!running) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(this, 5_000_000L);
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastFlushMs >= flushIntervalMs) {
+                    flush();
+                    lastFlushMs = now;
+                }
+            }
+            flush();
+        } catch (IOException e) {
+            failure = e;
+            running = false;
+        }
+    }
+
+    private void append(byte[] data, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!segment.hasRemaining()) {
+                finishSegment();
+                openSegment();
+            }
+            int n = Math.min(segment.remaining(), length - offset);
+            segment.put(data, offset, n);
+            offset += n;
+        }
+    }
+
+    // 所有导航类消息的负载都以 iTOW 开头，按间隔记录帧在流中的起始位置
+    private void indexFrame(byte[] frame, int offset, int length) {
+        if (frame[offset + 2] != 0x01 || length < UbxFrameReassembler.FRAME_OVERHEAD + 4) {
+            return;
+        }
+        long iTOW = UbxBytes.u4(frame, offset + UbxFrameReassembler.HEADER_LENGTH);
+        if (iTOW >= WEEK_MS) {
+            return;
+        }
+        long key = unwrapper.unwrap(iTOW);
+        if (lastIndexedKey != Long.MIN_VALUE && key - lastIndexedKey < indexIntervalMs) {
+            return;
+        }
+        lastIndexedKey = key;
+        if (indexCount == indexCapacity) {
+            try {
+                growIndex();
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+        }
+        index.putLong(indexCount * INDEX_ENTRY_SIZE, key);
+        index.putLong(indexCount * INDEX_ENTRY_SIZE + 8, indexer.getFrameStreamOffset());
+        indexCount++;
+    }
+
+    private void growIndex() throws IOException {
+        indexCapacity += INDEX_GROW_ENTRIES;
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) indexCapacity * INDEX_ENTRY_SIZE);
+        index.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        segmentFile = new RandomAccessFile(segmentFile(directory, segmentNumber), "rw");
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    // 写满的段刷盘后关闭，文件长度正好是 segmentSize
+    private void finishSegment() throws IOException {
+        segment.force();
+        index.force();
+        segmentFile.close();
+        writeMeta(segmentSize);
+    }
+
+    // 刷盘顺序：先数据和索引，再更新元数据，保证元数据描述的内容都已落盘
+    private void flush() throws IOException {
+        segment.force();
+        index.force();
+        writeMeta(segment.position());
+    }
+
+    private void writeMeta(int lastSegmentLength) {
+        meta.putInt(0, META_MAGIC);
+        meta.putInt(4, META_VERSION);
+        meta.putInt(8, segmentSize);
+        meta.putInt(12, segmentNumber + 1);
+        meta.putInt(16, lastSegmentLength);
+        meta.putInt(20, indexCount);
+        meta.putLong(24, (long) segmentNumber * segmentSize + lastSegmentLength);
+        meta.force();
+        flushedBytes.set((long) segmentNumber * segmentSize + lastSegmentLength);
+    }
+
+    // 停止记录：写完缓冲区中的数据，截断最后一段和索引文件
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int length = segment.position();
+        segmentFile.getChannel().truncate(length);
+        segmentFile.close();
+        indexFile.getChannel().truncate((long) indexCount * INDEX_ENTRY_SIZE);
+        indexFile.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static File segmentFile(File directory, int number) {
+        return new File(directory, String.format(java.util.Locale.ROOT, "seg-%05d.ubx", number));
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getBytesRecorded() {
+        return bytesRecorded.get();
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    public long getFlushedBytes() {
+        return flushedBytes.get();
+    }
+}
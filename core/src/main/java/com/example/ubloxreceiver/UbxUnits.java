@@ -0,0 +1,31 @@
+package com.example.ubloxreceiver;
+
+// 接收机定点数与常用单位之间的换算
+public final class UbxUnits {
+
+    // 每度对应的米数（纬度方向，以及赤道上的经度方向）
+    public static final double METERS_PER_DEGREE = 111319.49;
+
+    private UbxUnits() {
+    }
+
+    // 1e-7 度 -> 度
+    public static double toDegrees(int e7) {
+        return e7 / 1e7;
+    }
+
+    // 度 -> 1e-7 度，四舍五入
+    public static int toE7(double degrees) {
+        return (int) Math.round(degrees * 1e7);
+    }
+
+    // mm -> m
+    public static double toMeters(long mm) {
+        return mm / 1000.0;
+    }
+
+    // 1e-5 度 -> 度，用于 NAV-PVT 的航向
+    public static double headingToDegrees(int e5) {
+        return e5 / 1e5;
+    }
+}
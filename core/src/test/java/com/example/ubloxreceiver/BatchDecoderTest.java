@@ -0,0 +1,154 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BatchDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int INNER_ITOW = 999_999;
+
+    // 每 100 ms 一个历元，PVT 和 POSLLH 同时输出，中间夹着随机垃圾和负载中嵌有完整 POSLLH 帧的其他消息，
+    // 从周末前开始，中途跨过周翻转
+    private static byte[] stream(int epochs) {
+        Random random = new Random(17);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long iTOW = ItowUnwrapper.WEEK_MS - 5_000;
+        for (int i = 0; i < epochs; i++) {
+            byte[] pvt = UbxTestFrames.navPvt((int) iTOW, NavPvtView.FIX_3D, 12, i, -i, 0, 800, 0, 0, 0, 0);
+            byte[] posllh = UbxTestFrames.navPosllh((int) iTOW, i, -i, 0, 0, 900, 0);
+            out.write(pvt, 0, pvt.length);
+            out.write(posllh, 0, posllh.length);
+            if (i % 3 == 0) {
+                byte[] garbage = new byte[random.nextInt(20)];
+                random.nextBytes(garbage);
+                out.write(garbage, 0, garbage.length);
+            }
+            if (i % 5 == 0) {
+                // 顺序解码时整帧被跳过，块首落在它的负载里时内层的帧会被误认
+                byte[] inner = UbxTestFrames.navPosllh(INNER_ITOW, 7, 7, 0, 0, 1, 0);
+                byte[] payload = new byte[inner.length + 13];
+                System.arraycopy(inner, 0, payload, 5, inner.length);
+                byte[] outer = UbxTestFrames.frame(0x02, 0x15, payload);
+                out.write(outer, 0, outer.length);
+            }
+            iTOW = (iTOW + 100) % ItowUnwrapper.WEEK_MS;
+        }
+        return out.toByteArray();
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = folder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static void assertSameFixes(ColumnarFixes expected, ColumnarFixes actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timeMs(i), actual.timeMs(i));
+            assertEquals(expected.iTOW(i), actual.iTOW(i));
+            assertEquals(expected.latE7(i), actual.latE7(i));
+            assertEquals(expected.lonE7(i), actual.lonE7(i));
+            assertEquals(expected.hAcc(i), actual.hAcc(i));
+            assertEquals(expected.fixType(i), actual.fixType(i));
+            assertEquals(expected.numSV(i), actual.numSV(i));
+            assertEquals(expected.source(i), actual.source(i));
+        }
+    }
+
+    @Test
+    public void smallChunksMatchSequentialDecode() throws Exception {
+        int epochs = 400;
+        File file = write("log.ubx", stream(epochs));
+        ColumnarFixes sequential = new BatchDecoder(BatchDecoder.DEFAULT_CHUNK_SIZE, 1)
+                .decode(Collections.singletonList(file));
+        assertEquals(epochs, sequential.size());
+
+        BatchDecoder batch = new BatchDecoder(97, 4);
+        ColumnarFixes parallel = batch.decode(Collections.singletonList(file));
+        assertTrue(batch.getChunkCount() > 100);
+        // 块首落在嵌套帧中的块被重新对齐
+        assertTrue(batch.getRealignedChunkCount() > 0);
+        assertEquals(epochs, batch.getDuplicateCount());
+        assertSameFixes(sequential, parallel);
+        for (int i = 0; i < parallel.size(); i++) {
+            assertNotEquals(INNER_ITOW, parallel.iTOW(i));
+            assertEquals(ColumnarFixes.SOURCE_NAV_PVT, parallel.source(i));
+            // 周翻转之后时间继续递增
+            assertEquals(parallel.timeMs(0) + i * 100L, parallel.timeMs(i));
+        }
+    }
+
+    @Test
+    public void inputsAreMergedInTimeOrder() throws Exception {
+        byte[] a = UbxTestFrames.concat(
+                UbxTestFrames.navPosllh(1000, 1, 1, 0, 0, 10, 0),
+                UbxTestFrames.navPosllh(1200, 1, 1, 0, 0, 10, 0));
+        byte[] b = UbxTestFrames.concat(
+                UbxTestFrames.navPosllh(1100, 2, 2, 0, 0, 10, 0),
+                UbxTestFrames.navPosllh(1200, 2, 2, 0, 0, 10, 0));
+        ColumnarFixes fixes = new BatchDecoder(16, 2).decode(Arrays.asList(write("a.ubx", a), write("b.ubx", b)));
+        assertEquals(4, fixes.size());
+        long[] times = new long[4];
+        int[] lons = new int[4];
+        for (int i = 0; i < 4; i++) {
+            times[i] = fixes.timeMs(i);
+            lons[i] = fixes.lonE7(i);
+        }
+        assertArrayEquals(new long[]{1000, 1100, 1200, 1200}, times);
+        // 同一时刻保持输入顺序
+        assertArrayEquals(new int[]{1, 2, 1, 2}, lons);
+    }
+
+    @Test
+    public void sessionSegmentsAreDecodedAsOneStream() throws Exception {
+        File dir = new File(folder.getRoot(), "session");
+        byte[] data = stream(120);
+        // 段长不是帧长的整数倍，有帧跨越段边界
+        UbxSessionRecorder recorder = new UbxSessionRecorder(dir, 4000, 1 << 16, 1000, 1000);
+        for (int offset = 0; offset < data.length; offset += 500) {
+            recorder.onBytes(data, offset, Math.min(500, data.length - offset));
+            Thread.sleep(1);
+        }
+        recorder.close();
+
+        ColumnarFixes fromSession = new BatchDecoder(1500, 3).decode(Collections.singletonList(dir));
+        ColumnarFixes fromFile = new BatchDecoder(BatchDecoder.DEFAULT_CHUNK_SIZE, 1)
+                .decode(Collections.singletonList(write("flat.ubx", data)));
+        assertEquals(120, fromFile.size());
+        assertSameFixes(fromFile, fromSession);
+    }
+
+    @Test
+    public void columnarFileRoundTrips() throws Exception {
+        ColumnarFixes fixes = new ColumnarFixes(2);
+        for (int i = 0; i < 5000; i++) {
+            fixes.add(ItowUnwrapper.WEEK_MS + i, i, 300_000_000 + i, -1_200_000_000 - i, 50_000 + i,
+                    (long) Integer.MAX_VALUE + 5, i, i % 4, 200, (byte) (1 + i % 2));
+        }
+        File file = new File(folder.getRoot(), "fixes.col");
+        fixes.write(file);
+        ColumnarFixes read = ColumnarFixes.read(file);
+        assertSameFixes(fixes, read);
+        assertEquals(Integer.MAX_VALUE, read.hAcc(0));
+        assertEquals(200, read.numSV(0));
+        assertEquals(50_000 + 4999, read.hMSL(4999));
+        assertEquals(4999, read.vAcc(4999));
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.ubloxreceiver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConnectionSupervisorTest {
+
+    private ScheduledExecutorService scheduler;
+    private ReceiverGroup group;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        group = new ReceiverGroup(2, 4, null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        group.close();
+        scheduler.shutdownNow();
+    }
+
+    // 先给出几帧数据，然后像被拔出的设备一样抛出异常
+    private static final class FailingSource implements ByteSource {
+        private final byte[] data = UbxTestFrames.concat(
+                UbxTestFrames.navPosllh(100, 1, 2, 0, 0, 500, 0),
+                UbxTestFrames.navPosllh(200, 1, 2, 0, 0, 500, 0));
+        private int position;
+        volatile boolean closed;
+
+        @Override
+        public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+            if (position < data.length) {
+                int n = Math.min(length, data.length - position);
+                System.arraycopy(data, position, buffer, offset, n);
+                position += n;
+                return n;
+            }
+            throw new IOException("device gone");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    // 一直阻塞的数据源，只能被 cancel() 唤醒，用来检查断开时读取线程确实退出
+    private static final class BlockingSource implements ByteSource {
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+        volatile boolean closed;
+
+        @Override
+        public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+            try {
+                cancelled.await();
+            } catch (InterruptedException e) {
+                // 模拟不响应中断的 USB 读取，只有 cancel() 有效
+                Thread.currentThread().interrupt();
+                try {
+                    cancelled.await();
+                } catch (InterruptedException ignored) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.countDown();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class StateRecorder implements ConnectionSupervisor.Listener {
+        final List<ConnectionSupervisor.State> states = new ArrayList<>();
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger disconnected = new AtomicInteger();
+
+        @Override
+        public void onConnected(ReceiverGroup.Channel channel, ByteSource source) {
+            connected.incrementAndGet();
+        }
+
+        @Override
+        public void onDisconnected(ReceiverGroup.Channel channel, ByteSource source, IOException cause) {
+            disconnected.incrementAndGet();
+        }
+
+        @Override
+        public synchronized void onStateChanged(ConnectionSupervisor.State state) {
+            states.add(state);
+        }
+
+        synchronized boolean contains(ConnectionSupervisor.State state) {
+            return states.contains(state);
+        }
+    }
+
+    private static void waitFor(ConnectionSupervisor supervisor, ConnectionSupervisor.State state)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (supervisor.getState() != state) {
+            assertTrue("state " + supervisor.getState(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    // 循环在 latch 之后才真正返回线程池，稍等片刻
+    private void assertNoLiveThreads() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (group.getLiveThreadCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, group.getLiveThreadCount());
+    }
+
+    @Test
+    public void reconnectsWithBackoffAndGivesUpAfterMaxAttempts() throws Exception {
+        List<FailingSource> sources = new ArrayList<>();
+        AtomicInteger opens = new AtomicInteger();
+        // 前两次打开成功，之后设备不存在
+        ConnectionSupervisor.Connector connector = () -> {
+            if (opens.incrementAndGet() > 2) {
+                throw new IOException("no device");
+            }
+            FailingSource source = new FailingSource();
+            synchronized (sources) {
+                sources.add(source);
+            }
+            return source;
+        };
+        StateRecorder recorder = new StateRecorder();
+        ConnectionSupervisor supervisor = new ConnectionSupervisor("gps", group, connector, recorder, scheduler);
+        supervisor.setBackoff(1, 4);
+        supervisor.setMaxAttempts(3);
+        supervisor.start();
+        waitFor(supervisor, ConnectionSupervisor.State.FAILED);
+
+        assertEquals(2, supervisor.getConnectCount());
+        assertEquals(1, supervisor.getReconnectCount());
+        // 两次断开，加上之后两次打开失败
+        assertEquals(4, supervisor.getFailedAttemptCount());
+        assertEquals(2, recorder.connected.get());
+        assertEquals(2, recorder.disconnected.get());
+        assertEquals(0, supervisor.getLiveSessionCount());
+        assertTrue(recorder.contains(ConnectionSupervisor.State.BACKOFF));
+        for (FailingSource source : sources) {
+            assertTrue(source.closed);
+        }
+        assertTrue(group.channels().isEmpty());
+        assertNoLiveThreads();
+
+        // 设备重新出现后可以立即重试
+        opens.set(0);
+        supervisor.retryNow();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (supervisor.getConnectCount() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        waitFor(supervisor, ConnectionSupervisor.State.FAILED);
+        assertEquals(4, supervisor.getConnectCount());
+        assertEquals(3, supervisor.getReconnectCount());
+        supervisor.close();
+        assertEquals(ConnectionSupervisor.State.CLOSED, supervisor.getState());
+        assertNoLiveThreads();
+    }
+
+    @Test
+    public void closeCancelsBlockedReaderAndReleasesSource() throws Exception {
+        BlockingSource source = new BlockingSource();
+        StateRecorder recorder = new StateRecorder();
+        ConnectionSupervisor supervisor = new ConnectionSupervisor("gps", group, () -> source, recorder, scheduler);
+        supervisor.start();
+        waitFor(supervisor, ConnectionSupervisor.State.CONNECTED);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (group.getLiveThreadCount() != ReceiverGroup.THREADS_PER_CHANNEL && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(ReceiverGroup.THREADS_PER_CHANNEL, group.getLiveThreadCount());
+        assertEquals(1, supervisor.getLiveSessionCount());
+
+        supervisor.close();
+        assertEquals(ConnectionSupervisor.State.CLOSED, supervisor.getState());
+        assertTrue(source.closed);
+        assertEquals(0, supervisor.getLiveSessionCount());
+        assertEquals(1, recorder.disconnected.get());
+        assertNoLiveThreads();
+
+        // 关闭后不能再启动
+        supervisor.start();
+        supervisor.retryNow();
+        Thread.sleep(20);
+        assertEquals(ConnectionSupervisor.State.CLOSED, supervisor.getState());
+        assertEquals(1, supervisor.getConnectCount());
+    }
+
+    @Test
+    public void repeatedStartDoesNotOpenASecondSession() throws Exception {
+        AtomicInteger opens = new AtomicInteger();
+        ConnectionSupervisor supervisor = new ConnectionSupervisor("gps", group, () -> {
+            opens.incrementAndGet();
+            return new BlockingSource();
+        }, null, scheduler);
+        for (int i = 0; i < 5; i++) {
+            supervisor.start();
+            supervisor.retryNow();
+        }
+        waitFor(supervisor, ConnectionSupervisor.State.CONNECTED);
+        Thread.sleep(20);
+        assertEquals(1, opens.get());
+        assertEquals(1, group.channels().size());
+        supervisor.close();
+        assertNoLiveThreads();
+    }
+
+    @Test
+    public void failedChannelSetupReleasesTheSourceAndRetries() throws Exception {
+        List<BlockingSource> sources = new ArrayList<>();
+        List<IOException> causes = new ArrayList<>();
+        AtomicInteger setups = new AtomicInteger();
+        StateRecorder recorder = new StateRecorder() {
+            @Override
+            public void onConnected(ReceiverGroup.Channel channel, ByteSource source) {
+                super.onConnected(channel, source);
+                // 第一次建立通道时应用的设置出错
+                if (setups.incrementAndGet() == 1) {
+                    throw new IllegalStateException("setup failed");
+                }
+            }
+
+            @Override
+            public void onDisconnected(ReceiverGroup.Channel channel, ByteSource source, IOException cause) {
+                super.onDisconnected(channel, source, cause);
+                causes.add(cause);
+            }
+        };
+        ConnectionSupervisor supervisor = new ConnectionSupervisor("gps", group, () -> {
+            BlockingSource source = new BlockingSource();
+            sources.add(source);
+            return source;
+        }, recorder, scheduler);
+        supervisor.setBackoff(1, 4);
+        supervisor.start();
+        waitFor(supervisor, ConnectionSupervisor.State.CONNECTED);
+
+        assertEquals(2, sources.size());
+        assertTrue(sources.get(0).closed);
+        assertFalse(sources.get(1).closed);
+        assertEquals(1, causes.size());
+        assertTrue(causes.get(0).getCause() instanceof IllegalStateException);
+        assertTrue(recorder.contains(ConnectionSupervisor.State.BACKOFF));
+        assertEquals(1, supervisor.getConnectCount());
+        assertEquals(0, supervisor.getReconnectCount());
+        assertEquals(1, supervisor.getFailedAttemptCount());
+        assertEquals(1, supervisor.getLiveSessionCount());
+        // 失败的通道已经释放了序号
+        assertEquals(1, group.channels().size());
+        supervisor.close();
+        assertEquals(0, supervisor.getLiveSessionCount());
+        assertNoLiveThreads();
+    }
+}
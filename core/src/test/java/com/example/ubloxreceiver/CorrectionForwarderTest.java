@@ -0,0 +1,170 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CorrectionForwarderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 记录写入的数据，可以让每次写入变慢或一直阻塞
+    private static final class RecordingSink implements ByteSink {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch release;
+        volatile long delayMs;
+
+        @Override
+        public void write(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+            entered.countDown();
+            try {
+                CountDownLatch gate = release;
+                if (gate != null) {
+                    gate.await();
+                }
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (written) {
+                written.write(buffer, offset, length);
+            }
+        }
+
+        byte[] bytes() {
+            synchronized (written) {
+                return written.toByteArray();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static byte[] rtcm(int type, int sequence) {
+        byte[] payload = new byte[20 + sequence % 7];
+        payload[0] = (byte) (type >> 4);
+        payload[1] = (byte) (type << 4);
+        payload[2] = (byte) sequence;
+        return Rtcm3.frame(payload);
+    }
+
+    private static void waitFor(CorrectionForwarder forwarder, long frames) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (forwarder.getWrittenFrameCount() + forwarder.getLateDropCount() < frames) {
+            assertTrue("written " + forwarder.getWrittenFrameCount(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void fileSourceIsFilteredAndPacedByTheSink() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte[] nmea = UbxFrameReassemblerTest.nmea("GNGGA,,,,,,0,00,99.99,,,,,,");
+        int[] types = {1005, 1077, 1230, 1087};
+        for (int i = 0; i < 200; i++) {
+            byte[] frame = rtcm(types[i % types.length], i);
+            stream.write(frame, 0, frame.length);
+            stream.write(nmea, 0, nmea.length);
+            if (types[i % types.length] != 1230) {
+                expected.write(frame, 0, frame.length);
+            }
+        }
+        File file = folder.newFile("corrections.rtcm");
+        try (OutputStream out = new FileOutputStream(file)) {
+            stream.writeTo(out);
+        }
+
+        RecordingSink sink = new RecordingSink();
+        sink.delayMs = 1;
+        // 队列很小、写入很慢：文件数据源应当等待，而不是丢帧
+        CorrectionForwarder forwarder = new CorrectionForwarder(sink, 4, 60_000);
+        forwarder.setMessageFilter(1005, 1077, 1087);
+        forwarder.start();
+        forwarder.startSource(CorrectionForwarder.openSource(file.getPath()), CorrectionForwarder.isLive(file.getPath()));
+        waitFor(forwarder, 150);
+        forwarder.close();
+
+        assertEquals(200, forwarder.getReceivedFrameCount());
+        assertEquals(50, forwarder.getFilteredFrameCount());
+        assertEquals(0, forwarder.getOverflowDropCount());
+        assertEquals(0, forwarder.getLateDropCount());
+        assertEquals(150, forwarder.getWrittenFrameCount());
+        assertArrayEquals(expected.toByteArray(), sink.bytes());
+        assertEquals(150, forwarder.getLatency().getCount());
+    }
+
+    @Test
+    public void liveFramesAreDroppedInsteadOfPilingUp() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        sink.release = new CountDownLatch(1);
+        CorrectionForwarder forwarder = new CorrectionForwarder(sink, 4, 50);
+        forwarder.start();
+
+        byte[] first = rtcm(1077, 0);
+        assertTrue(forwarder.offer(first, 0, first.length));
+        // 第一帧卡在写入中，后面的帧排队
+        assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            byte[] frame = rtcm(1077, i);
+            assertTrue(forwarder.offer(frame, 0, frame.length));
+        }
+        assertEquals(1, forwarder.getOverflowDropCount());
+        assertEquals(4, forwarder.getQueueDepth());
+        // 排队超过 50 ms 之后写入恢复，排队的帧已经过时
+        Thread.sleep(120);
+        sink.release.countDown();
+        waitFor(forwarder, 5);
+        forwarder.close();
+
+        assertEquals(1, forwarder.getWrittenFrameCount());
+        assertEquals(4, forwarder.getLateDropCount());
+        assertArrayEquals(first, sink.bytes());
+    }
+
+    @Test
+    public void tcpSourceIsForwardedAndCloseCancelsTheBlockedRead() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        CorrectionForwarder forwarder = new CorrectionForwarder(sink);
+        try (ServerSocket server = new ServerSocket(0)) {
+            String spec = "tcp://127.0.0.1:" + server.getLocalPort();
+            assertTrue(CorrectionForwarder.isLive(spec));
+            forwarder.start();
+            forwarder.startSource(CorrectionForwarder.openSource(spec), true);
+            try (Socket caster = server.accept()) {
+                OutputStream out = caster.getOutputStream();
+                for (int i = 0; i < 10; i++) {
+                    out.write(rtcm(1005, i));
+                }
+                out.flush();
+                waitFor(forwarder, 10);
+                // 连接仍然打开，读取线程阻塞在 socket 上
+                long start = System.nanoTime();
+                forwarder.close();
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        assertEquals(10, forwarder.getWrittenFrameCount());
+        assertEquals(0, forwarder.getSourceCrcErrorCount());
+        byte[] late = rtcm(1005, 0);
+        assertFalse(forwarder.offer(late, 0, late.length));
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EpochMergerTest {
+
+    // 回调中的历元对象会被复用，测试中记录需要的字段
+    private static final class Recorder implements EpochMerger.EpochListener {
+        final List<long[]> epochs = new ArrayList<>();
+
+        @Override
+        public void onEpoch(EpochMerger.Epoch epoch) {
+            epochs.add(new long[]{epoch.iTOW(), epoch.deviceCount(), epoch.isComplete() ? 1 : 0, epoch.best()});
+        }
+    }
+
+    private static void add(EpochMerger merger, int device, long iTOW, long hAcc) {
+        merger.add(device, iTOW, (int) iTOW, -(int) iTOW, 0, hAcc, 0, 0);
+    }
+
+    @Test
+    public void emitsWhenAllActiveDevicesReported() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(2, 4, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+
+        add(merger, 0, 1000, 500);
+        assertTrue(recorder.epochs.isEmpty());
+        add(merger, 1, 1000, 300);
+        assertEquals(1, recorder.epochs.size());
+        assertArrayEquals(new long[]{1000, 2, 1, 1}, recorder.epochs.get(0));
+        assertEquals(1, merger.getCompleteCount());
+        assertEquals(0, merger.getPendingCount());
+    }
+
+    @Test
+    public void slowDeviceDoesNotHoldBackMoreThanTheWindow() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(2, 3, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+
+        for (int i = 0; i < 10; i++) {
+            add(merger, 0, 1000 + i * 100, 500);
+        }
+        // 窗口内保留 3 个历元，其余按不完整历元输出
+        assertEquals(7, recorder.epochs.size());
+        assertEquals(7, merger.getPartialCount());
+        assertEquals(3, merger.getPendingCount());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(1000 + i * 100, recorder.epochs.get(i)[0]);
+            assertEquals(0, recorder.epochs.get(i)[2]);
+        }
+
+        // 慢的接收机报告了窗口中的历元，它和之前的历元一起输出
+        add(merger, 1, 1800, 400);
+        assertEquals(9, recorder.epochs.size());
+        assertArrayEquals(new long[]{1800, 2, 1, 1}, recorder.epochs.get(8));
+        // 已经输出过的历元再到达时计为迟到
+        add(merger, 1, 1200, 400);
+        assertEquals(1, merger.getLateCount());
+        assertEquals(9, recorder.epochs.size());
+    }
+
+    @Test
+    public void inactiveDeviceIsNotWaitedFor() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(3, 4, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+        merger.setActive(2, true);
+
+        add(merger, 0, 1000, 500);
+        add(merger, 1, 1000, 500);
+        assertTrue(recorder.epochs.isEmpty());
+        // 第三台下线后等待中的历元变得完整
+        merger.setActive(2, false);
+        assertEquals(1, recorder.epochs.size());
+        assertEquals(1, recorder.epochs.get(0)[2]);
+        add(merger, 0, 1100, 500);
+        add(merger, 1, 1100, 500);
+        assertEquals(2, recorder.epochs.size());
+    }
+
+    @Test
+    public void outOfOrderArrivalsAreSortedAndDuplicatesOverwrite() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(2, 4, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+
+        add(merger, 0, 1200, 500);
+        add(merger, 0, 1100, 500);
+        add(merger, 0, 1100, 200);
+        add(merger, 1, 1100, 300);
+        assertEquals(1, recorder.epochs.size());
+        assertArrayEquals(new long[]{1100, 2, 1, 0}, recorder.epochs.get(0));
+        merger.flush();
+        assertEquals(2, recorder.epochs.size());
+        assertEquals(1200, recorder.epochs.get(1)[0]);
+    }
+
+    @Test
+    public void weekRolloverIsTrackedPerDevice() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(2, 4, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+        long last = ItowUnwrapper.WEEK_MS - 100;
+
+        add(merger, 0, last - 100, 500);
+        // 第二台领先一个历元先跨过周翻转，第一台周末前的 iTOW 之后才到达，不会被当成下一周
+        add(merger, 1, last - 100, 500);
+        add(merger, 1, last, 500);
+        add(merger, 1, 0, 500);
+        add(merger, 0, last, 500);
+        add(merger, 0, 0, 500);
+        assertEquals(3, recorder.epochs.size());
+        assertEquals(last, recorder.epochs.get(1)[0]);
+        assertEquals(0, recorder.epochs.get(2)[0]);
+        assertEquals(3, merger.getCompleteCount());
+        // 周翻转之后才上线的接收机按已有的时间归入同一周
+        merger.setActive(1, false);
+        merger.setActive(1, true);
+        add(merger, 1, 100, 500);
+        add(merger, 0, 100, 500);
+        assertEquals(4, merger.getCompleteCount());
+        assertEquals(0, merger.getLateCount());
+    }
+
+    @Test
+    public void fixOlderThanAFullWindowIsEmittedWithoutReorderingOutput() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(2, 4, recorder);
+        merger.setActive(0, true);
+        merger.setActive(1, true);
+
+        for (int i = 0; i < 4; i++) {
+            add(merger, 0, 1000 + i * 100, 500);
+        }
+        assertTrue(recorder.epochs.isEmpty());
+        // 窗口已满，比所有等待中的历元都早：直接作为不完整历元输出，不挤出 1000
+        add(merger, 1, 950, 300);
+        assertEquals(1, recorder.epochs.size());
+        assertArrayEquals(new long[]{950, 1, 0, 1}, recorder.epochs.get(0));
+        assertEquals(4, merger.getPendingCount());
+        merger.flush();
+        assertEquals(5, recorder.epochs.size());
+        for (int i = 1; i < 5; i++) {
+            assertEquals(1000 + (i - 1) * 100, recorder.epochs.get(i)[0]);
+        }
+        assertEquals(0, merger.getLateCount());
+    }
+
+    @Test
+    public void unalignedReceiversAtDifferentRatesAreEmittedInIncreasingTime() {
+        Recorder recorder = new Recorder();
+        EpochMerger merger = new EpochMerger(3, 4, recorder);
+        for (int device = 0; device < 3; device++) {
+            merger.setActive(device, true);
+        }
+        // 10 Hz、5 Hz（偏移 30 ms）和 4 Hz（偏移 70 ms），每条定位到达的延迟随机
+        Random random = new Random(15);
+        long[] periods = {100, 200, 250};
+        long[] offsets = {0, 30, 70};
+        List<long[]> arrivals = new ArrayList<>();
+        for (int device = 0; device < 3; device++) {
+            for (long t = 10_000 + offsets[device]; t < 40_000; t += periods[device]) {
+                arrivals.add(new long[]{t + random.nextInt(1500), device, t});
+            }
+        }
+        arrivals.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] arrival : arrivals) {
+            add(merger, (int) arrival[1], arrival[2], 500);
+        }
+        merger.flush();
+        assertFalse(recorder.epochs.isEmpty());
+        for (int i = 1; i < recorder.epochs.size(); i++) {
+            assertTrue("epoch " + i, recorder.epochs.get(i)[0] > recorder.epochs.get(i - 1)[0]);
+        }
+        assertTrue(merger.getLateCount() > 0);
+        assertEquals(arrivals.size(), recorder.epochs.stream().mapToLong(e -> e[1]).sum() + merger.getLateCount());
+    }
+
+    @Test
+    public void slowCallbackDoesNotBlockOtherReceivers() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> times = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        EpochMerger merger = new EpochMerger(2, 4, epoch -> {
+            times.add(epoch.iTOW());
+            threads.add(Thread.currentThread().getName());
+            if (epoch.iTOW() == 1000) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        merger.setActive(0, true);
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "slow"));
+        try {
+            // "slow" 线程的第一个回调卡住
+            Future<?> slow = executor.submit(() -> add(merger, 0, 1000, 500));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // 其他线程加入定位不等待回调，超出输出队列的最早的历元被丢弃
+            int extra = EpochMerger.OUTPUT_CAPACITY + 10;
+            for (int i = 1; i <= extra; i++) {
+                add(merger, 0, 1000 + i * 100, 500);
+            }
+            assertEquals(1, times.size());
+            assertEquals(10, merger.getDroppedCount());
+            release.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+            // 剩下的历元由正在回调的线程按顺序接着回调
+            assertEquals(1 + EpochMerger.OUTPUT_CAPACITY, times.size());
+            for (int i = 1; i < times.size(); i++) {
+                assertEquals(1000 + (i + 10) * 100, (long) times.get(i));
+                assertEquals("slow", threads.get(i));
+            }
+            assertEquals(extra + 1, merger.getCompleteCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
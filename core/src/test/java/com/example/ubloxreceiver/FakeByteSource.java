@@ -0,0 +1,35 @@
+package com.example.ubloxreceiver;
+
+import java.util.Random;
+
+// 测试用数据源：把内存中的数据按随机大小的块读出，读完返回 -1
+class FakeByteSource implements ByteSource {
+
+    private final byte[] data;
+    private final Random random;
+    private final int maxChunk;
+    private int position;
+    volatile boolean closed;
+
+    FakeByteSource(byte[] data, int maxChunk, long seed) {
+        this.data = data;
+        this.maxChunk = maxChunk;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, int timeoutMs) {
+        if (position >= data.length) {
+            return -1;
+        }
+        int n = Math.min(Math.min(length, 1 + random.nextInt(maxChunk)), data.length - position);
+        System.arraycopy(data, position, buffer, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FixFormatterTest {
+
+    @Test
+    public void writesFixedPointWithoutRounding() {
+        FixSnapshot fix = new FixSnapshot();
+        fix.set(123456, 1036801290, -13404167, -1250, 1500, 25, 0);
+        FixFormatter formatter = new FixFormatter();
+        int length = formatter.format(fix);
+        assertEquals("iTOW(s): 123\nLongitude(°E): 103.6801290\nLatitude(°N): -1.3404167"
+                        + "\nHeight(m): -1.250\nhAcc(m): 1.500\nvAcc(m): 0.025",
+                new String(formatter.chars(), 0, length));
+    }
+}
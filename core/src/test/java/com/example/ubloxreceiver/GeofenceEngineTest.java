@@ -0,0 +1,153 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeofenceEngineTest {
+
+    private static final int LAT0 = 312_280_000;
+    private static final int LON0 = 1_214_730_000;
+    // 这个纬度上约 1 m 对应的 1e-7 度
+    private static final int E7_PER_METER_LAT = 90;
+    private static final int E7_PER_METER_LON = 105;
+
+    private final List<String> events = new ArrayList<>();
+    private final GeofenceEngine.Listener recorder =
+            (zone, transition, timeMs) -> events.add(zone.getId() + " " + transition + " " + timeMs);
+
+    // 以 (LAT0 + north, LON0 + east) 为西南角、边长 size 米的正方形
+    private static Geofence square(String id, int eastMeters, int northMeters, int sizeMeters) {
+        int lat = LAT0 + northMeters * E7_PER_METER_LAT;
+        int lon = LON0 + eastMeters * E7_PER_METER_LON;
+        int dLat = sizeMeters * E7_PER_METER_LAT;
+        int dLon = sizeMeters * E7_PER_METER_LON;
+        return Geofence.polygon(id, new int[]{lat, lat, lat + dLat, lat + dLat},
+                new int[]{lon, lon + dLon, lon + dLon, lon});
+    }
+
+    private static void fix(GeofenceEngine engine, long timeMs, int eastMeters, int northMeters, long hAccMm) {
+        engine.update(timeMs, LAT0 + northMeters * E7_PER_METER_LAT, LON0 + eastMeters * E7_PER_METER_LON, hAccMm);
+    }
+
+    @Test
+    public void enterDwellAndExit() {
+        GeofenceEngine engine = new GeofenceEngine(Arrays.asList(square("a", 0, 0, 100), square("b", 500, 0, 100)),
+                recorder);
+        engine.setDwellMs(1000);
+        fix(engine, 0, -50, 50, 2500);
+        assertTrue(events.isEmpty());
+        // 向东穿过 a，每 50 ms 移动 1 m；hAcc 2.5 m，进入和离开都要越过边界 2.5 m
+        for (int i = 1; i <= 200; i++) {
+            fix(engine, i * 50L, -50 + i, 50, 2500);
+        }
+        assertEquals(Arrays.asList("a ENTER 2650", "a DWELL 3650", "a EXIT 7650"), events);
+        assertEquals(0, engine.getInsideCount());
+        // b 不在路线上
+        assertFalse(engine.isInside(1));
+        // 里面远离边界时大部分定位跳过计算
+        assertTrue(engine.getSkippedCount() > engine.getEvaluatedCount());
+    }
+
+    @Test
+    public void accuracyHysteresisSuppressesFlappingAtTheBoundary() {
+        GeofenceEngine engine = new GeofenceEngine(Arrays.asList(square("a", 0, 0, 100)), recorder);
+        // hAcc 5 m：在边界两侧 3 m 内来回抖动不触发
+        for (int i = 0; i < 100; i++) {
+            fix(engine, i * 50L, i % 2 == 0 ? -3 : 3, 50, 5000);
+        }
+        assertTrue(events.isEmpty());
+        // 进入 6 m 才触发进入
+        fix(engine, 5000, 6, 50, 5000);
+        assertEquals(Arrays.asList("a ENTER 5000"), events);
+        for (int i = 0; i < 100; i++) {
+            fix(engine, 5050 + i * 50L, i % 2 == 0 ? -3 : 3, 50, 5000);
+        }
+        assertEquals(1, events.size());
+        // 精度变好后同样的抖动就会离开
+        fix(engine, 10_100, -3, 50, 1000);
+        assertEquals(Arrays.asList("a ENTER 5000", "a EXIT 10100"), events);
+    }
+
+    @Test
+    public void waypointCircle() throws IOException {
+        String text = "# 航点\n"
+                + "wp-1 circle " + LAT0 / 1e7 + "," + LON0 / 1e7 + " 20\n"
+                + "\n"
+                + "zone polygon 31.2301,121.4701 31.2301,121.4760 31.2262,121.4760\n";
+        List<Geofence> zones = Geofence.readAll(new StringReader(text));
+        assertEquals(2, zones.size());
+        assertTrue(zones.get(0).isCircle());
+        assertEquals(3, zones.get(1).getVertexCount());
+        GeofenceEngine engine = new GeofenceEngine(zones.subList(0, 1), recorder);
+        fix(engine, 0, 0, 30, 1000);
+        fix(engine, 50, 0, 15, 1000);
+        fix(engine, 100, 0, -25, 1000);
+        assertEquals(Arrays.asList("wp-1 ENTER 50", "wp-1 EXIT 100"), events);
+
+        try {
+            Geofence.readAll(new StringReader("wp circle 31.2,121.4\n"));
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("line 1"));
+        }
+    }
+
+    @Test
+    public void indexedStateMatchesBruteForce() {
+        Random random = new Random(22);
+        List<Geofence> zones = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            zones.add(randomPolygon(random, "z" + i));
+        }
+        GeofenceEngine engine = new GeofenceEngine(zones, recorder);
+        long hAcc = 2000;
+        double margin = 2;
+        int east = 0;
+        int north = 0;
+        for (int step = 0; step < 20_000; step++) {
+            // 随机游走，偶尔跳到别处
+            if (random.nextInt(200) == 0) {
+                east = random.nextInt(5000);
+                north = random.nextInt(5000);
+            } else {
+                east += random.nextInt(7) - 3;
+                north += random.nextInt(7) - 3;
+            }
+            int lat = LAT0 + north * E7_PER_METER_LAT;
+            int lon = LON0 + east * E7_PER_METER_LON;
+            engine.update(step * 50L, lat, lon, hAcc);
+            for (int z = 0; z < zones.size(); z++) {
+                double distance = engine.signedDistance(z, lat, lon);
+                if (Math.abs(distance) >= margin) {
+                    assertEquals("step " + step + " zone " + z, distance > 0, engine.isInside(z));
+                }
+            }
+        }
+        // 每个定位只检查少数候选
+        assertTrue(engine.getCandidateCount() < engine.getFixCount() * 10);
+    }
+
+    // 5 km 见方范围内的随机多边形，半径 30～300 m，可能是凹的
+    private static Geofence randomPolygon(Random random, String id) {
+        int n = 3 + random.nextInt(10);
+        int centerEast = random.nextInt(5000);
+        int centerNorth = random.nextInt(5000);
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            double r = 30 + random.nextInt(270);
+            lat[i] = LAT0 + (int) ((centerNorth + r * Math.sin(angle)) * E7_PER_METER_LAT);
+            lon[i] = LON0 + (int) ((centerEast + r * Math.cos(angle)) * E7_PER_METER_LON);
+        }
+        return Geofence.polygon(id, lat, lon);
+    }
+}
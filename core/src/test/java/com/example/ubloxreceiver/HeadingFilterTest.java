@@ -0,0 +1,72 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HeadingFilterTest {
+
+    private static final long PERIOD_NANOS = 50_000_000L;
+
+    @Test
+    public void firstSampleIsEmittedAndJitterInsideDeadBandIsNot() {
+        HeadingFilter filter = new HeadingFilter(150f, 2f);
+        assertTrue(filter.update(90f, 0));
+        assertEquals(90f, filter.heading(), 1e-3f);
+        Random random = new Random(3);
+        long t = 0;
+        int emitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            t += PERIOD_NANOS;
+            if (filter.update(90f + (float) random.nextGaussian(), t)) {
+                emitted++;
+            }
+        }
+        // 1 度的噪声经过平滑后不应穿过 2 度的死区
+        assertTrue("emitted " + emitted, emitted < 10);
+        assertEquals(90f, filter.heading(), 2f);
+    }
+
+    @Test
+    public void smoothingAcrossNorthDoesNotSwingThroughSouth() {
+        HeadingFilter filter = new HeadingFilter(150f, 0f);
+        filter.update(355f, 0);
+        long t = 0;
+        for (int i = 0; i < 100; i++) {
+            t += PERIOD_NANOS;
+            filter.update(i % 2 == 0 ? 5f : 355f, t);
+            assertTrue("heading " + filter.heading(), HeadingFilter.angleDifference(filter.heading(), 0f) <= 5f);
+        }
+    }
+
+    @Test
+    public void stepIsFollowedAtTheSameSpeedForDifferentRates() {
+        // 采样率不同，同样的时间之后应收敛到相近的位置
+        float fast = settleAfter(20_000_000L, 400_000_000L);
+        float slow = settleAfter(200_000_000L, 400_000_000L);
+        assertEquals(fast, slow, 0.1f);
+        assertTrue(fast > 50f && fast < 90f);
+    }
+
+    private static float settleAfter(long periodNanos, long durationNanos) {
+        HeadingFilter filter = new HeadingFilter(150f, 0f);
+        filter.update(0f, 0);
+        for (long t = periodNanos; t <= durationNanos; t += periodNanos) {
+            filter.update(90f, t);
+        }
+        return filter.heading();
+    }
+
+    @Test
+    public void zeroTimeConstantPassesThrough() {
+        HeadingFilter filter = new HeadingFilter(0f, 0.5f);
+        filter.update(10f, 0);
+        assertFalse(filter.update(10.2f, 1));
+        assertTrue(filter.update(200f, 2));
+        assertEquals(200f, filter.heading(), 1e-3f);
+        filter.reset();
+        assertTrue(Float.isNaN(filter.heading()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithBoundedError() {
+        int previous = -1;
+        for (long v = 0; v < 100_000; v++) {
+            int bucket = LatencyHistogram.bucketFor(v);
+            assertTrue(bucket >= previous);
+            assertTrue(v <= LatencyHistogram.bucketUpperBound(bucket));
+            assertTrue(LatencyHistogram.bucketUpperBound(bucket) - v <= v / 8);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentilesAndSummary() {
+        LatencyHistogram histogram = new LatencyHistogram("draw");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_500, histogram.getMeanNanos(), 1e-6);
+        long p50 = histogram.getPercentileNanos(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8);
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertTrue(histogram.toString().startsWith("draw n=1000 mean=500.5us"));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram("concurrent");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(seed * 1000 + i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.copyCounts(counts);
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        assertEquals(400_000, total);
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(3999, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class NmeaSentenceTest {
+
+    private static NmeaSentence wrap(String body) {
+        byte[] bytes = UbxFrameReassemblerTest.nmea(body);
+        // 前后加上其他数据，检查偏移
+        byte[] buffer = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, buffer, 7, bytes.length);
+        NmeaSentence sentence = new NmeaSentence();
+        sentence.wrap(buffer, 7, bytes.length);
+        return sentence;
+    }
+
+    @Test
+    public void parsesGgaFieldsInPlace() {
+        NmeaSentence gga = wrap("GNGGA,092725.00,4717.11399,N,00833.91590,W,1,08,1.01,-12.5,M,48.0,M,,");
+        assertFalse(gga.isTokenized());
+        assertTrue(gga.addressEquals("GNGGA"));
+        assertTrue(gga.isType("GGA"));
+        assertFalse(gga.isType("RMC"));
+        assertFalse(gga.isTokenized());
+
+        assertEquals(15, gga.fieldCount());
+        assertEquals("GNGGA", gga.field(0));
+        assertEquals(92725.0, gga.fieldDouble(1), 1e-9);
+        assertEquals(4717.11399, gga.fieldDouble(2), 1e-9);
+        assertEquals('N', gga.fieldChar(3));
+        assertEquals('W', gga.fieldChar(5));
+        assertEquals(1, gga.fieldLong(6, -1));
+        assertEquals(8, gga.fieldLong(7, -1));
+        assertEquals(-12.5, gga.fieldDouble(9), 1e-9);
+        // 末尾的空字段和不存在的字段
+        assertTrue(gga.isEmpty(13));
+        assertTrue(gga.isEmpty(14));
+        assertTrue(gga.isEmpty(20));
+        assertTrue(Double.isNaN(gga.fieldDouble(14)));
+        assertEquals(-1, gga.fieldLong(13, -1));
+        assertEquals("", gga.field(14));
+    }
+
+    @Test
+    public void proprietarySentencesAndMalformedNumbers() {
+        NmeaSentence pubx = wrap("PUBX,00,081350.00,4717.113210,N");
+        assertEquals("PUBX", pubx.address());
+        assertTrue(pubx.addressEquals("PUBX"));
+        assertFalse(pubx.addressEquals("PUBX0"));
+        assertEquals(0, pubx.fieldLong(1, -1));
+        assertEquals(-1, pubx.fieldLong(2, -1));
+        assertTrue(Double.isNaN(pubx.fieldDouble(4)));
+        assertEquals("$PUBX,00,081350.00,4717.113210,N*" + String.format("%02X",
+                NmeaSentence.checksum("PUBX,00,081350.00,4717.113210,N".getBytes(StandardCharsets.US_ASCII), 0, 31)),
+                pubx.toString());
+    }
+}
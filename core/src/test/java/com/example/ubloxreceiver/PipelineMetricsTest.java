@@ -0,0 +1,97 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void framesAreTimedFromTheReadThatCompletedThem() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        // 三次读取分别结束于流位置 100、200、300
+        assertTrue(metrics.stampRead(100, 1_000));
+        assertTrue(metrics.stampRead(200, 2_000));
+        // 被丢弃的读取撤销后不影响后面的帧
+        assertTrue(metrics.stampRead(400, 9_000));
+        metrics.unstampRead();
+        assertTrue(metrics.stampRead(300, 3_000));
+        metrics.recordQueuedBytes(150);
+        metrics.recordQueuedBytes(50);
+        assertEquals(150, metrics.getMaxQueuedBytes());
+
+        assertEquals(1_000, metrics.readNanosFor(36));
+        assertEquals(1_000, metrics.readNanosFor(100));
+        // 跨越两次读取的帧按后一次计时
+        assertEquals(2_000, metrics.readNanosFor(136));
+        assertEquals(3_000, metrics.readNanosFor(300));
+        // 还没有记录的读取
+        assertEquals(0, metrics.readNanosFor(301));
+
+        metrics.recordFrame(0x01, 0x07, 2_000, 2_500);
+        metrics.recordFrame(0x01, 0x07, 0, 2_500);
+        assertEquals(2, metrics.getMessageCount(0x01, 0x07));
+        assertEquals(0, metrics.getMessageCount(0x01, 0x02));
+        // 没有读取时间的帧不计入耗时
+        assertEquals(1, metrics.getReadToDecode().getCount());
+        assertEquals(500, metrics.getReadToDecode().getMaxNanos());
+    }
+
+    @Test
+    public void readSizesAreBucketedByPowerOfTwo() {
+        assertEquals(0, PipelineMetrics.readSizeBucket(0));
+        assertEquals(1, PipelineMetrics.readSizeBucket(1));
+        assertEquals(2, PipelineMetrics.readSizeBucket(3));
+        assertEquals(12, PipelineMetrics.readSizeBucket(2048));
+        assertEquals(13, PipelineMetrics.readSizeBucket(4096));
+        assertEquals(PipelineMetrics.READ_SIZE_BUCKETS - 1, PipelineMetrics.readSizeBucket(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void pipelineSnapshotCountsEveryStage() throws Exception {
+        int count = 3000;
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            parts.add(UbxTestFrames.navPosllh(i, i, -i, 0, 0, 0, 0));
+            if (i % 10 == 0) {
+                parts.add(UbxTestFrames.frame(0x01, 0x03, new byte[16]));
+                parts.add(new byte[]{0x11, 0x22});
+            }
+        }
+        byte[] data = UbxTestFrames.concat(parts.toArray(new byte[0][]));
+        // 环形缓冲区能容纳的读取次数少于时间戳队列的长度
+        UbxPipeline pipeline = new UbxPipeline(new FakeByteSource(data, 700, 5),
+                16 * 1024, UbxPipeline.OverflowPolicy.BLOCK);
+        long[] missingReadTime = new long[1];
+        pipeline.subscribe((frame, offset, length) -> {
+            if (pipeline.currentFrameReadNanos() == 0) {
+                missingReadTime[0]++;
+            }
+        });
+        pipeline.start();
+        assertTrue(pipeline.awaitCompletion(10000));
+
+        MetricsSnapshot.Channel channel = pipeline.snapshot("gps");
+        assertEquals(data.length, channel.bytesRead);
+        long reads = 0;
+        for (long n : channel.readSizeCounts) {
+            reads += n;
+        }
+        assertEquals(channel.reads, reads);
+        assertTrue(channel.reads >= data.length / 700);
+        assertEquals(count, channel.messageCount(0x01, 0x02));
+        assertEquals(count / 10, channel.messageCount(0x01, 0x03));
+        assertEquals(2, channel.messageTypeCount());
+        assertEquals(count + count / 10, channel.frames);
+        assertEquals(count / 10 * 2, channel.discardedBytes);
+        assertEquals(count / 10, channel.resyncs);
+        assertTrue(channel.maxQueuedBytes > 0);
+        // 每一帧都找到了读取时间
+        assertEquals(0, missingReadTime[0]);
+        assertEquals(channel.frames, channel.readToDecode.count);
+        assertTrue(channel.appendTo(new StringBuilder()).toString().contains("01-02=" + count));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PositionPredictorTest {
+
+    private static final int LAT0 = 13404167;
+    private static final int LON0 = 1036801290;
+
+    // 以 speed m/s 绕半径 radius m 的圆运动，10 Hz，位置噪声 sigma m
+    private static PredictorEvaluator drive(PositionPredictor predictor, double speed, double radius,
+                                            double sigma, int fixes) {
+        PredictorEvaluator evaluator = new PredictorEvaluator(predictor);
+        Random random = new Random(5);
+        double metersPerDegreeLon = UbxUnits.METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT0 / 1e7));
+        for (int i = 0; i < fixes; i++) {
+            double t = i * 0.1;
+            double angle = speed * t / radius;
+            double east = radius * Math.sin(angle) + sigma * random.nextGaussian();
+            double north = radius * (1 - Math.cos(angle)) + sigma * random.nextGaussian();
+            int lat = LAT0 + UbxUnits.toE7(north / UbxUnits.METERS_PER_DEGREE);
+            int lon = LON0 + UbxUnits.toE7(east / metersPerDegreeLon);
+            evaluator.add(100_000 + i * 100L, lat, lon, (long) (sigma * 1000 * Math.sqrt(2)));
+        }
+        return evaluator;
+    }
+
+    @Test
+    public void predictionBeatsHoldingLastFix() {
+        PredictorEvaluator cv = drive(new PositionPredictor(), 10, 200, 0.05, 2000);
+        assertTrue("cv " + cv.predictedRms() + " hold " + cv.holdRms(), cv.predictedRms() < cv.holdRms() / 4);
+        PredictorEvaluator ca = drive(new PositionPredictor(PositionPredictor.Model.CONSTANT_ACCELERATION,
+                PositionPredictor.DEFAULT_CA_NOISE), 10, 200, 0.05, 2000);
+        assertTrue("ca " + ca.predictedRms() + " hold " + ca.holdRms(), ca.predictedRms() < ca.holdRms() / 4);
+    }
+
+    @Test
+    public void estimatesSpeedAndCourse() {
+        PositionPredictor predictor = new PositionPredictor();
+        double metersPerDegreeLon = UbxUnits.METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT0 / 1e7));
+        // 向东 5 m/s
+        for (int i = 0; i < 100; i++) {
+            predictor.update(i * 100L, LAT0, LON0 + UbxUnits.toE7(0.5 * i / metersPerDegreeLon), 100, i * 100_000_000L);
+        }
+        assertEquals(5.0, predictor.speed(), 0.05);
+        assertEquals(90f, predictor.heading(), 1f);
+
+        // 本地时间比最后一次定位晚 50 ms 时应再向东 0.25 m
+        assertTrue(predictor.predict(99 * 100_000_000L + 50_000_000L));
+        double ahead = PredictorEvaluator.distance(LAT0, LON0 + UbxUnits.toE7(49.5 / metersPerDegreeLon),
+                predictor.predictedLatE7(), predictor.predictedLonE7());
+        assertEquals(0.25, ahead, 0.03);
+        // 外推有上限
+        predictor.predict(99 * 100_000_000L + 60_000_000_000L);
+        double limited = PredictorEvaluator.distance(LAT0, LON0 + UbxUnits.toE7(49.5 / metersPerDegreeLon),
+                predictor.predictedLatE7(), predictor.predictedLonE7());
+        assertEquals(5.0 * PositionPredictor.MAX_EXTRAPOLATION_MS / 1000.0, limited, 0.1);
+    }
+
+    @Test
+    public void stationaryUsesCompassHeadingAndStaysPut() {
+        PositionPredictor predictor = new PositionPredictor();
+        assertFalse(predictor.predict(0));
+        predictor.setCompassHeading(123f);
+        Random random = new Random(9);
+        for (int i = 0; i < 200; i++) {
+            predictor.update(i * 100L, LAT0 + (int) (random.nextGaussian() * 2), LON0 + (int) (random.nextGaussian() * 2),
+                    300, i * 100_000_000L);
+        }
+        assertEquals(123f, predictor.heading(), 0f);
+        predictor.predict(200 * 100_000_000L);
+        assertTrue(PredictorEvaluator.distance(LAT0, LON0, predictor.predictedLatE7(), predictor.predictedLonE7()) < 0.5);
+    }
+
+    @Test
+    public void largeGapReinitializes() {
+        PositionPredictor predictor = new PositionPredictor();
+        predictor.update(0, LAT0, LON0, 100, 0);
+        predictor.update(100, LAT0, LON0 + 100, 100, 100_000_000L);
+        predictor.update(100 + PositionPredictor.MAX_GAP_MS + 1, LAT0 + 1_000_000, LON0, 100, 0);
+        assertEquals(0, predictor.speed(), 0);
+        assertEquals(LAT0 + 1_000_000, predictor.predictedLatE7());
+    }
+}
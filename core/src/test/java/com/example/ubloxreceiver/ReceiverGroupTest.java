@@ -0,0 +1,133 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ReceiverGroupTest {
+
+    // 整个数据流小于流水线的环形缓冲区，读取再快也不会丢数据
+    private static byte[] stream(int count, int hAcc) {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            frames.add(UbxTestFrames.navPosllh(i * 100, i, -i, 0, 0, hAcc, 0));
+        }
+        return UbxTestFrames.concat(frames.toArray(new byte[0][]));
+    }
+
+    private static void await(ReceiverGroup.Channel channel) throws InterruptedException {
+        assertTrue(channel.getPipeline().awaitCompletion(10000));
+    }
+
+    @Test
+    public void everyReceiverIsDecodedAndMergedByItow() throws Exception {
+        int count = 1500;
+        AtomicInteger epochs = new AtomicInteger();
+        AtomicInteger fromSecond = new AtomicInteger();
+        AtomicLong lastTime = new AtomicLong(-1);
+        AtomicInteger outOfOrder = new AtomicInteger();
+        // 窗口不小于历元数，无论两个通道谁快谁慢，每个历元都能等到两台接收机
+        ReceiverGroup group = new ReceiverGroup(3, count, epoch -> {
+            epochs.incrementAndGet();
+            if (epoch.timeMs() <= lastTime.getAndSet(epoch.timeMs())) {
+                outOfOrder.incrementAndGet();
+            }
+            if (epoch.best() == 1) {
+                fromSecond.incrementAndGet();
+            }
+        });
+        ReceiverGroup.Channel a = group.add("a", new FakeByteSource(stream(count, 900), 700, 1));
+        ReceiverGroup.Channel b = group.add("b", new FakeByteSource(stream(count, 300), 300, 2));
+        a.start();
+        b.start();
+        await(a);
+        await(b);
+        group.close();
+
+        assertEquals(count, a.getFixCount());
+        assertEquals(count, b.getFixCount());
+        assertEquals(36L * count, a.getBytesRead());
+        assertEquals(count, b.getFrameCount());
+        EpochMerger merger = group.getMerger();
+        assertEquals(count, epochs.get());
+        assertEquals(count, merger.getCompleteCount());
+        assertEquals(0, merger.getLateCount());
+        assertEquals(0, outOfOrder.get());
+        // 第二台的精度更好
+        assertEquals(count, fromSecond.get());
+    }
+
+    @Test
+    public void stalledReceiverDoesNotBlockTheOthers() throws Exception {
+        int count = 1500;
+        AtomicInteger epochs = new AtomicInteger();
+        ReceiverGroup group = new ReceiverGroup(2, 4, epoch -> epochs.incrementAndGet());
+        // 第二台一直没有数据，直到被关闭
+        ByteSource silent = new ByteSource() {
+            @Override
+            public int read(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+                try {
+                    Thread.sleep(timeoutMs);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ReceiverGroup.Channel fast = group.add("fast", new FakeByteSource(stream(count, 500), 512, 3));
+        ReceiverGroup.Channel slow = group.add("slow", silent);
+        slow.start();
+        fast.start();
+        await(fast);
+
+        assertEquals(count, fast.getFixCount());
+        assertEquals(0, slow.getFixCount());
+        // 只有窗口中的历元还在等待
+        assertEquals(count - 4, epochs.get());
+        assertEquals(4, group.getMerger().getPendingCount());
+
+        group.close();
+        assertEquals(count, epochs.get());
+        assertTrue(slow.isClosed());
+        assertTrue(group.channels().isEmpty());
+    }
+
+    @Test
+    public void channelCountIsBoundedAndSlotsAreReused() throws Exception {
+        ReceiverGroup group = new ReceiverGroup(1, 4, null);
+        ReceiverGroup.Channel first = group.add("first", new FakeByteSource(stream(10, 500), 64, 4));
+        try {
+            group.add("second", new FakeByteSource(new byte[0], 1, 5));
+            fail();
+        } catch (IOException expected) {
+            assertEquals(1, group.getRejectedCount());
+        }
+        first.start();
+        await(first);
+        group.remove(first);
+        assertTrue(first.getPipeline().awaitCompletion(0));
+
+        ReceiverGroup.Channel again = group.add("again", new FakeByteSource(stream(10, 500), 64, 6));
+        assertEquals(0, again.index());
+        again.start();
+        await(again);
+        assertEquals(10, again.getFixCount());
+        group.close();
+        try {
+            group.add("closed", new FakeByteSource(new byte[0], 1, 7));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ReplayByteSourceTest {
+
+    // count 个历元，间隔 intervalMs，每个历元前插入一条 NMEA 语句
+    private static byte[] mixedLog(int count, int intervalMs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] nmea = "$GNGSA,A,3,,,,,,,,,,,,,1.0,0.7,0.7*2D\r\n".getBytes();
+        for (int i = 0; i < count; i++) {
+            out.write(nmea, 0, nmea.length);
+            byte[] frame = UbxTestFrames.navPosllh(100_000 + i * intervalMs, i, i, 0, 0, 0, 0);
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static long replay(ReplayByteSource source, UbxFrameReassembler.FrameListener listener) throws Exception {
+        UbxPipeline pipeline = new UbxPipeline(source, 1 << 16, UbxPipeline.OverflowPolicy.BLOCK);
+        pipeline.subscribe(listener);
+        long start = System.nanoTime();
+        pipeline.start();
+        assertTrue(pipeline.awaitCompletion(10000));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Test
+    public void maxSpeedDeliversEveryFrame() throws Exception {
+        byte[] log = mixedLog(5000, 100);
+        ReplayByteSource source = new ReplayByteSource(
+                new InputStreamByteSource(new ByteArrayInputStream(log)), ReplayByteSource.MAX_SPEED);
+        long[] count = new long[1];
+        replay(source, (frame, offset, length) -> count[0]++);
+        assertEquals(5000, count[0]);
+        assertEquals(5000, source.getFrames());
+        assertEquals(log.length, source.getBytes());
+        assertTrue(source.getFramesPerSecond() > 0);
+        assertTrue(source.getMegabytesPerSecond() > 0);
+    }
+
+    @Test
+    public void pacedReplayFollowsITOW() throws Exception {
+        // 2 秒的记录以 10 倍速回放，约 200 ms
+        byte[] log = mixedLog(21, 100);
+        ReplayByteSource source = new ReplayByteSource(
+                new InputStreamByteSource(new ByteArrayInputStream(log)), 10, 64);
+        long[] count = new long[1];
+        long elapsedMs = replay(source, (frame, offset, length) -> count[0]++);
+        assertEquals(21, count[0]);
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 190);
+        assertTrue("elapsed " + elapsedMs, elapsedMs < 2000);
+    }
+}
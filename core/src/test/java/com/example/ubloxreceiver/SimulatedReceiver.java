@@ -0,0 +1,140 @@
+package com.example.ubloxreceiver;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// 测试用的模拟接收机：作为 ByteSink 接收配置帧，在另一个线程里把应答送进解码器，和真实设备一样异步
+// 只认识 knownKeys 中的配置项，其他 ID 回 NAK；支持 VALSET 事务和 VALGET
+class SimulatedReceiver implements ByteSink {
+
+    final Map<Integer, Long> ram = new HashMap<>();
+    final Set<Integer> knownKeys = new HashSet<>();
+    // 接下来要丢弃的应答数，用来模拟超时
+    volatile int dropResponses;
+    volatile long responseDelayMs;
+
+    private final UbxFrameReassembler input;
+    private final BlockingQueue<byte[]> responses = new LinkedBlockingQueue<>();
+    private final Thread responder;
+    private final Map<Integer, Long> transaction = new HashMap<>();
+    private boolean transactionFailed;
+    private volatile boolean closed;
+
+    SimulatedReceiver(UbxFrameReassembler.FrameListener decoder) {
+        UbxFrameReassembler output = new UbxFrameReassembler(decoder);
+        input = new UbxFrameReassembler(this::onCommand);
+        responder = new Thread(() -> {
+            try {
+                while (!closed) {
+                    byte[] response = responses.take();
+                    if (response.length == 0) {
+                        return;
+                    }
+                    long delay = responseDelayMs;
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                    output.push(response, 0, response.length);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "simulated-receiver");
+        responder.start();
+    }
+
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length, int timeoutMs) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        input.push(buffer, offset, length);
+    }
+
+    private void onCommand(byte[] frame, int offset, int length) {
+        int cls = frame[offset + 2] & 0xFF;
+        int id = frame[offset + 3] & 0xFF;
+        int payload = offset + UbxFrameReassembler.HEADER_LENGTH;
+        int payloadLength = length - UbxFrameReassembler.FRAME_OVERHEAD;
+        boolean ok;
+        if (cls == CfgValset.MESSAGE_CLASS && id == CfgValset.MESSAGE_ID) {
+            ok = valset(frame, payload, payloadLength);
+        } else if (cls == CfgValgetView.MESSAGE_CLASS && id == CfgValgetView.MESSAGE_ID) {
+            ok = valget(frame, payload, payloadLength);
+        } else {
+            ok = false;
+        }
+        respond(UbxFrames.build(0x05, ok ? AckView.ID_ACK : AckView.ID_NAK, new byte[]{(byte) cls, (byte) id}, 2));
+    }
+
+    private boolean valset(byte[] frame, int payload, int payloadLength) {
+        int version = frame[payload] & 0xFF;
+        int transactionFlag = version == 1 ? frame[payload + 2] & 0xFF : 0;
+        if (transactionFlag == 0 || transactionFlag == 1) {
+            transaction.clear();
+            transactionFailed = false;
+        }
+        boolean ok = true;
+        for (int p = payload + 4; p < payload + payloadLength; ) {
+            int key = UbxBytes.i4(frame, p);
+            int size = UbxConfigKeys.valueSize(key);
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value |= (long) (frame[p + 4 + i] & 0xFF) << (8 * i);
+            }
+            if (!knownKeys.contains(key)) {
+                ok = false;
+            }
+            transaction.put(key, value);
+            p += 4 + size;
+        }
+        transactionFailed |= !ok;
+        if ((transactionFlag == 0 || transactionFlag == 3) && !transactionFailed) {
+            ram.putAll(transaction);
+        }
+        return ok;
+    }
+
+    private boolean valget(byte[] frame, int payload, int payloadLength) {
+        byte[] out = new byte[4 + 12 * ((payloadLength - 4) / 4)];
+        out[0] = 1;
+        int length = 4;
+        for (int p = payload + 4; p < payload + payloadLength; p += 4) {
+            int key = UbxBytes.i4(frame, p);
+            Long value = ram.get(key);
+            if (value == null) {
+                return false;
+            }
+            int size = UbxConfigKeys.valueSize(key);
+            UbxBytes.put(out, length, key, 4);
+            UbxBytes.put(out, length + 4, value, size);
+            length += 4 + size;
+        }
+        respond(UbxFrames.build(CfgValgetView.MESSAGE_CLASS, CfgValgetView.MESSAGE_ID, out, length));
+        return true;
+    }
+
+    private void respond(byte[] response) {
+        if (dropResponses > 0) {
+            dropResponses--;
+            return;
+        }
+        responses.add(response);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        responses.add(new byte[0]);
+        try {
+            responder.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
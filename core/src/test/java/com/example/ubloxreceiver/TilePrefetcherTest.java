@@ -0,0 +1,224 @@
+package com.example.ubloxreceiver;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TilePrefetcherTest {
+
+    private static final int ZOOM = 18;
+    private static final int X0 = 206_600;
+    private static final int Y0 = 129_400;
+
+    // 本机的瓦片服务：返回 "z/x/y"，记录同时进行的最大请求数；gate 关闭时请求在这里等待
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private final Map<Long, byte[]> stored = new ConcurrentHashMap<>();
+    private final TileCache cache = new TileCache() {
+        @Override
+        public boolean contains(long key) {
+            return stored.containsKey(key);
+        }
+
+        @Override
+        public void store(long key, byte[] data) {
+            stored.put(key, data);
+        }
+    };
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+                Thread.sleep(5);
+                String path = exchange.getRequestURI().getPath();
+                byte[] body = path.substring(1, path.lastIndexOf('.')).getBytes(StandardCharsets.US_ASCII);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+                served.incrementAndGet();
+            } catch (InterruptedException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private TileSource source() {
+        return new HttpTileSource("http://127.0.0.1:" + server.getAddress().getPort() + "/{z}/{x}/{y}.png", "test");
+    }
+
+    // 瓦片中心的经纬度
+    private static double centerLon(int x) {
+        return (x + 0.5) / (1 << ZOOM) * 360.0 - 180.0;
+    }
+
+    private static double centerLat(int y) {
+        double n = Math.PI * (1 - 2 * (y + 0.5) / (1 << ZOOM));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    private static void awaitIdle(TilePrefetcher prefetcher, long expectedRequests) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (prefetcher.getPendingCount() == 0 && prefetcher.getInFlightCount() == 0
+                    && prefetcher.getRequestedCount() >= expectedRequests) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("prefetcher did not finish: " + prefetcher.appendStats(new StringBuilder()));
+    }
+
+    @Test
+    public void corridorExtendsAlongTheHeading() {
+        long[] tiles = new long[64];
+        double lat = centerLat(Y0);
+        double lon = centerLon(X0);
+        // 向东 20 m/s，30 s 外推约 600 m，这个纬度上约 4 个瓦片
+        int count = TileCorridor.compute(lat, lon, 20, 90, 30, 1, ZOOM, tiles);
+        assertEquals(TileCorridor.tileKey(ZOOM, X0, Y0), tiles[0]);
+        int maxX = X0;
+        for (int i = 0; i < count; i++) {
+            assertEquals(ZOOM, TileCorridor.zoom(tiles[i]));
+            assertTrue(TileCorridor.x(tiles[i]) >= X0);
+            assertTrue(Math.abs(TileCorridor.y(tiles[i]) - Y0) <= 1);
+            // 由近到远
+            if (i > 0) {
+                assertTrue(TileCorridor.x(tiles[i]) >= TileCorridor.x(tiles[i - 1]));
+            }
+            maxX = Math.max(maxX, TileCorridor.x(tiles[i]));
+        }
+        assertEquals(X0 + 4, maxX);
+        assertEquals(5 * 3, count);
+
+        // 向北：y 减小
+        count = TileCorridor.compute(lat, lon, 20, 0, 30, 0, ZOOM, tiles);
+        assertEquals(5, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(X0, TileCorridor.x(tiles[i]));
+            assertEquals(Y0 - i, TileCorridor.y(tiles[i]));
+        }
+        // 静止时只有当前瓦片
+        assertEquals(1, TileCorridor.compute(lat, lon, 0, Double.NaN, 30, 0, ZOOM, tiles));
+    }
+
+    @Test
+    public void corridorIsFetchedOnceWithinTheConcurrencyLimit() throws Exception {
+        TilePrefetcher prefetcher = new TilePrefetcher(source(), cache, 2, 64);
+        prefetcher.start();
+        prefetcher.update(centerLat(Y0), centerLon(X0), 20, 90, ZOOM);
+        awaitIdle(prefetcher, 15);
+        assertEquals(15, prefetcher.getFetchedCount());
+        assertEquals(15, stored.size());
+        assertArrayEquals((ZOOM + "/" + (X0 + 4) + "/" + (Y0 + 1)).getBytes(StandardCharsets.US_ASCII),
+                stored.get(TileCorridor.tileKey(ZOOM, X0 + 4, Y0 + 1)));
+        assertTrue(maxActive.get() <= 2);
+
+        // 向前一个瓦片：只取新进入走廊的一列，其余已在缓存中
+        prefetcher.update(centerLat(Y0), centerLon(X0 + 1), 20, 92, ZOOM);
+        awaitIdle(prefetcher, 30);
+        assertEquals(18, prefetcher.getFetchedCount());
+        assertEquals(12, prefetcher.getCachedCount());
+        assertEquals(18, served.get());
+        prefetcher.close();
+    }
+
+    @Test
+    public void turningCancelsTilesThatAreNoLongerAhead() throws Exception {
+        gate = new CountDownLatch(1);
+        TilePrefetcher prefetcher = new TilePrefetcher(source(), cache, 2, 64);
+        prefetcher.setLookahead(30, 0);
+        prefetcher.start();
+        double lat = centerLat(Y0);
+        double lon = centerLon(X0);
+        prefetcher.update(lat, lon, 20, 90, ZOOM);
+        // 两个线程各取一个（X0 和 X0 + 1），其余三个排队
+        long deadline = System.currentTimeMillis() + 5000;
+        while (active.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, active.get());
+        assertEquals(3, prefetcher.getPendingCount());
+
+        // 掉头向西：排队的东侧瓦片直接丢弃，正在取的 X0 + 1 取回后丢弃
+        prefetcher.update(lat, lon, 20, 270, ZOOM);
+        assertEquals(1, prefetcher.getDirectionChangeCount());
+        assertEquals(3, prefetcher.getCancelledCount());
+        gate.countDown();
+        awaitIdle(prefetcher, 6);
+        assertEquals(4, prefetcher.getCancelledCount());
+        for (long key : stored.keySet()) {
+            assertTrue(TileCorridor.x(key) <= X0);
+        }
+        // X0 和西侧的 4 个
+        assertEquals(5, stored.size());
+        assertTrue(maxActive.get() <= 2);
+        prefetcher.close();
+    }
+
+    @Test
+    public void closeDoesNotWaitForRequestsInProgress() throws Exception {
+        gate = new CountDownLatch(1);
+        TilePrefetcher prefetcher = new TilePrefetcher(source(), cache, 2, 64);
+        prefetcher.start();
+        prefetcher.update(centerLat(Y0), centerLon(X0), 20, 90, ZOOM);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (active.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, active.get());
+
+        // 两个请求都卡在服务端，close() 立即返回
+        long start = System.nanoTime();
+        prefetcher.close();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(0, prefetcher.getPendingCount());
+        assertEquals(0, prefetcher.getInFlightCount());
+
+        // 关闭后取回的瓦片不再保存，线程随即退出
+        gate.countDown();
+        deadline = System.currentTimeMillis() + 5000;
+        while (prefetcher.getCancelledCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, prefetcher.getCancelledCount());
+        assertTrue(stored.isEmpty());
+    }
+}
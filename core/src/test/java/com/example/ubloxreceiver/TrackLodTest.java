@@ -0,0 +1,112 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackLodTest {
+
+    private static final int N = 5000;
+
+    private static TrackLod randomWalk(int[] xs, int[] ys) {
+        TrackLod lod = new TrackLod();
+        Random random = new Random(11);
+        int lat = 13404167;
+        int lon = 1036801290;
+        for (int i = 0; i < N; i++) {
+            // 大致向东北移动，带抖动，偶尔有一段跳变
+            lat += random.nextInt(300) - 100;
+            lon += random.nextInt(300) - 100;
+            if (i % 1000 == 999) {
+                lon += 2_000_000;
+            }
+            lod.append(lat, lon);
+            xs[i] = TrackLod.worldX(lon);
+            ys[i] = TrackLod.worldY(lat);
+        }
+        return lod;
+    }
+
+    @Test
+    public void simplifiedTrackStaysWithinTolerance() {
+        int[] xs = new int[N];
+        int[] ys = new int[N];
+        TrackLod lod = randomWalk(xs, ys);
+        assertEquals(N, lod.size());
+        int[] out = new int[4 * N + 4];
+        int previousVertices = 0;
+        for (int band = 0; band < lod.bandCount(); band++) {
+            int count = lod.query(band, 0, 0, TrackLod.WORLD_SIZE - 1, TrackLod.WORLD_SIZE - 1, out);
+            assertTrue(count > 0);
+            double unitsPerPixel = (double) TrackLod.WORLD_SIZE / (256.0 * (1L << TrackLod.BAND_ZOOMS[band]));
+            // 取整误差留 1 个单位
+            double tolerance = TrackLod.TOLERANCE_PX * unitsPerPixel + 1;
+            for (int i = 0; i < N; i++) {
+                assertTrue("band " + band + " point " + i,
+                        distanceToSegments(xs[i], ys[i], out, count) <= tolerance);
+            }
+            // 粗档位的顶点不多于细档位
+            int vertices = lod.vertexCount(band);
+            assertTrue(vertices >= previousVertices);
+            previousVertices = vertices;
+        }
+        assertTrue(lod.vertexCount(0) < N / 10);
+    }
+
+    @Test
+    public void viewportQueryMatchesBruteForce() {
+        int[] xs = new int[N];
+        int[] ys = new int[N];
+        TrackLod lod = randomWalk(xs, ys);
+        int band = lod.bandForZoom(17.5);
+        assertEquals(18, TrackLod.BAND_ZOOMS[band]);
+        int[] all = new int[4 * N + 4];
+        int total = lod.query(band, 0, 0, TrackLod.WORLD_SIZE - 1, TrackLod.WORLD_SIZE - 1, all);
+
+        // 以轨迹中间一点为中心、约一屏大小的视口
+        int span = TrackLod.WORLD_SIZE >> 18 << 2;
+        int minX = xs[N / 2] - span;
+        int maxX = xs[N / 2] + span;
+        int minY = ys[N / 2] - span;
+        int maxY = ys[N / 2] + span;
+        int[] out = new int[8];
+        int count = lod.query(band, minX, minY, maxX, maxY, out);
+        if (count < 0) {
+            out = new int[-count];
+            count = lod.query(band, minX, minY, maxX, maxY, out);
+        }
+        int expected = 0;
+        for (int i = 0; i < total; i += 4) {
+            if (Math.max(all[i], all[i + 2]) >= minX && Math.min(all[i], all[i + 2]) <= maxX
+                    && Math.max(all[i + 1], all[i + 3]) >= minY && Math.min(all[i + 1], all[i + 3]) <= maxY) {
+                expected += 4;
+            }
+        }
+        // 末尾连到最新点的线段总会输出
+        boolean tailVisible = Math.max(all[total - 4], all[total - 2]) >= minX
+                && Math.min(all[total - 4], all[total - 2]) <= maxX
+                && Math.max(all[total - 3], all[total - 1]) >= minY
+                && Math.min(all[total - 3], all[total - 1]) <= maxY;
+        assertEquals(tailVisible ? expected : expected + 4, count);
+        assertTrue(count > 4);
+        assertTrue(count < total / 4);
+    }
+
+    private static double distanceToSegments(int px, int py, int[] segments, int count) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < count; i += 4) {
+            double ax = segments[i];
+            double ay = segments[i + 1];
+            double dx = segments[i + 2] - ax;
+            double dy = segments[i + 3] - ay;
+            double length2 = dx * dx + dy * dy;
+            double t = length2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / length2));
+            double ex = px - ax - t * dx;
+            double ey = py - ay - t * dy;
+            best = Math.min(best, Math.sqrt(ex * ex + ey * ey));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackStoreTest {
+
+    @Test
+    public void randomAccessReturnsExactValues() {
+        TrackStore store = new TrackStore();
+        Random random = new Random(7);
+        int n = 10 * TrackStore.CHUNK_SIZE + 123;
+        long[] time = new long[n];
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        int[] height = new int[n];
+        int[] hAcc = new int[n];
+        long t = 500_000_000L;
+        int la = 13404167;
+        int lo = 1036801290;
+        for (int i = 0; i < n; i++) {
+            t += 100;
+            la += random.nextInt(201) - 100;
+            lo += random.nextInt(201) - 100;
+            time[i] = t;
+            lat[i] = la;
+            lon[i] = lo;
+            // 偶尔出现大跳变和负值
+            height[i] = i % 500 == 0 ? Integer.MIN_VALUE + i : random.nextInt(20000) - 1000;
+            hAcc[i] = i % 777 == 0 ? Integer.MAX_VALUE : 1000 + random.nextInt(500);
+            store.append(time[i], lat[i], lon[i], height[i], hAcc[i]);
+        }
+        assertEquals(n, store.size());
+
+        TrackStore.Cursor cursor = store.cursor();
+        for (int k = 0; k < 20000; k++) {
+            int i = k < n ? (k * 7919) % n : random.nextInt(n);
+            assertTrue(cursor.moveTo(i));
+            assertEquals(time[i], cursor.timeMs());
+            assertEquals(lat[i], cursor.latE7());
+            assertEquals(lon[i], cursor.lonE7());
+            assertEquals(height[i], cursor.heightMm());
+            assertEquals(hAcc[i], cursor.hAccMm());
+        }
+        assertFalse(cursor.moveTo(n));
+        assertFalse(cursor.moveTo(-1));
+    }
+
+    @Test
+    public void typicalTrackCompressesWellBelowRawSize() {
+        TrackStore store = new TrackStore();
+        // 10 Hz，约 1 m/s 的缓慢移动，8 小时
+        int n = 8 * 3600 * 10;
+        for (int i = 0; i < n; i++) {
+            store.append(100L * i, 13404167 + i, 1036801290 + i / 2, 15000 + (i % 7), 1500 + (i % 3));
+        }
+        // 未压缩时每个点 24 字节，GeoPoint 对象则更多
+        assertTrue("bytes/fix " + store.bytesPerFix(), store.bytesPerFix() < 8);
+    }
+
+    @Test
+    public void concurrentReaderNeverSeesPartialFix() throws Exception {
+        TrackStore store = new TrackStore();
+        int n = 50 * TrackStore.CHUNK_SIZE;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                store.append(i, i, -i, 2 * i, 3 * i);
+            }
+        });
+        writer.start();
+        TrackStore.Cursor cursor = store.cursor();
+        Random random = new Random(1);
+        while (writer.isAlive() || store.size() < n) {
+            int size = store.size();
+            if (size == 0) {
+                continue;
+            }
+            int i = size - 1 - random.nextInt(Math.min(size, 3 * TrackStore.CHUNK_SIZE));
+            assertTrue(cursor.moveTo(i));
+            assertEquals(i, cursor.timeMs());
+            assertEquals(-i, cursor.lonE7());
+            assertEquals(3 * i, cursor.hAccMm());
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class TripleBufferTest {
+
+    private final TripleBuffer<long[]> buffer = new TripleBuffer<>(new long[2], new long[2], new long[2]);
+
+    @Test
+    public void consumerSeesOnlyLatestValue() {
+        assertFalse(buffer.update());
+        for (int i = 1; i <= 3; i++) {
+            buffer.writeBuffer()[0] = i;
+            buffer.publish();
+        }
+        assertTrue(buffer.update());
+        assertEquals(3, buffer.readBuffer()[0]);
+        assertFalse(buffer.update());
+        assertEquals(3, buffer.readBuffer()[0]);
+    }
+
+    @Test
+    public void concurrentValuesAreNeverTornOrOlder() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            for (long i = 1; i <= 2_000_000; i++) {
+                long[] slot = buffer.writeBuffer();
+                slot[0] = i;
+                slot[1] = -i;
+                buffer.publish();
+            }
+            done.set(true);
+        });
+        producer.start();
+        long last = 0;
+        while (true) {
+            boolean finished = done.get();
+            if (buffer.update()) {
+                long[] value = buffer.readBuffer();
+                assertEquals(value[0], -value[1]);
+                assertTrue(value[0] > last);
+                last = value[0];
+            } else if (finished) {
+                break;
+            }
+        }
+        producer.join();
+        assertEquals(2_000_000, buffer.readBuffer()[0]);
+    }
+}
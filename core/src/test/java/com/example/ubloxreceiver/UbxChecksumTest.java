@@ -0,0 +1,47 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UbxChecksumTest {
+
+    @Test
+    public void ringChecksumMatchesLinearChecksumAcrossTheWrap() {
+        Random random = new Random(8);
+        byte[] payload = new byte[300];
+        random.nextBytes(payload);
+        byte[] frame = UbxTestFrames.frame(0x01, 0x35, payload);
+        int expected = UbxChecksum.compute(frame, 2, frame.length - 4);
+        assertEquals(UbxBytes.u2(frame, frame.length - 2), expected);
+
+        byte[] ring = new byte[512];
+        // 包括跨过缓冲区末尾的位置，流位置超过容量时按 mask 取下标
+        for (long start = 0; start < 2 * ring.length; start += 7) {
+            for (int i = 0; i < frame.length; i++) {
+                ring[(int) ((start + i) & (ring.length - 1))] = frame[i];
+            }
+            assertEquals("start " + start, expected,
+                    UbxChecksum.compute(ring, ring.length - 1, start + 2, frame.length - 4));
+        }
+    }
+
+    // 最长的负载，中间值溢出 int 后结果仍然正确
+    @Test
+    public void longPayloadChecksumKeepsTheLowBits() {
+        byte[] data = new byte[65_536];
+        Arrays.fill(data, (byte) 0xFF);
+        int ckA = 0;
+        int ckB = 0;
+        for (byte b : data) {
+            ckA = (ckA + (b & 0xFF)) & 0xFF;
+            ckB = (ckB + ckA) & 0xFF;
+        }
+        assertEquals(ckA | ckB << 8, UbxChecksum.compute(data, 0, data.length));
+        assertEquals(ckA | ckB << 8, UbxChecksum.compute(data, data.length - 1, 1000, data.length));
+        assertEquals(ckA | ckB << 8, UbxChecksum.compute(data, data.length - 1, 1000 + data.length, data.length));
+    }
+}
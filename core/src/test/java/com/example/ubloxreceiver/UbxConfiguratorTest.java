@@ -0,0 +1,155 @@
+package com.example.ubloxreceiver;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UbxConfiguratorTest {
+
+    private final UbxDecoder decoder = new UbxDecoder();
+    private final SimulatedReceiver receiver = new SimulatedReceiver(decoder);
+    private final UbxConfigurator configurator = new UbxConfigurator(receiver);
+
+    {
+        configurator.register(decoder);
+        int[] keys = {
+                UbxConfigKeys.RATE_MEAS, UbxConfigKeys.RATE_NAV,
+                UbxConfigKeys.USBOUTPROT_UBX, UbxConfigKeys.USBOUTPROT_NMEA,
+                UbxConfigKeys.MSGOUT_NAV_PVT_USB, UbxConfigKeys.MSGOUT_NAV_POSLLH_USB,
+                UbxConfigKeys.MSGOUT_NAV_SAT_USB, UbxConfigKeys.MSGOUT_NAV_STATUS_USB,
+                UbxConfigKeys.MSGOUT_NAV_DOP_USB, UbxConfigKeys.MSGOUT_NAV_TIMEUTC_USB};
+        for (int key : keys) {
+            receiver.knownKeys.add(key);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        receiver.close();
+    }
+
+    @Test
+    public void valsetFrameLayout() {
+        List<byte[]> frames = new CfgValset(CfgValset.LAYER_RAM)
+                .set(UbxConfigKeys.RATE_MEAS, 50)
+                .set(UbxConfigKeys.MSGOUT_NAV_PVT_USB, 1)
+                .toFrames();
+        assertEquals(1, frames.size());
+        byte[] frame = frames.get(0);
+        assertTrue(UbxChecksum.isValid(frame, 0, frame.length));
+        assertEquals(0x06, frame[2]);
+        assertEquals((byte) 0x8A, frame[3]);
+        // 4 字节头 + (4 + 2) + (4 + 1)
+        assertEquals(15, UbxBytes.u2(frame, 4));
+        assertEquals(CfgValset.LAYER_RAM, frame[7]);
+        assertEquals(UbxConfigKeys.RATE_MEAS, UbxBytes.i4(frame, 10));
+        assertEquals(50, UbxBytes.u2(frame, 14));
+        assertEquals(UbxConfigKeys.MSGOUT_NAV_PVT_USB, UbxBytes.i4(frame, 16));
+        assertEquals(1, frame[20]);
+    }
+
+    @Test
+    public void appliesNamedProfile() throws Exception {
+        UbxConfigProfile profile = UbxConfigProfile.byName("20 Hz NAV-PVT only");
+        assertSame(UbxConfigProfile.NAV_PVT_20HZ, profile);
+        assertTrue(configurator.apply(profile, UbxConfigurator.DEFAULT_TIMEOUT_MS));
+        assertEquals(Long.valueOf(50), receiver.ram.get(UbxConfigKeys.RATE_MEAS));
+        assertEquals(Long.valueOf(0), receiver.ram.get(UbxConfigKeys.USBOUTPROT_NMEA));
+        assertEquals(Long.valueOf(1), receiver.ram.get(UbxConfigKeys.MSGOUT_NAV_PVT_USB));
+        assertEquals(1, configurator.getAckCount());
+        assertEquals(0, configurator.getPendingCount());
+    }
+
+    @Test
+    public void nakIsReported() throws Exception {
+        CfgValset valset = new CfgValset(CfgValset.LAYER_RAM)
+                .set(UbxConfigKeys.RATE_MEAS, 100)
+                .set(UbxConfigKeys.MSGOUT_NAV_SAT_USB + 0x100, 1);
+        assertFalse(configurator.apply(valset, UbxConfigurator.DEFAULT_TIMEOUT_MS));
+        assertEquals(1, configurator.getNakCount());
+        assertNull(receiver.ram.get(UbxConfigKeys.RATE_MEAS));
+    }
+
+    @Test
+    public void largeBatchUsesTransaction() throws Exception {
+        CfgValset valset = new CfgValset(CfgValset.LAYER_RAM);
+        for (int i = 0; i < 150; i++) {
+            int key = 0x20910100 + i;
+            receiver.knownKeys.add(key);
+            valset.set(key, i & 0xFF);
+        }
+        List<byte[]> frames = valset.toFrames();
+        assertEquals(3, frames.size());
+        // 版本 1，事务标志依次为开始、继续、应用
+        assertEquals(1, frames.get(0)[6]);
+        assertEquals(1, frames.get(0)[8]);
+        assertEquals(2, frames.get(1)[8]);
+        assertEquals(3, frames.get(2)[8]);
+        assertTrue(configurator.apply(valset, UbxConfigurator.DEFAULT_TIMEOUT_MS));
+        assertEquals(3, configurator.getAckCount());
+        assertEquals(150, receiver.ram.size());
+    }
+
+    @Test
+    public void timedOutRequestDoesNotStealLaterAck() throws Exception {
+        receiver.dropResponses = 1;
+        UbxConfigurator.Request lost = configurator.send(
+                new CfgValset(CfgValset.LAYER_RAM).set(UbxConfigKeys.RATE_NAV, 1).toFrames().get(0), 100);
+        assertFalse(lost.await());
+        assertEquals(UbxConfigurator.State.TIMED_OUT, lost.state());
+        assertEquals(1, configurator.getTimeoutCount());
+
+        assertTrue(configurator.apply(new CfgValset(CfgValset.LAYER_RAM).set(UbxConfigKeys.RATE_MEAS, 200), 1000));
+        assertEquals(0, configurator.getPendingCount());
+    }
+
+    @Test
+    public void lateAckAfterTimeoutIsUnmatched() throws Exception {
+        receiver.responseDelayMs = 300;
+        UbxConfigurator.Request request = configurator.send(
+                new CfgValset(CfgValset.LAYER_RAM).set(UbxConfigKeys.RATE_NAV, 2).toFrames().get(0), 50);
+        assertFalse(request.await());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (configurator.getUnmatchedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, configurator.getUnmatchedCount());
+        assertEquals(UbxConfigurator.State.TIMED_OUT, request.state());
+    }
+
+    @Test
+    public void pipelinedRequestsAreMatchedInOrder() throws Exception {
+        UbxConfigurator.Request[] requests = new UbxConfigurator.Request[20];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = configurator.send(
+                    new CfgValset(CfgValset.LAYER_RAM).set(UbxConfigKeys.RATE_MEAS, 50 + i).toFrames().get(0), 1000);
+        }
+        for (UbxConfigurator.Request request : requests) {
+            assertTrue(request.await());
+        }
+        assertEquals(Long.valueOf(69), receiver.ram.get(UbxConfigKeys.RATE_MEAS));
+    }
+
+    @Test
+    public void valgetReturnsValues() throws Exception {
+        assertTrue(configurator.apply(UbxConfigProfile.NAV_PVT_20HZ, 1000));
+        UbxConfigurator.Request request = configurator.poll(0, 1000,
+                UbxConfigKeys.RATE_MEAS, UbxConfigKeys.MSGOUT_NAV_PVT_USB);
+        assertTrue(request.await());
+        byte[] frame = request.response();
+        assertNotNull(frame);
+        CfgValgetView view = new CfgValgetView();
+        view.wrap(frame, UbxFrameReassembler.HEADER_LENGTH, frame.length - UbxFrameReassembler.FRAME_OVERHEAD);
+        assertEquals(50, view.find(UbxConfigKeys.RATE_MEAS, -1));
+        assertEquals(1, view.find(UbxConfigKeys.MSGOUT_NAV_PVT_USB, -1));
+        assertEquals(-1, view.find(UbxConfigKeys.RATE_NAV, -1));
+        int entries = 0;
+        for (int p = view.first(); p >= 0; p = view.next(p)) {
+            entries++;
+        }
+        assertEquals(2, entries);
+    }
+}
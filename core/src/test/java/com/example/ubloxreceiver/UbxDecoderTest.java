@@ -0,0 +1,90 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UbxDecoderTest {
+
+    private final UbxDecoder decoder = new UbxDecoder();
+    private final UbxFrameReassembler framer = new UbxFrameReassembler(decoder);
+
+    private void push(byte[] frame) {
+        framer.push(frame, 0, frame.length);
+    }
+
+    @Test
+    public void decodesNavPosllhFields() {
+        long[] seen = new long[7];
+        decoder.register(new NavPosllhView(), m -> {
+            seen[0] = m.iTOW();
+            seen[1] = m.lon();
+            seen[2] = m.lat();
+            seen[3] = m.height();
+            seen[4] = m.hMSL();
+            seen[5] = m.hAcc();
+            seen[6] = m.vAcc();
+        });
+        push(UbxTestFrames.navPosllh(0xF0000000, -1036801290, 13404167, 12345, -678, 1500, 2500));
+        assertArrayEquals(new long[]{0xF0000000L, -1036801290, 13404167, 12345, -678, 1500, 2500}, seen);
+        assertEquals(1, decoder.getDecodedCount());
+    }
+
+    @Test
+    public void decodesNavPvtVelocityAndPosition() {
+        NavPvtView[] last = new NavPvtView[1];
+        int[] values = new int[8];
+        decoder.register(new NavPvtView(), m -> {
+            last[0] = m;
+            values[0] = (int) m.iTOW();
+            values[1] = m.fixType();
+            values[2] = m.numSV();
+            values[3] = m.lon();
+            values[4] = m.lat();
+            values[5] = m.velE();
+            values[6] = m.headMot();
+            values[7] = m.pDOP();
+        });
+        push(UbxTestFrames.navPvt(123000, 3, 17, 1036801290, -13404167, 0, 0, 0, -250, 27000000, 134));
+        assertArrayEquals(new int[]{123000, 3, 17, 1036801290, -13404167, -250, 27000000, 134}, values);
+        assertTrue(last[0].gnssFixOk());
+    }
+
+    @Test
+    public void navSatBlocksAreIndexed() {
+        byte[] payload = new byte[8 + 2 * 12];
+        payload[5] = 2;
+        payload[8 + 12 + 1] = 31;
+        payload[8 + 12 + 2] = 44;
+        payload[8 + 12 + 3] = -5;
+        UbxTestFrames.putShort(payload, 8 + 12 + 4, 270);
+        payload[8 + 12 + 8] = 0x08;
+        int[] seen = new int[5];
+        decoder.register(new NavSatView(), m -> {
+            seen[0] = m.numSvs();
+            seen[1] = m.svId(1);
+            seen[2] = m.cno(1);
+            seen[3] = m.elev(1);
+            seen[4] = m.azim(1);
+            assertTrue(m.svUsed(1));
+            assertFalse(m.svUsed(0));
+        });
+        push(UbxTestFrames.frame(0x01, 0x35, payload));
+        assertArrayEquals(new int[]{2, 31, 44, -5, 270}, seen);
+
+        // numSvs 和负载长度不符
+        payload[5] = 3;
+        push(UbxTestFrames.frame(0x01, 0x35, payload));
+        assertEquals(1, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void unknownAndShortMessagesAreCounted() {
+        decoder.register(new NavDopView(), m -> fail());
+        push(UbxTestFrames.frame(0x0A, 0x04, new byte[60]));
+        push(UbxTestFrames.frame(0x01, 0x04, new byte[10]));
+        assertEquals(1, decoder.getUnknownCount());
+        assertEquals(1, decoder.getMalformedCount());
+        assertEquals(0, decoder.getDecodedCount());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UbxFrameReassemblerTest {
+
+    private final List<byte[]> frames = new ArrayList<>();
+    private final UbxFrameReassembler framer = new UbxFrameReassembler(
+            (frame, offset, length) -> frames.add(Arrays.copyOfRange(frame, offset, offset + length)));
+
+    @Test
+    public void frameSplitAcrossChunks() {
+        byte[] frame = UbxTestFrames.navPosllh(1000, 1036801290, 13404167, 10000, 9000, 1500, 2500);
+        framer.push(frame, 0, 5);
+        framer.push(frame, 5, 20);
+        assertTrue(frames.isEmpty());
+        framer.push(frame, 25, frame.length - 25);
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+    }
+
+    @Test
+    public void severalFramesInOneChunkWithGarbage() {
+        byte[] a = UbxTestFrames.navPosllh(1000, 1, 2, 3, 4, 5, 6);
+        byte[] b = UbxTestFrames.frame(0x01, 0x07, new byte[92]);
+        byte[] nmea = "$GNGGA,,,,,,0,00,99.99,,,,,,*56\r\n".getBytes();
+        byte[] stream = UbxTestFrames.concat(nmea, a, b, nmea, a);
+        framer.push(stream, 0, stream.length);
+        assertEquals(3, frames.size());
+        assertArrayEquals(b, frames.get(1));
+        assertEquals(2, framer.getResyncCount());
+        assertEquals(2L * nmea.length, framer.getDiscardedBytes());
+    }
+
+    @Test
+    public void checksumFailureResyncsInsideBadFrame() {
+        byte[] good = UbxTestFrames.navPosllh(2000, 1, 2, 3, 4, 5, 6);
+        byte[] bad = UbxTestFrames.frame(0x01, 0x02, new byte[40]);
+        bad[bad.length - 1] ^= 0x55;
+        // 损坏帧的负载里藏着一个完整的合法帧
+        System.arraycopy(good, 0, bad, 6, good.length);
+        framer.push(bad, 0, bad.length);
+        assertEquals(1, framer.getChecksumErrorCount());
+        assertEquals(1, frames.size());
+        assertArrayEquals(good, frames.get(0));
+    }
+
+    @Test
+    public void oversizedLengthIsRejected() {
+        UbxFrameReassembler small = new UbxFrameReassembler((frame, offset, length) -> frames.add(null), 64);
+        byte[] big = UbxTestFrames.frame(0x02, 0x15, new byte[100]);
+        small.push(big, 0, big.length);
+        assertEquals(1, small.getOversizedFrameCount());
+        assertTrue(frames.isEmpty());
+    }
+
+    @Test
+    public void randomChunkingYieldsEveryFrame() {
+        Random random = new Random(42);
+        int count = 2000;
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] payload = new byte[random.nextInt(300)];
+            random.nextBytes(payload);
+            parts.add(UbxTestFrames.frame(0x01, i & 0xFF, payload));
+        }
+        byte[] stream = UbxTestFrames.concat(parts.toArray(new byte[0][]));
+        int position = 0;
+        while (position < stream.length) {
+            int n = Math.min(1 + random.nextInt(1024), stream.length - position);
+            framer.push(stream, position, n);
+            position += n;
+        }
+        assertEquals(count, frames.size());
+        assertEquals(0, framer.getChecksumErrorCount());
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(parts.get(i), frames.get(i));
+        }
+    }
+
+    // 按 body 计算校验和，拼成完整的 NMEA 语句
+    static byte[] nmea(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        int checksum = NmeaSentence.checksum(bytes, 0, bytes.length);
+        return String.format(Locale.ROOT, "$%s*%02X\r\n", body, checksum).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void mixedProtocolsAreRoutedToTheirListeners() {
+        List<String> sentences = new ArrayList<>();
+        List<byte[]> rtcm = new ArrayList<>();
+        framer.setNmeaListener(sentence -> sentences.add(sentence.toString()));
+        framer.setRtcmListener((frame, offset, length) -> rtcm.add(Arrays.copyOfRange(frame, offset, offset + length)));
+
+        byte[] gga = nmea("GNGGA,092725.00,4717.11399,N,00833.91590,E,1,08,1.01,499.6,M,48.0,M,,");
+        byte[] badGga = gga.clone();
+        badGga[10] = '9';
+        byte[] ubx = UbxTestFrames.navPosllh(1000, 1, 2, 3, 4, 5, 6);
+        byte[] payload = new byte[19];
+        payload[0] = (byte) (1005 >> 4);
+        payload[1] = (byte) (1005 << 4);
+        byte[] rtcmFrame = Rtcm3.frame(payload);
+        byte[] epoch = UbxTestFrames.concat(gga, ubx, rtcmFrame, badGga, ubx);
+
+        Random random = new Random(7);
+        int count = 300;
+        byte[] stream = UbxTestFrames.concat(Collections.nCopies(count, epoch).toArray(new byte[0][]));
+        for (int position = 0; position < stream.length; ) {
+            int n = Math.min(1 + random.nextInt(64), stream.length - position);
+            framer.push(stream, position, n);
+            position += n;
+        }
+        assertEquals(2 * count, frames.size());
+        assertArrayEquals(ubx, frames.get(frames.size() - 1));
+        assertEquals(count, sentences.size());
+        assertEquals(new String(gga, StandardCharsets.US_ASCII).trim(), sentences.get(count - 1));
+        assertEquals(count, rtcm.size());
+        assertArrayEquals(rtcmFrame, rtcm.get(count - 1));
+        assertEquals(1005, Rtcm3.messageType(rtcm.get(0), 0));
+        assertEquals(count, framer.getNmeaSentenceCount());
+        assertEquals(count, framer.getNmeaChecksumErrorCount());
+        assertEquals(count, framer.getRtcmFrameCount());
+        assertEquals(0, framer.getChecksumErrorCount());
+        // 只有校验和错误的语句被丢弃
+        assertEquals((long) count * badGga.length, framer.getDiscardedBytes());
+    }
+
+    @Test
+    public void nmeaIsSkippedWithoutListener() {
+        byte[] gga = nmea("GPGGA,,,,,,0,00,99.99,,,,,,");
+        byte[] stream = UbxTestFrames.concat(gga, UbxTestFrames.navPosllh(1, 1, 1, 1, 1, 1, 1));
+        framer.push(stream, 0, stream.length);
+        assertEquals(1, frames.size());
+        assertEquals(0, framer.getNmeaSentenceCount());
+        assertEquals(gga.length, framer.getDiscardedBytes());
+    }
+
+    @Test
+    public void sentenceFieldsAreTokenizedOnlyOnDemand() {
+        boolean[] tokenized = new boolean[2];
+        double[] altitude = new double[1];
+        framer.setNmeaListener(sentence -> {
+            if (!sentence.isType("GGA")) {
+                tokenized[0] |= sentence.isTokenized();
+                return;
+            }
+            altitude[0] = sentence.fieldDouble(9);
+            tokenized[1] = sentence.isTokenized();
+        });
+        byte[] stream = UbxTestFrames.concat(
+                nmea("GNGSA,A,3,,,,,,,,,,,,,1.0,0.7,0.7"),
+                nmea("GNGGA,092725.00,4717.11399,N,00833.91590,E,1,08,1.01,499.6,M,48.0,M,,"));
+        framer.push(stream, 0, stream.length);
+        assertFalse(tokenized[0]);
+        assertTrue(tokenized[1]);
+        assertEquals(499.6, altitude[0], 1e-9);
+    }
+
+    @Test
+    public void rtcmCrcIsCheckedAndLengthWaitsForWholeFrame() {
+        assertEquals(0xCDE703, Rtcm3.crc24q("123456789".getBytes(StandardCharsets.US_ASCII), 0, 9));
+        List<byte[]> rtcm = new ArrayList<>();
+        framer.setRtcmListener((frame, offset, length) -> rtcm.add(Arrays.copyOfRange(frame, offset, offset + length)));
+        byte[] good = Rtcm3.frame(new byte[Rtcm3.MAX_PAYLOAD]);
+        assertTrue(Rtcm3.isValid(good, 0, good.length));
+        byte[] bad = Rtcm3.frame(new byte[40]);
+        bad[20] ^= 1;
+        assertFalse(Rtcm3.isValid(bad, 0, bad.length));
+        framer.push(bad, 0, bad.length);
+        framer.push(good, 0, 500);
+        assertTrue(rtcm.isEmpty());
+        framer.push(good, 500, good.length - 500);
+        assertEquals(1, rtcm.size());
+        assertArrayEquals(good, rtcm.get(0));
+        assertEquals(1, framer.getRtcmCrcErrorCount());
+    }
+}
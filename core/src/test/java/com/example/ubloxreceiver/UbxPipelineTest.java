@@ -0,0 +1,151 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class UbxPipelineTest {
+
+    private static byte[] stream(int count) {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            frames.add(UbxTestFrames.navPosllh(i, i, -i, 0, 0, 0, 0));
+        }
+        return UbxTestFrames.concat(frames.toArray(new byte[0][]));
+    }
+
+    @Test
+    public void everySubscriberSeesEveryFrameInOrder() throws Exception {
+        int count = 20000;
+        UbxPipeline pipeline = new UbxPipeline(new FakeByteSource(stream(count), 1024, 1),
+                1 << 20, UbxPipeline.OverflowPolicy.BLOCK);
+        UbxDecoder decoder = new UbxDecoder();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        decoder.register(new NavPosllhView(), m -> {
+            if (m.iTOW() != next.getAndIncrement()) {
+                outOfOrder.incrementAndGet();
+            }
+        });
+        AtomicInteger raw = new AtomicInteger();
+        pipeline.subscribe(decoder);
+        pipeline.subscribe((frame, offset, length) -> raw.incrementAndGet());
+        pipeline.start();
+        assertTrue(pipeline.awaitCompletion(10000));
+
+        assertEquals(count, next.get());
+        assertEquals(count, raw.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, pipeline.getDroppedBytes());
+        assertEquals(36L * count, pipeline.getBytesRead());
+    }
+
+    @Test
+    public void slowConsumerDropsWholeChunksWithoutCorruptingFrames() throws Exception {
+        int count = 5000;
+        UbxPipeline pipeline = new UbxPipeline(new FakeByteSource(stream(count), 512, 2),
+                4096, UbxPipeline.OverflowPolicy.DROP_NEWEST);
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger corrupt = new AtomicInteger();
+        UbxDecoder decoder = new UbxDecoder();
+        decoder.register(new NavPosllhView(), m -> {
+            received.incrementAndGet();
+            if (m.lon() != m.iTOW() || m.lat() != -m.lon()) {
+                corrupt.incrementAndGet();
+            }
+            try {
+                Thread.sleep(0, 200_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pipeline.subscribe(decoder);
+        pipeline.start();
+        assertTrue(pipeline.awaitCompletion(30000));
+
+        assertTrue(pipeline.getDroppedChunks() > 0);
+        assertEquals(36L * count, pipeline.getBytesRead());
+        assertTrue(received.get() < count);
+        // 被截断的帧在重组时被丢弃，交给订阅者的帧都是完整的
+        assertEquals(0, corrupt.get());
+    }
+
+    @Test
+    public void stopJoinsBothThreads() throws Exception {
+        ByteSource idle = new ByteSource() {
+            @Override
+            public int read(byte[] buffer, int offset, int length, int timeoutMs) throws java.io.IOException {
+                try {
+                    Thread.sleep(timeoutMs);
+                } catch (InterruptedException e) {
+                    throw new java.io.InterruptedIOException();
+                }
+                return 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        UbxPipeline pipeline = new UbxPipeline(idle);
+        pipeline.start();
+        assertTrue(pipeline.isRunning());
+        pipeline.stop();
+        assertFalse(pipeline.isRunning());
+        assertTrue(pipeline.awaitCompletion(0));
+    }
+
+    @Test
+    public void repeatedTimeoutsReportOneStall() throws Exception {
+        byte[] frame = UbxTestFrames.navPosllh(1, 2, 3, 4, 5, 6, 7);
+        // 10 次超时、一帧数据、再 10 次超时，然后结束
+        ByteSource source = new ByteSource() {
+            private int calls;
+
+            @Override
+            public int read(byte[] buffer, int offset, int length, int timeoutMs) {
+                calls++;
+                if (calls == 11) {
+                    System.arraycopy(frame, 0, buffer, offset, frame.length);
+                    return frame.length;
+                }
+                return calls > 21 ? -1 : 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AtomicInteger stalls = new AtomicInteger();
+        AtomicInteger resumes = new AtomicInteger();
+        UbxPipeline pipeline = new UbxPipeline(source);
+        pipeline.setSourceListener(new UbxPipeline.SourceListener() {
+            @Override
+            public void onStalled() {
+                stalls.incrementAndGet();
+            }
+
+            @Override
+            public void onResumed() {
+                resumes.incrementAndGet();
+            }
+
+            @Override
+            public void onSourceError(java.io.IOException e) {
+                fail();
+            }
+
+            @Override
+            public void onSourceEnd() {
+            }
+        });
+        pipeline.start();
+        assertTrue(pipeline.awaitCompletion(5000));
+        assertEquals(2, stalls.get());
+        assertEquals(1, resumes.get());
+    }
+}
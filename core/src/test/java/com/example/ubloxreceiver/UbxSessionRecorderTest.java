@@ -0,0 +1,101 @@
+package com.example.ubloxreceiver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class UbxSessionRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 每 100 ms 一个历元，共 count 个历元，包含一次周翻转
+    private static byte[] session(int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long iTOW = UbxSessionRecorder.WEEK_MS - 10_000;
+        for (int i = 0; i < count; i++) {
+            byte[] frame = UbxTestFrames.navPosllh((int) iTOW, i, 0, 0, 0, 0, 0);
+            out.write(frame, 0, frame.length);
+            iTOW = (iTOW + 100) % UbxSessionRecorder.WEEK_MS;
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(ByteSource source) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int n;
+        while ((n = source.read(buffer, 0, buffer.length, 0)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void recordsAcrossSegmentsAndSeeksByTime() throws Exception {
+        File dir = new File(folder.getRoot(), "s1");
+        byte[] data = session(1000);
+        UbxSessionRecorder recorder = new UbxSessionRecorder(dir, 4096, 1 << 16, 1000, 1000);
+        for (int offset = 0; offset < data.length; offset += 500) {
+            recorder.onBytes(data, offset, Math.min(500, data.length - offset));
+            Thread.sleep(1);
+        }
+        recorder.close();
+        assertEquals(0, recorder.getDroppedBytes());
+        assertTrue(new File(dir, "seg-00008.ubx").exists());
+
+        UbxSessionReader reader = new UbxSessionReader(dir);
+        assertEquals(data.length, reader.length());
+        assertArrayEquals(data, readAll(reader.openSource(0)));
+        // 100 s 的数据，每秒一个索引项
+        assertEquals(100, reader.indexSize());
+
+        // 跨周后第 5 秒：第 150 个历元
+        long key = UbxSessionRecorder.WEEK_MS + 5000;
+        long offset = reader.offsetForTime(key);
+        assertEquals(150L * 36, offset);
+        UbxDecoder decoder = new UbxDecoder();
+        long[] first = {-1};
+        decoder.register(new NavPosllhView(), m -> {
+            if (first[0] < 0) {
+                first[0] = m.lon();
+            }
+        });
+        byte[] tail = readAll(reader.openSource(offset));
+        new UbxFrameReassembler(decoder).push(tail, 0, tail.length);
+        assertEquals(150, first[0]);
+    }
+
+    @Test
+    public void flushedDataSurvivesWithoutClose() throws Exception {
+        File dir = new File(folder.getRoot(), "s2");
+        byte[] data = session(100);
+        UbxSessionRecorder recorder = new UbxSessionRecorder(dir, 1 << 16, 1 << 16, 1000, 10);
+        recorder.onBytes(data, 0, data.length);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.getFlushedBytes() < data.length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // 不调用 close()，模拟进程被杀：预分配的段文件比实际数据长
+        UbxSessionReader reader = new UbxSessionReader(dir);
+        assertEquals(data.length, reader.length());
+        assertArrayEquals(data, readAll(reader.openSource(0)));
+        recorder.close();
+    }
+
+    @Test
+    public void fullRingDropsAndCounts() throws Exception {
+        File dir = new File(folder.getRoot(), "s3");
+        UbxSessionRecorder recorder = new UbxSessionRecorder(dir, 1 << 16, 1024, 1000, 1000);
+        byte[] big = new byte[2048];
+        recorder.onBytes(big, 0, big.length);
+        recorder.close();
+        assertEquals(2048, recorder.getDroppedBytes());
+        assertEquals(0, recorder.getBytesRecorded());
+    }
+}
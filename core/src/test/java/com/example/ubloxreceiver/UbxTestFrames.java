@@ -0,0 +1,75 @@
+package com.example.ubloxreceiver;
+
+import java.io.ByteArrayOutputStream;
+
+// 测试用的 UBX 帧构造工具
+final class UbxTestFrames {
+
+    private UbxTestFrames() {
+    }
+
+    static byte[] frame(int cls, int id, byte[] payload) {
+        byte[] frame = new byte[payload.length + 8];
+        frame[0] = (byte) 0xB5;
+        frame[1] = (byte) 0x62;
+        frame[2] = (byte) cls;
+        frame[3] = (byte) id;
+        frame[4] = (byte) payload.length;
+        frame[5] = (byte) (payload.length >> 8);
+        System.arraycopy(payload, 0, frame, 6, payload.length);
+        UbxChecksum.fill(frame, 0, frame.length);
+        return frame;
+    }
+
+    // NAV-POSLLH，坐标单位 1e-7 度，高度和精度单位 mm
+    static byte[] navPosllh(int iTOW, int lon, int lat, int height, int hMSL, int hAcc, int vAcc) {
+        byte[] payload = new byte[28];
+        putInt(payload, 0, iTOW);
+        putInt(payload, 4, lon);
+        putInt(payload, 8, lat);
+        putInt(payload, 12, height);
+        putInt(payload, 16, hMSL);
+        putInt(payload, 20, hAcc);
+        putInt(payload, 24, vAcc);
+        return frame(0x01, 0x02, payload);
+    }
+
+    // NAV-PVT，flags 为 gnssFixOK；坐标单位 1e-7 度，高度和精度单位 mm，速度 mm/s，航向 1e-5 度，pDOP 单位 0.01
+    static byte[] navPvt(int iTOW, int fixType, int numSV, int lon, int lat, int hMSL, int hAcc,
+                         int velN, int velE, int headMot, int pDOP) {
+        byte[] payload = new byte[92];
+        putInt(payload, 0, iTOW);
+        payload[20] = (byte) fixType;
+        payload[21] = 0x01;
+        payload[23] = (byte) numSV;
+        putInt(payload, 24, lon);
+        putInt(payload, 28, lat);
+        putInt(payload, 36, hMSL);
+        putInt(payload, 40, hAcc);
+        putInt(payload, 48, velN);
+        putInt(payload, 52, velE);
+        putInt(payload, 64, headMot);
+        putShort(payload, 76, pDOP);
+        return frame(0x01, 0x07, payload);
+    }
+
+    static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+    static void putShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
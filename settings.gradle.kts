@@ -19,3 +19,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "arduinoled2"
 include(":app")
+include(":core")